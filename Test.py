@@ -1,3 +1,6 @@
+# Perfil de carga do Locust. Para comparar os motores de transporte, rode o
+# mesmo perfil com server.engine=blocking e server.engine=nio no config.properties:
+#   locust -f Test.py --host http://localhost:8080
 from locust import HttpUser, task, between
 
 class LoadTestUser(HttpUser):
@@ -0,0 +1,95 @@
+package com.kheven.benchmarks;
+
+import com.kheven.http.Router;
+import com.kheven.http.ServerChannels;
+import com.kheven.nio.NioEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Mede a taxa de novas conexões (uma requisição com Connection: close por
+ * conexão) do motor NIO com 1, 2, 4... até N aceitadores, para mostrar o ganho
+ * dos canais com SO_REUSEPORT quando há muita troca de conexões.
+ * <p>
+ * Uso: {@code java -cp benchmarks/target/benchmarks.jar com.kheven.benchmarks.AcceptBenchmark
+ * [--json arquivo] [aceitadores] [clientes] [segundos]}
+ * <p>
+ * O padrão de aceitadores é o número de processadores. O ganho depende de haver
+ * núcleos livres para os clientes, que rodam na mesma máquina.
+ */
+public class AcceptBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        List<String> params = new ArrayList<>(List.of(args));
+        Path json = null;
+        int jsonIndex = params.indexOf("--json");
+        if (jsonIndex >= 0) {
+            if (jsonIndex + 1 >= params.size()) {
+                throw new IllegalArgumentException("--json requires a file name");
+            }
+            json = Path.of(params.remove(jsonIndex + 1));
+            params.remove(jsonIndex);
+        }
+        int maxAcceptors = params.size() > 0 ? Integer.parseInt(params.get(0))
+                : Runtime.getRuntime().availableProcessors();
+        int clients = params.size() > 1 ? Integer.parseInt(params.get(1)) : 64;
+        int seconds = params.size() > 2 ? Integer.parseInt(params.get(2)) : 5;
+
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("ok"), false);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        System.out.printf("SO_REUSEPORT: %s, %d clientes, %d s por cenário%n",
+                ServerChannels.isReusePortSupported() ? "sim" : "não", clients, seconds);
+        List<Integer> counts = new ArrayList<>();
+        List<LoadGenerator.Result> results = new ArrayList<>();
+        for (int acceptors = 1; acceptors <= maxAcceptors; acceptors = nextCount(acceptors, maxAcceptors)) {
+            // Um laço por aceitador, cada um com afinidade à sua própria partição
+            NioEngine engine = new NioEngine(0, router, executor, maxAcceptors, acceptors, true);
+            engine.start();
+            try {
+                LoadGenerator.Result result = LoadGenerator.run("localhost", engine.getPort(), "/", clients, seconds, false);
+                counts.add(acceptors);
+                results.add(result);
+                System.out.printf("%2d aceitador(es): %10.0f conexões/s  p99 %6d µs  erros %d%n", acceptors,
+                        result.requestsPerSecond(), result.latency().percentile(0.99), result.errors());
+            } finally {
+                engine.close();
+                engine.awaitTermination();
+            }
+        }
+        executor.shutdownNow();
+
+        if (json != null) {
+            StringBuilder out = new StringBuilder("{\n  \"clients\": ").append(clients)
+                    .append(",\n  \"seconds\": ").append(seconds).append(",\n  \"results\": [\n");
+            for (int i = 0; i < results.size(); i++) {
+                LoadGenerator.Result result = results.get(i);
+                out.append("    {\"acceptors\": ").append(counts.get(i))
+                        .append(", \"connectionsPerSecond\": ")
+                        .append(String.format(Locale.ROOT, "%.1f", result.requestsPerSecond()))
+                        .append(", \"errors\": ").append(result.errors())
+                        .append(", \"p50Micros\": ").append(result.latency().percentile(0.5))
+                        .append(", \"p99Micros\": ").append(result.latency().percentile(0.99))
+                        .append(i + 1 < results.size() ? "},\n" : "}\n");
+            }
+            out.append("  ]\n}\n");
+            Files.writeString(json, out);
+            System.out.println("Resultados gravados em " + json);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Dobra o número de aceitadores, terminando sempre no máximo pedido.
+     */
+    private static int nextCount(int current, int max) {
+        return current < max && current * 2 > max ? max : current * 2;
+    }
+}
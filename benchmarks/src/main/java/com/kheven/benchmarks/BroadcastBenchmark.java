@@ -0,0 +1,90 @@
+package com.kheven.benchmarks;
+
+import com.kheven.handler.WebSocketHandler;
+import com.kheven.http.HttpParseException;
+import com.kheven.http.HttpParser;
+import com.kheven.model.Request;
+import com.kheven.websocket.WebSocket;
+import com.kheven.websocket.WebSocketGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o envio de uma mensagem a muitos sockets com o {@link WebSocketGroup},
+ * que codifica o quadro uma única vez, contra o envio com
+ * {@link WebSocket#sendText(String)} em cada socket, que codifica o texto a
+ * cada envio. O transporte só consome os bytes, sem I/O.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar BroadcastBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    private static final byte[] HANDSHAKE = ("GET /updates HTTP/1.1\r\nHost: localhost\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final String MESSAGE = "{\"symbol\":\"KHVN\",\"price\":123.45,\"volume\":67890,\"ts\":1700000000}";
+
+    @Param({"100", "1000"})
+    private int subscribers;
+
+    private final WebSocketGroup group = new WebSocketGroup();
+    private final List<WebSocket> sockets = new ArrayList<>();
+    private long sent;
+
+    @Setup
+    public void setUp() throws HttpParseException {
+        Request request = new Request(new HttpParser().parse(ByteBuffer.wrap(HANDSHAKE)), InputStream.nullInputStream());
+        WebSocketHandler handler = (socket, text) -> {
+        };
+        WebSocket.Transport transport = new WebSocket.Transport() {
+            @Override
+            public void send(ByteBuffer frame) {
+                sent += frame.remaining();
+                frame.position(frame.limit());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        for (int i = 0; i < subscribers; i++) {
+            WebSocket socket = new WebSocket(request, handler, transport);
+            sockets.add(socket);
+            group.add(socket);
+        }
+    }
+
+    @Benchmark
+    public int broadcast() {
+        return group.broadcast(MESSAGE);
+    }
+
+    @Benchmark
+    public long perSocket() throws IOException {
+        for (WebSocket socket : sockets) {
+            socket.sendText(MESSAGE);
+        }
+        return sent;
+    }
+}
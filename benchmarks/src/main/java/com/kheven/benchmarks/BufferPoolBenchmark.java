@@ -0,0 +1,134 @@
+package com.kheven.benchmarks;
+
+import com.kheven.handler.HttpHandler;
+import com.kheven.http.BufferPool;
+import com.kheven.http.Router;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a alocação por requisição do {@link HttpHandler} com os buffers vindos
+ * do {@link BufferPool} e sem reaproveitamento (um pool que não guarda nada,
+ * equivalente a alocar os buffers em cada conexão).
+ * <p>
+ * O servidor roda no mesmo processo, então o gc.alloc.rate.norm do -prof gc
+ * inclui a alocação do servidor e a do cliente, que é igual nos dois casos.
+ * {@code connection} abre uma conexão por requisição (buffers de leitura e de
+ * cabeçalhos); {@code unreadBody} envia, em uma conexão persistente, um POST
+ * cujo corpo o handler não lê e o servidor descarta.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar BufferPoolBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferPoolBenchmark {
+    private static final byte[] CLOSE_REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"true", "false"})
+    private boolean pooled;
+
+    private final ByteBuffer response = ByteBuffer.allocate(4096);
+    private ServerSocketChannel server;
+    private SocketChannel keepAlive;
+    private ByteBuffer postRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BufferPool pool = pooled ? new BufferPool(false, 2 * Runtime.getRuntime().availableProcessors(), 64, false)
+                : new BufferPool(false, 1, 0, false);
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("ok"), false);
+        router.addRoute("POST", "/", (req, res) -> res.setBody("ok"), false);
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+        Thread.ofPlatform().daemon().start(() -> {
+            try {
+                while (true) {
+                    SocketChannel client = server.accept();
+                    Thread.ofVirtual().start(() -> {
+                        try {
+                            new HttpHandler(client.socket(), router, System.nanoTime(), pool).handle();
+                        } catch (IOException ignored) {
+                        }
+                    });
+                }
+            } catch (IOException ignored) {
+            }
+        });
+
+        keepAlive = SocketChannel.open(server.getLocalAddress());
+        byte[] body = "x".repeat(16 * 1024).getBytes(StandardCharsets.US_ASCII);
+        byte[] head = ("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        postRequest = ByteBuffer.allocate(head.length + body.length).put(head).put(body).flip();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        keepAlive.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int connection() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+            channel.write(ByteBuffer.wrap(CLOSE_REQUEST));
+            response.clear();
+            while (channel.read(response) != -1) {
+                response.clear();
+            }
+        }
+        return response.position();
+    }
+
+    @Benchmark
+    public int unreadBody() throws IOException {
+        try {
+            return post();
+        } catch (IOException e) {
+            // O servidor fecha a conexão ao atingir server.keepalive.max.requests
+            keepAlive.close();
+            keepAlive = SocketChannel.open(server.getLocalAddress());
+            return post();
+        }
+    }
+
+    private int post() throws IOException {
+        postRequest.rewind();
+        while (postRequest.hasRemaining()) {
+            keepAlive.write(postRequest);
+        }
+        // A resposta termina com o corpo "ok"
+        response.clear();
+        do {
+            if (keepAlive.read(response) == -1) {
+                throw new IOException("Connection closed by the server");
+            }
+        } while (response.position() < 2 || response.get(response.position() - 1) != 'k'
+                || response.get(response.position() - 2) != 'o');
+        return response.position();
+    }
+}
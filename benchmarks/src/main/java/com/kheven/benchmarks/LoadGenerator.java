@@ -0,0 +1,255 @@
+package com.kheven.benchmarks;
+
+import com.kheven.http.HttpServer;
+import com.kheven.status.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gerador de carga em loopback: mede requisições por segundo e os percentis de
+ * latência contra o servidor em execução, com conexões persistentes
+ * (keep-alive) e com uma conexão nova por requisição (close).
+ * <p>
+ * Uso: {@code java -cp benchmarks/target/benchmarks.jar com.kheven.benchmarks.LoadGenerator
+ * [--embedded] [--json arquivo] [host] [porta] [conexões] [segundos] [caminho]}
+ * <p>
+ * Com {@code --embedded} o servidor é iniciado no próprio processo, lendo o
+ * config.properties do diretório atual. Com {@code --json} os resultados também
+ * são gravados em JSON, para comparar execuções entre commits.
+ */
+public class LoadGenerator {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    public static void main(String[] args) throws Exception {
+        List<String> params = new ArrayList<>(List.of(args));
+        boolean embedded = params.remove("--embedded");
+        Path json = null;
+        int jsonIndex = params.indexOf("--json");
+        if (jsonIndex >= 0) {
+            if (jsonIndex + 1 >= params.size()) {
+                throw new IllegalArgumentException("--json requires a file name");
+            }
+            json = Path.of(params.remove(jsonIndex + 1));
+            params.remove(jsonIndex);
+        }
+        String host = params.size() > 0 ? params.get(0) : "localhost";
+        int port = params.size() > 1 ? Integer.parseInt(params.get(1)) : 8080;
+        int connections = params.size() > 2 ? Integer.parseInt(params.get(2)) : 16;
+        int seconds = params.size() > 3 ? Integer.parseInt(params.get(3)) : 10;
+        String path = params.size() > 4 ? params.get(4) : "/";
+
+        if (embedded) {
+            startEmbeddedServer(host, port);
+        }
+
+        System.out.printf("Alvo: http://%s:%d%s, %d conexões, %d s por modo%n", host, port, path, connections, seconds);
+        Result keepAlive = run(host, port, path, connections, seconds, true);
+        Result close = run(host, port, path, connections, seconds, false);
+        print("keep-alive", keepAlive);
+        print("close", close);
+        System.out.printf("ganho     : %10.2fx%n", keepAlive.requestsPerSecond() / close.requestsPerSecond());
+
+        if (json != null) {
+            String target = "http://" + host + ":" + port + path;
+            Files.writeString(json, toJson(target, connections, seconds, keepAlive, close));
+            System.out.println("Resultados gravados em " + json);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Resultado de um modo: requisições concluídas, erros e latências.
+     */
+    record Result(long requests, long errors, int seconds, LatencyHistogram latency) {
+        double requestsPerSecond() {
+            return requests / (double) seconds;
+        }
+    }
+
+    private static void startEmbeddedServer(String host, int port) throws InterruptedException {
+        Thread server = new Thread(() -> {
+            try {
+                new HttpServer().start();
+            } catch (IOException e) {
+                System.err.println("Server error: " + e.getMessage());
+            }
+        });
+        server.setDaemon(true);
+        server.start();
+        // Aguarda o servidor aceitar conexões
+        for (int i = 0; i < 100; i++) {
+            try (Socket ignored = new Socket(host, port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Servidor não iniciou na porta " + port);
+    }
+
+    /**
+     * Executa o cenário pelo tempo indicado. A latência de cada requisição vai do
+     * envio ao último byte da resposta e, no modo close, inclui a abertura da conexão.
+     */
+    static Result run(String host, int port, String path, int connections, int seconds, boolean keepAlive)
+            throws InterruptedException {
+        byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n") + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        LatencyHistogram latency = new LatencyHistogram();
+
+        // Aquecimento curto para não medir a compilação JIT
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        long end = warmupEnd + seconds * 1_000_000_000L;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Thread worker = new Thread(() -> {
+                Socket socket = null;
+                try {
+                    while (System.nanoTime() < end) {
+                        try {
+                            long start = System.nanoTime();
+                            if (socket == null) {
+                                socket = new Socket(host, port);
+                                socket.setTcpNoDelay(true);
+                            }
+                            OutputStream out = socket.getOutputStream();
+                            InputStream in = new BufferedInputStream(socket.getInputStream());
+                            boolean open = true;
+                            while (open && System.nanoTime() < end) {
+                                out.write(request);
+                                out.flush();
+                                open = readResponse(in) && keepAlive;
+                                long now = System.nanoTime();
+                                if (now > warmupEnd) {
+                                    completed.increment();
+                                    latency.record(now - start);
+                                }
+                                start = now;
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                        }
+                        closeQuietly(socket);
+                        socket = null;
+                    }
+                } finally {
+                    closeQuietly(socket);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (errors.sum() > 0) {
+            System.err.printf("%s: %d erros de conexão%n", keepAlive ? "keep-alive" : "close", errors.sum());
+        }
+        return new Result(completed.sum(), errors.sum(), seconds, latency);
+    }
+
+    private static void print(String mode, Result result) {
+        StringBuilder line = new StringBuilder(String.format("%-10s: %10.0f req/s", mode, result.requestsPerSecond()));
+        for (int i = 0; i < QUANTILES.length; i++) {
+            line.append(String.format("  %s %6d µs", QUANTILE_NAMES[i], result.latency().percentile(QUANTILES[i])));
+        }
+        System.out.println(line);
+    }
+
+    /**
+     * Monta o JSON com os resultados dos dois modos.
+     */
+    static String toJson(String target, int connections, int seconds, Result keepAlive, Result close) {
+        StringBuilder out = new StringBuilder(512);
+        out.append("{\n");
+        out.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        out.append("  \"target\": \"").append(target.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+        out.append("  \"connections\": ").append(connections).append(",\n");
+        out.append("  \"seconds\": ").append(seconds).append(",\n");
+        out.append("  \"results\": {\n");
+        appendResult(out, "keep-alive", keepAlive);
+        out.append(",\n");
+        appendResult(out, "close", close);
+        out.append("\n  }\n}\n");
+        return out.toString();
+    }
+
+    private static void appendResult(StringBuilder out, String mode, Result result) {
+        LatencyHistogram latency = result.latency();
+        long count = latency.getCount();
+        out.append("    \"").append(mode).append("\": {\n");
+        out.append("      \"requests\": ").append(result.requests()).append(",\n");
+        out.append("      \"errors\": ").append(result.errors()).append(",\n");
+        out.append("      \"requestsPerSecond\": ")
+                .append(String.format(Locale.ROOT, "%.1f", result.requestsPerSecond())).append(",\n");
+        out.append("      \"latencyMicros\": {");
+        out.append("\"mean\": ").append(count > 0 ? latency.getSumNanos() / count / 1000 : 0);
+        for (int i = 0; i < QUANTILES.length; i++) {
+            out.append(", \"").append(QUANTILE_NAMES[i]).append("\": ").append(latency.percentile(QUANTILES[i]));
+        }
+        out.append("}\n    }");
+    }
+
+    /**
+     * Lê uma resposta completa e informa se o servidor manteve a conexão aberta.
+     */
+    private static boolean readResponse(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int contentLength = 0;
+        boolean open = true;
+        boolean statusLine = true;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("Conexão encerrada no meio da resposta");
+            }
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                if (line.isEmpty()) {
+                    break;
+                }
+                String header = line.toString();
+                if (statusLine) {
+                    statusLine = false;
+                } else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                } else if (header.regionMatches(true, 0, "Connection:", 0, 11)) {
+                    open = !header.substring(11).trim().equalsIgnoreCase("close");
+                }
+                line.setLength(0);
+            } else {
+                line.append((char) b);
+            }
+        }
+        in.skipNBytes(contentLength);
+        return open;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.kheven.benchmarks;
+
+import com.kheven.http.HttpParseException;
+import com.kheven.http.HttpParser;
+import com.kheven.model.Request;
+import com.kheven.model.RequestHead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o analisador de requisições por bytes ({@link HttpParser}) com o
+ * analisador original baseado em BufferedReader e String.split.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar ParserBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    // Requisição típica de navegador
+    private static final String REQUEST = "GET /api/users HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:131.0) Gecko/20100101 Firefox/131.0\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+            + "Accept-Language: pt-BR,pt;q=0.8,en-US;q=0.5,en;q=0.3\r\n"
+            + "Accept-Encoding: gzip, deflate, br, zstd\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Upgrade-Insecure-Requests: 1\r\n"
+            + "Sec-Fetch-Dest: document\r\n"
+            + "Sec-Fetch-Mode: navigate\r\n"
+            + "Sec-Fetch-Site: none\r\n"
+            + "\r\n";
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private HttpParser parser;
+
+    @Setup
+    public void setUp() {
+        bytes = REQUEST.getBytes(StandardCharsets.US_ASCII);
+        buffer = ByteBuffer.wrap(bytes);
+        parser = new HttpParser();
+    }
+
+    @Benchmark
+    public Object legacyParser() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)));
+        Request request = legacyParse(in);
+        // Mesmo trabalho que o servidor faz por requisição: caminho e Connection
+        return request.getPath().length() + request.getHeaders().get("Connection").length();
+    }
+
+    @Benchmark
+    public Object byteParser() throws HttpParseException {
+        buffer.clear();
+        Request request = new Request(parser.parse(buffer), "");
+        return request.getPath().length() + request.getHeader("Connection").length();
+    }
+
+    @Benchmark
+    public Object byteParserSplitReads() throws HttpParseException {
+        // A mesma requisição chegando em três leituras
+        int third = bytes.length / 3;
+        parser.parse(ByteBuffer.wrap(bytes, 0, third));
+        parser.parse(ByteBuffer.wrap(bytes, third, third));
+        RequestHead head = parser.parse(ByteBuffer.wrap(bytes, 2 * third, bytes.length - 2 * third));
+        Request request = new Request(head, "");
+        return request.getPath().length() + request.getHeader("Connection").length();
+    }
+
+    /**
+     * Cópia do analisador original de HttpHandler, mantida como referência.
+     */
+    private static Request legacyParse(BufferedReader in) throws IOException {
+        String firstLine = in.readLine();
+        String[] parts = firstLine.split(" ");
+        String method = parts[0];
+        String path = parts[1];
+
+        Map<String, String> headers = new HashMap<>();
+        String headerLine;
+        while ((headerLine = in.readLine()) != null && !headerLine.isEmpty()) {
+            String[] headerParts = headerLine.split(": ", 2);
+            headers.put(headerParts[0], headerParts[1]);
+        }
+
+        StringBuilder body = new StringBuilder();
+        if (headers.containsKey("Content-Length")) {
+            int contentLength = Integer.parseInt(headers.get("Content-Length"));
+            char[] buffer = new char[contentLength];
+            in.read(buffer, 0, contentLength);
+            body.append(buffer);
+        }
+        return new Request(method, path, headers, body.toString());
+    }
+}
@@ -0,0 +1,105 @@
+package com.kheven.benchmarks;
+
+import com.kheven.handler.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o custo de uma verificação do {@link RateLimiter} com milhares e milhões
+ * de clientes distintos, visitados em sequência (cada verificação cai em uma
+ * posição diferente da tabela, sem ajuda do cache da CPU).
+ * <p>
+ * {@code table} usa uma tabela com posições para todos os clientes;
+ * {@code boundedTable} usa a tabela padrão de 65536 clientes, em que os
+ * clientes novos ocupam as posições dos antigos. A referência é o balde de
+ * fichas mais comum: um objeto sincronizado por cliente em um
+ * ConcurrentHashMap, que aloca na primeira visita e cuja memória cresce com o
+ * número de clientes.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar RateLimiterBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RateLimiterBenchmark {
+    private static final int RATE = 100;
+
+    @Param({"1000", "1000000", "4000000"})
+    private int clients;
+
+    private long[] keys;
+    private int next;
+    private RateLimiter table;
+    private RateLimiter boundedTable;
+    private Map<Long, Bucket> map;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        keys = new long[clients];
+        for (int i = 0; i < clients; i++) {
+            keys[i] = random.nextLong();
+        }
+        table = new RateLimiter(RATE, route -> -1, null, clients * 2);
+        boundedTable = new RateLimiter(RATE, route -> -1, null, 65536);
+        map = new ConcurrentHashMap<>();
+    }
+
+    private long nextKey() {
+        long key = keys[next];
+        if (++next == keys.length) {
+            next = 0;
+        }
+        return key;
+    }
+
+    @Benchmark
+    public long table() {
+        return table.tryAcquire(nextKey(), null);
+    }
+
+    @Benchmark
+    public long boundedTable() {
+        return boundedTable.tryAcquire(nextKey(), null);
+    }
+
+    @Benchmark
+    public boolean concurrentHashMap() {
+        return map.computeIfAbsent(nextKey(), key -> new Bucket()).tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Balde de fichas convencional: as fichas e o instante da última recarga, sob um lock.
+     */
+    private static final class Bucket {
+        private double tokens = RATE;
+        private long refilledAt = System.nanoTime();
+
+        synchronized boolean tryAcquire(long now) {
+            tokens = Math.min(RATE, tokens + (now - refilledAt) * RATE / 1e9);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
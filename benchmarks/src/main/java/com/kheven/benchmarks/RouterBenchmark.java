@@ -0,0 +1,95 @@
+package com.kheven.benchmarks;
+
+import com.kheven.handler.RouteHandler;
+import com.kheven.http.Router;
+import com.kheven.model.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o {@link Router} (mapa de caminhos fixos + árvore de segmentos) com a
+ * busca linear original sobre uma lista de rotas, com mais de mil rotas
+ * registradas.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar RouterBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+    private static final RouteHandler HANDLER = (req, res) -> { };
+
+    @Param({"1000", "5000"})
+    private int routeCount;
+
+    private Router router;
+    private List<Route> legacyRoutes;
+    private String staticPath;
+    private String paramPath;
+
+    @Setup
+    public void setUp() {
+        router = new Router();
+        legacyRoutes = new ArrayList<>();
+        // Metade das rotas é fixa e metade tem parâmetros
+        for (int i = 0; i < routeCount / 2; i++) {
+            addRoute("GET", "/api/v1/resource" + i);
+            addRoute("GET", "/api/v1/resource" + i + "/{id}/items/{item}");
+        }
+        // Caminhos do fim da lista: o pior caso da busca linear
+        staticPath = "/api/v1/resource" + (routeCount / 2 - 1);
+        paramPath = "/api/v1/resource" + (routeCount / 2 - 1) + "/42/items/7";
+    }
+
+    private void addRoute(String method, String path) {
+        router.addRoute(method, path, HANDLER);
+        legacyRoutes.add(new Route(method, path, HANDLER));
+    }
+
+    @Benchmark
+    public Route routerStatic() {
+        return router.findRoute("GET", staticPath);
+    }
+
+    @Benchmark
+    public Route routerParam() {
+        return router.findRoute("GET", paramPath);
+    }
+
+    @Benchmark
+    public Route legacyStatic() {
+        return legacyFind("GET", staticPath);
+    }
+
+    @Benchmark
+    public Route legacyParam() {
+        return legacyFind("GET", paramPath);
+    }
+
+    /**
+     * Cópia da busca original de Router (igualdade exata do caminho), mantida
+     * como referência.
+     */
+    private Route legacyFind(String method, String path) {
+        return legacyRoutes.stream()
+                .filter(route -> route.getMethod().equals(method) && route.getPath().equals(path))
+                .findFirst()
+                .orElse(null);
+    }
+}
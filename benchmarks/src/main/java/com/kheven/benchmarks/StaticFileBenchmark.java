@@ -0,0 +1,112 @@
+package com.kheven.benchmarks;
+
+import com.kheven.handler.StaticFileCache;
+import com.kheven.handler.StaticFileHandler;
+import com.kheven.http.Response;
+import com.kheven.model.Request;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compara o {@link StaticFileHandler} com cache (corpo inteiro, gzip e
+ * revalidação 304) com a leitura original do arquivo a cada requisição.
+ * Arquivos acima de 64 KB são mapeados em memória pelo cache.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar StaticFileBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaticFileBenchmark {
+    @Param({"4096", "262144"})
+    private int fileSize;
+
+    private Path dir;
+    private Path file;
+    private StaticFileCache cache;
+    private Request plain;
+    private Request gzip;
+    private Request conditional;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("static-bench");
+        file = dir.resolve("index.html");
+        StringBuilder html = new StringBuilder(fileSize);
+        for (int i = 0; html.length() < fileSize; i++) {
+            html.append("<p>linha ").append(i).append(" do arquivo estático</p>\n");
+        }
+        html.setLength(fileSize);
+        Files.writeString(file, html);
+
+        cache = new StaticFileCache(dir.toString(), 64 * 1024 * 1024, 64 * 1024);
+        plain = new Request("GET", "/index.html", Map.of(), "");
+        gzip = new Request("GET", "/index.html", Map.of("Accept-Encoding", "gzip"), "");
+        Response first = new Response();
+        StaticFileHandler.serveStaticFile(cache, plain, first);
+        conditional = new Request("GET", "/index.html", Map.of("If-None-Match", first.getHeader("ETag")), "");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cache.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Response cached() throws IOException {
+        return serve(plain);
+    }
+
+    @Benchmark
+    public Response cachedGzip() throws IOException {
+        return serve(gzip);
+    }
+
+    @Benchmark
+    public Response notModified() throws IOException {
+        return serve(conditional);
+    }
+
+    @Benchmark
+    public Response legacy() throws IOException {
+        // Leitura original: verifica e lê o arquivo inteiro a cada requisição
+        Response response = new Response();
+        if (Files.exists(file) && !Files.isDirectory(file)) {
+            response.setStatusCode(200);
+            response.setContentType("text/html");
+            response.setBody(Files.readString(file));
+        }
+        return response;
+    }
+
+    private Response serve(Request request) throws IOException {
+        Response response = new Response();
+        StaticFileHandler.serveStaticFile(cache, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,91 @@
+package com.kheven.benchmarks;
+
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.HttpParseException;
+import com.kheven.http.HttpParser;
+import com.kheven.http.Response;
+import com.kheven.http.ResponseWriter;
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import com.kheven.model.RequestHead;
+import com.kheven.model.Route;
+import com.kheven.status.RequestTrace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o custo do rastreamento das fases ({@link RequestTrace}) no caminho de
+ * uma requisição em memória: análise do cabeçalho, busca da rota, handler e
+ * codificação da resposta, com o rastreamento desligado e ligado.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar TracingBenchmark -prof gc}
+ * <p>
+ * Para medir também a emissão dos eventos JFR, acrescente
+ * {@code -jvmArgsAppend -XX:StartFlightRecording}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+    private static final byte[] REQUEST = ("GET /api/users/42 HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "User-Agent: bench\r\n"
+            + "Accept: */*\r\n"
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    private final HttpParser parser = new HttpParser();
+    private final ByteBuffer input = ByteBuffer.wrap(REQUEST);
+    private final ByteBuffer headBuffer = ByteBuffer.allocate(ResponseWriter.HEAD_BUFFER_SIZE);
+    private final RequestTrace disabled = new RequestTrace(false);
+    private final RequestTrace enabled = new RequestTrace(true);
+    private RequestDispatcher dispatcher;
+
+    @Setup
+    public void setUp() {
+        Router router = new Router();
+        router.addRoute("GET", "/api/users/{id}", (req, res) -> res.setBody(req.getPathParam("id")));
+        dispatcher = new RequestDispatcher(router);
+    }
+
+    @Benchmark
+    public ByteBuffer untraced() throws HttpParseException {
+        return serve(disabled);
+    }
+
+    @Benchmark
+    public ByteBuffer traced() throws HttpParseException {
+        return serve(enabled);
+    }
+
+    private ByteBuffer serve(RequestTrace trace) throws HttpParseException {
+        input.clear();
+        trace.begin();
+        RequestHead head = parser.parse(input);
+        trace.mark(RequestTrace.Phase.PARSE);
+        Request request = new Request(head, InputStream.nullInputStream());
+        Route route = dispatcher.findRoute(request);
+        trace.mark(RequestTrace.Phase.ROUTE);
+        Response response = dispatcher.dispatch(request, route);
+        trace.mark(RequestTrace.Phase.HANDLE);
+        ByteBuffer encoded = ResponseWriter.encodeHead(response, true, headBuffer);
+        trace.mark(RequestTrace.Phase.WRITE);
+        trace.finish(request, response.getStatusCode());
+        return encoded;
+    }
+}
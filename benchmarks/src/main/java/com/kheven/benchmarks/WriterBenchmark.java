@@ -0,0 +1,136 @@
+package com.kheven.benchmarks;
+
+import com.kheven.http.Response;
+import com.kheven.http.ResponseWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara o {@link ResponseWriter} (cabeçalhos codificados em um buffer
+ * reutilizável e escrita com gathering) com o envio original, que montava cada
+ * linha com concatenação de Strings e fazia uma escrita por linha.
+ * <p>
+ * As escritas vão para destinos em memória, então o resultado mede só a
+ * codificação e as cópias; no socket, cada escrita do envio original também
+ * custa uma chamada de sistema.
+ * <p>
+ * Uso: {@code java -jar benchmarks/target/benchmarks.jar WriterBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriterBenchmark {
+    @Param({"16", "4096", "65536"})
+    private int bodySize;
+
+    private final SinkChannel channel = new SinkChannel();
+    private final SinkStream stream = new SinkStream();
+    private ByteBuffer headBuffer = ByteBuffer.allocate(ResponseWriter.HEAD_BUFFER_SIZE);
+    private Response response;
+    private String body;
+
+    @Setup
+    public void setUp() {
+        char[] chars = new char[bodySize];
+        Arrays.fill(chars, 'a');
+        body = new String(chars);
+        response = new Response();
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setBody(body);
+    }
+
+    @Benchmark
+    public long writer() throws IOException {
+        headBuffer = ResponseWriter.write(channel, response, true, headBuffer);
+        return channel.written;
+    }
+
+    @Benchmark
+    public long legacy() throws IOException {
+        // Envio original de HttpHandler.sendResponse
+        OutputStream out = stream;
+        out.write(("HTTP/1.1 " + response.getStatusCode() + " " + "OK" + "\r\n").getBytes());
+        out.write(("Content-Type: " + response.getContentType() + "\r\n").getBytes());
+        out.write(("Content-Length: " + body.length() + "\r\n").getBytes());
+        out.write("\r\n".getBytes());
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        return stream.written;
+    }
+
+    /**
+     * Canal que descarta os bytes escritos.
+     */
+    private static final class SinkChannel implements GatheringByteChannel {
+        private long written;
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                total += write(srcs[i]);
+            }
+            return total;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            written += remaining;
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Stream que descarta os bytes escritos.
+     */
+    private static final class SinkStream extends OutputStream {
+        private long written;
+
+        @Override
+        public void write(int b) {
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written += len;
+        }
+    }
+}
@@ -2,24 +2,110 @@ package com.kheven.config;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A classe Config é responsável por carregar e fornecer configurações
  * a partir de um arquivo de propriedades.
+ * <p>
+ * O arquivo é convertido uma única vez em um {@link ConfigSnapshot} imutável,
+ * e os getters apenas leem os seus campos. {@link #reload()} lê o arquivo de
+ * novo e troca a configuração de uma vez; com server.config.watch, um
+ * {@link ConfigWatcher} faz a recarga quando o arquivo muda. Valores inválidos
+ * são recusados e a configuração anterior continua valendo. Cada componente
+ * lê a configuração ao abrir uma conexão ou atender uma requisição, e os que
+ * guardam valores (e.g., limites e caches) se atualizam pelos listeners.
  */
 public class Config {
     private static final String CONFIG_FILE = "config.properties";
-    private static final Properties properties;
+    private static final String[] NO_HEADERS = new String[0];
+    private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private static volatile ConfigSnapshot snapshot;
+    private static ConfigWatcher watcher;
 
     // Bloco estático para carregar as propriedades do arquivo de configuração
     static {
-        properties = new Properties();
-        try (FileInputStream fis = new FileInputStream(CONFIG_FILE)) {
-            properties.load(fis);
+        Properties properties = new Properties();
+        try {
+            properties = read();
         } catch (IOException e) {
             System.err.println("Erro ao carregar a configuração: " + e.getMessage());
         }
+        snapshot = new ConfigSnapshot(properties);
+    }
+
+    private static Properties read() throws IOException {
+        Properties properties = new Properties();
+        try (FileInputStream fis = new FileInputStream(CONFIG_FILE)) {
+            properties.load(fis);
+        }
+        return properties;
+    }
+
+    /**
+     * Lê o arquivo de configuração de novo e troca a configuração atual. Se o
+     * arquivo não puder ser lido ou tiver valores inválidos, a configuração
+     * anterior é mantida.
+     *
+     * @return true se a nova configuração foi aplicada.
+     */
+    public static boolean reload() {
+        try {
+            apply(read());
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Configuration not reloaded, keeping the previous one: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Substitui a configuração atual pelas propriedades informadas e avisa os listeners.
+     *
+     * @param properties as novas propriedades; as ausentes voltam ao valor padrão.
+     * @throws IllegalArgumentException se algum valor for inválido; nesse caso nada muda.
+     */
+    public static synchronized void apply(Properties properties) {
+        snapshot = new ConfigSnapshot(properties);
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("Configuration listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registra uma ação executada depois de cada troca da configuração, para os
+     * componentes que guardam valores lidos dela.
+     *
+     * @param listener a ação.
+     */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Começa a observar o arquivo de configuração e a recarregá-lo quando ele
+     * muda. Chamadas seguintes não têm efeito.
+     */
+    public static synchronized void watch() {
+        if (watcher == null) {
+            watcher = ConfigWatcher.start(Path.of(CONFIG_FILE), Config::reload);
+        }
+    }
+
+    /**
+     * Indica se o arquivo de configuração deve ser recarregado quando muda.
+     *
+     * @return true se a observação estiver habilitada (padrão), false caso contrário.
+     */
+    public static boolean isConfigWatchEnabled() {
+        return snapshot.configWatch;
     }
 
     /**
@@ -28,7 +114,7 @@ public class Config {
      * @return a porta do servidor, ou 8080 se não estiver definida.
      */
     public static int getPort() {
-        return Integer.parseInt(properties.getProperty("server.port", "8080"));
+        return snapshot.port;
     }
 
     /**
@@ -37,6 +123,376 @@ public class Config {
      * @return o diretório estático do servidor, ou "static" se não estiver definido.
      */
     public static String getStaticDir() {
-        return properties.getProperty("server.static.dir", "static");
+        return snapshot.staticDir;
+    }
+
+    /**
+     * Obtém o tempo máximo (em milissegundos) que uma conexão persistente
+     * pode ficar ociosa aguardando a próxima requisição.
+     *
+     * @return o tempo limite de ociosidade, ou 5000 ms se não estiver definido.
+     */
+    public static int getKeepAliveTimeout() {
+        return snapshot.keepAliveTimeout;
+    }
+
+    /**
+     * Obtém o número máximo de requisições atendidas em uma mesma conexão
+     * antes que o servidor a feche.
+     *
+     * @return o limite de requisições por conexão, ou 1000 se não estiver definido.
+     */
+    public static int getKeepAliveMaxRequests() {
+        return snapshot.keepAliveMaxRequests;
+    }
+
+    /**
+     * Obtém o motor de transporte do servidor: "blocking" (ServerSocket com uma
+     * thread virtual por conexão) ou "nio" (laços de eventos com Selector).
+     *
+     * @return o motor de transporte, ou "blocking" se não estiver definido.
+     */
+    public static String getEngine() {
+        return snapshot.engine;
+    }
+
+    /**
+     * Obtém o número de laços de eventos usados pelo motor NIO.
+     *
+     * @return o número de laços, ou o número de processadores se não estiver definido.
+     */
+    public static int getEventLoops() {
+        return snapshot.eventLoops;
+    }
+
+    /**
+     * Obtém o número de aceitadores de conexões. Com SO_REUSEPORT, cada um escuta
+     * no seu próprio canal e o kernel distribui as conexões entre eles.
+     *
+     * @return o número de aceitadores, ou o número de processadores se não estiver definido.
+     */
+    public static int getAcceptors() {
+        return snapshot.acceptors;
+    }
+
+    /**
+     * Indica se cada aceitador do motor NIO entrega as conexões só aos laços da sua partição.
+     *
+     * @return true se a afinidade estiver habilitada, false caso contrário (padrão).
+     */
+    public static boolean isAcceptorAffinity() {
+        return snapshot.acceptorAffinity;
+    }
+
+    /**
+     * Obtém o tamanho máximo, em bytes, aceito para o corpo de uma requisição.
+     *
+     * @return o tamanho máximo do corpo, ou 10 MB se não estiver definido.
+     */
+    public static long getMaxBodySize() {
+        return snapshot.maxBodySize;
+    }
+
+    /**
+     * Obtém o tamanho máximo, em bytes, ocupado pelo cache de arquivos estáticos.
+     *
+     * @return o tamanho máximo do cache, ou 64 MB se não estiver definido.
+     */
+    public static long getStaticCacheMaxSize() {
+        return snapshot.staticCacheMaxSize;
+    }
+
+    /**
+     * Obtém o tamanho, em bytes, a partir do qual um arquivo estático é mapeado
+     * em memória em vez de copiado para o heap.
+     *
+     * @return o limite para mapear arquivos, ou 64 KB se não estiver definido.
+     */
+    public static long getStaticMmapThreshold() {
+        return snapshot.staticMmapThreshold;
+    }
+
+    /**
+     * Obtém o valor do cabeçalho Cache-Control para arquivos estáticos com a
+     * extensão informada (propriedade server.static.cache.control.&lt;extensão&gt;).
+     *
+     * @param extension a extensão do arquivo, em minúsculas e sem o ponto.
+     * @return o valor configurado para a extensão, o valor de
+     *         server.static.cache.control, ou "no-cache" se nenhum estiver definido.
+     */
+    public static String getStaticCacheControl(String extension) {
+        ConfigSnapshot current = snapshot;
+        return current.staticCacheControlByExtension.getOrDefault(extension, current.staticCacheControl);
+    }
+
+    /**
+     * Indica se as respostas devem ser comprimidas com gzip quando o cliente aceitar.
+     *
+     * @return true se a compressão estiver habilitada (padrão), false caso contrário.
+     */
+    public static boolean isCompressionEnabled() {
+        return snapshot.compressionEnabled;
+    }
+
+    /**
+     * Obtém o tamanho mínimo, em bytes, de um corpo para que ele seja comprimido.
+     *
+     * @return o tamanho mínimo, ou 1024 bytes se não estiver definido.
+     */
+    public static long getCompressionMinSize() {
+        return snapshot.compressionMinSize;
+    }
+
+    /**
+     * Indica se o relatório de status deve ser exibido no console a cada segundo.
+     *
+     * @return true se o relatório estiver habilitado, false caso contrário (padrão).
+     */
+    public static boolean isStatusConsoleEnabled() {
+        return snapshot.statusConsole;
+    }
+
+    /**
+     * Indica se o tempo de cada fase das requisições deve ser medido e
+     * registrado (histogramas por fase e eventos JFR).
+     *
+     * @return true se o rastreamento estiver habilitado (padrão), false caso contrário.
+     */
+    public static boolean isTracingEnabled() {
+        return snapshot.tracingEnabled;
+    }
+
+    /**
+     * Obtém o número máximo de requisições em andamento no servidor. Acima dele,
+     * as requisições são recusadas com 503.
+     *
+     * @return o limite, ou 10000 se não estiver definido; 0 desativa o limite.
+     */
+    public static int getMaxInflight() {
+        return snapshot.maxInflight;
+    }
+
+    /**
+     * Obtém o número máximo de requisições em andamento em uma rota, definido pela
+     * chave {@code server.route.max.inflight.<MÉTODO>.<caminho>} (e.g.,
+     * {@code server.route.max.inflight.GET./slow}).
+     *
+     * @param method o método HTTP da rota.
+     * @param path o caminho da rota, como registrado.
+     * @return o limite da rota, ou 0 se a rota não tiver limite.
+     */
+    public static int getRouteMaxInflight(String method, String path) {
+        return snapshot.routeMaxInflight.getOrDefault(method + "." + path, 0);
+    }
+
+    /**
+     * Obtém o tamanho da fila de conexões pendentes (backlog) do socket do servidor.
+     *
+     * @return o tamanho da fila, ou 1024 se não estiver definido.
+     */
+    public static int getBacklog() {
+        return snapshot.backlog;
+    }
+
+    /**
+     * Obtém os segundos informados no cabeçalho Retry-After das respostas 503.
+     *
+     * @return os segundos, ou 1 se não estiver definido.
+     */
+    public static int getRetryAfter() {
+        return snapshot.retryAfter;
+    }
+
+    /**
+     * Obtém o tempo limite, em milissegundos, de uma rota assíncrona. A chave
+     * {@code server.route.timeout.<MÉTODO>.<caminho>} tem prioridade sobre o padrão
+     * {@code server.async.timeout}.
+     *
+     * @param method o método HTTP da rota.
+     * @param path o caminho da rota, como registrado.
+     * @return o tempo limite, ou 30000 ms se nenhum estiver definido.
+     */
+    public static long getRouteTimeout(String method, String path) {
+        ConfigSnapshot current = snapshot;
+        return current.routeTimeout.getOrDefault(method + "." + path, current.asyncTimeout);
+    }
+
+    /**
+     * Obtém o intervalo, em milissegundos, entre os comentários de heartbeat
+     * enviados nas conexões de Server-Sent Events.
+     *
+     * @return o intervalo, ou 15000 ms se não estiver definido (0 desativa o heartbeat).
+     */
+    public static long getSseHeartbeat() {
+        return snapshot.sseHeartbeat;
+    }
+
+    /**
+     * Obtém o número máximo de requisições em pipeline de uma conexão
+     * atendidas em paralelo.
+     *
+     * @return a profundidade do pipeline, ou 16 se não estiver definida (1 atende uma por vez).
+     */
+    public static int getPipelineDepth() {
+        return snapshot.pipelineDepth;
+    }
+
+    /**
+     * Obtém o tamanho máximo, em bytes, das respostas guardadas no cache de respostas.
+     *
+     * @return o tamanho máximo, ou 16777216 (16 MB) se não estiver definido.
+     */
+    public static long getResponseCacheMaxSize() {
+        return snapshot.responseCacheMaxSize;
+    }
+
+    /**
+     * Obtém o tempo de vida, em milissegundos, das respostas de uma rota no
+     * cache de respostas, pela chave {@code server.route.cache.ttl.<MÉTODO>.<caminho>}.
+     *
+     * @param method o método HTTP da rota.
+     * @param path o caminho da rota, como registrado.
+     * @return o tempo de vida, ou 0 se a rota não usa o cache.
+     */
+    public static long getRouteCacheTtl(String method, String path) {
+        return snapshot.routeCacheTtl.getOrDefault(method + "." + path, 0L);
+    }
+
+    /**
+     * Obtém os cabeçalhos da requisição que fazem parte da chave do cache de
+     * uma rota, além de Accept-Encoding, pela chave {@code server.route.cache.vary.<MÉTODO>.<caminho>}.
+     *
+     * @param method o método HTTP da rota.
+     * @param path o caminho da rota, como registrado.
+     * @return os nomes dos cabeçalhos, ou nenhum se não estiverem definidos.
+     */
+    public static String[] getRouteCacheVary(String method, String path) {
+        return snapshot.routeCacheVary.getOrDefault(method + "." + path, NO_HEADERS).clone();
+    }
+
+    /**
+     * Obtém o número máximo de buffers livres guardados em cada faixa de cada
+     * classe de tamanho do pool de buffers.
+     *
+     * @return o limite, ou 64 se não estiver definido.
+     */
+    public static int getBufferPoolMax() {
+        return snapshot.bufferPoolMax;
+    }
+
+    /**
+     * Verifica se o pool de buffers deve registrar onde cada buffer foi obtido
+     * para acusar vazamentos. A propriedade de sistema de mesmo nome tem
+     * prioridade, para que os testes a liguem sem alterar o arquivo.
+     *
+     * @return true se a detecção de vazamentos estiver ligada, ou false se não estiver definida.
+     */
+    public static boolean isBufferLeakDetection() {
+        String value = System.getProperty("server.buffer.leak.detection");
+        return value != null ? Boolean.parseBoolean(value) : snapshot.bufferLeakDetection;
+    }
+
+    /**
+     * Verifica se o servidor aceita HTTP/2 sem TLS (h2c), com o prefácio ou com
+     * "Upgrade: h2c".
+     *
+     * @return true se o HTTP/2 estiver ligado ou não definido.
+     */
+    public static boolean isHttp2Enabled() {
+        return snapshot.http2Enabled;
+    }
+
+    /**
+     * Obtém o número máximo de streams HTTP/2 abertos ao mesmo tempo em uma conexão.
+     *
+     * @return o limite, ou 100 se não estiver definido.
+     */
+    public static int getHttp2MaxStreams() {
+        return snapshot.http2MaxStreams;
+    }
+
+    /**
+     * Obtém a janela de controle de fluxo de cada stream HTTP/2, em bytes: quanto
+     * do corpo de uma requisição o cliente pode enviar antes de o handler lê-lo.
+     *
+     * @return o tamanho da janela, ou 65535 se não estiver definido.
+     */
+    public static int getHttp2WindowSize() {
+        return snapshot.http2WindowSize;
+    }
+
+    /**
+     * Obtém o tamanho máximo de uma mensagem WebSocket recebida, somando os
+     * fragmentos; acima dele o socket é fechado com o código 1009.
+     *
+     * @return o tamanho máximo em bytes, ou 1048576 (1 MB) se não estiver definido.
+     */
+    public static long getWebSocketMaxMessageSize() {
+        return snapshot.webSocketMaxMessageSize;
+    }
+
+    /**
+     * Obtém o tempo sem receber dados depois do qual o servidor envia um ping ao
+     * cliente WebSocket; sem resposta no mesmo intervalo, o socket é fechado.
+     *
+     * @return o intervalo em milissegundos, ou 30000 se não estiver definido.
+     */
+    public static long getWebSocketPingInterval() {
+        return snapshot.webSocketPingInterval;
+    }
+
+    /**
+     * Obtém o prazo do encerramento gracioso feito pelo hook da JVM: o tempo que
+     * as requisições em andamento têm para terminar antes de as conexões serem fechadas.
+     *
+     * @return o prazo em milissegundos, ou 30000 se não estiver definido.
+     */
+    public static long getShutdownTimeout() {
+        return snapshot.shutdownTimeout;
+    }
+
+    /**
+     * Obtém o número de requisições por segundo permitidas a cada cliente, com
+     * rajadas de até o mesmo número de requisições.
+     *
+     * @return o limite, ou 0 se não houver limite (padrão).
+     */
+    public static int getRateLimit() {
+        return snapshot.rateLimit;
+    }
+
+    /**
+     * Obtém o limite de requisições por segundo de cada cliente em uma rota,
+     * definido pela chave {@code server.route.rate.limit.<MÉTODO>.<caminho>}
+     * (e.g., {@code server.route.rate.limit.POST./api/users}). A rota tem uma
+     * conta própria, separada do limite geral.
+     *
+     * @param method o método HTTP da rota.
+     * @param path o caminho da rota, como registrado.
+     * @return o limite da rota, 0 se a rota não tiver limite, ou -1 se valer o limite geral.
+     */
+    public static int getRouteRateLimit(String method, String path) {
+        return snapshot.routeRateLimit.getOrDefault(method + "." + path, -1);
+    }
+
+    /**
+     * Obtém o cabeçalho que identifica o cliente no limite de requisições (e.g.,
+     * X-Forwarded-For atrás de um proxy). Se o cabeçalho tiver uma lista, vale o
+     * último valor, o acrescentado pelo proxy; os anteriores vêm do cliente.
+     *
+     * @return o nome do cabeçalho, ou null para usar o endereço do socket (padrão).
+     */
+    public static String getRateLimitHeader() {
+        return snapshot.rateLimitHeader;
+    }
+
+    /**
+     * Obtém o número de clientes acompanhados pelo limite de requisições, que
+     * define a memória da tabela (16 bytes por cliente).
+     *
+     * @return o número de clientes, ou 65536 se não estiver definido.
+     */
+    public static int getRateLimitMaxClients() {
+        return snapshot.rateLimitMaxClients;
     }
-}
\ No newline at end of file
+}
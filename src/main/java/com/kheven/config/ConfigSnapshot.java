@@ -0,0 +1,167 @@
+package com.kheven.config;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Uma versão imutável da configuração, com os valores já convertidos para os
+ * seus tipos. É criada uma única vez a cada carga do arquivo e trocada
+ * atomicamente pelo {@link Config}: quem lê nunca vê uma configuração pela
+ * metade, e os getters não analisam texto a cada chamada.
+ */
+final class ConfigSnapshot {
+    private static final String ROUTE_MAX_INFLIGHT = "server.route.max.inflight.";
+    private static final String ROUTE_TIMEOUT = "server.route.timeout.";
+    private static final String ROUTE_CACHE_TTL = "server.route.cache.ttl.";
+    private static final String ROUTE_CACHE_VARY = "server.route.cache.vary.";
+    private static final String ROUTE_RATE_LIMIT = "server.route.rate.limit.";
+    private static final String STATIC_CACHE_CONTROL = "server.static.cache.control";
+
+    final int port;
+    final String staticDir;
+    final int keepAliveTimeout;
+    final int keepAliveMaxRequests;
+    final String engine;
+    final int eventLoops;
+    final int acceptors;
+    final boolean acceptorAffinity;
+    final long maxBodySize;
+    final long staticCacheMaxSize;
+    final long staticMmapThreshold;
+    final String staticCacheControl;
+    final boolean compressionEnabled;
+    final long compressionMinSize;
+    final boolean statusConsole;
+    final boolean tracingEnabled;
+    final int maxInflight;
+    final int backlog;
+    final int retryAfter;
+    final long asyncTimeout;
+    final long sseHeartbeat;
+    final int pipelineDepth;
+    final long responseCacheMaxSize;
+    final int bufferPoolMax;
+    final boolean bufferLeakDetection;
+    final boolean http2Enabled;
+    final int http2MaxStreams;
+    final int http2WindowSize;
+    final long webSocketMaxMessageSize;
+    final long webSocketPingInterval;
+    final long shutdownTimeout;
+    final boolean configWatch;
+    final int rateLimit;
+    final String rateLimitHeader;
+    final int rateLimitMaxClients;
+    // Valores por extensão e por rota, com a chave sem o prefixo (e.g., "css" ou "GET./slow")
+    final Map<String, String> staticCacheControlByExtension;
+    final Map<String, Integer> routeMaxInflight;
+    final Map<String, Long> routeTimeout;
+    final Map<String, Long> routeCacheTtl;
+    final Map<String, String[]> routeCacheVary;
+    final Map<String, Integer> routeRateLimit;
+
+    /**
+     * Converte as propriedades em uma configuração imutável.
+     *
+     * @param properties as propriedades lidas do arquivo.
+     * @throws IllegalArgumentException se algum valor não puder ser convertido.
+     */
+    ConfigSnapshot(Properties properties) {
+        Reader reader = new Reader(properties);
+        port = reader.getInt("server.port", 8080);
+        staticDir = properties.getProperty("server.static.dir", "static");
+        keepAliveTimeout = reader.getInt("server.keepalive.timeout", 5000);
+        keepAliveMaxRequests = reader.getInt("server.keepalive.max.requests", 1000);
+        engine = properties.getProperty("server.engine", "blocking");
+        eventLoops = reader.getInt("server.nio.loops", Runtime.getRuntime().availableProcessors());
+        acceptors = reader.getInt("server.acceptors", Runtime.getRuntime().availableProcessors());
+        acceptorAffinity = reader.getBoolean("server.acceptor.affinity", false);
+        maxBodySize = reader.getLong("server.request.max.body.size", 10485760);
+        staticCacheMaxSize = reader.getLong("server.static.cache.max.size", 67108864);
+        staticMmapThreshold = reader.getLong("server.static.mmap.threshold", 65536);
+        staticCacheControl = properties.getProperty(STATIC_CACHE_CONTROL, "no-cache");
+        compressionEnabled = reader.getBoolean("server.compression.enabled", true);
+        compressionMinSize = reader.getLong("server.compression.min.size", 1024);
+        statusConsole = reader.getBoolean("server.status.console", false);
+        tracingEnabled = reader.getBoolean("server.tracing.enabled", true);
+        maxInflight = reader.getInt("server.max.inflight", 10000);
+        backlog = reader.getInt("server.backlog", 1024);
+        retryAfter = reader.getInt("server.retry.after", 1);
+        asyncTimeout = reader.getLong("server.async.timeout", 30000);
+        sseHeartbeat = reader.getLong("server.sse.heartbeat", 15000);
+        pipelineDepth = reader.getInt("server.pipeline.depth", 16);
+        responseCacheMaxSize = reader.getLong("server.response.cache.max.size", 16777216);
+        bufferPoolMax = reader.getInt("server.buffer.pool.max", 64);
+        bufferLeakDetection = reader.getBoolean("server.buffer.leak.detection", false);
+        http2Enabled = reader.getBoolean("server.http2.enabled", true);
+        http2MaxStreams = reader.getInt("server.http2.max.streams", 100);
+        http2WindowSize = reader.getInt("server.http2.window.size", 65535);
+        webSocketMaxMessageSize = reader.getLong("server.websocket.max.message.size", 1048576);
+        webSocketPingInterval = reader.getLong("server.websocket.ping.interval", 30000);
+        shutdownTimeout = reader.getLong("server.shutdown.timeout", 30000);
+        configWatch = reader.getBoolean("server.config.watch", true);
+        rateLimit = reader.getInt("server.rate.limit", 0);
+        String clientHeader = properties.getProperty("server.rate.limit.header", "").trim();
+        rateLimitHeader = clientHeader.isEmpty() ? null : clientHeader;
+        rateLimitMaxClients = reader.getInt("server.rate.limit.max.clients", 65536);
+
+        Map<String, String> cacheControl = new HashMap<>();
+        Map<String, Integer> inflight = new HashMap<>();
+        Map<String, Long> timeouts = new HashMap<>();
+        Map<String, Long> ttls = new HashMap<>();
+        Map<String, String[]> vary = new HashMap<>();
+        Map<String, Integer> rates = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(STATIC_CACHE_CONTROL + ".")) {
+                cacheControl.put(name.substring(STATIC_CACHE_CONTROL.length() + 1), properties.getProperty(name));
+            } else if (name.startsWith(ROUTE_MAX_INFLIGHT)) {
+                inflight.put(name.substring(ROUTE_MAX_INFLIGHT.length()), reader.getInt(name, 0));
+            } else if (name.startsWith(ROUTE_TIMEOUT)) {
+                timeouts.put(name.substring(ROUTE_TIMEOUT.length()), reader.getLong(name, 0));
+            } else if (name.startsWith(ROUTE_CACHE_TTL)) {
+                ttls.put(name.substring(ROUTE_CACHE_TTL.length()), reader.getLong(name, 0));
+            } else if (name.startsWith(ROUTE_CACHE_VARY)) {
+                vary.put(name.substring(ROUTE_CACHE_VARY.length()), Arrays.stream(properties.getProperty(name).split(","))
+                        .map(String::trim).filter(header -> !header.isEmpty()).toArray(String[]::new));
+            } else if (name.startsWith(ROUTE_RATE_LIMIT)) {
+                rates.put(name.substring(ROUTE_RATE_LIMIT.length()), reader.getInt(name, 0));
+            }
+        }
+        staticCacheControlByExtension = Map.copyOf(cacheControl);
+        routeMaxInflight = Map.copyOf(inflight);
+        routeTimeout = Map.copyOf(timeouts);
+        routeCacheTtl = Map.copyOf(ttls);
+        routeCacheVary = Map.copyOf(vary);
+        routeRateLimit = Map.copyOf(rates);
+    }
+
+    /**
+     * Converte os valores das propriedades, indicando a chave inválida no erro.
+     */
+    private record Reader(Properties properties) {
+        int getInt(String name, int defaultValue) {
+            String value = properties.getProperty(name);
+            try {
+                return value == null ? defaultValue : Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+            }
+        }
+
+        long getLong(String name, long defaultValue) {
+            String value = properties.getProperty(name);
+            try {
+                return value == null ? defaultValue : Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+            }
+        }
+
+        boolean getBoolean(String name, boolean defaultValue) {
+            String value = properties.getProperty(name);
+            return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+        }
+    }
+}
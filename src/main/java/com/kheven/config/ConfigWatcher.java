@@ -0,0 +1,117 @@
+package com.kheven.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Observa um arquivo com um {@link WatchService} sobre o seu diretório e
+ * executa uma ação quando ele muda. Como um editor costuma gerar vários
+ * eventos para uma gravação, a ação só roda depois que o arquivo fica um
+ * intervalo sem mudar; substituir o arquivo por um novo (e.g., com um rename)
+ * também conta como mudança.
+ */
+public final class ConfigWatcher implements AutoCloseable {
+    // Tempo sem eventos depois do qual a gravação é considerada concluída
+    private static final long QUIET_PERIOD = 100;
+
+    private final WatchService service;
+    private final Path fileName;
+    private final Runnable onChange;
+
+    private ConfigWatcher(WatchService service, Path fileName, Runnable onChange) {
+        this.service = service;
+        this.fileName = fileName;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Começa a observar o arquivo em uma thread daemon.
+     *
+     * @param file o arquivo observado.
+     * @param onChange a ação executada, na thread de observação, quando o arquivo muda.
+     * @return o observador, ou null se o diretório não puder ser observado.
+     */
+    public static ConfigWatcher start(Path file, Runnable onChange) {
+        Path absolute = file.toAbsolutePath();
+        WatchService service = null;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            absolute.getParent().register(service, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("Configuration reload disabled, cannot watch " + absolute + ": " + e.getMessage());
+            if (service != null) {
+                try {
+                    service.close();
+                } catch (IOException ignored) {
+                    // O serviço não chegou a ser usado
+                }
+            }
+            return null;
+        }
+        ConfigWatcher watcher = new ConfigWatcher(service, absolute.getFileName(), onChange);
+        Thread.ofPlatform().daemon().name("config-watcher").start(watcher::watch);
+        return watcher;
+    }
+
+    /**
+     * Para de observar o arquivo.
+     */
+    @Override
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException e) {
+            System.err.println("Error closing config watcher: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Laço da thread de observação.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = collect(key);
+                // Espera a gravação terminar, juntando os eventos seguintes
+                while ((key = service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= collect(key);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Config watcher action failed: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // O observador foi fechado
+        }
+    }
+
+    /**
+     * Consome os eventos da chave.
+     *
+     * @return true se algum evento se refere ao arquivo observado.
+     */
+    private boolean collect(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // Com eventos perdidos não há como saber se o arquivo mudou
+            changed |= event.kind() == OVERFLOW || fileName.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,176 @@
+package com.kheven.handler;
+
+import com.kheven.config.Config;
+import com.kheven.model.Route;
+import com.kheven.status.ServerStatus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * A classe AdmissionControl limita o número de requisições em andamento, no
+ * total e por rota. Acima do limite a requisição não espera: é recusada na hora
+ * e o cliente recebe 503 com Retry-After, em vez de todas as requisições ficarem
+ * lentas juntas e a memória crescer sem limite.
+ * <p>
+ * Os limites podem mudar com o servidor em carga ({@link #reconfigure}): as
+ * requisições em andamento continuam contadas, e um limite menor só recusa as
+ * novas até a contagem cair abaixo dele.
+ */
+public class AdmissionControl {
+    private static volatile AdmissionControl instance;
+
+    private final Limit global;
+    private final ToIntFunction<Route> routeLimits;
+    // Por chave da rota (método e caminho): a contagem continua entre as trocas de rotas
+    private final Map<String, Limit> routes = new ConcurrentHashMap<>();
+    // Incrementado a cada reconfiguração; um limite de rota mais antigo é resolvido de novo
+    private volatile int generation;
+    private volatile int retryAfter;
+
+    /**
+     * Construtor da classe AdmissionControl.
+     *
+     * @param maxInflight o número máximo de requisições em andamento, ou 0 para não limitar.
+     * @param routeLimits o limite de cada rota, ou 0 para não limitar.
+     * @param retryAfter os segundos informados no cabeçalho Retry-After das recusas.
+     */
+    public AdmissionControl(int maxInflight, ToIntFunction<Route> routeLimits, int retryAfter) {
+        this.global = new Limit(maxInflight, 0);
+        this.routeLimits = routeLimits;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Obtém a instância compartilhada, configurada pelo config.properties e
+     * atualizada quando a configuração é recarregada.
+     *
+     * @return a instância compartilhada.
+     */
+    public static AdmissionControl getInstance() {
+        AdmissionControl current = instance;
+        if (current == null) {
+            synchronized (AdmissionControl.class) {
+                current = instance;
+                if (current == null) {
+                    current = new AdmissionControl(Config.getMaxInflight(),
+                            route -> Config.getRouteMaxInflight(route.getMethod(), route.getPath()),
+                            Config.getRetryAfter());
+                    AdmissionControl shared = current;
+                    Config.addListener(() -> shared.reconfigure(Config.getMaxInflight(), Config.getRetryAfter()));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Tenta admitir uma requisição, sem esperar.
+     *
+     * @param route a rota da requisição, ou null se não houver.
+     * @return true se a requisição foi admitida; nesse caso {@link #release} deve ser chamado ao final.
+     */
+    public boolean tryAcquire(Route route) {
+        if (!global.tryAcquire()) {
+            ServerStatus.requestRejected();
+            return false;
+        }
+        Limit limit = routeLimit(route);
+        if (limit != null && !limit.tryAcquire()) {
+            global.release();
+            ServerStatus.requestRejected();
+            return false;
+        }
+        ServerStatus.requestAdmitted();
+        return true;
+    }
+
+    /**
+     * Libera a vaga de uma requisição admitida.
+     *
+     * @param route a rota da requisição, ou null se não houver.
+     */
+    public void release(Route route) {
+        Limit limit = routeLimit(route);
+        if (limit != null) {
+            limit.release();
+        }
+        global.release();
+    }
+
+    /**
+     * Obtém os segundos informados no cabeçalho Retry-After das recusas.
+     *
+     * @return os segundos até uma nova tentativa.
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Troca os limites sem perder a contagem das requisições em andamento. Os
+     * limites das rotas são resolvidos de novo pela função do construtor, na
+     * próxima requisição de cada rota.
+     *
+     * @param maxInflight o novo número máximo de requisições em andamento, ou 0 para não limitar.
+     * @param retryAfter os novos segundos do cabeçalho Retry-After.
+     */
+    public void reconfigure(int maxInflight, int retryAfter) {
+        global.max = maxInflight;
+        this.retryAfter = retryAfter;
+        generation++;
+    }
+
+    private Limit routeLimit(Route route) {
+        if (route == null) {
+            return null;
+        }
+        int current = generation;
+        Limit limit = routes.get(route.getKey());
+        if (limit == null) {
+            limit = routes.computeIfAbsent(route.getKey(), key -> new Limit(routeLimits.applyAsInt(route), current));
+        } else if (limit.generation != current) {
+            // O limite é resolvido na primeira requisição depois da reconfiguração
+            limit.max = routeLimits.applyAsInt(route);
+            limit.generation = current;
+        }
+        return limit;
+    }
+
+    /**
+     * Contador de requisições em andamento com um limite que pode mudar. As
+     * rotas sem limite também são contadas, para que um limite novo valha
+     * desde a primeira requisição seguinte.
+     */
+    private static final class Limit {
+        private final AtomicInteger inflight = new AtomicInteger();
+        // Zero ou negativo: sem limite
+        private volatile int max;
+        private volatile int generation;
+
+        Limit(int max, int generation) {
+            this.max = max;
+            this.generation = generation;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = inflight.get();
+                int limit = max;
+                if (limit > 0 && current >= limit) {
+                    return false;
+                }
+                if (inflight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            inflight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.kheven.handler;
+
+import com.kheven.http.Response;
+import com.kheven.model.Request;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Manipulador assíncrono de uma rota: devolve a resposta em um
+ * {@link CompletionStage} em vez de preenchê-la antes de retornar. O método deve
+ * retornar rápido, sem bloquear; a resposta é enviada quando o estágio for
+ * concluído, sem uma thread parada por requisição pendente.
+ */
+@FunctionalInterface
+public interface AsyncRouteHandler {
+    CompletionStage<Response> handle(Request request) throws Exception;
+}
@@ -1,147 +1,611 @@
 package com.kheven.handler;
 
+import com.kheven.config.Config;
+import com.kheven.http.BodyDecoder;
+import com.kheven.http.BodyInputStream;
+import com.kheven.http.BufferPool;
+import com.kheven.http.HttpParseException;
+import com.kheven.http.HttpParser;
 import com.kheven.model.Request;
-import com.kheven.http.Response;
+import com.kheven.model.RequestHead;
 import com.kheven.model.Route;
+import com.kheven.http.Response;
+import com.kheven.http.ResponseWriter;
 import com.kheven.http.Router;
+import com.kheven.http2.Http2Connection;
+import com.kheven.status.Metrics;
+import com.kheven.status.RequestTrace;
+import com.kheven.websocket.WebSocket;
+import com.kheven.websocket.WebSocketHandshake;
 
 import java.io.*;
 import java.net.Socket;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A classe HttpHandler é responsável por lidar com as requisições HTTP
  * recebidas pelo servidor.
+ * <p>
+ * As conexões são persistentes (HTTP/1.1 keep-alive): várias requisições são
+ * atendidas em sequência no mesmo socket até que o cliente peça o fechamento,
+ * a conexão fique ociosa por mais tempo que o limite configurado ou o número
+ * máximo de requisições por conexão seja atingido.
+ * <p>
+ * Requisições GET e HEAD sem corpo enviadas em pipeline (várias no mesmo
+ * pacote, sem esperar as respostas) são analisadas adiante a partir do buffer
+ * de leitura e atendidas em paralelo, até server.pipeline.depth por vez. As
+ * respostas passam por uma fila de reordenação e são escritas na ordem das
+ * requisições.
+ * <p>
+ * Os buffers de leitura e de cabeçalhos vêm de um {@link BufferPool} e voltam
+ * para ele quando a conexão é encerrada.
+ * <p>
+ * Conexões que começam com o prefácio do HTTP/2, ou que pedem "Upgrade: h2c",
+ * passam a ser atendidas por um {@link Http2Connection}. Um handshake
+ * WebSocket em uma rota WebSocket transforma a conexão em um {@link WebSocket},
+ * lido pela mesma thread virtual.
+ * <p>
+ * Quando o servidor para, {@link #drain()} encerra a conexão sem perder
+ * requisições: a que está em atendimento termina e a resposta sai com
+ * "Connection: close", e uma conexão ociosa é fechada logo.
  */
 public class HttpHandler {
+    private static final int READ_BUFFER_SIZE = 8192;
+    // Quantidade máxima de corpo não lido que é descartada para manter a conexão
+    private static final long MAX_SKIPPED_BODY = 64 * 1024;
+    // Threads virtuais que atendem as requisições em pipeline de todas as conexões
+    private static final ExecutorService PIPELINE = Executors.newVirtualThreadPerTaskExecutor();
+
     private final Socket clientSocket;
-    private final Router router;
+    private final RequestDispatcher dispatcher;
+    private final int keepAliveTimeout;
+    private final int maxRequests;
+    private final long maxBodySize;
+    private final int pipelineDepth;
+    private final boolean tracing;
+    private final boolean http2;
+    private final HttpParser parser = new HttpParser();
+    private final BufferPool pool;
+    // Buffers de leitura e de cabeçalhos reutilizados por todas as requisições da conexão
+    private ByteBuffer input;
+    private ByteBuffer headBuffer;
+    private final SocketChannel output;
+    private final RequestTrace trace;
+    // Instante (System.nanoTime) em que a conexão foi aceita
+    private final long acceptedAt;
+    private int served;
+    // Encerramento gracioso pedido pelo servidor, e se a conexão espera a próxima requisição sem bytes recebidos
+    private volatile boolean draining;
+    private volatile boolean idle;
+    // Conexão HTTP/2 ou WebSocket que assumiu o socket; null enquanto a conexão é HTTP/1.1
+    private volatile Http2Connection http2Connection;
+    private volatile WebSocket webSocket;
 
     /**
      * Construtor da classe HttpHandler.
      *
-     * @param clientSocket o socket do cliente.
+     * @param clientSocket o socket do cliente, aceito por um ServerSocketChannel.
      * @param router o roteador para encontrar as rotas.
+     * @throws IllegalArgumentException se o socket não tiver um canal associado.
      */
     public HttpHandler(Socket clientSocket, Router router) {
+        this(clientSocket, router, System.nanoTime());
+    }
+
+    /**
+     * Construtor da classe HttpHandler.
+     *
+     * @param clientSocket o socket do cliente, aceito por um ServerSocketChannel.
+     * @param router o roteador para encontrar as rotas.
+     * @param acceptedAt o instante, em {@link System#nanoTime()}, em que a conexão foi
+     *                   aceita; a espera até o atendimento é registrada como a fase QUEUE.
+     * @throws IllegalArgumentException se o socket não tiver um canal associado.
+     */
+    public HttpHandler(Socket clientSocket, Router router, long acceptedAt) {
+        this(clientSocket, router, acceptedAt, BufferPool.getInstance());
+    }
+
+    /**
+     * Construtor da classe HttpHandler.
+     *
+     * @param clientSocket o socket do cliente, aceito por um ServerSocketChannel.
+     * @param router o roteador para encontrar as rotas.
+     * @param acceptedAt o instante, em {@link System#nanoTime()}, em que a conexão foi aceita.
+     * @param pool o pool de onde vêm os buffers da conexão; os buffers devem ter array acessível.
+     * @throws IllegalArgumentException se o socket não tiver um canal associado.
+     */
+    public HttpHandler(Socket clientSocket, Router router, long acceptedAt, BufferPool pool) {
+        if (clientSocket.getChannel() == null) {
+            throw new IllegalArgumentException("The client socket must be accepted by a ServerSocketChannel");
+        }
         this.clientSocket = clientSocket;
-        this.router = router;
+        this.output = clientSocket.getChannel();
+        this.dispatcher = new RequestDispatcher(router);
+        this.keepAliveTimeout = Config.getKeepAliveTimeout();
+        this.maxRequests = Config.getKeepAliveMaxRequests();
+        this.maxBodySize = Config.getMaxBodySize();
+        this.pipelineDepth = Config.getPipelineDepth();
+        this.tracing = Config.isTracingEnabled();
+        this.http2 = Config.isHttp2Enabled();
+        this.trace = new RequestTrace(tracing);
+        this.acceptedAt = acceptedAt;
+        this.pool = pool;
     }
 
     /**
-     * Método principal para lidar com a requisição HTTP.
+     * Método principal para lidar com as requisições HTTP da conexão.
      *
      * @throws IOException se ocorrer um erro de I/O.
      */
     public void handle() throws IOException {
 
-        // Tenta abrir os streams de entrada e saída do socket do cliente
-        try (
-                BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-                OutputStream out = clientSocket.getOutputStream()
-        ) {
-            // Analisa a requisição HTTP recebida
-            Request request = parseRequest(in);
-            Response response = new Response();
+        // Tenta abrir o stream de entrada do socket do cliente; as respostas vão direto para o canal
+        long queued = System.nanoTime() - acceptedAt;
+        input = pool.acquire(READ_BUFFER_SIZE).limit(0);
+        headBuffer = pool.acquire(ResponseWriter.HEAD_BUFFER_SIZE);
+        try (InputStream in = clientSocket.getInputStream()) {
+            // Limita o tempo de espera por uma nova requisição na conexão
+            clientSocket.setSoTimeout(keepAliveTimeout);
 
-            // Tenta encontrar a rota correspondente à requisição
-            try {
-                Route route = router.findRoute(request.getMethod(), request.getPath());
-                if (route != null) {
-                    // Se a rota for encontrada, chama o handler da rota
-                    route.getHandler().handle(request, response);
-                } else if (request.getMethod().equals("GET")) {
-                    // Se a rota não for encontrada e o método for GET, tenta servir um arquivo estático
-                    StaticFileHandler.serveStaticFile(request.getPath(), response);
+            if (http2 && isHttp2Preface(in)) {
+                // O cliente começou a conexão direto em HTTP/2 (conhecimento prévio)
+                serveHttp2(in, null);
+                return;
+            }
+
+            boolean keepAlive = true;
+            while (keepAlive) {
+                // Analisa a próxima requisição HTTP recebida
+                Request request;
+                try {
+                    request = readRequest(in);
+                } catch (SocketTimeoutException e) {
+                    // A conexão ficou ociosa por tempo demais
+                    break;
+                } catch (HttpParseException e) {
+                    // Requisição inválida: responde com o erro e encerra a conexão
+                    writeError(e);
+                    break;
+                }
+                if (request == null) {
+                    // O cliente encerrou a conexão
+                    break;
+                }
+
+                trace.mark(RequestTrace.Phase.PARSE);
+                if (served == 0) {
+                    // Só a primeira requisição da conexão espera no executor
+                    trace.add(RequestTrace.Phase.QUEUE, queued);
+                }
+                served++;
+                keepAlive = request.isKeepAlive() && served < maxRequests;
+
+                if (WebSocketHandshake.isUpgrade(request)) {
+                    Route route = dispatcher.findRoute(request);
+                    if (route != null && route.isWebSocket()) {
+                        serveWebSocket(request, route, in);
+                        break;
+                    }
+                }
+                if (http2 && Http2Connection.isUpgrade(request)) {
+                    // A resposta desta requisição já vai em HTTP/2, no stream 1
+                    serveHttp2(in, request);
+                    break;
+                }
+                if (keepAlive && pipelineDepth > 1 && isPipelinable(request) && input.hasRemaining()) {
+                    // Há mais bytes no buffer: o cliente enviou outras requisições em pipeline
+                    keepAlive = servePipelined(request, in);
                 } else {
-                    // Se o método não for permitido, retorna o status 405
-                    response.setStatusCode(405);
-                    response.setBody("Method Not Allowed");
+                    keepAlive = serve(request, keepAlive);
                 }
-            } catch (Exception e) {
-                // Em caso de erro, retorna o status 500
-                response.setStatusCode(500);
-                response.setBody("Internal Server Error");
-                System.err.println("Error processing request: " + e.getMessage());
             }
+        } finally {
+            // Fecha o socket do cliente e devolve os buffers da conexão
+            try {
+                clientSocket.close();
+            } finally {
+                pool.release(input);
+                pool.release(headBuffer);
+                input = null;
+                headBuffer = null;
+            }
+        }
+    }
+
+    /**
+     * Atende uma requisição e envia a resposta.
+     *
+     * @param request a requisição HTTP.
+     * @param keepAlive se a conexão deve ser mantida após a resposta.
+     * @return se a conexão continua aberta.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    private boolean serve(Request request, boolean keepAlive) throws IOException {
+        // Processa a requisição e envia a resposta HTTP para o cliente
+        Route route = dispatcher.findRoute(request);
+        trace.mark(RequestTrace.Phase.ROUTE);
+        Response response = dispatcher.dispatch(request, route);
+        if (!skipUnreadBody(request)) {
+            // O corpo não lido não pode ser descartado: a conexão não pode ser reaproveitada
+            keepAlive = false;
+        }
+        if (draining) {
+            // O servidor está parando: o cliente envia as próximas requisições por outra conexão
+            keepAlive = false;
+        }
+        trace.mark(RequestTrace.Phase.HANDLE);
+        write(request, response, keepAlive);
+        trace.mark(RequestTrace.Phase.WRITE);
+        trace.finish(request, response.getStatusCode());
+        return keepAlive;
+    }
+
+    /**
+     * Atende em paralelo a primeira requisição e as seguintes que já estão no
+     * buffer de leitura, e escreve as respostas na ordem das requisições. Uma
+     * requisição que não pode ser adiantada (com corpo ou de outro método)
+     * encerra o lote e é atendida depois dele, sozinha.
+     *
+     * @param first a primeira requisição do lote, já analisada.
+     * @param in o InputStream do socket.
+     * @return se a conexão continua aberta.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    private boolean servePipelined(Request first, InputStream in) throws IOException {
+        List<Request> batch = new ArrayList<>();
+        List<RequestTrace> traces = new ArrayList<>();
+        batch.add(first);
+        traces.add(trace);
+        boolean keepAlive = true;
+        Request barrier = null;
+        HttpParseException failure = null;
+        while (keepAlive && batch.size() < pipelineDepth && input.hasRemaining()) {
+            RequestTrace next = new RequestTrace(tracing);
+            next.begin();
+            Request request;
+            try {
+                request = readBuffered(in);
+            } catch (HttpParseException e) {
+                failure = e;
+                break;
+            }
+            if (request == null) {
+                // A próxima requisição ainda não chegou inteira
+                break;
+            }
+            next.mark(RequestTrace.Phase.PARSE);
+            served++;
+            keepAlive = request.isKeepAlive() && served < maxRequests;
+            if (!isPipelinable(request)) {
+                barrier = request;
+                break;
+            }
+            batch.add(request);
+            traces.add(next);
+        }
+
+        // Fila de reordenação: os handlers terminam em qualquer ordem, as respostas saem na ordem recebida
+        List<CompletableFuture<Response>> responses = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            RequestTrace requestTrace = traces.get(i);
+            responses.add(CompletableFuture.supplyAsync(() -> {
+                Route route = dispatcher.findRoute(request);
+                requestTrace.mark(RequestTrace.Phase.ROUTE);
+                Response response = dispatcher.dispatch(request, route);
+                requestTrace.mark(RequestTrace.Phase.HANDLE);
+                return response;
+            }, PIPELINE));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Response response = responses.get(i).join();
+            boolean last = i == batch.size() - 1 && barrier == null && failure == null;
+            if (last && draining) {
+                keepAlive = false;
+            }
+            write(batch.get(i), response, !last || keepAlive);
+            traces.get(i).mark(RequestTrace.Phase.WRITE);
+            traces.get(i).finish(batch.get(i), response.getStatusCode());
+        }
+
+        if (failure != null) {
+            writeError(failure);
+            return false;
+        }
+        if (barrier != null) {
+            trace.begin();
+            return serve(barrier, keepAlive);
+        }
+        return keepAlive;
+    }
+
+    /**
+     * Indica se a requisição pode ser atendida junto com as seguintes: métodos
+     * seguros e sem corpo, que não dependem da ordem de execução.
+     */
+    private static boolean isPipelinable(Request request) {
+        String method = request.getMethod();
+        return (method.equals("GET") || method.equals("HEAD")) && !(request.getBodyStream() instanceof BodyInputStream);
+    }
+
+    /**
+     * Responde a uma requisição inválida; a conexão é encerrada em seguida.
+     */
+    private void writeError(HttpParseException e) throws IOException {
+        Response response = new Response();
+        response.setStatusCode(e.getStatusCode());
+        response.setBody(e.getMessage());
+        write(null, response, false);
+    }
 
-            // Envia a resposta HTTP para o cliente
-            sendResponse(out, response);
+    /**
+     * Envia a resposta usando o buffer de cabeçalhos da conexão; a resposta a
+     * um HEAD vai sem o corpo.
+     */
+    private void write(Request request, Response response, boolean keepAlive) throws IOException {
+        boolean headOnly = request != null && request.getMethod().equals("HEAD");
+        ByteBuffer head = ResponseWriter.write(output, response, keepAlive, headOnly, headBuffer);
+        if (head != headBuffer) {
+            // Os cabeçalhos não couberam: a conexão passa a usar um buffer do pool do tamanho necessário
+            pool.release(headBuffer);
+            headBuffer = pool.acquire(head.capacity());
+        }
+    }
+
+    /**
+     * Descarta a parte do corpo que o handler não leu, para que a próxima
+     * requisição da conexão comece no ponto certo.
+     *
+     * @param request a requisição atendida.
+     * @return true se o corpo foi consumido por inteiro.
+     */
+    private boolean skipUnreadBody(Request request) {
+        if (!(request.getBodyStream() instanceof BodyInputStream body) || body.isFinished()) {
+            return true;
+        }
+        ByteBuffer buffer = pool.acquire(READ_BUFFER_SIZE);
+        try {
+            byte[] scratch = buffer.array();
+            long skipped = 0;
+            while (!body.isFinished() && skipped < MAX_SKIPPED_BODY) {
+                int read = body.read(scratch, 0, scratch.length);
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return body.isFinished();
+        } catch (IOException e) {
+            return false;
         } finally {
-            // Fecha o socket do cliente
-            clientSocket.close();
+            pool.release(buffer);
         }
     }
 
     /**
-     * Analisa a requisição HTTP a partir do BufferedReader.
+     * Aceita o handshake e atende o WebSocket até o fechamento. Os quadros são
+     * escritos direto no canal, serializados por um lock; a leitura usa o tempo
+     * limite do socket para enviar pings quando a conexão fica ociosa.
      *
-     * @param in o BufferedReader para ler a requisição.
-     * @return um objeto Request representando a requisição.
+     * @param request a requisição do handshake.
+     * @param route a rota WebSocket.
+     * @param in o InputStream do socket.
      * @throws IOException se ocorrer um erro de I/O.
      */
-    private Request parseRequest(BufferedReader in) throws IOException {
-        // Lê a primeira linha da requisição (linha de status)
-        String firstLine = in.readLine();
-        // Divide a linha de status em partes (método HTTP e caminho)
-        String[] parts = firstLine.split(" ");
-        String method = parts[0];
-        String path = parts[1];
+    private void serveWebSocket(Request request, Route route, InputStream in) throws IOException {
+        request.setRoute(route);
+        ByteBuffer accept = ByteBuffer.wrap(WebSocketHandshake.accept(request));
+        while (accept.hasRemaining()) {
+            Metrics.bytesSent(output.write(accept));
+        }
+        ReentrantLock writeLock = new ReentrantLock();
+        WebSocket socket = new WebSocket(request, route.getWebSocketHandler(), new WebSocket.Transport() {
+            @Override
+            public void send(ByteBuffer frame) throws IOException {
+                writeLock.lock();
+                try {
+                    while (frame.hasRemaining()) {
+                        Metrics.bytesSent(output.write(frame));
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
 
-        // Inicializa um mapa para armazenar os cabeçalhos da requisição
-        Map<String, String> headers = new HashMap<>();
-        String headerLine;
-        // Lê os cabeçalhos da requisição até encontrar uma linha vazia
-        while ((headerLine = in.readLine()) != null && !headerLine.isEmpty()) {
-            // Divide cada linha de cabeçalho em chave e valor
-            String[] headerParts = headerLine.split(": ", 2);
-            headers.put(headerParts[0], headerParts[1]);
+            @Override
+            public void close() {
+                try {
+                    clientSocket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        webSocket = socket;
+        if (draining) {
+            socket.close(1001, "Server shutting down");
         }
+        clientSocket.setSoTimeout((int) socket.getPingInterval());
+        // Os quadros que chegaram junto com o handshake são lidos primeiro
+        InputStream frames = in;
+        if (input.hasRemaining()) {
+            frames = new SequenceInputStream(new ByteArrayInputStream(input.array(), input.position(), input.remaining()), in);
+            input.position(input.limit());
+        }
+        socket.serve(frames);
+    }
 
-        // Inicializa um StringBuilder para armazenar o corpo da requisição
-        StringBuilder body = new StringBuilder();
-        // Se o cabeçalho "Content-Length" estiver presente, lê o corpo da requisição
-        if (headers.containsKey("Content-Length")) {
-            int contentLength = Integer.parseInt(headers.get("Content-Length"));
-            char[] buffer = new char[contentLength];
-            in.read(buffer, 0, contentLength);
-            body.append(buffer);
+    /**
+     * Lê o início da conexão até saber se ele é o prefácio do HTTP/2. Os bytes
+     * lidos ficam no buffer de leitura para a análise da requisição HTTP/1.1.
+     *
+     * @param in o InputStream do socket.
+     * @return true se a conexão começa com o prefácio.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    private boolean isHttp2Preface(InputStream in) throws IOException {
+        int match;
+        while ((match = Http2Connection.matchPreface(input)) == 0) {
+            int read;
+            try {
+                read = read(in, input.limit(), false);
+            } catch (SocketTimeoutException e) {
+                return false;
+            }
+            if (read == -1) {
+                return false;
+            }
+            Metrics.bytesReceived(read);
+            input.limit(input.limit() + read);
         }
+        return match > 0;
+    }
 
-        // Retorna um novo objeto Request com o método, caminho, cabeçalhos e corpo
-        return new Request(method, path, headers, body.toString());
+    /**
+     * Lê a próxima requisição HTTP da conexão.
+     *
+     * @param in o InputStream do socket.
+     * @return um objeto Request representando a requisição, ou null se o cliente encerrou a conexão.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    private Request readRequest(InputStream in) throws IOException {
+        // Consome os bytes já lidos e lê mais do socket até completar o cabeçalho;
+        // a fase PARSE começa quando os primeiros bytes da requisição estão disponíveis
+        if (input.hasRemaining()) {
+            trace.begin();
+        }
+        RequestHead head;
+        // Sem bytes no buffer, a requisição anterior terminou e a conexão está ociosa; uma
+        // conexão recém-aceita não conta, pois a primeira requisição pode já estar a caminho
+        boolean waiting = served > 0 && !input.hasRemaining();
+        while ((head = parser.parse(input)) == null) {
+            int read = read(in, 0, waiting);
+            Metrics.bytesReceived(read);
+            if (read == -1) {
+                return null;
+            }
+            waiting = false;
+            trace.begin();
+            input.position(0).limit(read);
+        }
+        return toRequest(head, in);
     }
 
     /**
-     * Envia a resposta HTTP para o cliente.
+     * Lê do socket para o buffer de leitura. Enquanto a conexão espera uma nova
+     * requisição ela fica marcada como ociosa, e {@link #drain()} pode fechá-la.
      *
-     * @param out o OutputStream para enviar a resposta.
-     * @param response a resposta HTTP.
+     * @param in o InputStream do socket.
+     * @param offset a posição do buffer onde os bytes são gravados.
+     * @param waiting se a conexão está ociosa, sem nenhum byte da próxima requisição.
+     * @return o número de bytes lidos, ou -1 se o cliente ou o encerramento do servidor fechou a entrada.
      * @throws IOException se ocorrer um erro de I/O.
      */
-    private void sendResponse(OutputStream out, Response response) throws IOException {
-        out.write(("HTTP/1.1 " + response.getStatusCode() + " " + getStatusMessage(response.getStatusCode()) + "\r\n").getBytes());
-        out.write(("Content-Type: " + response.getContentType() + "\r\n").getBytes());
-        out.write(("Content-Length: " + response.getBody().length() + "\r\n").getBytes());
-        out.write("\r\n".getBytes());
-        out.write(response.getBody().getBytes());
-        out.flush();
+    private int read(InputStream in, int offset, boolean waiting) throws IOException {
+        if (waiting) {
+            idle = true;
+            // Marca a ociosidade antes de consultar draining: drain() vê uma ou a outra
+            if (draining) {
+                idle = false;
+                return -1;
+            }
+        }
+        try {
+            return in.read(input.array(), offset, input.capacity() - offset);
+        } finally {
+            idle = false;
+        }
     }
 
     /**
-     * Obtém a mensagem de status HTTP correspondente ao código de status.
+     * Atende a conexão em HTTP/2, com o prefácio já recebido ou a partir de uma
+     * requisição com "Upgrade: h2c".
+     */
+    private void serveHttp2(InputStream in, Request upgrade) throws IOException {
+        Http2Connection connection = new Http2Connection(output, in, input, dispatcher);
+        http2Connection = connection;
+        if (draining) {
+            connection.drain();
+        }
+        if (upgrade == null) {
+            connection.serve();
+        } else {
+            connection.serveUpgrade(upgrade);
+        }
+    }
+
+    /**
+     * Pede o encerramento gracioso da conexão; chamado pelo servidor ao parar,
+     * por qualquer thread. A requisição em atendimento termina e a sua resposta
+     * sai com "Connection: close"; se a conexão está ociosa, ela é fechada logo.
+     * Uma conexão HTTP/2 recebe GOAWAY e um WebSocket, o fechamento 1001.
+     */
+    public void drain() {
+        draining = true;
+        if (idle) {
+            // A thread da conexão está bloqueada na leitura: o fim da entrada a libera
+            try {
+                clientSocket.shutdownInput();
+            } catch (IOException ignored) {
+            }
+        }
+        Http2Connection connection = http2Connection;
+        if (connection != null) {
+            connection.drain();
+        }
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            try {
+                socket.close(1001, "Server shutting down");
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Fecha o socket imediatamente, sem esperar a requisição em atendimento.
+     * Usado quando o prazo do encerramento gracioso termina.
+     */
+    public void abort() {
+        try {
+            clientSocket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Analisa a próxima requisição usando apenas os bytes que já estão no
+     * buffer de leitura, sem ler o socket.
      *
-     * @param statusCode o código de status HTTP.
-     * @return a mensagem de status correspondente.
-     */
-    private String getStatusMessage(int statusCode) {
-        return switch (statusCode) {
-            case 200 -> "OK";
-            case 404 -> "Not Found";
-            case 405 -> "Method Not Allowed";
-            case 500 -> "Internal Server Error";
-            default -> "Unknown Status";
-        };
-    }
-}
\ No newline at end of file
+     * @param in o InputStream do socket, de onde o corpo é lido depois.
+     * @return a requisição, ou null se ela ainda não chegou inteira.
+     * @throws IOException se ocorrer um erro de I/O ou a requisição for inválida.
+     */
+    private Request readBuffered(InputStream in) throws IOException {
+        RequestHead head = parser.parse(input);
+        return head == null ? null : toRequest(head, in);
+    }
+
+    private Request toRequest(RequestHead head, InputStream in) throws IOException {
+        // O corpo é lido sob demanda pelo handler, direto do socket
+        BodyDecoder decoder = BodyDecoder.forRequest(head, maxBodySize);
+        Request request;
+        if (decoder.isFinished()) {
+            request = new Request(head, InputStream.nullInputStream());
+        } else {
+            if ("100-continue".equalsIgnoreCase(head.getHeader("Expect"))) {
+                ResponseWriter.writeContinue(output);
+            }
+            request = new Request(head, new BodyInputStream(decoder, input, in));
+        }
+        request.setRemoteAddress(clientSocket.getInetAddress());
+        return request;
+    }
+}
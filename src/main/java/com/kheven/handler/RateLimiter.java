@@ -0,0 +1,282 @@
+package com.kheven.handler;
+
+import com.kheven.config.Config;
+import com.kheven.model.Request;
+import com.kheven.model.Route;
+import com.kheven.status.ServerStatus;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToIntFunction;
+
+/**
+ * A classe RateLimiter limita a taxa de requisições de cada cliente,
+ * identificado pelo endereço do socket ou por um cabeçalho configurado. Em uma
+ * lista (e.g., X-Forwarded-For), vale o último valor, o que o proxy de
+ * confiança acrescentou: os anteriores vêm do cliente e podem ser forjados. Acima
+ * do limite o cliente recebe 429 com Retry-After, sem que o handler seja
+ * executado. Rotas com um limite próprio têm uma conta separada do limite geral.
+ * <p>
+ * Cada cliente tem um balde de N fichas (token bucket) que se recarrega a N
+ * fichas por segundo. O balde é guardado como um único instante, o momento em
+ * que ele estará cheio de novo (GCRA): consumir uma ficha é adiantar esse
+ * instante em 1/N segundo com um compareAndSet, sem lock e sem alocação.
+ * <p>
+ * Os baldes ficam em uma tabela de tamanho fixo com endereçamento aberto, e a
+ * memória não cresce com o número de clientes. Um balde cheio equivale a um
+ * cliente ausente, então a posição de um cliente ocioso é reaproveitada sem
+ * perda de informação; com a vizinhança toda ocupada, o balde mais próximo de
+ * encher dá lugar ao cliente novo. Disputas entre threads pela mesma posição
+ * são resolvidas a favor dos clientes: no pior caso, um deles ganha uma ficha.
+ */
+public class RateLimiter {
+    // Posições examinadas a partir da posição do cliente antes de reaproveitar uma ocupada
+    private static final int MAX_PROBES = 8;
+    private static final int MAX_CAPACITY = 1 << 29;
+    private static final Limit UNLIMITED = new Limit(0, 0, 0);
+    // Origem dos instantes da tabela: uma posição nova (instante 0) tem o balde cheio
+    private static final long ORIGIN = System.nanoTime();
+    private static volatile RateLimiter instance;
+
+    // Pares de posições: a chave do cliente (0 indica posição livre) e o instante em que o balde fica cheio
+    private final AtomicLongArray table;
+    private final int mask;
+    private final ToIntFunction<Route> routeLimits;
+    // Por chave da rota (método e caminho), para não reter as rotas substituídas
+    private final Map<String, Limit> routes = new ConcurrentHashMap<>();
+    private volatile Limit limit;
+    private volatile String header;
+
+    /**
+     * Construtor da classe RateLimiter.
+     *
+     * @param rateLimit as requisições por segundo de cada cliente, ou 0 para não limitar.
+     * @param routeLimits o limite de cada rota, 0 para não limitar, ou -1 para usar o limite geral.
+     * @param header o cabeçalho que identifica o cliente, ou null para usar o endereço do socket.
+     * @param maxClients o número de clientes acompanhados; a tabela ocupa 16 bytes por cliente.
+     */
+    public RateLimiter(int rateLimit, ToIntFunction<Route> routeLimits, String header, int maxClients) {
+        int capacity = Math.min(Integer.highestOneBit(Math.max(maxClients, MAX_PROBES) - 1) << 1, MAX_CAPACITY);
+        this.table = new AtomicLongArray(capacity * 2);
+        this.mask = capacity - 1;
+        this.routeLimits = routeLimits;
+        this.limit = Limit.of(rateLimit, 0);
+        this.header = header;
+    }
+
+    /**
+     * Obtém a instância compartilhada, configurada pelo config.properties e
+     * atualizada quando a configuração é recarregada. O tamanho da tabela só
+     * muda ao reiniciar.
+     *
+     * @return a instância compartilhada.
+     */
+    public static RateLimiter getInstance() {
+        RateLimiter current = instance;
+        if (current == null) {
+            synchronized (RateLimiter.class) {
+                current = instance;
+                if (current == null) {
+                    current = new RateLimiter(Config.getRateLimit(),
+                            route -> Config.getRouteRateLimit(route.getMethod(), route.getPath()),
+                            Config.getRateLimitHeader(), Config.getRateLimitMaxClients());
+                    RateLimiter shared = current;
+                    Config.addListener(() -> shared.reconfigure(Config.getRateLimit(), Config.getRateLimitHeader()));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Consome uma ficha do cliente que enviou a requisição.
+     *
+     * @param request a requisição HTTP.
+     * @param route a rota da requisição, ou null se não houver.
+     * @return 0 se a requisição foi admitida, ou os nanossegundos até o cliente ter uma ficha.
+     */
+    public long tryAcquire(Request request, Route route) {
+        Limit current = limit(route);
+        if (current == UNLIMITED) {
+            return 0;
+        }
+        return acquire(current, clientKey(request));
+    }
+
+    /**
+     * Consome uma ficha de um cliente já identificado.
+     *
+     * @param client a chave do cliente (e.g., o hash do endereço).
+     * @param route a rota da requisição, ou null se não houver.
+     * @return 0 se a requisição foi admitida, ou os nanossegundos até o cliente ter uma ficha.
+     */
+    public long tryAcquire(long client, Route route) {
+        Limit current = limit(route);
+        if (current == UNLIMITED) {
+            return 0;
+        }
+        return acquire(current, client);
+    }
+
+    /**
+     * Troca o limite geral e o cabeçalho, e volta a resolver o limite de cada
+     * rota. Os baldes dos clientes são mantidos.
+     *
+     * @param rateLimit as novas requisições por segundo de cada cliente, ou 0 para não limitar.
+     * @param header o novo cabeçalho que identifica o cliente, ou null para usar o endereço do socket.
+     */
+    public void reconfigure(int rateLimit, String header) {
+        this.limit = Limit.of(rateLimit, 0);
+        this.header = header;
+        routes.clear();
+    }
+
+    private Limit limit(Route route) {
+        if (route == null) {
+            return limit;
+        }
+        Limit current = routes.get(route.getKey());
+        if (current == null) {
+            current = routes.computeIfAbsent(route.getKey(), key -> {
+                int rate = routeLimits.applyAsInt(route);
+                // A conta da rota é separada da geral: a chave do cliente é combinada com a da rota
+                return rate < 0 ? limit : Limit.of(rate, mix(key.hashCode()));
+            });
+        }
+        return current;
+    }
+
+    private long acquire(Limit current, long client) {
+        long key = mix(client ^ current.seed);
+        if (key == 0) {
+            key = 1;
+        }
+        long now = System.nanoTime() - ORIGIN;
+        int slot = slot(key, now);
+        while (true) {
+            long full = table.get(slot + 1);
+            // Um balde que já encheu não acumula fichas além da rajada
+            long base = full - now > 0 ? full : now;
+            long wait = base - now - current.tolerance;
+            if (wait > 0) {
+                ServerStatus.requestRateLimited();
+                return wait;
+            }
+            if (table.compareAndSet(slot + 1, full, base + current.interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Encontra a posição do cliente, ocupando uma livre ou reaproveitando a do
+     * balde mais próximo de encher se ele não estiver na tabela.
+     *
+     * @return o índice da chave na tabela; o instante do balde fica no índice seguinte.
+     */
+    private int slot(long key, long now) {
+        int start = (int) key;
+        int victim = -1;
+        long victimFull = 0;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int slot = ((start + i) & mask) << 1;
+            long current = table.get(slot);
+            if (current == 0) {
+                // As posições nunca voltam a ficar livres: a chave não está adiante
+                if (table.compareAndSet(slot, 0, key) || table.get(slot) == key) {
+                    return slot;
+                }
+                current = table.get(slot);
+            }
+            if (current == key) {
+                return slot;
+            }
+            long full = table.get(slot + 1);
+            if (victim < 0 || full - victimFull < 0) {
+                victim = slot;
+                victimFull = full;
+            }
+        }
+        long owner = table.get(victim);
+        if (table.compareAndSet(victim, owner, key) && victimFull - now > 0) {
+            // O cliente novo começa com o balde cheio, não com as fichas que o anterior consumiu
+            table.compareAndSet(victim + 1, victimFull, now);
+        }
+        return victim;
+    }
+
+    /**
+     * Obtém a chave do cliente: o último valor do cabeçalho configurado ou,
+     * na falta dele, o endereço do socket.
+     */
+    private long clientKey(Request request) {
+        String name = header;
+        String value = name != null ? request.getHeader(name) : null;
+        if (value != null) {
+            return hash(value);
+        }
+        InetAddress address = request.getRemoteAddress();
+        if (address == null) {
+            return 0;
+        }
+        if (address instanceof Inet4Address) {
+            // O hashCode de um endereço IPv4 é o próprio endereço
+            return address.hashCode();
+        }
+        long h = 0;
+        for (byte b : address.getAddress()) {
+            h = (h << 8 | (h >>> 56)) ^ (b & 0xFF);
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hash de 64 bits do último item de uma lista separada por vírgulas (e.g.,
+     * o endereço que o proxy viu no X-Forwarded-For), sem espaços nas pontas.
+     * Os itens anteriores são enviados pelo cliente e não identificam ninguém.
+     */
+    private static long hash(String value) {
+        int end = value.length();
+        int start = value.lastIndexOf(',') + 1;
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        long h = 1125899906842597L;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Espalha os bits da chave (finalizador do SplitMix64), para que clientes
+     * vizinhos (e.g., 10.0.0.1 e 10.0.0.2) caiam em posições distantes.
+     */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * O limite de uma conta: o intervalo entre duas fichas e quanto o balde
+     * pode adiantar (a rajada), em nanossegundos.
+     */
+    private record Limit(long interval, long tolerance, long seed) {
+        static Limit of(int rate, long seed) {
+            if (rate <= 0) {
+                return UNLIMITED;
+            }
+            long interval = Math.max(TimeUnit.SECONDS.toNanos(1) / rate, 1);
+            return new Limit(interval, interval * (rate - 1), seed);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.kheven.handler;
+
+import com.kheven.config.Config;
+import com.kheven.http.Compression;
+import com.kheven.http.HttpParseException;
+import com.kheven.http.Response;
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import com.kheven.model.Route;
+import com.kheven.status.Metrics;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A classe RequestDispatcher encaminha uma requisição já analisada para a rota
+ * correspondente (ou para os arquivos estáticos), produz a resposta e registra
+ * as métricas da requisição. Clientes acima do seu limite no
+ * {@link RateLimiter} recebem 429, requisições acima dos limites do
+ * {@link AdmissionControl} recebem 503, ambos sem executar o handler, e as rotas que
+ * optaram pelo {@link ResponseCache} são atendidas pelo cache enquanto a
+ * resposta guardada for válida. É compartilhada pelos motores de transporte
+ * bloqueante e NIO.
+ * <p>
+ * Rotas assíncronas ({@link AsyncRouteHandler}) são concluídas por
+ * {@link #dispatchAsync}: a resposta fica pronta quando o estágio do handler
+ * termina, ou com 504 quando o tempo limite da rota se esgota antes.
+ */
+public class RequestDispatcher {
+    private final Router router;
+    private final AdmissionControl admission;
+    private final ResponseCache cache;
+    private final RateLimiter limiter;
+
+    /**
+     * Construtor da classe RequestDispatcher, com o controle de admissão, o
+     * cache de respostas e o limite por cliente compartilhados.
+     *
+     * @param router o roteador para encontrar as rotas.
+     */
+    public RequestDispatcher(Router router) {
+        this(router, AdmissionControl.getInstance());
+    }
+
+    /**
+     * Construtor da classe RequestDispatcher, com o cache de respostas e o
+     * limite por cliente compartilhados.
+     *
+     * @param router o roteador para encontrar as rotas.
+     * @param admission o controle de admissão das requisições.
+     */
+    public RequestDispatcher(Router router, AdmissionControl admission) {
+        this(router, admission, ResponseCache.getInstance());
+    }
+
+    /**
+     * Construtor da classe RequestDispatcher, com o limite por cliente compartilhado.
+     *
+     * @param router o roteador para encontrar as rotas.
+     * @param admission o controle de admissão das requisições.
+     * @param cache o cache de respostas.
+     */
+    public RequestDispatcher(Router router, AdmissionControl admission, ResponseCache cache) {
+        this(router, admission, cache, RateLimiter.getInstance());
+    }
+
+    /**
+     * Construtor da classe RequestDispatcher.
+     *
+     * @param router o roteador para encontrar as rotas.
+     * @param admission o controle de admissão das requisições.
+     * @param cache o cache de respostas.
+     * @param limiter o limite de requisições por cliente.
+     */
+    public RequestDispatcher(Router router, AdmissionControl admission, ResponseCache cache, RateLimiter limiter) {
+        this.router = router;
+        this.admission = admission;
+        this.cache = cache;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Encontra a rota correspondente à requisição.
+     *
+     * @param request a requisição HTTP.
+     * @return a rota correspondente, ou null se não for encontrada.
+     */
+    public Route findRoute(Request request) {
+        return router.findRoute(request.getMethod(), request.getPath());
+    }
+
+    /**
+     * Encontra a rota correspondente à requisição e gera a resposta.
+     *
+     * @param request a requisição HTTP.
+     * @return a resposta HTTP.
+     */
+    public Response dispatch(Request request) {
+        return dispatch(request, findRoute(request));
+    }
+
+    /**
+     * Gera a resposta para uma requisição cuja rota já foi encontrada. Em uma
+     * rota assíncrona, espera o estágio do handler, e em uma rota com cache,
+     * a requisição que já executa o mesmo handler; em uma thread virtual a
+     * espera não ocupa a thread de plataforma. No laço de eventos, use
+     * {@link #dispatchAsync}.
+     *
+     * @param request a requisição HTTP.
+     * @param route a rota correspondente, ou null se não houver.
+     * @return a resposta HTTP.
+     */
+    public Response dispatch(Request request, Route route) {
+        if (route != null && route.isAsync()) {
+            return dispatchAsync(request, route).toCompletableFuture().join();
+        }
+        long wait = limiter.tryAcquire(request, route);
+        if (wait > 0) {
+            return tooManyRequests(route, wait);
+        }
+        if (cache.isCacheable(request, route)) {
+            return cache.get(request, route, () -> CompletableFuture.completedFuture(handle(request, route)))
+                    .toCompletableFuture().join();
+        }
+        return handle(request, route);
+    }
+
+    /**
+     * Executa o handler de uma rota síncrona, ou serve um arquivo estático.
+     */
+    private Response handle(Request request, Route route) {
+        long start = System.nanoTime();
+        Response response = new Response();
+        boolean staticFile = false;
+        if (!admission.tryAcquire(route)) {
+            return reject(route, start);
+        }
+        try {
+            if (route != null && route.isWebSocket()) {
+                // A rota só atende o handshake do WebSocket
+                response.setStatusCode(426);
+                response.setHeader("Upgrade", "websocket");
+                response.setHeader("Sec-WebSocket-Version", "13");
+                response.setBody("Upgrade Required");
+            } else if (route != null) {
+                // Se a rota for encontrada, chama o handler da rota
+                request.setRoute(route);
+                route.getHandler().handle(request, response);
+                Compression.apply(request, response);
+            } else if (request.getMethod().equals("GET") || request.getMethod().equals("HEAD")) {
+                // Se a rota não for encontrada e o método for GET ou HEAD, tenta servir um arquivo estático
+                staticFile = true;
+                StaticFileHandler.serveStaticFile(request, response);
+            } else {
+                // Se o método não for permitido, retorna o status 405
+                response.setStatusCode(405);
+                response.setBody("Method Not Allowed");
+            }
+        } catch (Exception e) {
+            setError(response, e);
+        } finally {
+            admission.release(route);
+        }
+        Metrics.requestCompleted(route, staticFile, response.getStatusCode(), System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Gera a resposta sem esperar por rotas assíncronas nem por outra requisição
+     * que já executa o handler de uma rota com cache. Rotas síncronas e
+     * arquivos estáticos são atendidos na hora e devolvidos já concluídos.
+     *
+     * @param request a requisição HTTP.
+     * @param route a rota correspondente, ou null se não houver.
+     * @return um estágio com a resposta; nunca é concluído com erro.
+     */
+    public CompletionStage<Response> dispatchAsync(Request request, Route route) {
+        if (route == null) {
+            return CompletableFuture.completedFuture(dispatch(request, null));
+        }
+        long wait = limiter.tryAcquire(request, route);
+        if (wait > 0) {
+            return CompletableFuture.completedFuture(tooManyRequests(route, wait));
+        }
+        if (cache.isCacheable(request, route)) {
+            return cache.get(request, route, route.isAsync() ? () -> handleAsync(request, route)
+                    : () -> CompletableFuture.completedFuture(handle(request, route)));
+        }
+        return route.isAsync() ? handleAsync(request, route) : CompletableFuture.completedFuture(handle(request, route));
+    }
+
+    /**
+     * Executa o handler de uma rota assíncrona, com o tempo limite da rota. A
+     * permissão da admissão é devolvida quando o estágio do handler termina, e
+     * não no 504: o trabalho que continua depois do tempo limite segue contando.
+     */
+    private CompletionStage<Response> handleAsync(Request request, Route route) {
+        long start = System.nanoTime();
+        if (!admission.tryAcquire(route)) {
+            return CompletableFuture.completedFuture(reject(route, start));
+        }
+        request.setRoute(route);
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        CompletionStage<Response> stage = null;
+        try {
+            stage = route.getAsyncHandler().handle(request);
+            stage.whenComplete((response, error) -> {
+                admission.release(route);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(response);
+                }
+            });
+        } catch (Exception e) {
+            if (stage == null) {
+                admission.release(route);
+            }
+            result.completeExceptionally(e);
+        }
+        // O tempo limite usa o agendador compartilhado do CompletableFuture, sem uma thread por requisição
+        CompletionStage<Response> handler = stage;
+        return result.orTimeout(getTimeout(route), TimeUnit.NANOSECONDS).handle((response, error) -> {
+            if (error != null) {
+                response = new Response();
+                Throwable cause = unwrap(error);
+                if (cause instanceof TimeoutException) {
+                    cancel(handler);
+                    response.setStatusCode(504);
+                    response.setBody("Gateway Timeout");
+                } else {
+                    setError(response, cause);
+                }
+            } else if (response == null) {
+                response = new Response();
+                setError(response, new IllegalStateException("Async handler completed without a response"));
+            } else {
+                Compression.apply(request, response);
+            }
+            Metrics.requestCompleted(route, false, response.getStatusCode(), System.nanoTime() - start);
+            return response;
+        });
+    }
+
+    /**
+     * Cancela o trabalho pendente do handler, se o estágio permitir. Um estágio
+     * cancelado termina e devolve a permissão da admissão.
+     */
+    private static void cancel(CompletionStage<Response> handler) {
+        if (handler instanceof Future<?> future) {
+            try {
+                future.cancel(true);
+            } catch (UnsupportedOperationException e) {
+                // e.g., CompletableFuture.minimalCompletionStage(): o handler segue até terminar
+            }
+        }
+    }
+
+    private long getTimeout(Route route) {
+        Duration timeout = route.getTimeout();
+        // Sem tempo limite na rota, vale o da configuração atual, que pode ser recarregada
+        return timeout != null ? timeout.toNanos()
+                : TimeUnit.MILLISECONDS.toNanos(Config.getRouteTimeout(route.getMethod(), route.getPath()));
+    }
+
+    private Response reject(Route route, long start) {
+        // Acima do limite: recusa na hora, sem executar o handler
+        Response response = new Response();
+        response.setStatusCode(503);
+        response.setHeader("Retry-After", String.valueOf(admission.getRetryAfter()));
+        response.setBody("Service Unavailable");
+        Metrics.requestCompleted(route, false, response.getStatusCode(), System.nanoTime() - start);
+        return response;
+    }
+
+    private static Response tooManyRequests(Route route, long wait) {
+        // O cliente passou do seu limite: recusa antes do cache e do handler
+        Response response = new Response();
+        response.setStatusCode(429);
+        // Arredonda para cima: antes disso o cliente seria recusado de novo
+        response.setHeader("Retry-After", String.valueOf((wait + TimeUnit.SECONDS.toNanos(1) - 1)
+                / TimeUnit.SECONDS.toNanos(1)));
+        response.setBody("Too Many Requests");
+        // Nada foi executado: a recusa não conta tempo de atendimento
+        Metrics.requestCompleted(route, false, response.getStatusCode(), 0);
+        return response;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Preenche a resposta de erro de um handler.
+     */
+    private static void setError(Response response, Throwable error) {
+        if (error instanceof UncheckedIOException && error.getCause() instanceof HttpParseException cause) {
+            error = cause;
+        }
+        if (error instanceof HttpParseException e) {
+            // Corpo inválido ou grande demais: retorna o status do erro
+            response.setStatusCode(e.getStatusCode());
+            response.setBody(e.getMessage());
+        } else {
+            // Em caso de erro, retorna o status 500
+            response.setStatusCode(500);
+            response.setBody("Internal Server Error");
+            System.err.println("Error processing request: " + error.getMessage());
+        }
+    }
+}
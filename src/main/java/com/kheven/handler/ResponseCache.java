@@ -0,0 +1,394 @@
+package com.kheven.handler;
+
+import com.kheven.config.Config;
+import com.kheven.http.Compression;
+import com.kheven.http.Response;
+import com.kheven.model.Request;
+import com.kheven.model.Route;
+import com.kheven.status.Metrics;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A classe ResponseCache guarda as respostas das rotas GET e HEAD que optaram
+ * pelo cache (com um tempo de vida maior que zero), já comprimidas, para que o
+ * handler não seja executado de novo enquanto a resposta for válida.
+ * <p>
+ * A chave é o método, o caminho com a query string, se o cliente aceita gzip e
+ * os valores dos cabeçalhos selecionados da rota. O tamanho total é
+ * limitado e as entradas menos usadas são descartadas primeiro (LRU). O
+ * Cache-Control da resposta tem prioridade sobre o tempo de vida da rota:
+ * no-store, no-cache e private impedem o cache, e s-maxage ou max-age definem o
+ * tempo de vida. Respostas com Set-Cookie nunca são guardadas: o cookie de um
+ * cliente seria entregue aos demais. Requisições simultâneas pela mesma chave ausente são
+ * agrupadas: só a primeira executa o handler e as demais esperam o resultado.
+ */
+public class ResponseCache {
+    private static volatile ResponseCache instance;
+
+    private volatile long maxSize;
+    private final ToLongFunction<Route> ttls;
+    private final Function<Route, String[]> varyHeaders;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    // Cargas em andamento: as requisições pela mesma chave esperam a primeira
+    private final Map<Key, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    // Tempo de vida (ns) e cabeçalhos da chave de cada rota, resolvidos uma única vez
+    // Por chave da rota (método e caminho), para não reter as rotas substituídas
+    private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+    private long size;
+
+    /**
+     * Construtor da classe ResponseCache.
+     *
+     * @param maxSize o tamanho máximo, em bytes, dos corpos guardados.
+     * @param ttls o tempo de vida, em milissegundos, das respostas de cada rota, ou 0 para não guardar.
+     * @param varyHeaders os cabeçalhos da requisição que fazem parte da chave de cada rota.
+     */
+    public ResponseCache(long maxSize, ToLongFunction<Route> ttls, Function<Route, String[]> varyHeaders) {
+        this.maxSize = maxSize;
+        this.ttls = ttls;
+        this.varyHeaders = varyHeaders;
+    }
+
+    /**
+     * Obtém o cache compartilhado, configurado por server.response.cache.max.size,
+     * server.route.cache.ttl.&lt;MÉTODO&gt;.&lt;caminho&gt; e
+     * server.route.cache.vary.&lt;MÉTODO&gt;.&lt;caminho&gt; e atualizado quando a
+     * configuração é recarregada.
+     *
+     * @return o cache de respostas.
+     */
+    public static ResponseCache getInstance() {
+        ResponseCache current = instance;
+        if (current == null) {
+            synchronized (ResponseCache.class) {
+                current = instance;
+                if (current == null) {
+                    current = new ResponseCache(Config.getResponseCacheMaxSize(),
+                            route -> Config.getRouteCacheTtl(route.getMethod(), route.getPath()),
+                            route -> Config.getRouteCacheVary(route.getMethod(), route.getPath()));
+                    ResponseCache shared = current;
+                    Config.addListener(() -> shared.reconfigure(Config.getResponseCacheMaxSize()));
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Verifica se a resposta da requisição pode vir do cache.
+     *
+     * @param request a requisição HTTP.
+     * @param route a rota correspondente, ou null se não houver.
+     * @return true se a rota optou pelo cache e o método é GET ou HEAD.
+     */
+    public boolean isCacheable(Request request, Route route) {
+        if (route == null) {
+            return false;
+        }
+        String method = request.getMethod();
+        return (method.equals("GET") || method.equals("HEAD")) && policy(route).ttl > 0;
+    }
+
+    /**
+     * Obtém a resposta do cache ou, na ausência, a carrega com o handler da rota.
+     *
+     * @param request a requisição HTTP.
+     * @param route a rota correspondente, que deve ser {@link #isCacheable cacheável}.
+     * @param loader executa o handler; seu estágio nunca deve ser concluído com erro.
+     * @return um estágio com a resposta.
+     */
+    public CompletionStage<Response> get(Request request, Route route, Supplier<CompletionStage<Response>> loader) {
+        long start = System.nanoTime();
+        Policy policy = policy(route);
+        Key key = key(request, policy);
+        Entry entry = lookup(key);
+        if (entry != null) {
+            Metrics.responseCacheHit();
+            return CompletableFuture.completedFuture(entry.toResponse(route, start));
+        }
+
+        CompletableFuture<Entry> load = new CompletableFuture<>();
+        CompletableFuture<Entry> leader = loading.putIfAbsent(key, load);
+        if (leader != null) {
+            // Outra requisição já está executando o handler: espera o resultado dela
+            Metrics.responseCacheCoalesced();
+            return leader.thenCompose(loaded -> loaded != null
+                    ? CompletableFuture.completedFuture(loaded.toResponse(route, start))
+                    : loader.get());
+        }
+        // A carga anterior pode ter terminado entre a consulta e o registro desta
+        entry = lookup(key);
+        if (entry != null) {
+            loading.remove(key, load);
+            load.complete(entry);
+            Metrics.responseCacheHit();
+            return CompletableFuture.completedFuture(entry.toResponse(route, start));
+        }
+
+        Metrics.responseCacheMiss();
+        CompletionStage<Response> stage;
+        try {
+            stage = loader.get();
+        } catch (RuntimeException e) {
+            loading.remove(key, load);
+            load.complete(null);
+            throw e;
+        }
+        return stage.whenComplete((response, error) -> {
+            Entry loaded = null;
+            try {
+                if (response != null) {
+                    loaded = store(key, policy, response);
+                }
+            } finally {
+                loading.remove(key, load);
+                // Sem entrada (resposta não cacheável), quem esperava executa o próprio handler
+                load.complete(loaded);
+            }
+        });
+    }
+
+    /**
+     * Remove todas as entradas.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Troca o tamanho máximo e volta a resolver o tempo de vida e os cabeçalhos
+     * da chave de cada rota. As entradas guardadas são descartadas, porque
+     * foram criadas com as regras anteriores; as cargas em andamento terminam
+     * normalmente.
+     *
+     * @param maxSize o novo tamanho máximo, em bytes.
+     */
+    public void reconfigure(long maxSize) {
+        lock.lock();
+        try {
+            this.maxSize = maxSize;
+            policies.clear();
+            entries.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Obtém o tamanho total, em bytes, dos corpos guardados.
+     *
+     * @return o tamanho do cache.
+     */
+    public long getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Policy policy(Route route) {
+        Policy policy = policies.get(route.getKey());
+        if (policy == null) {
+            policy = policies.computeIfAbsent(route.getKey(), key -> new Policy(
+                    TimeUnit.MILLISECONDS.toNanos(ttls.applyAsLong(route)), varyHeaders.apply(route)));
+        }
+        return policy;
+    }
+
+    private static Key key(Request request, Policy policy) {
+        String[] values = new String[policy.vary.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = request.getHeader(policy.vary[i]);
+        }
+        // A compressão depende só de o cliente aceitar gzip: evita uma entrada para cada variação do cabeçalho
+        boolean gzip = Compression.acceptsGzip(request.getHeader("Accept-Encoding"));
+        return new Key(request.getMethod(), request.getPath(), gzip, values);
+    }
+
+    private Entry lookup(Key key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(key);
+                size -= entry.body.length;
+                return null;
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Guarda a resposta, se ela puder ser reaproveitada.
+     *
+     * @return a entrada guardada, ou null se a resposta não for cacheável.
+     */
+    private Entry store(Key key, Policy policy, Response response) {
+        if (response.getStatusCode() != 200 || response.isStreaming() || response.getHeader("Set-Cookie") != null
+                || !isVaryCovered(response, policy)) {
+            return null;
+        }
+        long ttl = ttl(response.getHeader("Cache-Control"), policy.ttl);
+        if (ttl <= 0 || response.getBodyLength() > maxSize) {
+            return null;
+        }
+        Entry entry = new Entry(response, System.nanoTime() + ttl);
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                size -= previous.body.length;
+            }
+            size += entry.body.length;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+        return entry;
+    }
+
+    /**
+     * Verifica se todos os cabeçalhos do Vary da resposta fazem parte da chave.
+     */
+    private static boolean isVaryCovered(Response response, Policy policy) {
+        String vary = response.getHeader("Vary");
+        if (vary == null) {
+            return true;
+        }
+        for (String name : vary.split(",")) {
+            String header = name.trim();
+            if (!header.isEmpty() && !header.equalsIgnoreCase("Accept-Encoding")
+                    && Arrays.stream(policy.vary).noneMatch(header::equalsIgnoreCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtém o tempo de vida de uma resposta a partir do Cache-Control.
+     *
+     * @param cacheControl o cabeçalho da resposta, ou null.
+     * @param routeTtl o tempo de vida da rota, em nanossegundos.
+     * @return o tempo de vida em nanossegundos; zero se a resposta não pode ser guardada.
+     */
+    static long ttl(String cacheControl, long routeTtl) {
+        if (cacheControl == null) {
+            return routeTtl;
+        }
+        long maxAge = -1;
+        long sharedMaxAge = -1;
+        for (String item : cacheControl.split(",")) {
+            String directive = item.trim().toLowerCase(Locale.ROOT);
+            if (directive.equals("no-store") || directive.equals("no-cache") || directive.startsWith("private")) {
+                return 0;
+            }
+            if (directive.startsWith("s-maxage=")) {
+                sharedMaxAge = seconds(directive.substring(9));
+            } else if (directive.startsWith("max-age=")) {
+                maxAge = seconds(directive.substring(8));
+            }
+        }
+        long seconds = sharedMaxAge >= 0 ? sharedMaxAge : maxAge;
+        return seconds >= 0 ? TimeUnit.SECONDS.toNanos(seconds) : routeTtl;
+    }
+
+    private static long seconds(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Descarta as entradas menos usadas até o tamanho voltar ao limite.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().body.length;
+            iterator.remove();
+        }
+    }
+
+    private record Policy(long ttl, String[] vary) {
+    }
+
+    private record Key(String method, String path, boolean gzip, String[] vary) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && method.equals(other.method) && path.equals(other.path)
+                    && gzip == other.gzip && Arrays.equals(vary, other.vary);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((method.hashCode() * 31 + path.hashCode()) * 31 + Boolean.hashCode(gzip)) * 31
+                    + Arrays.hashCode(vary);
+        }
+    }
+
+    /**
+     * Uma resposta guardada: o corpo já comprimido e os cabeçalhos definidos pelo handler.
+     */
+    private static final class Entry {
+        private final int statusCode;
+        private final String contentType;
+        private final Map<String, String> headers;
+        private final byte[] body;
+        private final long expiresAt;
+
+        Entry(Response response, long expiresAt) {
+            this.statusCode = response.getStatusCode();
+            this.contentType = response.getContentType();
+            this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            this.headers.putAll(response.getHeaders());
+            this.body = response.getBody();
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Cria a resposta a partir da entrada e a registra nas métricas da rota.
+         */
+        Response toResponse(Route route, long start) {
+            Response response = new Response();
+            response.setStatusCode(statusCode);
+            response.setContentType(contentType);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                response.setHeader(header.getKey(), header.getValue());
+            }
+            // O corpo é compartilhado entre as respostas, sem cópia
+            response.setBody(body);
+            Metrics.requestCompleted(route, false, statusCode, System.nanoTime() - start);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package com.kheven.handler;
+
+import com.kheven.http.Compression;
+import com.kheven.http.HttpDate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * A classe StaticFileCache mantém em memória os arquivos estáticos já servidos,
+ * indexados pelo caminho normalizado dentro do diretório estático.
+ * <p>
+ * Arquivos pequenos são lidos para arrays de bytes; os maiores são mapeados em
+ * memória ({@link java.nio.MappedByteBuffer}) e enviados ao socket direto das
+ * páginas do sistema de arquivos, sem cópia para o heap. Um mapeamento tem no
+ * máximo 2 GB, então arquivos maiores são mapeados em janelas consecutivas e
+ * enviados como várias partes. O tamanho total é
+ * limitado e as entradas menos usadas são descartadas primeiro (LRU). Um
+ * {@link WatchService} sobre o diretório invalida as entradas quando os
+ * arquivos mudam; se o diretório não puder ser observado, nada é guardado e
+ * cada requisição lê o arquivo do disco.
+ * <p>
+ * A ETag de um arquivo guardado é o hash do conteúdo, calculado uma vez. Um
+ * arquivo que não é guardado (maior que o cache, ou sem WatchService) seria
+ * lido e hasheado a cada requisição, então a sua ETag vem do tamanho e da data
+ * de modificação, e ele não é comprimido na hora (só o irmão ".gz" é usado).
+ */
+public class StaticFileCache implements Closeable {
+    // Marca uma entrada cuja compressão não reduziu o tamanho
+    private static final ByteBuffer NOT_COMPRESSIBLE = ByteBuffer.allocate(0);
+    // Maior trecho de um arquivo em um único buffer (ou mapeamento)
+    private static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    private final Path root;
+    private final long maxSize;
+    private final long mmapThreshold;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final WatchService watcher;
+    private long size;
+    // Incrementado a cada invalidação, para descartar leituras feitas antes dela
+    private long generation;
+
+    /**
+     * Construtor da classe StaticFileCache.
+     *
+     * @param dir o diretório dos arquivos estáticos.
+     * @param maxSize o tamanho máximo, em bytes, das entradas guardadas.
+     * @param mmapThreshold o tamanho a partir do qual os arquivos são mapeados em memória.
+     */
+    public StaticFileCache(String dir, long maxSize, long mmapThreshold) {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.maxSize = maxSize;
+        this.mmapThreshold = mmapThreshold;
+        this.watcher = startWatcher();
+    }
+
+    /**
+     * Obtém o arquivo correspondente a um caminho de requisição, lendo-o do disco
+     * se ainda não estiver no cache.
+     *
+     * @param path o caminho da requisição (a query string é ignorada).
+     * @return o arquivo, ou null se não existir, for um diretório ou estiver fora do diretório estático.
+     * @throws IOException se ocorrer um erro ao ler o arquivo.
+     */
+    public Entry get(String path) throws IOException {
+        Path file = resolve(path);
+        if (file == null) {
+            return null;
+        }
+        String key = root.relativize(file).toString();
+        long loadGeneration;
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                return entry;
+            }
+            loadGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+
+        Entry entry = load(key, file);
+        if (entry == null || !entry.cacheable || entry.getCachedSize() > maxSize) {
+            return entry;
+        }
+        lock.lock();
+        try {
+            // Se algo mudou durante a leitura, o arquivo pode estar desatualizado
+            if (loadGeneration == generation && !entries.containsKey(key)) {
+                entries.put(key, entry);
+                size += entry.getCachedSize();
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return entry;
+    }
+
+    /**
+     * Obtém o conteúdo do arquivo comprimido com gzip: o irmão ".gz" do arquivo,
+     * se existir, ou o conteúdo comprimido na primeira chamada. O resultado fica
+     * na entrada e conta no tamanho do cache. Um arquivo que não é guardado só
+     * tem a versão do irmão ".gz".
+     *
+     * @param entry o arquivo obtido com {@link #get(String)}.
+     * @return o conteúdo comprimido, ou null se não houver ou a compressão não reduzir o tamanho.
+     */
+    public ByteBuffer getGzip(Entry entry) {
+        ByteBuffer gzip = entry.gzip;
+        if (gzip == null && (!entry.cacheable || entry.body.length > 1)) {
+            // Comprimir a cada requisição custaria mais que enviar o arquivo original
+            return null;
+        }
+        if (gzip == null) {
+            // Comprime fora do lock; em uma corrida, a primeira versão guardada vence
+            ByteBuffer compressed = ByteBuffer.wrap(Compression.gzip(entry.body)).asReadOnlyBuffer();
+            if (compressed.capacity() >= entry.getLength()) {
+                compressed = NOT_COMPRESSIBLE;
+            }
+            lock.lock();
+            try {
+                if (entry.gzip == null) {
+                    entry.gzip = compressed;
+                    if (entries.get(entry.key) == entry) {
+                        size += compressed.capacity();
+                        evict();
+                    }
+                }
+                gzip = entry.gzip;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return gzip == NOT_COMPRESSIBLE ? null : gzip;
+    }
+
+    /**
+     * Obtém o tamanho, em bytes, das entradas guardadas.
+     *
+     * @return o tamanho ocupado pelo cache.
+     */
+    public long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encerra o WatchService e descarta as entradas.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        invalidateAll();
+    }
+
+    /**
+     * Converte o caminho da requisição em um arquivo dentro do diretório estático.
+     */
+    private Path resolve(String path) {
+        int query = path.indexOf('?');
+        int start = 0;
+        int end = query < 0 ? path.length() : query;
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        try {
+            Path file = root.resolve(path.substring(start, end)).normalize();
+            // Impede o acesso a arquivos fora do diretório estático (e.g., /../config.properties)
+            return file.startsWith(root) && !file.equals(root) ? file : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private Entry load(String key, Path file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        ByteBuffer[] body = read(file);
+        if (body == null) {
+            return null;
+        }
+        // Versão pré-comprimida, gerada no build (e.g., app.js.gz ao lado de app.js)
+        Path sibling = file.resolveSibling(file.getFileName() + ".gz");
+        ByteBuffer[] siblingBody = Files.isRegularFile(sibling) ? read(sibling) : null;
+        // Um ".gz" de 2 GB ou mais não é usado: a versão comprimida é um único buffer
+        ByteBuffer gzip = siblingBody != null && siblingBody.length == 1 ? siblingBody[0] : null;
+        long cachedSize = Entry.lengthOf(body) + (gzip != null ? gzip.capacity() : 0);
+        return new Entry(key, StaticFileHandler.getContentType(file), StaticFileHandler.getCacheControl(file),
+                body, attributes.lastModifiedTime().toMillis(), gzip, watcher != null && cachedSize <= maxSize);
+    }
+
+    /**
+     * Lê um arquivo para o heap, ou o mapeia em memória se for grande.
+     *
+     * @return o conteúdo somente leitura, em janelas de até 2 GB, ou null se o arquivo não existir mais.
+     */
+    private ByteBuffer[] read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length >= mmapThreshold || length > MAX_WINDOW) {
+                ByteBuffer[] windows = new ByteBuffer[(int) Math.max(1, (length + MAX_WINDOW - 1) / MAX_WINDOW)];
+                for (int i = 0; i < windows.length; i++) {
+                    long position = i * MAX_WINDOW;
+                    windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                            Math.min(MAX_WINDOW, length - position)).asReadOnlyBuffer();
+                }
+                return windows;
+            }
+            ByteBuffer body = ByteBuffer.allocate((int) length);
+            while (body.hasRemaining() && channel.read(body) >= 0) {
+                // Lê até preencher o buffer ou chegar ao fim do arquivo
+            }
+            body.flip();
+            return new ByteBuffer[]{body.asReadOnlyBuffer()};
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Descarta as entradas menos usadas até o cache caber no tamanho máximo.
+     * Deve ser chamado com o lock adquirido.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().getCachedSize();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Descarta a entrada de um arquivo e, se for um diretório, as de tudo abaixo dele.
+     * A mudança de um arquivo ".gz" descarta também o arquivo original.
+     */
+    private void invalidate(Path changed) {
+        String key = root.relativize(changed).toString();
+        String original = key.endsWith(".gz") ? key.substring(0, key.length() - 3) : null;
+        String prefix = key + changed.getFileSystem().getSeparator();
+        lock.lock();
+        try {
+            generation++;
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> entry = iterator.next();
+                if (entry.getKey().equals(key) || entry.getKey().equals(original) || entry.getKey().startsWith(prefix)) {
+                    size -= entry.getValue().getCachedSize();
+                    iterator.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private WatchService startWatcher() {
+        WatchService service = null;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            register(service, root);
+        } catch (IOException e) {
+            System.err.println("Static file cache disabled, cannot watch " + root + ": " + e.getMessage());
+            if (service != null) {
+                try {
+                    service.close();
+                } catch (IOException ignored) {
+                    // O serviço não chegou a ser usado
+                }
+            }
+            return null;
+        }
+        WatchService started = service;
+        Thread.ofPlatform().daemon().name("static-file-watcher").start(() -> watch(started));
+        return service;
+    }
+
+    /**
+     * Registra o diretório e todos os seus subdiretórios no WatchService.
+     */
+    private void register(WatchService service, Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path subdir, BasicFileAttributes attributes) throws IOException {
+                WatchKey key = subdir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchedDirs.put(key, subdir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Laço da thread de observação: invalida as entradas dos arquivos alterados.
+     */
+    private void watch(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW || dir == null) {
+                    // Eventos perdidos: não há como saber o que mudou
+                    invalidateAll();
+                    continue;
+                }
+                Path changed = dir.resolve((Path) event.context());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed, LinkOption.NOFOLLOW_LINKS)) {
+                    try {
+                        register(service, changed);
+                    } catch (IOException | ClosedWatchServiceException e) {
+                        invalidateAll();
+                    }
+                }
+                invalidate(changed);
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Um arquivo estático guardado no cache, com o tipo de conteúdo e os
+     * cabeçalhos de validação (ETag e Last-Modified) já calculados.
+     */
+    public static final class Entry {
+        private final String key;
+        private final String contentType;
+        private final String cacheControl;
+        // O conteúdo em janelas de até 2 GB; só arquivos maiores têm mais de uma
+        private final ByteBuffer[] body;
+        private final long length;
+        private final long lastModified;
+        private final String lastModifiedHeader;
+        private final String etag;
+        private final String gzipEtag;
+        // Conteúdo comprimido com gzip; null até ser calculado, protegido pelo lock do cache
+        private volatile ByteBuffer gzip;
+        private final boolean precompressed;
+        // Se a entrada pode ser guardada; as demais são lidas do disco a cada requisição
+        private final boolean cacheable;
+
+        Entry(String key, String contentType, String cacheControl, ByteBuffer[] body, long lastModified,
+              ByteBuffer gzip, boolean cacheable) {
+            this.key = key;
+            this.contentType = contentType;
+            this.cacheControl = cacheControl;
+            this.body = body;
+            this.length = lengthOf(body);
+            // O cabeçalho Last-Modified tem precisão de segundos
+            this.lastModified = lastModified / 1000 * 1000;
+            this.lastModifiedHeader = HttpDate.format(lastModified);
+            this.etag = cacheable ? computeEtag(body) : "\"" + Long.toHexString(length) + "-"
+                    + Long.toHexString(lastModified) + "\"";
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+            this.gzip = gzip;
+            this.precompressed = gzip != null;
+            this.cacheable = cacheable;
+        }
+
+        /**
+         * Calcula uma ETag forte a partir do conteúdo: os primeiros 128 bits do SHA-256.
+         */
+        private static String computeEtag(ByteBuffer[] body) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (ByteBuffer window : body) {
+                    digest.update(window.duplicate());
+                }
+                return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        /**
+         * Obtém o tipo de conteúdo do arquivo.
+         *
+         * @return o tipo de conteúdo.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Obtém o valor do cabeçalho Cache-Control configurado para o arquivo.
+         *
+         * @return o valor do cabeçalho, ou null se não houver.
+         */
+        public String getCacheControl() {
+            return cacheControl;
+        }
+
+        static long lengthOf(ByteBuffer[] body) {
+            long length = 0;
+            for (ByteBuffer window : body) {
+                length += window.capacity();
+            }
+            return length;
+        }
+
+        /**
+         * Obtém o conteúdo do arquivo, somente leitura. O buffer é compartilhado:
+         * quem for consumi-lo deve usar {@link ByteBuffer#duplicate()}.
+         *
+         * @return o conteúdo do arquivo.
+         * @throws IllegalStateException se o arquivo tiver 2 GB ou mais (veja {@link #getBodyParts()}).
+         */
+        public ByteBuffer getBody() {
+            if (body.length > 1) {
+                throw new IllegalStateException("File " + key + " does not fit in a single buffer");
+            }
+            return body[0];
+        }
+
+        /**
+         * Obtém o conteúdo do arquivo em janelas consecutivas de até 2 GB,
+         * somente leitura. Os buffers são compartilhados: quem for consumi-los
+         * deve usar {@link ByteBuffer#duplicate()}.
+         *
+         * @return o conteúdo do arquivo, em ordem.
+         */
+        public ByteBuffer[] getBodyParts() {
+            return body.clone();
+        }
+
+        /**
+         * Obtém um trecho do arquivo sem cópia, como fatias das janelas que ele cobre.
+         *
+         * @param start a posição do primeiro byte.
+         * @param count o número de bytes.
+         * @return as fatias do trecho, em ordem.
+         */
+        public ByteBuffer[] slice(long start, long count) {
+            int first = (int) (start / MAX_WINDOW);
+            int last = count > 0 ? (int) ((start + count - 1) / MAX_WINDOW) : first;
+            ByteBuffer[] parts = new ByteBuffer[last - first + 1];
+            long remaining = count;
+            long offset = start - first * MAX_WINDOW;
+            for (int i = 0; i < parts.length; i++) {
+                ByteBuffer window = body[first + i];
+                int length = (int) Math.min(remaining, window.capacity() - offset);
+                parts[i] = window.slice((int) offset, length);
+                remaining -= length;
+                offset = 0;
+            }
+            return parts;
+        }
+
+        /**
+         * Obtém o tamanho do arquivo em bytes.
+         *
+         * @return o tamanho do arquivo.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Obtém o espaço ocupado no cache: o conteúdo e, se já calculada, a versão comprimida.
+         *
+         * @return o tamanho em bytes.
+         */
+        long getCachedSize() {
+            ByteBuffer compressed = gzip;
+            return getLength() + (compressed != null ? compressed.capacity() : 0);
+        }
+
+        /**
+         * Indica se existe um arquivo ".gz" pré-comprimido ao lado deste.
+         *
+         * @return true se a versão comprimida veio do disco, false caso contrário.
+         */
+        public boolean isPrecompressed() {
+            return precompressed;
+        }
+
+        /**
+         * Obtém a ETag da versão comprimida com gzip, diferente da original.
+         *
+         * @return a ETag da versão comprimida, já entre aspas.
+         */
+        public String getGzipEtag() {
+            return gzipEtag;
+        }
+
+        /**
+         * Obtém a data da última modificação do arquivo, truncada em segundos.
+         *
+         * @return a data em milissegundos desde a época.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Obtém a data da última modificação no formato do cabeçalho Last-Modified.
+         *
+         * @return a data formatada.
+         */
+        public String getLastModifiedHeader() {
+            return lastModifiedHeader;
+        }
+
+        /**
+         * Obtém a ETag forte do arquivo, já entre aspas.
+         *
+         * @return a ETag do arquivo.
+         */
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
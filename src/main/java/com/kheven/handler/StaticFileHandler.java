@@ -1,38 +1,242 @@
 package com.kheven.handler;
 
+import com.kheven.http.ByteRange;
+import com.kheven.http.Compression;
+import com.kheven.http.HttpDate;
 import com.kheven.http.Response;
 import com.kheven.config.Config;
+import com.kheven.model.Request;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
-// Essa classe é responsável por servir arquivos estáticos (HTML, CSS, JS) para o cliente. Falta testar.
+// Essa classe é responsável por servir arquivos estáticos (HTML, CSS, JS, imagens) para o cliente.
+// Os arquivos vêm do StaticFileCache, que evita ler o disco a cada requisição, e as revalidações
+// do navegador (If-None-Match / If-Modified-Since) são respondidas com 304, sem corpo.
+// Requisições com Range recebem 206 com fatias do arquivo (ou 416 se o intervalo for inválido).
+// Com Accept-Encoding: gzip, é enviado o irmão ".gz" do arquivo ou a versão comprimida guardada no cache.
 public class StaticFileHandler {
-    public static void serveStaticFile(String path, Response response) throws IOException {
-        Path filePath = Paths.get(Config.getStaticDir(), path);
-        if (Files.exists(filePath) && !Files.isDirectory(filePath)) {
-            response.setStatusCode(200);
-            response.setContentType(getContentType(filePath));
-            response.setBody(Files.readString(filePath));
-        } else {
+    private static volatile StaticFileCache cache;
+
+    public static void serveStaticFile(Request request, Response response) throws IOException {
+        serveStaticFile(getCache(), request, response);
+    }
+
+    /**
+     * Serve um arquivo estático a partir do cache informado.
+     *
+     * @param cache o cache de arquivos estáticos.
+     * @param request a requisição HTTP.
+     * @param response a resposta HTTP.
+     * @throws IOException se ocorrer um erro ao ler o arquivo.
+     */
+    public static void serveStaticFile(StaticFileCache cache, Request request, Response response) throws IOException {
+        StaticFileCache.Entry file = cache.get(request.getPath());
+        if (file == null) {
             response.setStatusCode(404);
             response.setBody("404 Not Found");
+            return;
+        }
+        String range = request.getHeader("Range");
+        ByteBuffer gzip = null;
+        if (Config.isCompressionEnabled()
+                && (file.isPrecompressed() || Compression.isCompressible(file.getContentType()))) {
+            Compression.addVary(response);
+            // Intervalos são atendidos sobre o arquivo original, sem compressão
+            if (range == null && (file.isPrecompressed() || file.getLength() >= Config.getCompressionMinSize())
+                    && Compression.acceptsGzip(request.getHeader("Accept-Encoding"))) {
+                gzip = cache.getGzip(file);
+            }
+        }
+        String etag = gzip != null ? file.getGzipEtag() : file.getEtag();
+        response.setHeader("ETag", etag);
+        response.setHeader("Last-Modified", file.getLastModifiedHeader());
+        if (file.getCacheControl() != null) {
+            response.setHeader("Cache-Control", file.getCacheControl());
+        }
+        if (isNotModified(request, file, etag)) {
+            response.setStatusCode(304);
+            return;
+        }
+        response.setHeader("Accept-Ranges", "bytes");
+        if (gzip != null) {
+            response.setStatusCode(200);
+            response.setContentType(file.getContentType());
+            response.setHeader("Content-Encoding", "gzip");
+            response.setBody(gzip);
+            return;
         }
+        if (range != null && isRangeAllowed(request, file)) {
+            List<ByteRange> ranges = ByteRange.parse(range, file.getLength());
+            if (ranges != null) {
+                servePartial(ranges, file, response);
+                return;
+            }
+        }
+        response.setStatusCode(200);
+        response.setContentType(file.getContentType());
+        response.setBodyParts(file.getBodyParts());
     }
 
-    private static String getContentType(Path filePath) {
-        String fileName = filePath.getFileName().toString();
-        if (fileName.endsWith(".html")) {
-            return "text/html";
-        } else if (fileName.endsWith(".css")) {
-            return "text/css";
-        } else if (fileName.endsWith(".js")) {
-            return "application/javascript";
-        } else {
-            return "text/plain";
+    /**
+     * Responde com os intervalos pedidos: 206 com uma fatia do arquivo, 206
+     * multipart/byteranges para vários intervalos ou 416 se nenhum for satisfatível.
+     * As fatias compartilham o buffer do cache, sem cópia.
+     */
+    private static void servePartial(List<ByteRange> ranges, StaticFileCache.Entry file, Response response) {
+        long length = file.getLength();
+        if (ranges.isEmpty()) {
+            response.setStatusCode(416);
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.setBody("Range Not Satisfiable");
+            return;
+        }
+        response.setStatusCode(206);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setContentType(file.getContentType());
+            response.setHeader("Content-Range", range.toContentRange(length));
+            response.setBodyParts(file.slice(range.getStart(), range.getLength()));
+            return;
         }
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        List<ByteBuffer> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        for (ByteRange range : ranges) {
+            String partHead = "\r\n--" + boundary + "\r\nContent-Type: " + file.getContentType()
+                    + "\r\nContent-Range: " + range.toContentRange(length) + "\r\n\r\n";
+            parts.add(ByteBuffer.wrap(partHead.getBytes(StandardCharsets.US_ASCII)));
+            // Um intervalo que cruza o limite de 2 GB ocupa duas janelas do arquivo
+            parts.addAll(List.of(file.slice(range.getStart(), range.getLength())));
+        }
+        parts.add(ByteBuffer.wrap(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII)));
+        response.setBodyParts(parts.toArray(new ByteBuffer[0]));
+    }
+
+    /**
+     * Verifica If-Range: o intervalo só é atendido se a ETag (forte) ou a data
+     * informada corresponder exatamente à versão atual do arquivo.
+     */
+    private static boolean isRangeAllowed(Request request, StaticFileCache.Entry file) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            return value.equals(file.getEtag());
+        }
+        return HttpDate.parse(value) == file.getLastModified();
     }
-}
 
+    /**
+     * Verifica as condições de revalidação da requisição. If-None-Match tem
+     * prioridade; If-Modified-Since só é considerado quando ele não é enviado.
+     */
+    private static boolean isNotModified(Request request, StaticFileCache.Entry file, String etag) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesEtag(ifNoneMatch, etag);
+        }
+        String ifModifiedSince = request.getHeader("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            long since = HttpDate.parse(ifModifiedSince);
+            return since >= 0 && file.getLastModified() <= since;
+        }
+        return false;
+    }
+
+    /**
+     * Compara a lista de ETags de If-None-Match com a do arquivo (comparação fraca:
+     * o prefixo W/ é ignorado).
+     */
+    private static boolean matchesEtag(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtém o cache de arquivos estáticos, criado no primeiro acesso a partir da configuração.
+     *
+     * @return o cache de arquivos estáticos.
+     */
+    public static StaticFileCache getCache() {
+        StaticFileCache current = cache;
+        if (current == null) {
+            synchronized (StaticFileHandler.class) {
+                current = cache;
+                if (current == null) {
+                    current = new StaticFileCache(Config.getStaticDir(), Config.getStaticCacheMaxSize(),
+                            Config.getStaticMmapThreshold());
+                    cache = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    static String getContentType(Path filePath) {
+        return switch (getExtension(filePath)) {
+            case "html", "htm" -> "text/html";
+            case "css" -> "text/css";
+            case "js", "mjs" -> "application/javascript";
+            case "json", "map" -> "application/json";
+            case "webmanifest" -> "application/manifest+json";
+            case "xml" -> "application/xml";
+            case "txt" -> "text/plain";
+            case "csv" -> "text/csv";
+            case "md" -> "text/markdown";
+            case "svg" -> "image/svg+xml";
+            case "png" -> "image/png";
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "gif" -> "image/gif";
+            case "webp" -> "image/webp";
+            case "avif" -> "image/avif";
+            case "bmp" -> "image/bmp";
+            case "tif", "tiff" -> "image/tiff";
+            case "ico" -> "image/x-icon";
+            case "woff" -> "font/woff";
+            case "woff2" -> "font/woff2";
+            case "ttf" -> "font/ttf";
+            case "otf" -> "font/otf";
+            case "eot" -> "application/vnd.ms-fontobject";
+            case "mp4" -> "video/mp4";
+            case "webm" -> "video/webm";
+            case "mp3" -> "audio/mpeg";
+            case "ogg" -> "audio/ogg";
+            case "wav" -> "audio/wav";
+            case "pdf" -> "application/pdf";
+            case "zip" -> "application/zip";
+            case "gz" -> "application/gzip";
+            case "tar" -> "application/x-tar";
+            case "7z" -> "application/x-7z-compressed";
+            case "rar" -> "application/vnd.rar";
+            case "wasm" -> "application/wasm";
+            // Tipo desconhecido: tratado como binário, sem compressão
+            default -> "application/octet-stream";
+        };
+    }
+
+    static String getCacheControl(Path filePath) {
+        return Config.getStaticCacheControl(getExtension(filePath));
+    }
+
+    private static String getExtension(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase();
+    }
+}
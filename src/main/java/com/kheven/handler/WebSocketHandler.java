@@ -0,0 +1,49 @@
+package com.kheven.handler;
+
+import com.kheven.websocket.WebSocket;
+
+/**
+ * Manipulador de uma rota WebSocket. Os métodos de um mesmo socket são chamados
+ * em sequência pela sua thread de leitura, que é virtual e pode bloquear; as
+ * mensagens podem ser enviadas por qualquer thread com os métodos de
+ * {@link WebSocket}. Uma exceção fecha o socket com o código 1011.
+ */
+public interface WebSocketHandler {
+    /**
+     * Chamado depois do handshake, antes da primeira mensagem.
+     *
+     * @param socket o socket aberto.
+     * @throws Exception se ocorrer um erro.
+     */
+    default void onOpen(WebSocket socket) throws Exception {
+    }
+
+    /**
+     * Chamado a cada mensagem de texto completa (já remontada, se veio fragmentada).
+     *
+     * @param socket o socket.
+     * @param text o texto recebido.
+     * @throws Exception se ocorrer um erro.
+     */
+    void onText(WebSocket socket, String text) throws Exception;
+
+    /**
+     * Chamado a cada mensagem binária completa.
+     *
+     * @param socket o socket.
+     * @param data os bytes recebidos.
+     * @throws Exception se ocorrer um erro.
+     */
+    default void onBinary(WebSocket socket, byte[] data) throws Exception {
+    }
+
+    /**
+     * Chamado uma única vez quando o socket é fechado.
+     *
+     * @param socket o socket.
+     * @param code o código de fechamento; 1006 se a conexão caiu sem o handshake de fechamento.
+     * @param reason o motivo enviado pelo cliente, ou vazio.
+     */
+    default void onClose(WebSocket socket, int code, String reason) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.kheven.http;
+
+import com.kheven.model.RequestHead;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A classe BodyDecoder delimita e decodifica incrementalmente o corpo de uma
+ * requisição, seja por Content-Length ou por Transfer-Encoding: chunked.
+ * <p>
+ * O decodificador recebe os bytes da conexão à medida que chegam e devolve
+ * fatias com os dados do corpo, sem copiá-los. Ele nunca consome bytes além
+ * do fim do corpo, de modo que a próxima requisição da conexão permanece no
+ * buffer. O tamanho total do corpo é limitado.
+ */
+public final class BodyDecoder {
+    private static final int FIXED = 0;
+    private static final int CHUNK_SIZE = 1;
+    private static final int CHUNK_EXTENSION = 2;
+    private static final int CHUNK_SIZE_LF = 3;
+    private static final int CHUNK_DATA = 4;
+    private static final int CHUNK_DATA_CR = 5;
+    private static final int CHUNK_DATA_LF = 6;
+    private static final int TRAILER_START = 7;
+    private static final int TRAILER_LINE = 8;
+    private static final int FINAL_LF = 9;
+    private static final int DONE = 10;
+
+    private static final int MAX_TRAILER_SIZE = 8192;
+
+    // Decodificador sem corpo; como já está concluído, não tem estado mutável
+    private static final BodyDecoder EMPTY = new BodyDecoder(DONE, 0, 0);
+
+    private final long maxBodySize;
+    private int state;
+    private long remaining;
+    private long total;
+    private boolean sizeDigits;
+    private int trailerSize;
+
+    private BodyDecoder(int state, long remaining, long maxBodySize) {
+        this.state = state;
+        this.remaining = remaining;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Cria o decodificador adequado aos cabeçalhos da requisição.
+     *
+     * @param head o cabeçalho da requisição.
+     * @param maxBodySize o tamanho máximo aceito para o corpo, em bytes.
+     * @return o decodificador do corpo (já concluído se a requisição não tiver corpo).
+     * @throws HttpParseException se o corpo for grande demais, a codificação não for suportada
+     * ou a requisição trouxer Transfer-Encoding e Content-Length.
+     */
+    public static BodyDecoder forRequest(RequestHead head, long maxBodySize) throws HttpParseException {
+        String transferEncoding = head.getHeader("Transfer-Encoding");
+        if (transferEncoding != null) {
+            // Com os dois cabeçalhos o tamanho é ambíguo: aceitar abriria espaço para request smuggling
+            if (head.getHeader("Content-Length") != null) {
+                throw new HttpParseException(400, "Transfer-Encoding with Content-Length");
+            }
+            checkCodings(transferEncoding);
+            return new BodyDecoder(CHUNK_SIZE, 0, maxBodySize);
+        }
+        long contentLength = head.getContentLength();
+        if (contentLength <= 0) {
+            return EMPTY;
+        }
+        if (contentLength > maxBodySize) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+        return new BodyDecoder(FIXED, contentLength, maxBodySize);
+    }
+
+    /**
+     * Valida a lista de codificações de Transfer-Encoding. O servidor só
+     * decodifica chunked, que deve ser a última codificação e aparecer uma única vez.
+     *
+     * @param transferEncoding o valor do cabeçalho Transfer-Encoding.
+     * @throws HttpParseException com 400 se chunked não for a última codificação,
+     * ou 501 se houver outra codificação.
+     */
+    private static void checkCodings(String transferEncoding) throws HttpParseException {
+        String[] codings = transferEncoding.split(",", -1);
+        String last = codings[codings.length - 1].trim();
+        if (!last.equalsIgnoreCase("chunked")) {
+            // Sem chunked no fim, o tamanho do corpo não pode ser determinado
+            throw new HttpParseException(400, "Unsupported Transfer-Encoding");
+        }
+        for (int i = 0; i < codings.length - 1; i++) {
+            String coding = codings[i].trim();
+            if (coding.isEmpty()) {
+                continue;
+            }
+            if (coding.equalsIgnoreCase("chunked")) {
+                throw new HttpParseException(400, "Unsupported Transfer-Encoding");
+            }
+            throw new HttpParseException(501, "Not Implemented");
+        }
+    }
+
+    /**
+     * Consome bytes de input e devolve a próxima fatia de dados do corpo.
+     * Quando devolve null, todos os bytes de input foram consumidos ou o corpo terminou.
+     *
+     * @param input os bytes recebidos, em modo de leitura.
+     * @return uma fatia de input com dados do corpo, ou null se não há dados disponíveis.
+     * @throws HttpParseException se a codificação chunked for inválida ou o corpo exceder o limite.
+     */
+    public ByteBuffer decode(ByteBuffer input) throws HttpParseException {
+        while (state != DONE && input.hasRemaining()) {
+            if (state == FIXED || state == CHUNK_DATA) {
+                return data(input);
+            }
+            step(input.get());
+        }
+        return null;
+    }
+
+    /**
+     * Indica se o corpo já foi lido por completo.
+     *
+     * @return true se o fim do corpo foi alcançado.
+     */
+    public boolean isFinished() {
+        return state == DONE;
+    }
+
+    private ByteBuffer data(ByteBuffer input) {
+        int length = (int) Math.min(remaining, input.remaining());
+        ByteBuffer slice = input.slice(input.position(), length);
+        input.position(input.position() + length);
+        remaining -= length;
+        if (remaining == 0) {
+            state = state == FIXED ? DONE : CHUNK_DATA_CR;
+        }
+        return slice;
+    }
+
+    private void step(byte b) throws HttpParseException {
+        switch (state) {
+            case CHUNK_SIZE -> {
+                int digit = Character.digit(b, 16);
+                if (digit >= 0) {
+                    if (remaining > (Long.MAX_VALUE >> 4)) {
+                        throw new HttpParseException(400, "Invalid chunk size");
+                    }
+                    remaining = remaining * 16 + digit;
+                    sizeDigits = true;
+                } else if (b == ';' || b == ' ' || b == '\t') {
+                    state = CHUNK_EXTENSION;
+                } else if (b == '\r') {
+                    state = CHUNK_SIZE_LF;
+                } else if (b == '\n') {
+                    endOfSizeLine();
+                } else {
+                    throw new HttpParseException(400, "Invalid chunk size");
+                }
+            }
+            case CHUNK_EXTENSION -> {
+                // Extensões de chunk são ignoradas
+                if (b == '\r') {
+                    state = CHUNK_SIZE_LF;
+                } else if (b == '\n') {
+                    endOfSizeLine();
+                }
+            }
+            case CHUNK_SIZE_LF -> {
+                expect(b, '\n');
+                endOfSizeLine();
+            }
+            case CHUNK_DATA_CR -> {
+                if (b == '\n') {
+                    state = CHUNK_SIZE;
+                } else {
+                    expect(b, '\r');
+                    state = CHUNK_DATA_LF;
+                }
+            }
+            case CHUNK_DATA_LF -> {
+                expect(b, '\n');
+                state = CHUNK_SIZE;
+            }
+            case TRAILER_START -> {
+                if (b == '\r') {
+                    state = FINAL_LF;
+                } else if (b == '\n') {
+                    state = DONE;
+                } else {
+                    state = TRAILER_LINE;
+                    trailerSize++;
+                }
+            }
+            case TRAILER_LINE -> {
+                // Os campos de trailer são descartados
+                if (++trailerSize > MAX_TRAILER_SIZE) {
+                    throw new HttpParseException(431, "Trailer too large");
+                }
+                if (b == '\n') {
+                    state = TRAILER_START;
+                }
+            }
+            case FINAL_LF -> {
+                expect(b, '\n');
+                state = DONE;
+            }
+            default -> throw new IllegalStateException("Unexpected state " + state);
+        }
+    }
+
+    private void endOfSizeLine() throws HttpParseException {
+        if (!sizeDigits) {
+            throw new HttpParseException(400, "Invalid chunk size");
+        }
+        sizeDigits = false;
+        if (remaining == 0) {
+            state = TRAILER_START;
+            return;
+        }
+        total += remaining;
+        if (total > maxBodySize) {
+            throw new HttpParseException(413, "Payload Too Large");
+        }
+        state = CHUNK_DATA;
+    }
+
+    private static void expect(byte actual, char expected) throws HttpParseException {
+        if (actual != expected) {
+            throw new HttpParseException(400, "Malformed chunked body");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.kheven.http;
+
+import com.kheven.status.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A classe BodyInputStream expõe o corpo de uma requisição como um InputStream
+ * lido sob demanda do socket. Os bytes vêm primeiro do buffer de leitura da
+ * conexão e, quando ele se esgota, o buffer é preenchido novamente pelo socket;
+ * o que sobrar após o fim do corpo permanece no buffer para a próxima requisição.
+ */
+public class BodyInputStream extends InputStream {
+    private final BodyDecoder decoder;
+    private final ByteBuffer buffer;
+    private final InputStream source;
+    private ByteBuffer current;
+
+    /**
+     * Construtor da classe BodyInputStream.
+     *
+     * @param decoder o decodificador do corpo.
+     * @param buffer o buffer de leitura da conexão, em modo de leitura.
+     * @param source o InputStream do socket.
+     */
+    public BodyInputStream(BodyDecoder decoder, ByteBuffer buffer, InputStream source) {
+        this.decoder = decoder;
+        this.buffer = buffer;
+        this.source = source;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || !current.hasRemaining()) {
+            if (decoder.isFinished()) {
+                return -1;
+            }
+            current = decoder.decode(buffer);
+            if (current == null && !decoder.isFinished()) {
+                // O buffer foi consumido por inteiro: lê mais bytes do socket
+                int read = source.read(buffer.array(), 0, buffer.capacity());
+                Metrics.bytesReceived(read);
+                if (read == -1) {
+                    throw new IOException("Connection closed before the end of the request body");
+                }
+                buffer.position(0).limit(read);
+            }
+        }
+        int length = Math.min(len, current.remaining());
+        current.get(b, off, length);
+        return length;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.remaining();
+    }
+
+    /**
+     * Indica se o corpo já foi lido por completo.
+     *
+     * @return true se o fim do corpo foi alcançado.
+     */
+    public boolean isFinished() {
+        return decoder.isFinished() && (current == null || !current.hasRemaining());
+    }
+}
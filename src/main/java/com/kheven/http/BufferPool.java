@@ -0,0 +1,229 @@
+package com.kheven.http;
+
+import com.kheven.config.Config;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A classe BufferPool reaproveita os ByteBuffers de I/O das conexões, para que
+ * abrir uma conexão ou atender uma requisição não aloque buffers novos.
+ * <p>
+ * Os buffers são agrupados em classes de tamanho (potências de dois de
+ * {@link #MIN_SIZE} a {@link #MAX_SIZE} bytes); pedidos maiores não passam pelo
+ * pool. Cada classe é dividida em faixas escolhidas pela thread, para reduzir a
+ * disputa entre threads; não se usa ThreadLocal porque as threads virtuais são
+ * muitas e de vida curta. Com a detecção de vazamentos ligada (nos testes), o
+ * pool guarda onde cada buffer foi obtido e acusa os que não foram devolvidos
+ * ou foram devolvidos duas vezes.
+ */
+public final class BufferPool {
+    /**
+     * Menor classe de tamanho, em bytes.
+     */
+    public static final int MIN_SIZE = 512;
+    /**
+     * Maior classe de tamanho, em bytes.
+     */
+    public static final int MAX_SIZE = 64 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+    private static volatile BufferPool instance;
+
+    private final boolean direct;
+    private final int maxPerStripe;
+    private final Stripe[][] stripes;
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    // Buffers emprestados e onde foram obtidos; só com a detecção de vazamentos
+    private final Map<ByteBuffer, Throwable> borrowed;
+
+    /**
+     * Construtor da classe BufferPool.
+     *
+     * @param direct se os buffers são diretos (fora do heap) em vez de arrays.
+     * @param stripes o número de faixas de cada classe de tamanho.
+     * @param maxPerStripe o número máximo de buffers livres guardados em cada faixa.
+     * @param leakDetection se o pool deve acompanhar os buffers emprestados.
+     */
+    public BufferPool(boolean direct, int stripes, int maxPerStripe, boolean leakDetection) {
+        this.direct = direct;
+        this.maxPerStripe = maxPerStripe;
+        this.stripes = new Stripe[CLASSES][Math.max(1, stripes)];
+        for (Stripe[] sizeClass : this.stripes) {
+            for (int i = 0; i < sizeClass.length; i++) {
+                sizeClass[i] = new Stripe();
+            }
+        }
+        this.borrowed = leakDetection ? Collections.synchronizedMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * Obtém o pool compartilhado, de buffers no heap (as conexões leem e
+     * montam os cabeçalhos direto no array), configurado por
+     * server.buffer.pool.max e server.buffer.leak.detection.
+     *
+     * @return o pool de buffers.
+     */
+    public static BufferPool getInstance() {
+        BufferPool current = instance;
+        if (current == null) {
+            synchronized (BufferPool.class) {
+                current = instance;
+                if (current == null) {
+                    current = new BufferPool(false, 2 * Runtime.getRuntime().availableProcessors(),
+                            Config.getBufferPoolMax(), Config.isBufferLeakDetection());
+                    instance = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Obtém um buffer limpo com pelo menos o tamanho pedido. A capacidade é a
+     * da classe de tamanho, e o limite também.
+     *
+     * @param size o tamanho mínimo, em bytes.
+     * @return o buffer, que deve ser devolvido com {@link #release(ByteBuffer)}.
+     */
+    public ByteBuffer acquire(int size) {
+        int sizeClass = sizeClass(size);
+        ByteBuffer buffer = null;
+        if (sizeClass >= 0) {
+            buffer = stripe(sizeClass).poll();
+            if (buffer != null) {
+                reused.increment();
+            }
+        }
+        if (buffer == null) {
+            allocated.increment();
+            int capacity = sizeClass >= 0 ? MIN_SIZE << sizeClass : size;
+            buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+        if (borrowed != null) {
+            borrowed.put(buffer, new Throwable("Buffer acquired here"));
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Devolve um buffer ao pool. Buffers que não pertencem a uma classe de
+     * tamanho são descartados. O buffer não pode ser usado depois da devolução.
+     *
+     * @param buffer o buffer obtido com {@link #acquire(int)}, ou null.
+     * @throws IllegalStateException com a detecção de vazamentos, se o buffer
+     *                               não estava emprestado (devolvido duas vezes).
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (borrowed != null && borrowed.remove(buffer) == null) {
+            throw new IllegalStateException("Buffer released twice or not acquired from this pool");
+        }
+        int capacity = buffer.capacity();
+        if (buffer.isDirect() != direct || Integer.bitCount(capacity) != 1
+                || capacity < MIN_SIZE || capacity > MAX_SIZE) {
+            return;
+        }
+        stripe(Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT).offer(buffer, maxPerStripe);
+    }
+
+    /**
+     * Obtém o número de buffers emprestados e ainda não devolvidos.
+     *
+     * @return o número de buffers, ou -1 se a detecção de vazamentos estiver desligada.
+     */
+    public int getOutstanding() {
+        return borrowed == null ? -1 : borrowed.size();
+    }
+
+    /**
+     * Obtém onde foram obtidos os buffers ainda não devolvidos.
+     *
+     * @return um rastro de pilha por buffer; vazio se a detecção de vazamentos estiver desligada.
+     */
+    public List<Throwable> getLeaks() {
+        if (borrowed == null) {
+            return List.of();
+        }
+        synchronized (borrowed) {
+            return new ArrayList<>(borrowed.values());
+        }
+    }
+
+    /**
+     * Obtém o número de buffers alocados porque o pool não tinha um livre.
+     *
+     * @return o número de alocações.
+     */
+    public long getAllocatedCount() {
+        return allocated.sum();
+    }
+
+    /**
+     * Obtém o número de pedidos atendidos com um buffer reaproveitado.
+     *
+     * @return o número de reaproveitamentos.
+     */
+    public long getReusedCount() {
+        return reused.sum();
+    }
+
+    /**
+     * Obtém a classe de tamanho de um pedido.
+     *
+     * @return o índice da classe, ou -1 se o pedido for maior que {@link #MAX_SIZE}.
+     */
+    private static int sizeClass(int size) {
+        if (size > MAX_SIZE) {
+            return -1;
+        }
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private Stripe stripe(int sizeClass) {
+        Stripe[] sizeStripes = stripes[sizeClass];
+        return sizeStripes[(int) (Thread.currentThread().threadId() % sizeStripes.length)];
+    }
+
+    /**
+     * Pilha de buffers livres de uma faixa.
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+        ByteBuffer poll() {
+            lock.lock();
+            try {
+                return free.pollFirst();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void offer(ByteBuffer buffer, int max) {
+            lock.lock();
+            try {
+                if (free.size() < max) {
+                    free.addFirst(buffer);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.kheven.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A classe ByteRange representa um intervalo de bytes pedido no cabeçalho
+ * Range (e.g., "bytes=0-499", "bytes=500-", "bytes=-500"), já resolvido para
+ * o tamanho do recurso.
+ */
+public final class ByteRange {
+    /**
+     * Número máximo de intervalos atendidos em uma requisição; acima disso o
+     * cabeçalho Range é ignorado e o recurso é enviado inteiro.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private final long start;
+    private final long end;
+
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Interpreta o cabeçalho Range para um recurso do tamanho informado.
+     *
+     * @param header o valor do cabeçalho Range.
+     * @param length o tamanho do recurso em bytes.
+     * @return os intervalos satisfatíveis, na ordem pedida; uma lista vazia se
+     *         nenhum puder ser atendido (416); ou null se o cabeçalho for inválido
+     *         ou deva ser ignorado, caso em que o recurso é enviado inteiro.
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            String range = spec.trim();
+            int dash = range.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long first = parseNumber(range, 0, dash);
+            long last = parseNumber(range, dash + 1, range.length());
+            if (first == -1) {
+                // Sufixo: os últimos N bytes
+                if (last < 0) {
+                    return null;
+                }
+                if (last > 0 && length > 0) {
+                    ranges.add(new ByteRange(Math.max(0, length - last), length - 1));
+                }
+            } else if (first >= 0) {
+                if (last == -2 || (last >= 0 && last < first)) {
+                    return null;
+                }
+                if (first < length) {
+                    ranges.add(new ByteRange(first, last < 0 ? length - 1 : Math.min(last, length - 1)));
+                }
+            } else {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Converte um trecho com dígitos decimais.
+     *
+     * @return o número, -1 se o trecho for vazio, ou -2 se não for um número válido.
+     */
+    private static long parseNumber(String value, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9' || number > (Long.MAX_VALUE - 9) / 10) {
+                return -2;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    /**
+     * Obtém a posição do primeiro byte do intervalo.
+     *
+     * @return a posição inicial.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Obtém a posição do último byte do intervalo (inclusiva).
+     *
+     * @return a posição final.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Obtém o número de bytes do intervalo.
+     *
+     * @return o tamanho do intervalo.
+     */
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * Monta o valor do cabeçalho Content-Range para o intervalo.
+     *
+     * @param total o tamanho do recurso em bytes.
+     * @return o valor do cabeçalho (e.g., "bytes 0-499/1234").
+     */
+    public String toContentRange(long total) {
+        return "bytes " + start + "-" + end + "/" + total;
+    }
+}
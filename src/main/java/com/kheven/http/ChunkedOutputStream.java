@@ -0,0 +1,185 @@
+package com.kheven.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A classe ChunkedOutputStream codifica um corpo de resposta com
+ * "Transfer-Encoding: chunked". Os dados são acumulados em um buffer de tamanho
+ * fixo, enviado como um bloco quando enche ou em {@link #flush()}; a memória
+ * usada não depende do tamanho do corpo.
+ * <p>
+ * O buffer reserva espaço antes dos dados para o tamanho do bloco e depois
+ * deles para o CRLF, e cada bloco é enviado em uma única escrita. Sem a
+ * codificação (no HTTP/2), os blocos são enviados como estão e o destino faz o
+ * enquadramento.
+ */
+public final class ChunkedOutputStream extends OutputStream implements WritableByteChannel {
+    /**
+     * Tamanho padrão dos blocos, em bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    // Espaço para o tamanho em hexadecimal (até 8 dígitos) seguido de CRLF
+    private static final int PREFIX_SIZE = 10;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel target;
+    private final ByteBuffer buffer;
+    private final int chunkSize;
+    private final boolean encode;
+    private boolean closed;
+
+    /**
+     * Construtor da classe ChunkedOutputStream, com blocos de {@link #DEFAULT_CHUNK_SIZE} bytes.
+     *
+     * @param target o canal que recebe os blocos codificados.
+     */
+    public ChunkedOutputStream(WritableByteChannel target) {
+        this(target, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Construtor da classe ChunkedOutputStream.
+     *
+     * @param target o canal que recebe os blocos codificados.
+     * @param chunkSize o tamanho máximo de cada bloco, em bytes.
+     */
+    public ChunkedOutputStream(WritableByteChannel target, int chunkSize) {
+        this(target, chunkSize, true);
+    }
+
+    /**
+     * Construtor da classe ChunkedOutputStream.
+     *
+     * @param target o canal que recebe os blocos.
+     * @param chunkSize o tamanho máximo de cada bloco, em bytes.
+     * @param encode se os blocos são codificados com tamanho e CRLF; sem a
+     *               codificação, cada bloco é escrito como está e o fim do corpo
+     *               não é marcado.
+     */
+    public ChunkedOutputStream(WritableByteChannel target, int chunkSize, boolean encode) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.target = target;
+        this.chunkSize = chunkSize;
+        this.encode = encode;
+        this.buffer = ByteBuffer.allocate(PREFIX_SIZE + chunkSize + 2);
+        buffer.position(PREFIX_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (pending() == chunkSize) {
+            sendChunk();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Escreve os bytes restantes do buffer, enviando blocos à medida que enchem.
+     *
+     * @param src os bytes a escrever.
+     * @return o número de bytes escritos (sempre todos os restantes).
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int written = src.remaining();
+        while (src.hasRemaining()) {
+            if (pending() == chunkSize) {
+                sendChunk();
+            }
+            int length = Math.min(src.remaining(), chunkSize - pending());
+            buffer.put(buffer.position(), src, src.position(), length);
+            buffer.position(buffer.position() + length);
+            src.position(src.position() + length);
+        }
+        return written;
+    }
+
+    /**
+     * Envia como um bloco os bytes já escritos, sem esperar o buffer encher.
+     *
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (pending() > 0) {
+            sendChunk();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Envia o que resta e, com a codificação, o último bloco, que marca o fim
+     * do corpo. Não fecha o canal de destino.
+     *
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        if (encode) {
+            writeFully(ByteBuffer.wrap(LAST_CHUNK));
+        }
+    }
+
+    private int pending() {
+        return buffer.position() - PREFIX_SIZE;
+    }
+
+    private void sendChunk() throws IOException {
+        if (!encode) {
+            writeFully(buffer.flip().position(PREFIX_SIZE));
+            buffer.clear().position(PREFIX_SIZE);
+            return;
+        }
+        int length = pending();
+        buffer.put((byte) '\r').put((byte) '\n');
+        int end = buffer.position();
+        // Escreve o tamanho em hexadecimal logo antes dos dados
+        int start = PREFIX_SIZE - 2;
+        buffer.put(start, (byte) '\r').put(start + 1, (byte) '\n');
+        do {
+            buffer.put(--start, HEX[length & 0xf]);
+            length >>>= 4;
+        } while (length != 0);
+        writeFully(buffer.limit(end).position(start));
+        buffer.clear().position(PREFIX_SIZE);
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            target.write(data);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+}
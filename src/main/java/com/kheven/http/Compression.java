@@ -0,0 +1,167 @@
+package com.kheven.http;
+
+import com.kheven.config.Config;
+import com.kheven.model.Request;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A classe Compression comprime respostas com gzip quando o cliente aceita
+ * (Accept-Encoding), o tipo de conteúdo é compressível e o corpo tem pelo menos
+ * server.compression.min.size bytes. Toda resposta compressível recebe
+ * "Vary: Accept-Encoding", mesmo quando enviada sem compressão, para que caches
+ * intermediários não entreguem a versão errada.
+ */
+public final class Compression {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int CHUNK_SIZE = 8192;
+
+    private Compression() {
+    }
+
+    /**
+     * Comprime a resposta de uma rota, se as condições forem atendidas.
+     *
+     * @param request a requisição HTTP.
+     * @param response a resposta HTTP, alterada no lugar.
+     */
+    public static void apply(Request request, Response response) {
+        if (!Config.isCompressionEnabled() || response.getStatusCode() != 200 || response.isStreaming()
+                || response.getHeader("Content-Encoding") != null || !isCompressible(response.getContentType())) {
+            return;
+        }
+        addVary(response);
+        long length = response.getBodyLength();
+        if (length < Config.getCompressionMinSize() || !acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            return;
+        }
+        byte[] compressed = gzip(response.getBodyBuffers());
+        if (compressed.length < length) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.setBody(compressed);
+        }
+    }
+
+    /**
+     * Acrescenta Accept-Encoding ao cabeçalho Vary da resposta.
+     *
+     * @param response a resposta HTTP.
+     */
+    public static void addVary(Response response) {
+        String vary = response.getHeader("Vary");
+        if (vary == null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        } else if (!vary.toLowerCase().contains("accept-encoding")) {
+            response.setHeader("Vary", vary + ", Accept-Encoding");
+        }
+    }
+
+    /**
+     * Verifica se o cabeçalho Accept-Encoding aceita gzip, respeitando q=0.
+     *
+     * @param acceptEncoding o valor do cabeçalho, ou null se ausente.
+     * @return true se o cliente aceita gzip, false caso contrário.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String item : acceptEncoding.split(",")) {
+            int semicolon = item.indexOf(';');
+            String coding = (semicolon < 0 ? item : item.substring(0, semicolon)).trim();
+            boolean accepted = semicolon < 0 || !isZeroQuality(item.substring(semicolon + 1));
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    private static boolean isZeroQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String value = parameter.trim();
+            if (value.startsWith("q=") || value.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(value.substring(2).trim()) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifica se vale a pena comprimir um tipo de conteúdo (texto e formatos
+     * textuais como JSON, JavaScript, XML, SVG e fontes TTF/OTF). Imagens, mídia e
+     * fontes WOFF já são comprimidas.
+     *
+     * @param contentType o tipo de conteúdo da resposta.
+     * @return true se o tipo for compressível, false caso contrário.
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/")
+                || type.startsWith("application/json")
+                || type.startsWith("application/javascript")
+                || type.startsWith("application/xml")
+                || type.startsWith("image/svg+xml")
+                || type.startsWith("application/manifest+json")
+                || type.startsWith("application/wasm")
+                || type.startsWith("application/vnd.ms-fontobject")
+                || type.startsWith("font/ttf")
+                || type.startsWith("font/otf");
+    }
+
+    /**
+     * Comprime os buffers em formato gzip, sem alterar suas posições.
+     *
+     * @param parts o conteúdo a comprimir, em ordem.
+     * @return o conteúdo comprimido.
+     */
+    public static byte[] gzip(ByteBuffer... parts) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        CRC32 crc = new CRC32();
+        long total = 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try {
+            out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            for (ByteBuffer part : parts) {
+                crc.update(part.duplicate());
+                total += part.remaining();
+                deflater.setInput(part.duplicate());
+                while (!deflater.needsInput()) {
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+        // Rodapé: CRC-32 e tamanho original, em little-endian
+        writeIntLE(out, (int) crc.getValue());
+        writeIntLE(out, (int) total);
+        return out.toByteArray();
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
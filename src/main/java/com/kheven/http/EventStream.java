@@ -0,0 +1,160 @@
+package com.kheven.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A classe EventStream envia Server-Sent Events (text/event-stream) em uma
+ * resposta de streaming. Cada evento é enviado assim que escrito. Enquanto o
+ * stream está aberto, um comentário vazio é enviado periodicamente (heartbeat)
+ * para manter a conexão viva em proxies e detectar clientes que saíram.
+ */
+public final class EventStream implements Closeable {
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Uma única thread agenda o heartbeat de todos os streams abertos; cada envio roda em uma
+    // thread virtual, para que um cliente lento não atrase os demais
+    private static final ScheduledExecutorService HEARTBEATS = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Produz os eventos de uma resposta registrada com {@link Response#setEventStream}.
+     */
+    @FunctionalInterface
+    public interface Producer {
+
+        /**
+         * Envia os eventos; a conexão fica aberta até o retorno.
+         *
+         * @param events o stream de eventos.
+         * @throws Exception se os eventos não puderem ser produzidos.
+         */
+        void produce(EventStream events) throws Exception;
+    }
+
+    private final OutputStream out;
+    // Os eventos do produtor e o heartbeat escrevem de threads diferentes
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledFuture<?> heartbeat;
+    private volatile boolean open = true;
+
+    /**
+     * Construtor da classe EventStream.
+     *
+     * @param out o corpo da resposta.
+     * @param heartbeatInterval o intervalo entre os heartbeats; zero desativa o heartbeat.
+     */
+    public EventStream(OutputStream out, Duration heartbeatInterval) {
+        this.out = out;
+        long interval = heartbeatInterval.toMillis();
+        this.heartbeat = interval > 0
+                ? HEARTBEATS.scheduleAtFixedRate(() -> Thread.ofVirtual().start(this::sendHeartbeat),
+                        interval, interval, TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    /**
+     * Envia um evento sem nome.
+     *
+     * @param data os dados do evento; cada linha vira um campo "data".
+     * @throws IOException se a conexão foi encerrada.
+     */
+    public void send(String data) throws IOException {
+        send(null, data);
+    }
+
+    /**
+     * Envia um evento.
+     *
+     * @param event o nome do evento, ou null para o evento padrão ("message").
+     * @param data os dados do evento; cada linha vira um campo "data".
+     * @throws IOException se a conexão foi encerrada.
+     */
+    public void send(String event, String data) throws IOException {
+        StringBuilder text = new StringBuilder(data.length() + 16);
+        if (event != null) {
+            text.append("event: ").append(event).append('\n');
+        }
+        for (String line : data.split("\r\n|\r|\n", -1)) {
+            text.append("data: ").append(line).append('\n');
+        }
+        write(text.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Envia um comentário, ignorado pelo cliente.
+     *
+     * @param comment o texto do comentário, em uma linha.
+     * @throws IOException se a conexão foi encerrada.
+     */
+    public void comment(String comment) throws IOException {
+        write((": " + comment + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Indica se o stream ainda está aberto. Fica falso quando um envio (ou o
+     * heartbeat) falha porque o cliente saiu.
+     *
+     * @return true se o stream está aberto.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Encerra o heartbeat. O fim da resposta é enviado quando o produtor retorna.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            open = false;
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sendHeartbeat() {
+        // Se o produtor está escrevendo, a conexão não está ociosa e o heartbeat é dispensado
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            write(HEARTBEAT);
+        } catch (IOException e) {
+            close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        lock.lock();
+        try {
+            if (!open) {
+                throw new IOException("Event stream closed");
+            }
+            out.write(bytes);
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.kheven.http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * A classe HttpDate formata e interpreta datas no formato dos cabeçalhos HTTP
+ * (IMF-fixdate, e.g., "Sun, 06 Nov 1994 08:49:37 GMT").
+ */
+public final class HttpDate {
+    private static final DateTimeFormatter FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private HttpDate() {
+    }
+
+    /**
+     * Formata uma data para um cabeçalho HTTP.
+     *
+     * @param millis a data em milissegundos desde a época.
+     * @return a data no formato IMF-fixdate.
+     */
+    public static String format(long millis) {
+        return FORMAT.format(Instant.ofEpochMilli(millis));
+    }
+
+    /**
+     * Interpreta a data de um cabeçalho HTTP.
+     *
+     * @param value o valor do cabeçalho.
+     * @return a data em milissegundos desde a época, ou -1 se o valor for inválido.
+     */
+    public static long parse(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.kheven.http;
+
+import java.io.IOException;
+
+/**
+ * Exceção lançada quando a requisição recebida não é uma mensagem HTTP/1.1 válida.
+ * O servidor responde com o status indicado e encerra a conexão.
+ */
+public class HttpParseException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    /**
+     * Construtor da classe HttpParseException.
+     *
+     * @param statusCode o código de status HTTP da resposta de erro (e.g., 400).
+     * @param message a descrição do erro.
+     */
+    public HttpParseException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Obtém o código de status HTTP da resposta de erro.
+     *
+     * @return o código de status.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
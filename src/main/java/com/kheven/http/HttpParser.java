@@ -0,0 +1,274 @@
+package com.kheven.http;
+
+import com.kheven.model.RequestHead;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A classe HttpParser analisa incrementalmente a linha de requisição e os
+ * cabeçalhos de uma requisição HTTP/1.1 diretamente sobre bytes, sem
+ * decodificadores de caracteres nem expressões regulares.
+ * <p>
+ * Os bytes são acumulados em um buffer reutilizável, de modo que uma requisição
+ * pode chegar dividida em várias leituras. Métodos e nomes de cabeçalhos
+ * comuns são internados, e o restante só é decodificado sob demanda pelo
+ * {@link RequestHead}. Cada instância atende uma conexão por vez.
+ */
+public final class HttpParser {
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_HEAD_SIZE = 64 * 1024;
+    private static final int MAX_HEADERS = 100;
+
+    private static final String[] METHODS = {
+            "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH", "TRACE", "CONNECT"
+    };
+    private static final String[] VERSIONS = {"HTTP/1.1", "HTTP/1.0"};
+    private static final String[] HEADER_NAMES = {
+            "Host", "User-Agent", "Accept", "Accept-Encoding", "Accept-Language", "Accept-Charset",
+            "Connection", "Content-Length", "Content-Type", "Transfer-Encoding", "Cache-Control",
+            "Pragma", "Cookie", "Authorization", "Referer", "Origin", "Upgrade", "Expect",
+            "If-None-Match", "If-Modified-Since", "If-Range", "Range", "Keep-Alive", "TE",
+            "X-Forwarded-For", "X-Requested-With", "Upgrade-Insecure-Requests",
+            "Sec-WebSocket-Key", "Sec-WebSocket-Version", "Sec-WebSocket-Protocol", "Sec-WebSocket-Extensions",
+            "HTTP2-Settings", "Sec-Fetch-Site", "Sec-Fetch-Mode", "Sec-Fetch-Dest", "DNT"
+    };
+    private static final byte[][] HEADER_NAME_BYTES = encode(HEADER_NAMES);
+    private static final byte[][] METHOD_BYTES = encode(METHODS);
+    private static final byte[][] VERSION_BYTES = encode(VERSIONS);
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+    private int lineStart;
+    private boolean requestLineDone;
+
+    private String method;
+    private String version;
+    private int targetStart;
+    private int targetEnd;
+    private int[] fields = new int[16 * 4];
+    private String[] names = new String[16];
+    private int headerCount;
+    private long contentLength;
+
+    /**
+     * Construtor da classe HttpParser.
+     */
+    public HttpParser() {
+        reset();
+    }
+
+    /**
+     * Consome bytes do buffer até completar o cabeçalho de uma requisição.
+     * Os bytes após o cabeçalho (corpo ou próxima requisição) não são consumidos.
+     *
+     * @param input os bytes recebidos, em modo de leitura.
+     * @return o cabeçalho da requisição, ou null se ainda faltam bytes.
+     * @throws HttpParseException se a requisição for inválida.
+     */
+    public RequestHead parse(ByteBuffer input) throws HttpParseException {
+        int position = input.position();
+        int limit = input.limit();
+        while (position < limit) {
+            byte b = input.get(position++);
+            if (length == buffer.length) {
+                grow();
+            }
+            buffer[length++] = b;
+            if (b == '\n' && endOfLine()) {
+                input.position(position);
+                RequestHead head = build();
+                reset();
+                return head;
+            }
+        }
+        input.position(position);
+        return null;
+    }
+
+    /**
+     * Indica se há bytes de uma requisição parcial acumulados.
+     *
+     * @return true se uma requisição começou a chegar e ainda não terminou.
+     */
+    public boolean hasPartialRequest() {
+        return length > 0;
+    }
+
+    /**
+     * Descarta o estado da requisição atual.
+     */
+    public void reset() {
+        length = 0;
+        lineStart = 0;
+        requestLineDone = false;
+        method = null;
+        version = null;
+        headerCount = 0;
+        contentLength = -1;
+    }
+
+    /**
+     * Processa a linha que acabou de terminar.
+     *
+     * @return true se a linha vazia que encerra o cabeçalho foi encontrada.
+     */
+    private boolean endOfLine() throws HttpParseException {
+        int end = length - 1;
+        if (end > lineStart && buffer[end - 1] == '\r') {
+            end--;
+        }
+        int start = lineStart;
+        lineStart = length;
+
+        if (!requestLineDone) {
+            if (end == start) {
+                // Linhas vazias antes da linha de requisição são ignoradas
+                length = 0;
+                lineStart = 0;
+                return false;
+            }
+            parseRequestLine(start, end);
+            requestLineDone = true;
+            return false;
+        }
+        if (end == start) {
+            return true;
+        }
+        parseHeader(start, end);
+        return false;
+    }
+
+    private void parseRequestLine(int start, int end) throws HttpParseException {
+        int firstSpace = indexOf((byte) ' ', start, end);
+        int secondSpace = firstSpace < 0 ? -1 : indexOf((byte) ' ', firstSpace + 1, end);
+        if (firstSpace <= start || secondSpace <= firstSpace + 1) {
+            throw new HttpParseException(400, "Malformed request line");
+        }
+        method = intern(METHOD_BYTES, METHODS, start, firstSpace, false);
+        if (method == null) {
+            method = new String(buffer, start, firstSpace - start, StandardCharsets.US_ASCII);
+        }
+        targetStart = firstSpace + 1;
+        targetEnd = secondSpace;
+        version = intern(VERSION_BYTES, VERSIONS, secondSpace + 1, end, false);
+        if (version == null) {
+            throw new HttpParseException(505, "Unsupported HTTP version");
+        }
+    }
+
+    private void parseHeader(int start, int end) throws HttpParseException {
+        if (buffer[start] == ' ' || buffer[start] == '\t') {
+            throw new HttpParseException(400, "Obsolete header folding");
+        }
+        int colon = indexOf((byte) ':', start, end);
+        if (colon <= start) {
+            throw new HttpParseException(400, "Malformed header");
+        }
+        if (headerCount == MAX_HEADERS) {
+            throw new HttpParseException(431, "Too many headers");
+        }
+        int valueStart = colon + 1;
+        while (valueStart < end && (buffer[valueStart] == ' ' || buffer[valueStart] == '\t')) {
+            valueStart++;
+        }
+        int valueEnd = end;
+        while (valueEnd > valueStart && (buffer[valueEnd - 1] == ' ' || buffer[valueEnd - 1] == '\t')) {
+            valueEnd--;
+        }
+
+        if (headerCount == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+            fields = Arrays.copyOf(fields, fields.length * 2);
+        }
+        String name = intern(HEADER_NAME_BYTES, HEADER_NAMES, start, colon, true);
+        names[headerCount] = name;
+        int field = headerCount * 4;
+        fields[field] = start;
+        fields[field + 1] = colon;
+        fields[field + 2] = valueStart;
+        fields[field + 3] = valueEnd;
+        headerCount++;
+
+        if ("Content-Length".equals(name)) {
+            contentLength = parseContentLength(valueStart, valueEnd);
+        }
+    }
+
+    private long parseContentLength(int start, int end) throws HttpParseException {
+        if (start == end) {
+            throw new HttpParseException(400, "Invalid Content-Length");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new HttpParseException(400, "Invalid Content-Length");
+            }
+            value = value * 10 + digit;
+        }
+        if (contentLength >= 0 && contentLength != value) {
+            throw new HttpParseException(400, "Conflicting Content-Length");
+        }
+        return value;
+    }
+
+    private RequestHead build() {
+        byte[] data = Arrays.copyOf(buffer, length);
+        return new RequestHead(method, version, data, targetStart, targetEnd,
+                Arrays.copyOf(fields, headerCount * 4), Arrays.copyOf(names, headerCount),
+                headerCount, contentLength);
+    }
+
+    private void grow() throws HttpParseException {
+        if (buffer.length >= MAX_HEAD_SIZE) {
+            throw new HttpParseException(431, "Request header too large");
+        }
+        buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_HEAD_SIZE));
+    }
+
+    private int indexOf(byte value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Procura os bytes [start, end) em uma tabela de valores conhecidos.
+     *
+     * @return a String internada correspondente, ou null se não for conhecida.
+     */
+    private String intern(byte[][] table, String[] values, int start, int end, boolean ignoreCase) {
+        int size = end - start;
+        for (int i = 0; i < table.length; i++) {
+            byte[] candidate = table[i];
+            if (candidate.length == size && matches(candidate, start, ignoreCase)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(byte[] candidate, int start, boolean ignoreCase) {
+        for (int i = 0; i < candidate.length; i++) {
+            byte a = buffer[start + i];
+            byte b = candidate[i];
+            if (a != b && !(ignoreCase && (a | 0x20) == (b | 0x20) && Character.isLetter(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[][] encode(String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return encoded;
+    }
+}
@@ -1,26 +1,61 @@
 package com.kheven.http;
 
+import com.kheven.status.Metrics;
 import com.kheven.status.ServerStatus;
 import com.kheven.config.Config;
 import com.kheven.handler.HttpHandler;
+import com.kheven.nio.NioEngine;
 
 import java.io.IOException;
-import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
  * A classe HttpServer é responsável por iniciar e gerenciar o servidor HTTP.
+ * <p>
+ * {@link #stop(Duration)} encerra o servidor sem perder requisições: os canais
+ * de escuta são fechados, as requisições em andamento terminam e respondem com
+ * "Connection: close", as conexões ociosas são fechadas e, quando o prazo
+ * acaba, as restantes também. Enquanto o servidor roda, um hook da JVM faz o
+ * mesmo ao receber SIGTERM, com o prazo de server.shutdown.timeout.
  */
 public class HttpServer {
+    // Intervalo entre as verificações das conexões restantes durante o encerramento
+    private static final long DRAIN_POLL_INTERVAL = 10;
+    // Tempo extra para o start() terminar depois que as conexões foram encerradas
+    private static final long TERMINATION_GRACE = 5;
+
     private final int port;
     private final ExecutorService executor;
     private final Router router;
     private final ScheduledExecutorService statusReporter;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile boolean draining;
+    // Canais de escuta do motor bloqueante, ou o motor NIO; null até o start()
+    private volatile ServerSocketChannel[] channels;
+    private volatile NioEngine engine;
+    // Conexões do motor bloqueante: as aceitas e ainda não encerradas, e as que já têm handler
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final Set<HttpHandler> handlers = ConcurrentHashMap.newKeySet();
 
     /**
      * Construtor da classe HttpServer.
@@ -37,82 +72,110 @@ public class HttpServer {
     }
 
     /**
-     * Configura as rotas do servidor.
+     * Obtém o roteador do servidor. As rotas podem ser adicionadas ou trocadas
+     * com {@link Router#replaceRoutes} com o servidor em execução.
+     *
+     * @return o roteador.
+     */
+    public Router getRouter() {
+        return router;
+    }
+
+    /**
+     * Configura as rotas do servidor. Rotas registradas com blocking = false
+     * nunca bloqueiam e podem ser executadas no laço de eventos do motor NIO.
      */
     private void setupRoutes() {
         router.addRoute("GET", "/", (req, res) -> {
             res.setStatusCode(200);
             res.setBody("Bem-vindo ao servidor HTTP!");
-        });
+        }, false);
 
-        // Adiciona uma rota com atraso de 2 segundos
-        router.addRoute("GET", "/slow", (req, res) -> {
-            // Cria um atraso de 2 segundos para simular um processamento lento
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                System.err.println("Thread interrupted: " + e.getMessage());
-            }
+        // Expõe as métricas no formato texto do Prometheus
+        router.addRoute("GET", "/metrics", (req, res) -> {
+            res.setStatusCode(200);
+            res.setContentType("text/plain; version=0.0.4");
+            res.setBody(Metrics.toPrometheus());
+        }, false);
+
+        // Adiciona uma rota assíncrona com atraso de 2 segundos, sem ocupar uma thread durante a espera
+        router.addRoute("GET", "/slow", req -> CompletableFuture.supplyAsync(() -> {
+            Response res = new Response();
             res.setStatusCode(200);
             res.setBody("Slow response");
-        });
+            return res;
+        }, CompletableFuture.delayedExecutor(2, TimeUnit.SECONDS)));
+
+        // Envia a hora do servidor a cada segundo como Server-Sent Events, até o cliente sair
+        router.addRoute("GET", "/events", (req, res) -> res.setEventStream(events -> {
+            while (events.isOpen()) {
+                events.send("time", Instant.now().toString());
+                Thread.sleep(1000);
+            }
+        }), false);
 
         // Adiciona uma rota para simular uma resposta JSON
         router.addRoute("GET", "/api/users", (req, res) -> {
             res.setStatusCode(200);
             res.setContentType("application/json");
             res.setBody("[{\"id\": 1, \"name\": \"John Doe\"}, {\"id\": 2, \"name\": \"Jane Doe\"}]");
-        });
+        }, false);
 
         // Adiciona uma rota para simular um erro 404
         router.addRoute("GET", "/api/404", (req, res) -> {
             res.setStatusCode(404);
             res.setBody("Not Found");
-        });
+        }, false);
 
         // Adicona uma rota POST
         router.addRoute("POST", "/api/users", (req, res) -> {
             res.setStatusCode(200);
             res.setContentType("application/json");
             res.setBody("{\"message\": \"User created\"}");
-        });
+        }, false);
 
         // Adiciona uma rota PUT
-        router.addRoute("PUT", "/api/users/1", (req, res) -> {
+        router.addRoute("PUT", "/api/users/{id}", (req, res) -> {
             res.setStatusCode(200);
             res.setContentType("application/json");
-            res.setBody("{\"message\": \"User updated\"}");
-        });
+            res.setBody("{\"message\": \"User updated\", \"id\": \"" + req.getPathParam("id") + "\"}");
+        }, false);
 
         // Adiciona uma rota DELETE
-        router.addRoute("DELETE", "/api/users/1", (req, res) -> {
+        router.addRoute("DELETE", "/api/users/{id}", (req, res) -> {
             res.setStatusCode(200);
             res.setContentType("application/json");
-            res.setBody("{\"message\": \"User deleted\"}");
-        });
+            res.setBody("{\"message\": \"User deleted\", \"id\": \"" + req.getPathParam("id") + "\"}");
+        }, false);
     }
 
     /**
-     * Inicia o servidor HTTP.
+     * Inicia o servidor HTTP com o motor de transporte configurado. Bloqueia
+     * até o servidor ser parado por {@link #stop(Duration)}.
      *
      * @throws IOException se ocorrer um erro de I/O.
+     * @throws IllegalStateException se o servidor já foi iniciado.
      */
     public void start() throws IOException {
-        startStatusReporter();
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            // Exibe a mensagem de que o servidor foi iniciado
-            System.out.println("Servidor iniciado na porta: " + port);
-            // Aguarda a conexão de clientes
-            while (true) {
-                Socket clientSocket = serverSocket.accept();
-                // Atualiza o status do servidor
-                ServerStatus.clientConnected();
-                ServerStatus.requestReceived();
-                ServerStatus.threadCreated();
-                // Inicia uma nova thread para lidar com o cliente
-                executor.submit(() -> handleClient(clientSocket));
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Server already started");
+        }
+        Metrics.registerMBean();
+        if (Config.isStatusConsoleEnabled()) {
+            startStatusReporter();
+        }
+        if (Config.isConfigWatchEnabled()) {
+            Config.watch();
+        }
+        Thread shutdownHook = addShutdownHook();
+        try {
+            if ("nio".equalsIgnoreCase(Config.getEngine())) {
+                runNioEngine();
+            } else {
+                runBlockingEngine();
             }
         } finally {
+            removeShutdownHook(shutdownHook);
             stopStatusReporter();
             executor.shutdown();
             // Aguarda a finalização de todas as threads
@@ -122,19 +185,251 @@ public class HttpServer {
                 }
             } catch (InterruptedException e) {
                 executor.shutdownNow();
+            } finally {
+                terminated.countDown();
+            }
+        }
+    }
+
+    /**
+     * Para o servidor com encerramento gracioso. Os canais de escuta são
+     * fechados, de modo que novas conexões são recusadas e a porta é liberada;
+     * as requisições em andamento terminam e as suas respostas saem com
+     * "Connection: close", e as conexões ociosas são fechadas. Quando todas as
+     * conexões terminam, ou o prazo acaba, as restantes são fechadas e o
+     * {@link #start()} retorna.
+     *
+     * @param timeout o prazo para as requisições em andamento terminarem.
+     * @return true se todas as conexões terminaram dentro do prazo.
+     */
+    public boolean stop(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        // Marca o encerramento antes de ler os canais: um start() concorrente vê uma ou a outra
+        draining = true;
+        if (!started.get()) {
+            return true;
+        }
+        try {
+            if (!stopping.compareAndSet(false, true)) {
+                // Outro stop() (e.g., o hook da JVM) já está encerrando o servidor
+                long wait = Math.max(0, deadline - System.nanoTime()) + TimeUnit.SECONDS.toNanos(TERMINATION_GRACE);
+                return terminated.await(wait, TimeUnit.NANOSECONDS);
+            }
+            boolean drained;
+            NioEngine nio = engine;
+            if (nio != null) {
+                drained = nio.shutdown(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+            } else {
+                drained = drainBlockingConnections(deadline);
+            }
+            if (!drained) {
+                // Handlers que ainda rodam depois do prazo são interrompidos
+                executor.shutdownNow();
+            }
+            terminated.await(TERMINATION_GRACE, TimeUnit.SECONDS);
+            return drained;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (HttpHandler handler : handlers) {
+                handler.abort();
+            }
+            NioEngine nio = engine;
+            if (nio != null) {
+                nio.close();
+            }
+            executor.shutdownNow();
+            return false;
+        }
+    }
+
+    /**
+     * Encerra as conexões do motor bloqueante: fecha os canais de escuta, pede o
+     * encerramento a cada conexão e espera até o prazo; as que sobram são fechadas.
+     *
+     * @param deadline o prazo, em {@link System#nanoTime()}.
+     * @return true se todas as conexões terminaram dentro do prazo.
+     * @throws InterruptedException se a thread for interrompida durante a espera.
+     */
+    private boolean drainBlockingConnections(long deadline) throws InterruptedException {
+        ServerSocketChannel[] listening = channels;
+        if (listening != null) {
+            ServerChannels.close(listening);
+        }
+        for (HttpHandler handler : handlers) {
+            handler.drain();
+        }
+        while (openConnections.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                System.err.println("Shutdown timeout reached: closing " + openConnections.get() + " connections");
+                for (HttpHandler handler : handlers) {
+                    handler.abort();
+                }
+                return false;
+            }
+            Thread.sleep(DRAIN_POLL_INTERVAL);
+        }
+        return true;
+    }
+
+    /**
+     * Registra o hook que para o servidor quando a JVM é encerrada (e.g., SIGTERM).
+     *
+     * @return o hook, ou null se a JVM já está sendo encerrada.
+     */
+    private Thread addShutdownHook() {
+        Thread hook = new Thread(() -> stop(Duration.ofMillis(Config.getShutdownTimeout())), "http-server-shutdown");
+        try {
+            Runtime.getRuntime().addShutdownHook(hook);
+            return hook;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static void removeShutdownHook(Thread hook) {
+        if (hook == null) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // A JVM está sendo encerrada e o hook já está em execução
+        }
+    }
+
+    /**
+     * Executa o motor bloqueante: aceitadores em ServerSocketChannels em modo
+     * bloqueante recebem as conexões e cada uma é atendida por uma thread virtual.
+     * Com SO_REUSEPORT, cada aceitador tem o seu próprio canal na mesma porta.
+     *
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    private void runBlockingEngine() throws IOException {
+        ServerSocketChannel[] channels = ServerChannels.open(port, Config.getAcceptors(), Config.getBacklog());
+        this.channels = channels;
+        if (draining) {
+            // stop() foi chamado antes dos canais existirem
+            ServerChannels.close(channels);
+        }
+        try {
+            Thread[] acceptors = new Thread[channels.length];
+            for (int i = 0; i < channels.length; i++) {
+                ServerSocketChannel channel = channels[i];
+                acceptors[i] = new Thread(() -> acceptConnections(channel), "acceptor-" + i);
+                acceptors[i].start();
+            }
+            // Exibe a mensagem de que o servidor foi iniciado
+            System.out.println("Servidor iniciado na porta: " + port);
+            for (Thread acceptor : acceptors) {
+                acceptor.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Fechar os canais encerra os aceitadores
+            ServerChannels.close(channels);
+        }
+    }
+
+    /**
+     * Aceita as conexões de um canal até que ele seja fechado.
+     *
+     * @param serverChannel o canal de escuta, em modo bloqueante.
+     */
+    private void acceptConnections(ServerSocketChannel serverChannel) {
+        while (serverChannel.isOpen()) {
+            try {
+                // O canal em modo bloqueante permite escrever cada resposta com gathering
+                SocketChannel channel = serverChannel.accept();
+                long acceptedAt = System.nanoTime();
+                try {
+                    startClient(channel, acceptedAt);
+                } catch (IOException | RuntimeException e) {
+                    // A conexão não chegou ao handler: fecha o canal para não vazar o descritor
+                    System.err.println("Error setting up connection: " + e.getMessage());
+                    channel.close();
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Error accepting connection: " + e.getMessage());
+                try {
+                    Thread.sleep(ServerChannels.ACCEPT_BACKOFF);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
             }
         }
     }
 
     /**
-     * Lida com a conexão do cliente.
+     * Executa o motor NIO: laços de eventos com Selector atendem as conexões e
+     * apenas as rotas que podem bloquear são enviadas ao executor.
+     *
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    private void runNioEngine() throws IOException {
+        NioEngine engine = new NioEngine(port, router, executor, Config.getEventLoops(), Config.getAcceptors(),
+                Config.isAcceptorAffinity());
+        engine.start();
+        this.engine = engine;
+        if (draining) {
+            // stop() foi chamado antes do motor existir
+            engine.close();
+        }
+        System.out.println("Servidor (NIO) iniciado na porta: " + port);
+        try {
+            engine.awaitTermination();
+        } catch (InterruptedException e) {
+            engine.close();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Configura a conexão aceita e a entrega a uma nova thread.
+     *
+     * @param channel o canal do cliente.
+     * @param acceptedAt o instante em que a conexão foi aceita, em nanossegundos.
+     * @throws IOException se não for possível configurar o canal.
+     */
+    private void startClient(SocketChannel channel, long acceptedAt) throws IOException {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Socket clientSocket = channel.socket();
+        // Atualiza o status do servidor
+        Metrics.connectionOpened();
+        ServerStatus.threadCreated();
+        // Conta a conexão antes da thread começar, para o encerramento esperar por ela
+        openConnections.incrementAndGet();
+        try {
+            // Inicia uma nova thread para lidar com o cliente
+            executor.submit(() -> handleClient(clientSocket, acceptedAt));
+        } catch (RejectedExecutionException e) {
+            // O executor já foi encerrado: desfaz a contagem da conexão
+            openConnections.decrementAndGet();
+            Metrics.connectionClosed();
+            ServerStatus.threadDestroyed();
+            throw e;
+        }
+    }
+
+    /**
+     * Lida com a conexão do cliente. O HttpHandler atende todas as requisições
+     * da conexão e é o responsável por fechar o socket.
      *
      * @param clientSocket o socket do cliente.
+     * @param acceptedAt o instante, em {@link System#nanoTime()}, em que a conexão foi aceita.
      */
-    private void handleClient(Socket clientSocket) {
+    private void handleClient(Socket clientSocket, long acceptedAt) {
         // Atualiza o status do servidor e cria um novo manipulador HTTP
-        try (clientSocket) {
-            HttpHandler handler = new HttpHandler(clientSocket, router);
+        HttpHandler handler = null;
+        try {
+            handler = new HttpHandler(clientSocket, router, acceptedAt);
+            handlers.add(handler);
+            if (draining) {
+                // A conexão foi aceita antes dos canais fecharem: atende uma requisição e encerra
+                handler.drain();
+            }
             handler.handle();
             // Relata o status do servidor a cada requisição, ( LENTO)
             // clearConsole();
@@ -143,7 +438,11 @@ public class HttpServer {
             System.err.println("Error handling client: " + e.getMessage());
         } finally {
             // Atualiza o status do servidor e destrói a thread
-            ServerStatus.clientDisconnected();
+            if (handler != null) {
+                handlers.remove(handler);
+            }
+            openConnections.decrementAndGet();
+            Metrics.connectionClosed();
             ServerStatus.threadDestroyed();
         }
     }
@@ -172,18 +471,10 @@ public class HttpServer {
     }
 
     /**
-     * Limpa o console.
+     * Limpa o console com sequências de escape ANSI, sem criar um processo externo.
      */
     public static void clearConsole() {
-        try {
-            if (System.getProperty("os.name").contains("Windows")) {
-                new ProcessBuilder("cmd", "/c", "cls").inheritIO().start().waitFor();
-            } else {
-                new ProcessBuilder("clear").inheritIO().start().waitFor();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        System.out.print("\033[H\033[2J");
     }
 
     /**
@@ -0,0 +1,123 @@
+package com.kheven.http;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A classe HttpStatus contém a tabela de códigos de status HTTP registrados na
+ * IANA e as linhas de status do HTTP/1.1 já codificadas em bytes, para que
+ * nenhuma resposta precise montá-las.
+ */
+public final class HttpStatus {
+    private static final String[] REASONS = new String[600];
+    private static final byte[][] STATUS_LINES = new byte[600][];
+
+    static {
+        define(100, "Continue");
+        define(101, "Switching Protocols");
+        define(102, "Processing");
+        define(103, "Early Hints");
+        define(200, "OK");
+        define(201, "Created");
+        define(202, "Accepted");
+        define(203, "Non-Authoritative Information");
+        define(204, "No Content");
+        define(205, "Reset Content");
+        define(206, "Partial Content");
+        define(207, "Multi-Status");
+        define(208, "Already Reported");
+        define(226, "IM Used");
+        define(300, "Multiple Choices");
+        define(301, "Moved Permanently");
+        define(302, "Found");
+        define(303, "See Other");
+        define(304, "Not Modified");
+        define(305, "Use Proxy");
+        define(307, "Temporary Redirect");
+        define(308, "Permanent Redirect");
+        define(400, "Bad Request");
+        define(401, "Unauthorized");
+        define(402, "Payment Required");
+        define(403, "Forbidden");
+        define(404, "Not Found");
+        define(405, "Method Not Allowed");
+        define(406, "Not Acceptable");
+        define(407, "Proxy Authentication Required");
+        define(408, "Request Timeout");
+        define(409, "Conflict");
+        define(410, "Gone");
+        define(411, "Length Required");
+        define(412, "Precondition Failed");
+        define(413, "Payload Too Large");
+        define(414, "URI Too Long");
+        define(415, "Unsupported Media Type");
+        define(416, "Range Not Satisfiable");
+        define(417, "Expectation Failed");
+        define(418, "I'm a teapot");
+        define(421, "Misdirected Request");
+        define(422, "Unprocessable Content");
+        define(423, "Locked");
+        define(424, "Failed Dependency");
+        define(425, "Too Early");
+        define(426, "Upgrade Required");
+        define(428, "Precondition Required");
+        define(429, "Too Many Requests");
+        define(431, "Request Header Fields Too Large");
+        define(451, "Unavailable For Legal Reasons");
+        define(500, "Internal Server Error");
+        define(501, "Not Implemented");
+        define(502, "Bad Gateway");
+        define(503, "Service Unavailable");
+        define(504, "Gateway Timeout");
+        define(505, "HTTP Version Not Supported");
+        define(506, "Variant Also Negotiates");
+        define(507, "Insufficient Storage");
+        define(508, "Loop Detected");
+        define(510, "Not Extended");
+        define(511, "Network Authentication Required");
+    }
+
+    private HttpStatus() {
+    }
+
+    private static void define(int code, String reason) {
+        REASONS[code] = reason;
+        STATUS_LINES[code] = encode(code, reason);
+    }
+
+    private static byte[] encode(int code, String reason) {
+        return ("HTTP/1.1 " + code + " " + reason + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Obtém a mensagem de status HTTP correspondente ao código de status.
+     *
+     * @param statusCode o código de status HTTP.
+     * @return a mensagem de status correspondente, ou "Unknown Status" se o código não for registrado.
+     */
+    public static String reason(int statusCode) {
+        String reason = statusCode >= 0 && statusCode < REASONS.length ? REASONS[statusCode] : null;
+        return reason != null ? reason : "Unknown Status";
+    }
+
+    /**
+     * Obtém a linha de status do HTTP/1.1 (terminada em CRLF) já codificada.
+     * O array retornado é compartilhado e não deve ser modificado.
+     *
+     * @param statusCode o código de status HTTP.
+     * @return os bytes da linha de status.
+     */
+    public static byte[] statusLine(int statusCode) {
+        byte[] line = statusCode >= 100 && statusCode < STATUS_LINES.length ? STATUS_LINES[statusCode] : null;
+        return line != null ? line : encode(statusCode, reason(statusCode));
+    }
+
+    /**
+     * Indica se respostas com este código não têm corpo (1xx, 204 e 304).
+     *
+     * @param statusCode o código de status HTTP.
+     * @return true se a resposta não pode ter corpo.
+     */
+    public static boolean isBodyless(int statusCode) {
+        return statusCode < 200 || statusCode == 204 || statusCode == 304;
+    }
+}
@@ -1,13 +1,37 @@
 package com.kheven.http;
 
+import com.kheven.config.Config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
 /**
  * A classe Response representa uma resposta HTTP com código de status,
- * tipo de conteúdo e corpo da resposta.
+ * tipo de conteúdo e corpo da resposta. O corpo é guardado já codificado em
+ * bytes, para que o Content-Length conte bytes e a resposta seja enviada sem
+ * novas conversões. O corpo também pode ser um ByteBuffer compartilhado, como
+ * um arquivo estático mapeado em memória.
+ * <p>
+ * Corpos grandes ou contínuos podem ser produzidos aos poucos com
+ * {@link #setStreamingBody(StreamingBody)}, enviados com "Transfer-Encoding:
+ * chunked", ou como Server-Sent Events com {@link #setEventStream}.
+ * <p>
+ * Content-Type, Content-Length e Connection são escritos pelo
+ * {@link ResponseWriter}; os demais cabeçalhos são definidos com
+ * {@link #setHeader(String, String)}.
  */
 public class Response {
+    private static final byte[] EMPTY_BODY = new byte[0];
+
     private int statusCode;
     private String contentType;
-    private String body;
+    private ByteBuffer[] body;
+    private StreamingBody streamingBody;
+    private Map<String, String> headers;
 
     /**
      * Construtor padrão da classe Response.
@@ -16,7 +40,7 @@ public class Response {
     public Response() {
         this.statusCode = 200;
         this.contentType = "text/plain";
-        this.body = "";
+        this.body = new ByteBuffer[]{ByteBuffer.wrap(EMPTY_BODY)};
     }
 
     /**
@@ -56,20 +80,174 @@ public class Response {
     }
 
     /**
-     * Obtém o corpo da resposta.
+     * Define um cabeçalho da resposta, substituindo o valor anterior.
+     *
+     * @param name o nome do cabeçalho.
+     * @param value o valor do cabeçalho.
+     */
+    public void setHeader(String name, String value) {
+        if (headers == null) {
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        }
+        headers.put(name, value);
+    }
+
+    /**
+     * Obtém o valor de um cabeçalho da resposta, ignorando maiúsculas e minúsculas no nome.
+     *
+     * @param name o nome do cabeçalho.
+     * @return o valor do cabeçalho, ou null se não estiver definido.
+     */
+    public String getHeader(String name) {
+        return headers == null ? null : headers.get(name);
+    }
+
+    /**
+     * Obtém os cabeçalhos definidos com {@link #setHeader(String, String)}.
+     *
+     * @return um mapa com os cabeçalhos da resposta.
+     */
+    public Map<String, String> getHeaders() {
+        return headers == null ? Collections.emptyMap() : headers;
+    }
+
+    /**
+     * Obtém o corpo da resposta em bytes. Se o corpo for um buffer, uma cópia é criada.
      *
      * @return o corpo da resposta.
      */
-    public String getBody() {
-        return body;
+    public byte[] getBody() {
+        if (body.length == 1) {
+            ByteBuffer buffer = body[0];
+            if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                    && buffer.remaining() == buffer.array().length) {
+                return buffer.array();
+            }
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(getBodyLength()));
+        for (ByteBuffer part : body) {
+            bytes.put(part.duplicate());
+        }
+        return bytes.array();
+    }
+
+    /**
+     * Obtém as partes do corpo da resposta como buffers com posição independente,
+     * prontos para serem enviados.
+     *
+     * @return os buffers do corpo da resposta, na ordem de envio.
+     */
+    public ByteBuffer[] getBodyBuffers() {
+        ByteBuffer[] buffers = new ByteBuffer[body.length];
+        for (int i = 0; i < body.length; i++) {
+            buffers[i] = body[i].duplicate();
+        }
+        return buffers;
+    }
+
+    /**
+     * Obtém o tamanho do corpo da resposta em bytes.
+     *
+     * @return o tamanho do corpo.
+     */
+    public long getBodyLength() {
+        long length = 0;
+        for (ByteBuffer part : body) {
+            length += part.remaining();
+        }
+        return length;
     }
 
     /**
-     * Define o corpo da resposta.
+     * Define o corpo da resposta a partir de um texto, codificado em UTF-8.
      *
      * @param body o novo corpo da resposta.
      */
     public void setBody(String body) {
+        setBody(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Define o corpo da resposta a partir de bytes. O array não é copiado.
+     *
+     * @param body o novo corpo da resposta.
+     */
+    public void setBody(byte[] body) {
+        this.body = new ByteBuffer[]{ByteBuffer.wrap(body)};
+        this.streamingBody = null;
+    }
+
+    /**
+     * Define o corpo da resposta a partir de um buffer, entre a posição e o limite
+     * atuais. O conteúdo não é copiado e o buffer pode ser compartilhado entre
+     * respostas: cada envio usa uma cópia independente da posição.
+     *
+     * @param body o novo corpo da resposta.
+     */
+    public void setBody(ByteBuffer body) {
+        this.body = new ByteBuffer[]{body.slice()};
+        this.streamingBody = null;
+    }
+
+    /**
+     * Define o corpo da resposta como uma sequência de buffers enviados em ordem,
+     * como as partes de uma resposta multipart. Os buffers não são copiados.
+     *
+     * @param parts as partes do corpo da resposta.
+     */
+    public void setBodyParts(ByteBuffer... parts) {
+        ByteBuffer[] body = new ByteBuffer[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            body[i] = parts[i].slice();
+        }
         this.body = body;
+        this.streamingBody = null;
+    }
+
+    /**
+     * Define um corpo produzido aos poucos, depois do envio do cabeçalho. A
+     * resposta é enviada com "Transfer-Encoding: chunked" e o corpo em memória
+     * é descartado.
+     *
+     * @param body o produtor do corpo.
+     */
+    public void setStreamingBody(StreamingBody body) {
+        this.body = new ByteBuffer[]{ByteBuffer.wrap(EMPTY_BODY)};
+        this.streamingBody = body;
+    }
+
+    /**
+     * Transforma a resposta em um stream de Server-Sent Events (text/event-stream).
+     * A conexão fica aberta enquanto o produtor não retorna, com heartbeats a
+     * cada server.sse.heartbeat milissegundos.
+     *
+     * @param producer o produtor dos eventos.
+     */
+    public void setEventStream(EventStream.Producer producer) {
+        setContentType("text/event-stream");
+        setHeader("Cache-Control", "no-cache");
+        setStreamingBody(out -> {
+            try (EventStream events = new EventStream(out, Duration.ofMillis(Config.getSseHeartbeat()))) {
+                producer.produce(events);
+            }
+        });
+    }
+
+    /**
+     * Obtém o produtor do corpo de uma resposta de streaming.
+     *
+     * @return o produtor, ou null se o corpo estiver em memória.
+     */
+    public StreamingBody getStreamingBody() {
+        return streamingBody;
+    }
+
+    /**
+     * Indica se o corpo é produzido aos poucos ({@link #setStreamingBody}).
+     *
+     * @return true se a resposta é de streaming.
+     */
+    public boolean isStreaming() {
+        return streamingBody != null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,283 @@
+package com.kheven.http;
+
+import com.kheven.status.Metrics;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * A classe ResponseWriter serializa uma resposta HTTP/1.1. A linha de status e
+ * os cabeçalhos são montados em um buffer reutilizado pelo chamador, a partir
+ * de constantes já codificadas, e enviados junto com o corpo em uma única
+ * escrita com gathering ({@link GatheringByteChannel#write(ByteBuffer[])}).
+ * <p>
+ * Respostas de streaming ({@link Response#isStreaming()}) são enviadas com
+ * "Transfer-Encoding: chunked": o cabeçalho primeiro, e depois o corpo à medida
+ * que é produzido.
+ * <p>
+ * A resposta a um HEAD tem os mesmos cabeçalhos da resposta ao GET, inclusive
+ * o Content-Length, mas nenhum byte de corpo: com o corpo, a próxima resposta
+ * da conexão seria lida pelo cliente a partir do lugar errado.
+ */
+public final class ResponseWriter {
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTENT_TYPE = "Content-Type: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "Content-Length: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRANSFER_ENCODING_CHUNKED = "Transfer-Encoding: chunked\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION_KEEP_ALIVE = "Connection: keep-alive\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION_CLOSE = "Connection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEADER_SEPARATOR = {':', ' '};
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * Tamanho sugerido para o buffer de cabeçalhos reutilizado pelas conexões.
+     */
+    public static final int HEAD_BUFFER_SIZE = 1024;
+
+    private ResponseWriter() {
+    }
+
+    /**
+     * Envia a resposta HTTP no canal, com cabeçalho e corpo em uma escrita com gathering.
+     *
+     * @param channel o canal do socket, em modo bloqueante.
+     * @param response a resposta HTTP.
+     * @param keepAlive se a conexão será mantida aberta após a resposta.
+     * @param headBuffer o buffer reutilizável para os cabeçalhos.
+     * @return o buffer de cabeçalhos a reutilizar (maior que o original se precisou crescer).
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public static ByteBuffer write(GatheringByteChannel channel, Response response, boolean keepAlive,
+                                   ByteBuffer headBuffer) throws IOException {
+        return write(channel, response, keepAlive, false, headBuffer);
+    }
+
+    /**
+     * Envia a resposta HTTP no canal, com cabeçalho e corpo em uma escrita com gathering.
+     *
+     * @param channel o canal do socket, em modo bloqueante.
+     * @param response a resposta HTTP.
+     * @param keepAlive se a conexão será mantida aberta após a resposta.
+     * @param headOnly se a resposta é de um HEAD: só os cabeçalhos são enviados.
+     * @param headBuffer o buffer reutilizável para os cabeçalhos.
+     * @return o buffer de cabeçalhos a reutilizar (maior que o original se precisou crescer).
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public static ByteBuffer write(GatheringByteChannel channel, Response response, boolean keepAlive,
+                                   boolean headOnly, ByteBuffer headBuffer) throws IOException {
+        ByteBuffer head = encodeHead(response, keepAlive, headBuffer);
+        ByteBuffer[] buffers = buffersOf(head, response, headOnly);
+        // Em modo bloqueante a escrita normalmente termina na primeira chamada
+        while (buffers[buffers.length - 1].hasRemaining()) {
+            Metrics.bytesSent(channel.write(buffers));
+        }
+        if (hasStreamingBody(response, headOnly)) {
+            writeStreamingBody(response, new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) throws IOException {
+                    int written = channel.write(src);
+                    Metrics.bytesSent(written);
+                    return written;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return channel.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            });
+        }
+        return head;
+    }
+
+    /**
+     * Produz o corpo de uma resposta de streaming, codificado em blocos, até o último bloco.
+     *
+     * @param response a resposta de streaming, cujo cabeçalho já foi enviado.
+     * @param target o canal que recebe o corpo codificado; as escritas podem bloquear.
+     * @throws IOException se ocorrer um erro de I/O ou o produtor falhar; o
+     *         último bloco não é enviado e a conexão deve ser encerrada.
+     */
+    public static void writeStreamingBody(Response response, WritableByteChannel target) throws IOException {
+        writeStreamingBody(response, target, true);
+    }
+
+    /**
+     * Produz o corpo de uma resposta de streaming em blocos de
+     * {@link ChunkedOutputStream#DEFAULT_CHUNK_SIZE} bytes.
+     *
+     * @param response a resposta de streaming, cujo cabeçalho já foi enviado.
+     * @param target o canal que recebe os blocos; as escritas podem bloquear.
+     * @param chunked se os blocos são codificados com "Transfer-Encoding: chunked";
+     *                sem a codificação, o destino faz o enquadramento e marca o fim.
+     * @throws IOException se ocorrer um erro de I/O ou o produtor falhar.
+     */
+    public static void writeStreamingBody(Response response, WritableByteChannel target, boolean chunked)
+            throws IOException {
+        ChunkedOutputStream out = new ChunkedOutputStream(target, ChunkedOutputStream.DEFAULT_CHUNK_SIZE, chunked);
+        try {
+            response.getStreamingBody().writeTo(out);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("Streaming body failed", e);
+        }
+        out.close();
+    }
+
+    /**
+     * Monta a linha de status e os cabeçalhos da resposta no buffer.
+     *
+     * @param response a resposta HTTP.
+     * @param keepAlive se a conexão será mantida aberta após a resposta.
+     * @param buffer o buffer reutilizável, com array acessível.
+     * @return o buffer com os cabeçalhos em modo de leitura; um buffer maior é
+     *         alocado quando os cabeçalhos não cabem no original.
+     */
+    public static ByteBuffer encodeHead(Response response, boolean keepAlive, ByteBuffer buffer) {
+        while (true) {
+            try {
+                buffer.clear();
+                putHead(buffer, response, keepAlive);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Obtém os buffers a enviar: o cabeçalho seguido das partes do corpo, que é
+     * omitido para códigos que não admitem corpo. Em uma resposta de streaming,
+     * só o cabeçalho.
+     *
+     * @param head o cabeçalho já montado por {@link #encodeHead}.
+     * @param response a resposta HTTP.
+     * @return os buffers da resposta, na ordem de envio.
+     */
+    public static ByteBuffer[] buffersOf(ByteBuffer head, Response response) {
+        return buffersOf(head, response, false);
+    }
+
+    /**
+     * Obtém os buffers a enviar, como {@link #buffersOf(ByteBuffer, Response)}.
+     *
+     * @param head o cabeçalho já montado por {@link #encodeHead}.
+     * @param response a resposta HTTP.
+     * @param headOnly se a resposta é de um HEAD: só o cabeçalho é enviado.
+     * @return os buffers da resposta, na ordem de envio.
+     */
+    public static ByteBuffer[] buffersOf(ByteBuffer head, Response response, boolean headOnly) {
+        if (headOnly || HttpStatus.isBodyless(response.getStatusCode()) || response.isStreaming()) {
+            return new ByteBuffer[]{head};
+        }
+        ByteBuffer[] body = response.getBodyBuffers();
+        ByteBuffer[] buffers = new ByteBuffer[body.length + 1];
+        buffers[0] = head;
+        System.arraycopy(body, 0, buffers, 1, body.length);
+        return buffers;
+    }
+
+    /**
+     * Indica se o corpo de streaming da resposta deve ser produzido depois do cabeçalho.
+     *
+     * @param response a resposta HTTP.
+     * @param headOnly se a resposta é de um HEAD.
+     * @return true se a resposta é de streaming, admite corpo e não é de um HEAD.
+     */
+    public static boolean hasStreamingBody(Response response, boolean headOnly) {
+        return !headOnly && response.isStreaming() && !HttpStatus.isBodyless(response.getStatusCode());
+    }
+
+    private static void putHead(ByteBuffer buffer, Response response, boolean keepAlive) {
+        int statusCode = response.getStatusCode();
+        buffer.put(HttpStatus.statusLine(statusCode));
+        if (!HttpStatus.isBodyless(statusCode)) {
+            buffer.put(CONTENT_TYPE);
+            putAscii(buffer, response.getContentType());
+            buffer.put(CRLF);
+            if (response.isStreaming()) {
+                buffer.put(TRANSFER_ENCODING_CHUNKED);
+            } else {
+                buffer.put(CONTENT_LENGTH);
+                putDecimal(buffer, response.getBodyLength());
+                buffer.put(CRLF);
+            }
+        }
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            putAscii(buffer, header.getKey());
+            buffer.put(HEADER_SEPARATOR);
+            putAscii(buffer, header.getValue());
+            buffer.put(CRLF);
+        }
+        buffer.put(keepAlive ? CONNECTION_KEEP_ALIVE : CONNECTION_CLOSE);
+    }
+
+    /**
+     * Escreve um texto ASCII no buffer sem criar arrays intermediários.
+     */
+    private static void putAscii(ByteBuffer buffer, String value) {
+        int length = value.length();
+        if (buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            buffer.put(c < 0x80 && c != '\r' && c != '\n' ? (byte) c : (byte) '?');
+        }
+    }
+
+    /**
+     * Escreve um número decimal não negativo no buffer sem convertê-lo para String.
+     */
+    private static void putDecimal(ByteBuffer buffer, long value) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        if (buffer.remaining() < digits) {
+            throw new BufferOverflowException();
+        }
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Escreve a resposta provisória "100 Continue", pedida pelo cliente com
+     * "Expect: 100-continue" antes de enviar o corpo.
+     *
+     * @param channel o canal do socket, em modo bloqueante.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public static void writeContinue(GatheringByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(CONTINUE);
+        while (buffer.hasRemaining()) {
+            Metrics.bytesSent(channel.write(buffer));
+        }
+    }
+
+    /**
+     * Obtém os bytes da resposta provisória "100 Continue".
+     *
+     * @return os bytes da resposta.
+     */
+    public static byte[] continueBytes() {
+        return CONTINUE.clone();
+    }
+}
@@ -1,16 +1,31 @@
 package com.kheven.http;
 
 import com.kheven.model.Route;
+import com.kheven.handler.AsyncRouteHandler;
 import com.kheven.handler.RouteHandler;
+import com.kheven.handler.WebSocketHandler;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A classe Router é responsável por gerenciar as rotas do servidor HTTP.
+ * <p>
+ * Caminhos fixos ficam em um mapa por método e são encontrados em tempo
+ * constante; caminhos com parâmetros (e.g., {@code /api/users/{id}}) ficam em
+ * uma árvore de segmentos por método. Segmentos fixos têm prioridade sobre
+ * parâmetros e a busca não aloca memória.
+ * <p>
+ * A tabela de rotas é imutável depois de publicada: adicionar uma rota copia
+ * os mapas e os nós do caminho alterado e publica a nova tabela de uma vez
+ * (copy-on-write). A busca lê a tabela uma única vez e nunca vê uma alteração
+ * pela metade, sem lock; {@link #replaceRoutes} troca todas as rotas com o
+ * servidor em carga.
  */
 public class Router {
-    private final List<Route> routes = new ArrayList<>();
+    private volatile Table table = new Table(Map.of(), Map.of());
 
     /**
      * Adiciona uma nova rota ao roteador.
@@ -20,7 +35,95 @@ public class Router {
      * @param handler o manipulador da rota.
      */
     public void addRoute(String method, String path, RouteHandler handler) {
-        routes.add(new Route(method, path, handler));
+        addRoute(new Route(method, path, handler));
+    }
+
+    /**
+     * Adiciona uma nova rota ao roteador, indicando se o manipulador pode bloquear.
+     *
+     * @param method o método HTTP (e.g., GET, POST).
+     * @param path o caminho da rota.
+     * @param handler o manipulador da rota.
+     * @param blocking false se o manipulador nunca bloqueia e pode rodar no laço de eventos.
+     */
+    public void addRoute(String method, String path, RouteHandler handler, boolean blocking) {
+        addRoute(new Route(method, path, handler, blocking));
+    }
+
+    /**
+     * Adiciona uma rota assíncrona ao roteador, com o tempo limite padrão do servidor.
+     *
+     * @param method o método HTTP (e.g., GET, POST).
+     * @param path o caminho da rota.
+     * @param handler o manipulador assíncrono da rota.
+     */
+    public void addRoute(String method, String path, AsyncRouteHandler handler) {
+        addRoute(new Route(method, path, handler, null));
+    }
+
+    /**
+     * Adiciona uma rota assíncrona ao roteador.
+     *
+     * @param method o método HTTP (e.g., GET, POST).
+     * @param path o caminho da rota.
+     * @param handler o manipulador assíncrono da rota.
+     * @param timeout o tempo máximo até a resposta; depois dele o cliente recebe 504.
+     */
+    public void addRoute(String method, String path, AsyncRouteHandler handler, Duration timeout) {
+        addRoute(new Route(method, path, handler, timeout));
+    }
+
+    /**
+     * Adiciona uma rota WebSocket ao roteador. Requisições GET sem o handshake
+     * recebem 426 Upgrade Required.
+     *
+     * @param path o caminho da rota.
+     * @param handler o manipulador das mensagens do socket.
+     */
+    public void addWebSocket(String path, WebSocketHandler handler) {
+        addRoute(new Route(path, handler));
+    }
+
+    /**
+     * Adiciona uma rota já construída ao roteador. Se já existir uma rota com o
+     * mesmo método e caminho, a primeira registrada é mantida.
+     *
+     * @param route a rota a ser adicionada.
+     */
+    public synchronized void addRoute(Route route) {
+        Table current = table;
+        Map<String, Map<String, Route>> staticRoutes = current.staticRoutes;
+        if (!route.isParameterized()) {
+            Map<String, Route> routes = new HashMap<>(staticRoutes.getOrDefault(route.getMethod(), Map.of()));
+            routes.putIfAbsent(route.getPath(), route);
+            staticRoutes = new HashMap<>(staticRoutes);
+            staticRoutes.put(route.getMethod(), routes);
+        }
+        // Todas as rotas entram na árvore, usada quando o caminho tem query string
+        Node root = current.trees.get(route.getMethod());
+        root = root != null ? root.copy() : new Node();
+        Node node = root;
+        String[] segments = route.getSegments();
+        for (int i = 0; i < segments.length; i++) {
+            node = route.getParamName(i) != null ? node.copyParamChild() : node.copyChild(segments[i]);
+        }
+        if (node.route == null) {
+            node.route = route;
+        }
+        Map<String, Node> trees = new HashMap<>(current.trees);
+        trees.put(route.getMethod(), root);
+        table = new Table(staticRoutes, trees);
+    }
+
+    /**
+     * Substitui todas as rotas pelas de outro roteador, de uma vez. As
+     * requisições em andamento terminam com a rota que já encontraram; as
+     * seguintes usam só as rotas novas.
+     *
+     * @param routes o roteador com as novas rotas; alterações posteriores nele não afetam este.
+     */
+    public synchronized void replaceRoutes(Router routes) {
+        table = routes.table;
     }
 
     /**
@@ -31,9 +134,147 @@ public class Router {
      * @return a rota correspondente, ou null se não for encontrada.
      */
     public Route findRoute(String method, String path) {
-        return routes.stream()
-                .filter(route -> route.matches(method, path))
-                .findFirst()
-                .orElse(null);
+        Table current = table;
+        Map<String, Route> routes = current.staticRoutes.get(method);
+        if (routes != null) {
+            Route route = routes.get(path);
+            if (route != null) {
+                return route;
+            }
+        }
+        Node root = current.trees.get(method);
+        if (root == null || path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        return find(root, path, 1, Route.pathLimit(path));
+    }
+
+    /**
+     * Busca recursiva na árvore: tenta primeiro o segmento fixo e, se não houver
+     * rota por ele, o parâmetro.
+     */
+    private static Route find(Node node, String path, int start, int limit) {
+        int end = Route.segmentEnd(path, start, limit);
+        Node child = node.find(path, start, end);
+        if (child != null) {
+            Route route = descend(child, path, end, limit);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.param != null && end > start) {
+            return descend(node.param, path, end, limit);
+        }
+        return null;
+    }
+
+    private static Route descend(Node child, String path, int end, int limit) {
+        return end == limit ? child.route : find(child, path, end + 1, limit);
+    }
+
+    /**
+     * As rotas publicadas: os caminhos fixos e a árvore de cada método.
+     */
+    private record Table(Map<String, Map<String, Route>> staticRoutes, Map<String, Node> trees) {
+    }
+
+    /**
+     * Nó da árvore de rotas: cada nível corresponde a um segmento do caminho.
+     * Os filhos fixos ficam em uma tabela de hash com endereçamento aberto,
+     * consultada com o hash do trecho do caminho para não criar Strings. Um nó
+     * publicado não é mais alterado: as inserções trabalham sobre cópias.
+     */
+    private static final class Node {
+        private String[] segments = new String[0];
+        private Node[] children = new Node[0];
+        // Índice + 1 do filho em cada posição; 0 indica posição livre
+        private int[] table = new int[4];
+        private Node param;
+        private Route route;
+
+        private Node find(String path, int start, int end) {
+            int index = indexOf(path, start, end);
+            return index < 0 ? null : children[index];
+        }
+
+        private int indexOf(String path, int start, int end) {
+            int length = end - start;
+            int mask = table.length - 1;
+            for (int slot = hash(path, start, end) & mask; ; slot = (slot + 1) & mask) {
+                int index = table[slot] - 1;
+                if (index < 0) {
+                    return -1;
+                }
+                String segment = segments[index];
+                if (segment.length() == length && path.regionMatches(start, segment, 0, length)) {
+                    return index;
+                }
+            }
+        }
+
+        /**
+         * Copia o nó, compartilhando os filhos.
+         */
+        private Node copy() {
+            Node copy = new Node();
+            copy.segments = segments;
+            copy.children = children.clone();
+            copy.table = table;
+            copy.param = param;
+            copy.route = route;
+            return copy;
+        }
+
+        /**
+         * Obtém uma cópia do filho fixo, criando-o se não existir, e a coloca no lugar do original.
+         */
+        private Node copyChild(String segment) {
+            int index = indexOf(segment, 0, segment.length());
+            if (index >= 0) {
+                children[index] = children[index].copy();
+                return children[index];
+            }
+            Node child = new Node();
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            segments[segments.length - 1] = segment;
+            children[children.length - 1] = child;
+            // Mantém a tabela no máximo meio cheia
+            boolean grow = children.length * 2 > table.length;
+            // A tabela do nó original pode estar em uso por uma busca: nunca é alterada
+            int[] newTable = grow ? new int[table.length * 2] : table.clone();
+            int from = grow ? 0 : segments.length - 1;
+            for (int i = from; i < segments.length; i++) {
+                int mask = newTable.length - 1;
+                int slot = hash(segments[i], 0, segments[i].length()) & mask;
+                while (newTable[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[slot] = i + 1;
+            }
+            table = newTable;
+            return child;
+        }
+
+        /**
+         * Obtém uma cópia do filho de parâmetro, criando-o se não existir.
+         */
+        private Node copyParamChild() {
+            param = param != null ? param.copy() : new Node();
+            return param;
+        }
+
+        /**
+         * Hash no estilo de String.hashCode, calculado sobre um trecho do caminho.
+         */
+        private static int hash(String path, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + path.charAt(i);
+            }
+            // Espalha os bits: segmentos parecidos (e.g., item1, item2) geram hashes vizinhos
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
     }
-}
\ No newline at end of file
+}
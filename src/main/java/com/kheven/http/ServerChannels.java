@@ -0,0 +1,90 @@
+package com.kheven.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Arrays;
+
+/**
+ * A classe ServerChannels abre os canais de escuta do servidor para vários
+ * aceitadores. Onde o sistema suporta SO_REUSEPORT (e.g., Linux), cada
+ * aceitador recebe o seu próprio canal na mesma porta e o kernel distribui as
+ * novas conexões entre eles; sem suporte, todos compartilham um único canal.
+ */
+public final class ServerChannels {
+    /**
+     * Pausa, em milissegundos, depois de um accept que falhou. Sem descritores
+     * livres (EMFILE/ENFILE) a conexão continua na fila e o accept falharia de
+     * novo imediatamente; a pausa dá tempo para as conexões abertas fecharem.
+     */
+    public static final long ACCEPT_BACKOFF = 100;
+
+    private ServerChannels() {
+    }
+
+    /**
+     * Indica se o sistema permite vários canais de escuta na mesma porta.
+     *
+     * @return true se SO_REUSEPORT for suportado.
+     */
+    public static boolean isReusePortSupported() {
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Abre os canais de escuta dos aceitadores.
+     *
+     * @param port a porta do servidor (0 para uma porta livre, a mesma para todos os canais).
+     * @param acceptors o número de aceitadores.
+     * @param backlog o tamanho da fila de conexões pendentes de cada canal.
+     * @return um canal por aceitador; sem SO_REUSEPORT, o mesmo canal se repete em todas as posições.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public static ServerSocketChannel[] open(int port, int acceptors, int backlog) throws IOException {
+        ServerSocketChannel[] channels = new ServerSocketChannel[Math.max(1, acceptors)];
+        boolean reusePort = channels.length > 1 && isReusePortSupported();
+        try {
+            for (int i = 0; i < channels.length; i++) {
+                if (i > 0 && !reusePort) {
+                    channels[i] = channels[0];
+                    continue;
+                }
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                channels[i] = channel;
+                if (reusePort) {
+                    channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                // Com a porta 0, os demais canais usam a porta escolhida para o primeiro
+                int bindPort = i == 0 ? port : channels[0].socket().getLocalPort();
+                channel.bind(new InetSocketAddress(bindPort), backlog);
+            }
+        } catch (IOException e) {
+            close(channels);
+            throw e;
+        }
+        return channels;
+    }
+
+    /**
+     * Fecha os canais de escuta.
+     *
+     * @param channels os canais abertos por {@link #open}.
+     */
+    public static void close(ServerSocketChannel[] channels) {
+        for (ServerSocketChannel channel : Arrays.stream(channels).distinct().toList()) {
+            if (channel == null) {
+                continue;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing server channel: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.kheven.http;
+
+/**
+ * Corpo de resposta produzido aos poucos, depois que o cabeçalho foi enviado.
+ * É enviado com "Transfer-Encoding: chunked", sem Content-Length.
+ */
+@FunctionalInterface
+public interface StreamingBody {
+
+    /**
+     * Escreve o corpo. Pode bloquear: é executado fora do laço de eventos.
+     *
+     * @param out o destino do corpo; {@link ChunkedOutputStream#flush()} envia o que já foi escrito.
+     * @throws Exception se o corpo não puder ser produzido; a conexão é encerrada sem o último bloco.
+     */
+    void writeTo(ChunkedOutputStream out) throws Exception;
+}
@@ -0,0 +1,76 @@
+package com.kheven.http2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A classe Frame reúne as constantes dos quadros HTTP/2 (RFC 9113): tipos,
+ * flags, parâmetros de SETTINGS e códigos de erro, e monta o cabeçalho de
+ * 9 bytes de cada quadro.
+ */
+final class Frame {
+    // Tamanho do cabeçalho de um quadro
+    static final int HEADER_SIZE = 9;
+    // Tamanho máximo do conteúdo de um quadro enquanto o outro lado não anunciar outro
+    static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+    // Tamanho inicial das janelas de controle de fluxo
+    static final int DEFAULT_WINDOW_SIZE = 65535;
+    // Tamanho padrão da tabela dinâmica do HPACK
+    static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
+
+    static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    static final int DATA = 0x0;
+    static final int HEADERS = 0x1;
+    static final int PRIORITY = 0x2;
+    static final int RST_STREAM = 0x3;
+    static final int SETTINGS = 0x4;
+    static final int PUSH_PROMISE = 0x5;
+    static final int PING = 0x6;
+    static final int GOAWAY = 0x7;
+    static final int WINDOW_UPDATE = 0x8;
+    static final int CONTINUATION = 0x9;
+
+    static final int FLAG_END_STREAM = 0x1;
+    static final int FLAG_ACK = 0x1;
+    static final int FLAG_END_HEADERS = 0x4;
+    static final int FLAG_PADDED = 0x8;
+    static final int FLAG_PRIORITY = 0x20;
+
+    static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    static final int SETTINGS_ENABLE_PUSH = 0x2;
+    static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    // Códigos de erro de RST_STREAM e GOAWAY
+    static final int NO_ERROR = 0x0;
+    static final int PROTOCOL_ERROR = 0x1;
+    static final int INTERNAL_ERROR = 0x2;
+    static final int FLOW_CONTROL_ERROR = 0x3;
+    static final int STREAM_CLOSED = 0x5;
+    static final int FRAME_SIZE_ERROR = 0x6;
+    static final int REFUSED_STREAM = 0x7;
+    static final int CANCEL = 0x8;
+    static final int COMPRESSION_ERROR = 0x9;
+    static final int ENHANCE_YOUR_CALM = 0xb;
+
+    private Frame() {
+    }
+
+    /**
+     * Escreve o cabeçalho de um quadro no buffer.
+     *
+     * @param buffer o buffer de destino.
+     * @param length o tamanho do conteúdo do quadro.
+     * @param type o tipo do quadro.
+     * @param flags as flags do quadro.
+     * @param streamId o stream do quadro, ou 0 para a conexão.
+     * @return o próprio buffer.
+     */
+    static ByteBuffer putHeader(ByteBuffer buffer, int length, int type, int flags, int streamId) {
+        return buffer.put((byte) (length >>> 16)).put((byte) (length >>> 8)).put((byte) length)
+                .put((byte) type).put((byte) flags).putInt(streamId & 0x7fffffff);
+    }
+}
@@ -0,0 +1,152 @@
+package com.kheven.http2;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A classe HeaderTable é o espaço de índices do HPACK: a tabela estática
+ * (índices 1 a 61) seguida da tabela dinâmica, em que a entrada mais recente
+ * tem o menor índice. O tamanho da tabela dinâmica é a soma dos nomes, valores
+ * e 32 bytes por entrada; as entradas mais antigas são descartadas para
+ * respeitar o máximo.
+ */
+final class HeaderTable {
+    static final String[][] STATIC = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"},
+            {":path", "/index.html"}, {":scheme", "http"}, {":scheme", "https"}, {":status", "200"},
+            {":status", "204"}, {":status", "206"}, {":status", "304"}, {":status", "400"},
+            {":status", "404"}, {":status", "500"}, {"accept-charset", ""}, {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""}, {"access-control-allow-origin", ""},
+            {"age", ""}, {"allow", ""}, {"authorization", ""}, {"cache-control", ""},
+            {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""}, {"content-length", ""},
+            {"content-location", ""}, {"content-range", ""}, {"content-type", ""}, {"cookie", ""},
+            {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""},
+            {"from", ""}, {"host", ""}, {"if-match", ""}, {"if-modified-since", ""},
+            {"if-none-match", ""}, {"if-range", ""}, {"if-unmodified-since", ""}, {"last-modified", ""},
+            {"link", ""}, {"location", ""}, {"max-forwards", ""}, {"proxy-authenticate", ""},
+            {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+            {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+            {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""},
+            {"www-authenticate", ""}
+    };
+    // Custo fixo de cada entrada da tabela dinâmica
+    private static final int ENTRY_OVERHEAD = 32;
+    // Índice estático de cada nome e de cada par nome/valor com valor
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+    private static final Map<String, Integer> STATIC_FIELDS = new HashMap<>();
+
+    static {
+        for (int i = STATIC.length - 1; i >= 0; i--) {
+            STATIC_NAMES.put(STATIC[i][0], i + 1);
+            if (!STATIC[i][1].isEmpty()) {
+                STATIC_FIELDS.put(STATIC[i][0] + '\0' + STATIC[i][1], i + 1);
+            }
+        }
+    }
+
+    // Entradas da tabela dinâmica, da mais recente para a mais antiga
+    private final ArrayDeque<String[]> entries = new ArrayDeque<>();
+    private int size;
+    private int maxSize;
+
+    /**
+     * Construtor da classe HeaderTable.
+     *
+     * @param maxSize o tamanho máximo inicial da tabela dinâmica.
+     */
+    HeaderTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Obtém a entrada de um índice.
+     *
+     * @param index o índice, a partir de 1.
+     * @return o nome e o valor da entrada.
+     * @throws Http2Exception se o índice não existir.
+     */
+    String[] get(int index) throws Http2Exception {
+        if (index >= 1 && index <= STATIC.length) {
+            return STATIC[index - 1];
+        }
+        int dynamic = index - STATIC.length - 1;
+        if (index < 1 || dynamic >= entries.size()) {
+            throw new Http2Exception(Frame.COMPRESSION_ERROR, "Invalid HPACK index " + index);
+        }
+        Iterator<String[]> iterator = entries.iterator();
+        for (int i = 0; i < dynamic; i++) {
+            iterator.next();
+        }
+        return iterator.next();
+    }
+
+    /**
+     * Procura um cabeçalho nas duas tabelas.
+     *
+     * @param name o nome, em minúsculas.
+     * @param value o valor.
+     * @return o índice do par nome/valor; o índice negado de uma entrada só com o
+     *         mesmo nome; ou 0 se o nome não estiver nas tabelas.
+     */
+    int find(String name, String value) {
+        Integer field = STATIC_FIELDS.get(name + '\0' + value);
+        if (field != null) {
+            return field;
+        }
+        int nameIndex = 0;
+        int index = STATIC.length + 1;
+        for (String[] entry : entries) {
+            if (entry[0].equals(name)) {
+                if (entry[1].equals(value)) {
+                    return index;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = index;
+                }
+            }
+            index++;
+        }
+        Integer staticName = STATIC_NAMES.get(name);
+        if (staticName != null) {
+            return -staticName;
+        }
+        return -nameIndex;
+    }
+
+    /**
+     * Insere uma entrada na tabela dinâmica, descartando as mais antigas se preciso.
+     * Uma entrada maior que a tabela inteira apenas a esvazia.
+     */
+    void add(String name, String value) {
+        int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+        if (entrySize > maxSize) {
+            entries.clear();
+            size = 0;
+            return;
+        }
+        entries.addFirst(new String[]{name, value});
+        size += entrySize;
+        evict();
+    }
+
+    /**
+     * Altera o tamanho máximo da tabela dinâmica.
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    private void evict() {
+        while (size > maxSize) {
+            String[] oldest = entries.removeLast();
+            size -= oldest[0].length() + oldest[1].length() + ENTRY_OVERHEAD;
+        }
+    }
+}
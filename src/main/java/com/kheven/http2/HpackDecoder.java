@@ -0,0 +1,117 @@
+package com.kheven.http2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * A classe HpackDecoder decodifica os blocos de cabeçalhos HPACK (RFC 7541)
+ * recebidos em uma conexão. A tabela dinâmica é compartilhada por todos os
+ * blocos da conexão, que devem ser decodificados na ordem de chegada.
+ */
+public final class HpackDecoder {
+    private final HeaderTable table;
+    // Tamanho máximo da tabela dinâmica anunciado ao cliente
+    private final int maxTableSize;
+
+    /**
+     * Construtor da classe HpackDecoder.
+     *
+     * @param maxTableSize o tamanho máximo da tabela dinâmica anunciado em SETTINGS_HEADER_TABLE_SIZE.
+     */
+    public HpackDecoder(int maxTableSize) {
+        this.table = new HeaderTable(maxTableSize);
+        this.maxTableSize = maxTableSize;
+    }
+
+    /**
+     * Decodifica um bloco de cabeçalhos completo.
+     *
+     * @param block o bloco, já sem preenchimento; a posição avança até o limite.
+     * @param consumer recebe o nome e o valor de cada cabeçalho, na ordem do bloco.
+     * @throws Http2Exception se o bloco for inválido; a conexão não pode continuar.
+     */
+    public void decode(ByteBuffer block, BiConsumer<String, String> consumer) throws Http2Exception {
+        boolean first = true;
+        while (block.hasRemaining()) {
+            int b = block.get(block.position()) & 0xFF;
+            if ((b & 0x80) != 0) {
+                // Campo indexado
+                int index = readInt(block, 7);
+                if (index == 0) {
+                    throw new Http2Exception(Frame.COMPRESSION_ERROR, "Invalid HPACK index 0");
+                }
+                String[] entry = table.get(index);
+                consumer.accept(entry[0], entry[1]);
+            } else if ((b & 0x40) != 0) {
+                // Literal com indexação incremental
+                String[] field = readLiteral(block, 6);
+                table.add(field[0], field[1]);
+                consumer.accept(field[0], field[1]);
+            } else if ((b & 0x20) != 0) {
+                // Atualização do tamanho da tabela dinâmica, só no início do bloco
+                int size = readInt(block, 5);
+                if (!first || size > maxTableSize) {
+                    throw new Http2Exception(Frame.COMPRESSION_ERROR, "Invalid HPACK table size update");
+                }
+                table.setMaxSize(size);
+                continue;
+            } else {
+                // Literal sem indexação ou nunca indexado
+                String[] field = readLiteral(block, 4);
+                consumer.accept(field[0], field[1]);
+            }
+            first = false;
+        }
+    }
+
+    private String[] readLiteral(ByteBuffer block, int prefix) throws Http2Exception {
+        int nameIndex = readInt(block, prefix);
+        String name = nameIndex == 0 ? readString(block) : table.get(nameIndex)[0];
+        return new String[]{name, readString(block)};
+    }
+
+    private static String readString(ByteBuffer block) throws Http2Exception {
+        if (!block.hasRemaining()) {
+            throw new Http2Exception(Frame.COMPRESSION_ERROR, "Truncated HPACK string");
+        }
+        boolean huffman = (block.get(block.position()) & 0x80) != 0;
+        int length = readInt(block, 7);
+        if (length > block.remaining()) {
+            throw new Http2Exception(Frame.COMPRESSION_ERROR, "Truncated HPACK string");
+        }
+        ByteBuffer data = block.slice(block.position(), length);
+        block.position(block.position() + length);
+        if (huffman) {
+            return Huffman.decode(data);
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Lê um inteiro com prefixo de N bits.
+     */
+    private static int readInt(ByteBuffer block, int prefix) throws Http2Exception {
+        int max = (1 << prefix) - 1;
+        int value = block.get() & max;
+        if (value < max) {
+            return value;
+        }
+        for (int shift = 0; shift <= 28; shift += 7) {
+            if (!block.hasRemaining()) {
+                throw new Http2Exception(Frame.COMPRESSION_ERROR, "Truncated HPACK integer");
+            }
+            int b = block.get() & 0xFF;
+            value += (b & 0x7f) << shift;
+            if (value < 0) {
+                break;
+            }
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new Http2Exception(Frame.COMPRESSION_ERROR, "HPACK integer overflow");
+    }
+}
@@ -0,0 +1,118 @@
+package com.kheven.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Set;
+
+/**
+ * A classe HpackEncoder codifica os cabeçalhos das respostas em HPACK
+ * (RFC 7541). Cabeçalhos que se repetem entre as respostas da conexão (e.g.,
+ * content-type, vary) entram na tabela dinâmica e passam a ocupar um ou dois
+ * bytes; os que mudam a cada resposta (e.g., content-length, date) são
+ * enviados sem indexação, para não descartar entradas úteis. Textos são
+ * codificados em Huffman quando ficam menores.
+ * <p>
+ * Os blocos devem ser codificados na ordem em que são enviados.
+ */
+public final class HpackEncoder {
+    // Cabeçalhos com valores diferentes a cada resposta
+    private static final Set<String> VOLATILE = Set.of("content-length", "date", "etag", "last-modified",
+            "content-range", "expires", "age", "location");
+    // Cabeçalhos sensíveis, que intermediários também não devem indexar
+    private static final Set<String> SENSITIVE = Set.of("set-cookie", "authorization", "cookie");
+
+    private final HeaderTable table;
+    private final int limit;
+    private int pendingSize = -1;
+
+    /**
+     * Construtor da classe HpackEncoder.
+     *
+     * @param limit o tamanho máximo da tabela dinâmica que o servidor aceita manter.
+     */
+    public HpackEncoder(int limit) {
+        this.limit = limit;
+        this.table = new HeaderTable(Math.min(limit, Frame.DEFAULT_HEADER_TABLE_SIZE));
+        if (limit < Frame.DEFAULT_HEADER_TABLE_SIZE) {
+            pendingSize = limit;
+        }
+    }
+
+    /**
+     * Aplica o tamanho de tabela anunciado pelo cliente em SETTINGS_HEADER_TABLE_SIZE.
+     * A mudança é sinalizada no início do próximo bloco.
+     *
+     * @param size o tamanho máximo aceito pelo cliente.
+     */
+    public void setMaxTableSize(int size) {
+        int effective = Math.min(size, limit);
+        if (effective != table.getMaxSize()) {
+            table.setMaxSize(effective);
+            pendingSize = effective;
+        }
+    }
+
+    /**
+     * Codifica um cabeçalho. O primeiro cabeçalho de cada bloco também leva a
+     * atualização de tamanho da tabela pendente.
+     *
+     * @param name o nome, em minúsculas.
+     * @param value o valor.
+     * @param out o destino do bloco.
+     */
+    public void encode(String name, String value, ByteArrayOutputStream out) {
+        if (pendingSize >= 0) {
+            writeInt(out, 0x20, 5, pendingSize);
+            pendingSize = -1;
+        }
+        int index = table.find(name, value);
+        if (index > 0) {
+            writeInt(out, 0x80, 7, index);
+            return;
+        }
+        int nameIndex = -index;
+        if (SENSITIVE.contains(name)) {
+            writeInt(out, 0x10, 4, nameIndex);
+        } else if (VOLATILE.contains(name) || name.equals(":path")) {
+            writeInt(out, 0x00, 4, nameIndex);
+        } else {
+            writeInt(out, 0x40, 6, nameIndex);
+            table.add(name, value);
+        }
+        if (nameIndex == 0) {
+            writeString(out, name);
+        }
+        writeString(out, value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        int huffmanLength = Huffman.encodedLength(value);
+        if (huffmanLength < value.length()) {
+            writeInt(out, 0x80, 7, huffmanLength);
+            Huffman.encode(value, out);
+        } else {
+            writeInt(out, 0x00, 7, value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                out.write(c < 0x100 ? c : '?');
+            }
+        }
+    }
+
+    /**
+     * Escreve um inteiro com prefixo de N bits, com os bits acima do prefixo em flags.
+     */
+    private static void writeInt(ByteArrayOutputStream out, int flags, int prefix, int value) {
+        int max = (1 << prefix) - 1;
+        if (value < max) {
+            out.write(flags | value);
+            return;
+        }
+        out.write(flags | max);
+        value -= max;
+        while (value >= 0x80) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
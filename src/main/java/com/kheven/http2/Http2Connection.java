@@ -0,0 +1,1062 @@
+package com.kheven.http2;
+
+import com.kheven.config.Config;
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.HttpParseException;
+import com.kheven.http.HttpStatus;
+import com.kheven.http.Response;
+import com.kheven.http.ResponseWriter;
+import com.kheven.model.Request;
+import com.kheven.model.RequestHead;
+import com.kheven.model.Route;
+import com.kheven.status.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A classe Http2Connection atende uma conexão HTTP/2 sem TLS (h2c), iniciada
+ * com o prefácio do cliente (conhecimento prévio) ou com "Upgrade: h2c" em uma
+ * requisição HTTP/1.1.
+ * <p>
+ * A thread da conexão lê os quadros; cada stream é atendido em uma thread
+ * virtual pelo {@link RequestDispatcher}, com as mesmas rotas do HTTP/1.1, e
+ * várias requisições compartilham a conexão ao mesmo tempo. Os cabeçalhos são
+ * comprimidos com HPACK. O envio respeita as janelas de controle de fluxo do
+ * cliente, e a janela de cada stream só é reaberta à medida que o handler lê o
+ * corpo da requisição. As escritas dos quadros são serializadas por um lock.
+ * <p>
+ * No encerramento do servidor, {@link #drain()} envia GOAWAY: os streams já
+ * abertos terminam, os novos são recusados com REFUSED_STREAM (que o cliente
+ * pode repetir em outra conexão) e a conexão é encerrada quando o último
+ * stream termina.
+ */
+public final class Http2Connection {
+    // Threads virtuais que atendem os streams de todas as conexões
+    private static final ExecutorService STREAMS = Executors.newVirtualThreadPerTaskExecutor();
+    private static final byte[] SWITCHING_PROTOCOLS = ("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Connection: Upgrade\r\nUpgrade: h2c\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    // Cabeçalhos do HTTP/1.1 específicos da conexão, proibidos no HTTP/2
+    private static final Set<String> CONNECTION_HEADERS = Set.of("connection", "keep-alive", "proxy-connection",
+            "transfer-encoding", "upgrade");
+    private static final int MAX_HEADER_LIST_SIZE = 64 * 1024;
+    // Campos por bloco de cabeçalhos, o mesmo limite do HTTP/1.1
+    private static final int MAX_HEADERS = 100;
+    private static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    private final SocketChannel channel;
+    private final InputStream in;
+    private final ByteBuffer input;
+    private final RequestDispatcher dispatcher;
+    private final int maxStreams;
+    private final int windowSize;
+    private final long maxBodySize;
+    private final HpackDecoder decoder = new HpackDecoder(Frame.DEFAULT_HEADER_TABLE_SIZE);
+    private final HpackEncoder encoder = new HpackEncoder(Frame.DEFAULT_HEADER_TABLE_SIZE);
+    private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+    // Serializa a escrita dos quadros e a codificação HPACK, que depende da ordem de envio
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(Frame.HEADER_SIZE);
+    // Protege as janelas; as threads dos streams esperam por WINDOW_UPDATE
+    private final ReentrantLock flowLock = new ReentrantLock();
+    private final Condition windowOpened = flowLock.newCondition();
+    private long sendWindow = Frame.DEFAULT_WINDOW_SIZE;
+    private long initialSendWindow = Frame.DEFAULT_WINDOW_SIZE;
+    private volatile int maxFrameSize = Frame.DEFAULT_MAX_FRAME_SIZE;
+    private volatile boolean closed;
+    // Protegidos pelo writeLock: o GOAWAY do encerramento informa o último stream aceito
+    private int lastStreamId;
+    private boolean settingsSent;
+    private volatile boolean draining;
+
+    // Estado da thread da conexão
+    private final ByteBuffer frame = ByteBuffer.allocate(Frame.HEADER_SIZE + Frame.DEFAULT_MAX_FRAME_SIZE);
+    private int unackedData;
+    private boolean settingsReceived;
+    private boolean goingAway;
+    // Bloco de cabeçalhos em andamento (HEADERS seguido de CONTINUATION)
+    private ByteArrayOutputStream headerBlock;
+    private int headerStreamId;
+    private boolean headerEndStream;
+
+    /**
+     * Construtor da classe Http2Connection.
+     *
+     * @param channel o canal do socket, em modo bloqueante, por onde os quadros são enviados.
+     * @param in o InputStream do socket.
+     * @param input o buffer de leitura da conexão, com os bytes já recebidos e ainda
+     *              não consumidos; deve ter array acessível.
+     * @param dispatcher o despachante que atende as requisições dos streams.
+     */
+    public Http2Connection(SocketChannel channel, InputStream in, ByteBuffer input, RequestDispatcher dispatcher) {
+        this.channel = channel;
+        this.in = in;
+        this.input = input;
+        this.dispatcher = dispatcher;
+        this.maxStreams = Config.getHttp2MaxStreams();
+        this.windowSize = Config.getHttp2WindowSize();
+        this.maxBodySize = Config.getMaxBodySize();
+    }
+
+    /**
+     * Compara os bytes recebidos com o prefácio de uma conexão HTTP/2.
+     *
+     * @param input o buffer de leitura, a partir da posição atual; não é alterado.
+     * @return 1 se o buffer começa com o prefácio, 0 se os bytes recebidos até
+     *         agora são o início dele, ou -1 se não são.
+     */
+    public static int matchPreface(ByteBuffer input) {
+        int length = Math.min(input.remaining(), Frame.PREFACE.length);
+        for (int i = 0; i < length; i++) {
+            if (input.get(input.position() + i) != Frame.PREFACE[i]) {
+                return -1;
+            }
+        }
+        return length == Frame.PREFACE.length ? 1 : 0;
+    }
+
+    /**
+     * Verifica se uma requisição HTTP/1.1 pede a mudança para HTTP/2 sem TLS.
+     * Só requisições sem corpo são atendidas com a mudança; as demais seguem em HTTP/1.1.
+     *
+     * @param request a requisição HTTP/1.1.
+     * @return true se a requisição tem "Upgrade: h2c" e um HTTP2-Settings válido.
+     */
+    public static boolean isUpgrade(Request request) {
+        String upgrade = request.getHeader("Upgrade");
+        String connection = request.getHeader("Connection");
+        String settings = request.getHeader("HTTP2-Settings");
+        if (upgrade == null || connection == null || settings == null
+                || !hasToken(upgrade, "h2c") || !hasToken(connection, "upgrade")) {
+            return false;
+        }
+        String contentLength = request.getHeader("Content-Length");
+        if ((contentLength != null && !contentLength.trim().equals("0")) || request.getHeader("Transfer-Encoding") != null) {
+            return false;
+        }
+        try {
+            return Base64.getUrlDecoder().decode(settings.trim()).length % 6 == 0;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Atende a conexão iniciada com o prefácio HTTP/2, até que ela seja encerrada.
+     *
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public void serve() throws IOException {
+        run(null);
+    }
+
+    /**
+     * Responde "101 Switching Protocols" a uma requisição com "Upgrade: h2c" e
+     * atende a conexão em HTTP/2; a resposta da própria requisição vai no stream 1.
+     *
+     * @param request a requisição HTTP/1.1 aceita por {@link #isUpgrade(Request)}.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public void serveUpgrade(Request request) throws IOException {
+        writeLock.lock();
+        try {
+            ByteBuffer response = ByteBuffer.wrap(SWITCHING_PROTOCOLS);
+            while (response.hasRemaining()) {
+                Metrics.bytesSent(channel.write(response));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        run(request);
+    }
+
+    private void run(Request upgraded) throws IOException {
+        try {
+            if (upgraded != null) {
+                // Os parâmetros do cliente vieram no HTTP2-Settings e não são confirmados
+                applySettings(ByteBuffer.wrap(Base64.getUrlDecoder().decode(upgraded.getHeader("HTTP2-Settings").trim())));
+            }
+            writeLock.lock();
+            try {
+                if (upgraded != null) {
+                    // O stream 1 já foi recebido em HTTP/1.1: é aceito mesmo durante o encerramento,
+                    // e a sua resposta espera o lock até o SETTINGS ser enviado
+                    claimStream(1);
+                    open(1, upgraded, null, -1);
+                }
+                writeSettings();
+            } finally {
+                writeLock.unlock();
+            }
+            if (!readPreface()) {
+                return;
+            }
+            while (true) {
+                try {
+                    if (!readFrame()) {
+                        break;
+                    }
+                } catch (SocketTimeoutException e) {
+                    if (streams.isEmpty()) {
+                        // A conexão ficou ociosa por tempo demais
+                        writeGoAway(Frame.NO_ERROR);
+                        break;
+                    }
+                    continue;
+                }
+                try {
+                    process();
+                } catch (Http2Exception e) {
+                    if (e.getStreamId() == 0) {
+                        throw e;
+                    }
+                    resetStream(e.getStreamId(), e.getErrorCode());
+                } finally {
+                    frame.clear();
+                }
+            }
+        } catch (Http2Exception e) {
+            writeGoAway(e.getErrorCode());
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Trata o quadro lido, que está em {@link #frame}.
+     */
+    private void process() throws IOException {
+        int length = frame.position() - Frame.HEADER_SIZE;
+        int type = frame.get(3) & 0xFF;
+        int flags = frame.get(4) & 0xFF;
+        int streamId = frame.getInt(5) & 0x7fffffff;
+        ByteBuffer payload = frame.slice(Frame.HEADER_SIZE, length);
+        if (!settingsReceived && type != Frame.SETTINGS) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "The first frame must be SETTINGS");
+        }
+        if (headerBlock != null && type != Frame.CONTINUATION) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "Expected a CONTINUATION frame");
+        }
+        switch (type) {
+            case Frame.DATA -> onData(flags, streamId, payload);
+            case Frame.HEADERS -> onHeaders(flags, streamId, payload);
+            case Frame.PRIORITY -> {
+                if (streamId == 0) {
+                    throw new Http2Exception(Frame.PROTOCOL_ERROR, "PRIORITY on stream 0");
+                }
+                if (length != 5) {
+                    throw new Http2Exception(Frame.FRAME_SIZE_ERROR, streamId, "Invalid PRIORITY frame");
+                }
+            }
+            case Frame.RST_STREAM -> onReset(streamId, payload);
+            case Frame.SETTINGS -> onSettings(flags, streamId, payload);
+            case Frame.PUSH_PROMISE -> throw new Http2Exception(Frame.PROTOCOL_ERROR, "Clients cannot push");
+            case Frame.PING -> {
+                if (streamId != 0) {
+                    throw new Http2Exception(Frame.PROTOCOL_ERROR, "PING on a stream");
+                }
+                if (length != 8) {
+                    throw new Http2Exception(Frame.FRAME_SIZE_ERROR, "Invalid PING frame");
+                }
+                if ((flags & Frame.FLAG_ACK) == 0) {
+                    writeFrame(Frame.PING, Frame.FLAG_ACK, 0, payload);
+                }
+            }
+            case Frame.GOAWAY -> goingAway = true;
+            case Frame.WINDOW_UPDATE -> onWindowUpdate(streamId, payload);
+            case Frame.CONTINUATION -> onContinuation(flags, streamId, payload);
+            default -> {
+                // Tipos desconhecidos são ignorados
+            }
+        }
+    }
+
+    private void onData(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (streamId == 0) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "DATA on stream 0");
+        }
+        int length = payload.remaining();
+        // A janela da conexão é devolvida na chegada: a memória é limitada pela janela de cada stream
+        unackedData += length;
+        if (unackedData >= windowSize / 2) {
+            writeWindowUpdate(0, unackedData);
+            unackedData = 0;
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            if (streamId > lastStreamId) {
+                throw new Http2Exception(Frame.PROTOCOL_ERROR, "DATA on an idle stream");
+            }
+            // Stream já encerrado pelo servidor: os dados em trânsito são descartados
+            return;
+        }
+        if (stream.remoteClosed) {
+            throw new Http2Exception(Frame.STREAM_CLOSED, streamId, "DATA after END_STREAM");
+        }
+        ByteBuffer data = unpad(flags, payload);
+        flowLock.lock();
+        try {
+            stream.receiveWindow -= length;
+            if (stream.receiveWindow < 0) {
+                throw new Http2Exception(Frame.FLOW_CONTROL_ERROR, streamId, "Stream window exceeded");
+            }
+        } finally {
+            flowLock.unlock();
+        }
+        stream.received += data.remaining();
+        if (stream.received > maxBodySize) {
+            stream.body.fail(new HttpParseException(413, "Request body too large"));
+            throw new Http2Exception(Frame.CANCEL, streamId, "Request body too large");
+        }
+        byte[] chunk = new byte[data.remaining()];
+        data.get(chunk);
+        stream.body.write(chunk);
+        if ((flags & Frame.FLAG_END_STREAM) != 0) {
+            stream.remoteClosed = true;
+            stream.body.finish();
+        }
+    }
+
+    private void onHeaders(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (streamId == 0 || streamId % 2 == 0) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "Invalid stream id " + streamId);
+        }
+        ByteBuffer block = unpad(flags, payload);
+        if ((flags & Frame.FLAG_PRIORITY) != 0) {
+            if (block.remaining() < 5) {
+                throw new Http2Exception(Frame.FRAME_SIZE_ERROR, "Invalid HEADERS frame");
+            }
+            block.position(block.position() + 5);
+        }
+        headerBlock = new ByteArrayOutputStream(block.remaining());
+        headerBlock.write(block.array(), block.arrayOffset() + block.position(), block.remaining());
+        headerStreamId = streamId;
+        headerEndStream = (flags & Frame.FLAG_END_STREAM) != 0;
+        if ((flags & Frame.FLAG_END_HEADERS) != 0) {
+            onHeaderBlock();
+        }
+    }
+
+    private void onContinuation(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (headerBlock == null || streamId != headerStreamId) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+        }
+        headerBlock.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        if (headerBlock.size() > MAX_HEADER_LIST_SIZE) {
+            throw new Http2Exception(Frame.ENHANCE_YOUR_CALM, "Header block too large");
+        }
+        if ((flags & Frame.FLAG_END_HEADERS) != 0) {
+            onHeaderBlock();
+        }
+    }
+
+    /**
+     * Decodifica um bloco de cabeçalhos completo e abre o stream da requisição.
+     */
+    private void onHeaderBlock() throws IOException {
+        int streamId = headerStreamId;
+        boolean endStream = headerEndStream;
+        ByteBuffer block = ByteBuffer.wrap(headerBlock.toByteArray());
+        headerBlock = null;
+        // O bloco é sempre decodificado, para manter a tabela dinâmica em sincronia com o cliente
+        HeaderList fields = new HeaderList();
+        decoder.decode(block, fields);
+
+        Http2Stream existing = streams.get(streamId);
+        if (existing != null) {
+            // Trailers: encerram o corpo da requisição
+            if (!endStream || existing.remoteClosed) {
+                throw new Http2Exception(Frame.PROTOCOL_ERROR, streamId, "Unexpected HEADERS frame");
+            }
+            if (fields.exceeded) {
+                throw new Http2Exception(Frame.ENHANCE_YOUR_CALM, streamId, "Header list too large");
+            }
+            existing.remoteClosed = true;
+            existing.body.finish();
+            return;
+        }
+        if (streamId <= lastStreamId || goingAway) {
+            // Stream já encerrado, ou o cliente está encerrando a conexão
+            return;
+        }
+        if (!claimStream(streamId)) {
+            throw new Http2Exception(Frame.REFUSED_STREAM, streamId, "Server is shutting down");
+        }
+        if (streams.size() >= maxStreams) {
+            throw new Http2Exception(Frame.REFUSED_STREAM, streamId, "Too many concurrent streams");
+        }
+        if (fields.exceeded) {
+            throw new Http2Exception(Frame.ENHANCE_YOUR_CALM, streamId, "Header list too large");
+        }
+        RequestHead head = toRequestHead(streamId, fields.fields);
+        StreamBody body = endStream ? null : new StreamBody(consumed -> onConsumed(streamId, consumed));
+        Request request = new Request(head, body == null ? InputStream.nullInputStream() : body);
+        request.setRemoteAddress(channel.socket().getInetAddress());
+        open(streamId, request, body, head.getContentLength());
+    }
+
+    /**
+     * Registra o stream e atende a requisição em uma thread virtual.
+     */
+    private void open(int streamId, Request request, StreamBody body, long contentLength) {
+        Http2Stream stream;
+        flowLock.lock();
+        try {
+            stream = new Http2Stream(streamId, body, initialSendWindow, windowSize);
+        } finally {
+            flowLock.unlock();
+        }
+        streams.put(streamId, stream);
+        STREAMS.execute(() -> serveStream(stream, request, contentLength));
+    }
+
+    private void serveStream(Http2Stream stream, Request request, long contentLength) {
+        boolean completed = false;
+        try {
+            Response response;
+            if (contentLength > maxBodySize) {
+                response = new Response();
+                response.setStatusCode(413);
+                response.setBody("Request body too large");
+            } else {
+                Route route = dispatcher.findRoute(request);
+                response = dispatcher.dispatch(request, route);
+            }
+            sendResponse(stream, request.getMethod().equals("HEAD"), response);
+            completed = true;
+        } catch (IOException e) {
+            // Stream cancelado pelo cliente, conexão encerrada ou falha no corpo de streaming
+        } finally {
+            streams.remove(stream.id);
+            if (draining && streams.isEmpty()) {
+                finishDrain();
+            }
+            if (!stream.reset && !closed && (!completed || !stream.remoteClosed)) {
+                // Resposta incompleta, ou o cliente ainda está enviando um corpo que não será lido
+                try {
+                    writeReset(stream.id, completed ? Frame.NO_ERROR : Frame.INTERNAL_ERROR);
+                } catch (IOException ignored) {
+                }
+            }
+            if (stream.body != null) {
+                stream.body.close();
+            }
+        }
+    }
+
+    private void sendResponse(Http2Stream stream, boolean head, Response response) throws IOException {
+        int statusCode = response.getStatusCode();
+        boolean bodyless = HttpStatus.isBodyless(statusCode);
+        boolean hasBody = !bodyless && !head && (response.isStreaming() || response.getBodyLength() > 0);
+        writeLock.lock();
+        try {
+            ByteArrayOutputStream block = new ByteArrayOutputStream(128);
+            encoder.encode(":status", Integer.toString(statusCode), block);
+            if (!bodyless) {
+                encoder.encode("content-type", response.getContentType(), block);
+                if (!response.isStreaming()) {
+                    encoder.encode("content-length", Long.toString(response.getBodyLength()), block);
+                }
+            }
+            for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+                String name = header.getKey().toLowerCase(Locale.ROOT);
+                if (!CONNECTION_HEADERS.contains(name)) {
+                    encoder.encode(name, header.getValue(), block);
+                }
+            }
+            writeHeaders(stream.id, block.toByteArray(), !hasBody);
+        } finally {
+            writeLock.unlock();
+        }
+        if (!hasBody) {
+            return;
+        }
+        if (response.isStreaming()) {
+            ResponseWriter.writeStreamingBody(response, new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) throws IOException {
+                    int length = src.remaining();
+                    sendData(stream, src, false);
+                    return length;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return !closed && !stream.reset;
+                }
+
+                @Override
+                public void close() {
+                }
+            }, false);
+            sendData(stream, ByteBuffer.allocate(0), true);
+            return;
+        }
+        ByteBuffer[] parts = response.getBodyBuffers();
+        for (int i = 0; i < parts.length; i++) {
+            sendData(stream, parts[i], i == parts.length - 1);
+        }
+    }
+
+    /**
+     * Envia dados do stream em quadros DATA, esperando as janelas de controle de fluxo abrirem.
+     */
+    private void sendData(Http2Stream stream, ByteBuffer src, boolean endStream) throws IOException {
+        if (!src.hasRemaining()) {
+            if (endStream) {
+                writeFrame(Frame.DATA, Frame.FLAG_END_STREAM, stream.id, src);
+            }
+            return;
+        }
+        while (src.hasRemaining()) {
+            int length = reserve(stream, Math.min(src.remaining(), maxFrameSize));
+            ByteBuffer chunk = src.slice(src.position(), length);
+            src.position(src.position() + length);
+            writeFrame(Frame.DATA, endStream && !src.hasRemaining() ? Frame.FLAG_END_STREAM : 0, stream.id, chunk);
+        }
+    }
+
+    /**
+     * Reserva espaço nas janelas da conexão e do stream, esperando se estiverem fechadas.
+     *
+     * @return o número de bytes que podem ser enviados, entre 1 e o pedido.
+     */
+    private int reserve(Http2Stream stream, int wanted) throws IOException {
+        flowLock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+                if (stream.reset) {
+                    throw new IOException("Stream reset by the client");
+                }
+                if (sendWindow > 0 && stream.sendWindow > 0) {
+                    break;
+                }
+                windowOpened.awaitUninterruptibly();
+            }
+            int length = (int) Math.min(wanted, Math.min(sendWindow, stream.sendWindow));
+            sendWindow -= length;
+            stream.sendWindow -= length;
+            return length;
+        } finally {
+            flowLock.unlock();
+        }
+    }
+
+    /**
+     * Reabre a janela do stream quando o handler já leu metade dela.
+     */
+    private void onConsumed(int streamId, int consumed) {
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            return;
+        }
+        int increment = 0;
+        flowLock.lock();
+        try {
+            stream.consumed += consumed;
+            if (!stream.remoteClosed && stream.consumed >= windowSize / 2) {
+                increment = stream.consumed;
+                stream.receiveWindow += increment;
+                stream.consumed = 0;
+            }
+        } finally {
+            flowLock.unlock();
+        }
+        if (increment > 0) {
+            try {
+                writeWindowUpdate(streamId, increment);
+            } catch (IOException ignored) {
+                // A conexão foi encerrada; a leitura do corpo vai falhar em seguida
+            }
+        }
+    }
+
+    private void onReset(int streamId, ByteBuffer payload) throws IOException {
+        if (streamId == 0) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "RST_STREAM on stream 0");
+        }
+        if (payload.remaining() != 4) {
+            throw new Http2Exception(Frame.FRAME_SIZE_ERROR, "Invalid RST_STREAM frame");
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            if (streamId > lastStreamId) {
+                throw new Http2Exception(Frame.PROTOCOL_ERROR, "RST_STREAM on an idle stream");
+            }
+            return;
+        }
+        cancel(stream, "Stream reset by the client");
+    }
+
+    private void onSettings(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (streamId != 0) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "SETTINGS on a stream");
+        }
+        if ((flags & Frame.FLAG_ACK) != 0) {
+            if (payload.hasRemaining()) {
+                throw new Http2Exception(Frame.FRAME_SIZE_ERROR, "SETTINGS ack with a payload");
+            }
+            return;
+        }
+        if (payload.remaining() % 6 != 0) {
+            throw new Http2Exception(Frame.FRAME_SIZE_ERROR, "Invalid SETTINGS frame");
+        }
+        applySettings(payload);
+        settingsReceived = true;
+        writeFrame(Frame.SETTINGS, Frame.FLAG_ACK, 0, ByteBuffer.allocate(0));
+    }
+
+    private void applySettings(ByteBuffer payload) throws Http2Exception {
+        while (payload.remaining() >= 6) {
+            int id = payload.getShort() & 0xFFFF;
+            long value = payload.getInt() & 0xFFFFFFFFL;
+            switch (id) {
+                case Frame.SETTINGS_HEADER_TABLE_SIZE -> {
+                    writeLock.lock();
+                    try {
+                        encoder.setMaxTableSize((int) Math.min(value, Integer.MAX_VALUE));
+                    } finally {
+                        writeLock.unlock();
+                    }
+                }
+                case Frame.SETTINGS_ENABLE_PUSH -> {
+                    if (value > 1) {
+                        throw new Http2Exception(Frame.PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH");
+                    }
+                }
+                case Frame.SETTINGS_INITIAL_WINDOW_SIZE -> {
+                    if (value > MAX_WINDOW) {
+                        throw new Http2Exception(Frame.FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE");
+                    }
+                    flowLock.lock();
+                    try {
+                        // A diferença vale também para os streams já abertos
+                        long delta = value - initialSendWindow;
+                        initialSendWindow = value;
+                        for (Http2Stream stream : streams.values()) {
+                            stream.sendWindow += delta;
+                            if (stream.sendWindow > MAX_WINDOW) {
+                                throw new Http2Exception(Frame.FLOW_CONTROL_ERROR, "Stream window overflow");
+                            }
+                        }
+                        windowOpened.signalAll();
+                    } finally {
+                        flowLock.unlock();
+                    }
+                }
+                case Frame.SETTINGS_MAX_FRAME_SIZE -> {
+                    if (value < Frame.DEFAULT_MAX_FRAME_SIZE || value > 0xFFFFFF) {
+                        throw new Http2Exception(Frame.PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE");
+                    }
+                    maxFrameSize = (int) value;
+                }
+                default -> {
+                    // Os demais parâmetros não mudam o que o servidor envia
+                }
+            }
+        }
+    }
+
+    private void onWindowUpdate(int streamId, ByteBuffer payload) throws IOException {
+        if (payload.remaining() != 4) {
+            throw new Http2Exception(Frame.FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE frame");
+        }
+        int increment = payload.getInt() & 0x7fffffff;
+        if (increment == 0) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, streamId, "WINDOW_UPDATE with zero increment");
+        }
+        Http2Stream stream = null;
+        if (streamId != 0) {
+            stream = streams.get(streamId);
+            if (stream == null) {
+                if (streamId > lastStreamId) {
+                    throw new Http2Exception(Frame.PROTOCOL_ERROR, "WINDOW_UPDATE on an idle stream");
+                }
+                return;
+            }
+        }
+        flowLock.lock();
+        try {
+            if (stream == null) {
+                sendWindow += increment;
+                if (sendWindow > MAX_WINDOW) {
+                    throw new Http2Exception(Frame.FLOW_CONTROL_ERROR, "Connection window overflow");
+                }
+            } else {
+                stream.sendWindow += increment;
+                if (stream.sendWindow > MAX_WINDOW) {
+                    throw new Http2Exception(Frame.FLOW_CONTROL_ERROR, streamId, "Stream window overflow");
+                }
+            }
+            windowOpened.signalAll();
+        } finally {
+            flowLock.unlock();
+        }
+    }
+
+    /**
+     * Constrói o cabeçalho da requisição a partir dos campos decodificados,
+     * com os pseudo-cabeçalhos convertidos para o formato do HTTP/1.1.
+     */
+    private static RequestHead toRequestHead(int streamId, List<String> fields) throws Http2Exception {
+        String method = null;
+        String path = null;
+        String scheme = null;
+        String authority = null;
+        boolean regular = false;
+        boolean host = false;
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        StringBuilder cookie = null;
+        for (int i = 0; i < fields.size(); i += 2) {
+            String name = fields.get(i);
+            String value = fields.get(i + 1);
+            if (name.startsWith(":")) {
+                if (regular) {
+                    throw malformed(streamId, "Pseudo-header after a regular header");
+                }
+                switch (name) {
+                    case ":method" -> method = once(streamId, method, value);
+                    case ":path" -> path = once(streamId, path, value);
+                    case ":scheme" -> scheme = once(streamId, scheme, value);
+                    case ":authority" -> authority = once(streamId, authority, value);
+                    default -> throw malformed(streamId, "Unknown pseudo-header " + name);
+                }
+                continue;
+            }
+            regular = true;
+            if (!name.equals(name.toLowerCase(Locale.ROOT)) || CONNECTION_HEADERS.contains(name)
+                    || (name.equals("te") && !value.equals("trailers"))) {
+                throw malformed(streamId, "Invalid header " + name);
+            }
+            if (name.equals("cookie")) {
+                // Os pedaços do cookie são reunidos com "; ", como no HTTP/1.1
+                cookie = cookie == null ? new StringBuilder(value) : cookie.append("; ").append(value);
+                continue;
+            }
+            host |= name.equals("host");
+            names.add(name);
+            values.add(value);
+        }
+        if (method == null || (!method.equals("CONNECT") && (scheme == null || path == null || path.isEmpty()))) {
+            throw malformed(streamId, "Missing pseudo-headers");
+        }
+        if (cookie != null) {
+            names.add("cookie");
+            values.add(cookie.toString());
+        }
+        if (authority != null && !host) {
+            names.add("host");
+            values.add(authority);
+        }
+
+        String target = path == null ? authority : path;
+        long contentLength = -1;
+        ByteArrayOutputStream data = new ByteArrayOutputStream(256);
+        data.writeBytes(target.getBytes(StandardCharsets.ISO_8859_1));
+        int[] positions = new int[names.size() * 4];
+        for (int i = 0; i < names.size(); i++) {
+            positions[i * 4] = data.size();
+            data.writeBytes(names.get(i).getBytes(StandardCharsets.ISO_8859_1));
+            positions[i * 4 + 1] = data.size();
+            positions[i * 4 + 2] = data.size();
+            data.writeBytes(values.get(i).getBytes(StandardCharsets.ISO_8859_1));
+            positions[i * 4 + 3] = data.size();
+            if (names.get(i).equals("content-length")) {
+                try {
+                    contentLength = Long.parseLong(values.get(i).trim());
+                } catch (NumberFormatException e) {
+                    throw malformed(streamId, "Invalid content-length");
+                }
+            }
+        }
+        return new RequestHead(method, "HTTP/2.0", data.toByteArray(), 0, target.length(), positions,
+                names.toArray(new String[0]), names.size(), contentLength);
+    }
+
+    private static String once(int streamId, String current, String value) throws Http2Exception {
+        if (current != null) {
+            throw malformed(streamId, "Repeated pseudo-header");
+        }
+        return value;
+    }
+
+    /**
+     * Recebe os campos decodificados de um bloco, até o limite anunciado em
+     * SETTINGS_MAX_HEADER_LIST_SIZE (nome, valor e 32 bytes por campo) e
+     * {@link #MAX_HEADERS} campos. Um bloco pequeno pode referenciar várias
+     * vezes uma entrada grande da tabela dinâmica: acima do limite os campos
+     * são descartados, e o stream é recusado.
+     */
+    private static final class HeaderList implements BiConsumer<String, String> {
+        private final List<String> fields = new ArrayList<>();
+        private long size;
+        private boolean exceeded;
+
+        @Override
+        public void accept(String name, String value) {
+            size += name.length() + value.length() + 32;
+            if (size > MAX_HEADER_LIST_SIZE || fields.size() == MAX_HEADERS * 2) {
+                exceeded = true;
+            }
+            if (!exceeded) {
+                fields.add(name);
+                fields.add(value);
+            }
+        }
+    }
+
+    private static Http2Exception malformed(int streamId, String message) {
+        return new Http2Exception(Frame.PROTOCOL_ERROR, streamId, message);
+    }
+
+    private static ByteBuffer unpad(int flags, ByteBuffer payload) throws Http2Exception {
+        if ((flags & Frame.FLAG_PADDED) == 0) {
+            return payload;
+        }
+        if (!payload.hasRemaining()) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "Invalid padding");
+        }
+        int padding = payload.get() & 0xFF;
+        if (padding > payload.remaining()) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "Invalid padding");
+        }
+        return payload.slice(payload.position(), payload.remaining() - padding);
+    }
+
+    private static boolean hasToken(String header, String token) {
+        for (String item : header.split(",")) {
+            if (item.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean readPreface() throws IOException {
+        if (!fill(Frame.PREFACE.length)) {
+            return false;
+        }
+        if (matchPreface(frame.flip()) != 1) {
+            throw new Http2Exception(Frame.PROTOCOL_ERROR, "Invalid connection preface");
+        }
+        frame.clear();
+        return true;
+    }
+
+    /**
+     * Lê o próximo quadro para {@link #frame}. Se a leitura for interrompida pelo
+     * tempo limite, os bytes já lidos são mantidos e a próxima chamada continua dali.
+     *
+     * @return false se o cliente encerrou a conexão.
+     */
+    private boolean readFrame() throws IOException {
+        if (!fill(Frame.HEADER_SIZE)) {
+            return false;
+        }
+        int length = ((frame.get(0) & 0xFF) << 16) | ((frame.get(1) & 0xFF) << 8) | (frame.get(2) & 0xFF);
+        if (length > Frame.DEFAULT_MAX_FRAME_SIZE) {
+            throw new Http2Exception(Frame.FRAME_SIZE_ERROR, "Frame larger than SETTINGS_MAX_FRAME_SIZE");
+        }
+        return fill(Frame.HEADER_SIZE + length);
+    }
+
+    /**
+     * Completa {@link #frame} até o tamanho pedido, primeiro com os bytes do buffer de leitura.
+     */
+    private boolean fill(int size) throws IOException {
+        while (frame.position() < size) {
+            if (!input.hasRemaining()) {
+                int read = in.read(input.array(), 0, input.capacity());
+                if (read == -1) {
+                    return false;
+                }
+                Metrics.bytesReceived(read);
+                input.position(0).limit(read);
+            }
+            int length = Math.min(size - frame.position(), input.remaining());
+            frame.put(frame.position(), input, input.position(), length);
+            frame.position(frame.position() + length);
+            input.position(input.position() + length);
+        }
+        return true;
+    }
+
+    private void writeSettings() throws IOException {
+        ByteBuffer settings = ByteBuffer.allocate(18);
+        settings.putShort((short) Frame.SETTINGS_MAX_CONCURRENT_STREAMS).putInt(maxStreams);
+        settings.putShort((short) Frame.SETTINGS_INITIAL_WINDOW_SIZE).putInt(windowSize);
+        settings.putShort((short) Frame.SETTINGS_MAX_HEADER_LIST_SIZE).putInt(MAX_HEADER_LIST_SIZE);
+        writeLock.lock();
+        try {
+            writeFrame(Frame.SETTINGS, 0, 0, settings.flip());
+            if (windowSize > Frame.DEFAULT_WINDOW_SIZE) {
+                // A janela da conexão só muda com WINDOW_UPDATE
+                writeWindowUpdate(0, windowSize - Frame.DEFAULT_WINDOW_SIZE);
+            }
+            settingsSent = true;
+            if (draining) {
+                // O encerramento foi pedido antes do prefácio do servidor
+                writeGoAway(Frame.NO_ERROR);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Registra o stream como o último aceito, a menos que o encerramento já
+     * tenha sido anunciado com GOAWAY.
+     *
+     * @return false se o stream deve ser recusado.
+     */
+    private boolean claimStream(int streamId) {
+        writeLock.lock();
+        try {
+            lastStreamId = streamId;
+            return !draining;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Pede o encerramento gracioso da conexão; chamado por qualquer thread. O
+     * GOAWAY informa o último stream aceito: os abertos terminam normalmente e
+     * a conexão é encerrada quando não houver mais nenhum.
+     */
+    public void drain() {
+        writeLock.lock();
+        try {
+            if (draining) {
+                return;
+            }
+            draining = true;
+            if (settingsSent) {
+                writeGoAway(Frame.NO_ERROR);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (streams.isEmpty()) {
+            finishDrain();
+        }
+    }
+
+    /**
+     * Encerra a leitura depois que o último stream terminou: a thread da
+     * conexão recebe o fim da entrada e fecha a conexão.
+     */
+    private void finishDrain() {
+        try {
+            channel.shutdownInput();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void writeHeaders(int streamId, byte[] block, boolean endStream) throws IOException {
+        int offset = 0;
+        do {
+            int length = Math.min(maxFrameSize, block.length - offset);
+            boolean first = offset == 0;
+            boolean last = offset + length == block.length;
+            int flags = (first && endStream ? Frame.FLAG_END_STREAM : 0) | (last ? Frame.FLAG_END_HEADERS : 0);
+            writeFrame(first ? Frame.HEADERS : Frame.CONTINUATION, flags, streamId, ByteBuffer.wrap(block, offset, length));
+            offset += length;
+        } while (offset < block.length);
+    }
+
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        writeFrame(Frame.WINDOW_UPDATE, 0, streamId, ByteBuffer.allocate(4).putInt(0, increment));
+    }
+
+    private void writeReset(int streamId, int errorCode) throws IOException {
+        writeFrame(Frame.RST_STREAM, 0, streamId, ByteBuffer.allocate(4).putInt(0, errorCode));
+    }
+
+    private void writeGoAway(int errorCode) {
+        try {
+            writeFrame(Frame.GOAWAY, 0, 0, ByteBuffer.allocate(8).putInt(0, lastStreamId).putInt(4, errorCode));
+        } catch (IOException ignored) {
+            // A conexão será fechada de qualquer forma
+        }
+    }
+
+    private void writeFrame(int type, int flags, int streamId, ByteBuffer payload) throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            frameHeader.clear();
+            Frame.putHeader(frameHeader, payload.remaining(), type, flags, streamId).flip();
+            ByteBuffer[] buffers = {frameHeader, payload};
+            while (payload.hasRemaining() || frameHeader.hasRemaining()) {
+                Metrics.bytesSent(channel.write(buffers));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Encerra um stream com erro a pedido do servidor (erro de stream).
+     */
+    private void resetStream(int streamId, int errorCode) throws IOException {
+        writeReset(streamId, errorCode);
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            cancel(stream, "Stream reset");
+        }
+    }
+
+    private void cancel(Http2Stream stream, String reason) {
+        stream.reset = true;
+        if (stream.body != null) {
+            stream.body.fail(new IOException(reason));
+        }
+        flowLock.lock();
+        try {
+            windowOpened.signalAll();
+        } finally {
+            flowLock.unlock();
+        }
+    }
+
+    /**
+     * Marca a conexão como encerrada e libera as threads dos streams que
+     * esperam pelo corpo ou pelas janelas.
+     */
+    private void close() {
+        writeLock.lock();
+        try {
+            closed = true;
+        } finally {
+            writeLock.unlock();
+        }
+        for (Http2Stream stream : streams.values()) {
+            cancel(stream, "Connection closed");
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.kheven.http2;
+
+import java.io.IOException;
+
+/**
+ * Exceção lançada quando o cliente viola o protocolo HTTP/2. Um erro de
+ * conexão (stream 0) encerra a conexão com GOAWAY; um erro de stream encerra
+ * apenas o stream com RST_STREAM.
+ */
+public class Http2Exception extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int errorCode;
+    private final int streamId;
+
+    /**
+     * Construtor da classe Http2Exception, para um erro de conexão.
+     *
+     * @param errorCode o código de erro HTTP/2 (e.g., 0x1, PROTOCOL_ERROR).
+     * @param message a descrição do erro.
+     */
+    public Http2Exception(int errorCode, String message) {
+        this(errorCode, 0, message);
+    }
+
+    /**
+     * Construtor da classe Http2Exception.
+     *
+     * @param errorCode o código de erro HTTP/2.
+     * @param streamId o stream afetado, ou 0 para um erro de conexão.
+     * @param message a descrição do erro.
+     */
+    public Http2Exception(int errorCode, int streamId, String message) {
+        super(message);
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    /**
+     * Obtém o código de erro HTTP/2.
+     *
+     * @return o código de erro.
+     */
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Obtém o stream afetado.
+     *
+     * @return o identificador do stream, ou 0 para um erro de conexão.
+     */
+    public int getStreamId() {
+        return streamId;
+    }
+}
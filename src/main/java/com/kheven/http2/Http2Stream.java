@@ -0,0 +1,29 @@
+package com.kheven.http2;
+
+/**
+ * Estado de um stream HTTP/2 da conexão: as janelas de controle de fluxo nos
+ * dois sentidos e se cada lado já encerrou o envio. As janelas são protegidas
+ * pelo lock de controle de fluxo da conexão.
+ */
+final class Http2Stream {
+    final int id;
+    // Corpo da requisição, ou null se ela chegou sem corpo
+    final StreamBody body;
+    // Bytes que o servidor ainda pode enviar e que o cliente ainda pode enviar
+    long sendWindow;
+    long receiveWindow;
+    // Bytes do corpo recebidos, para o limite de tamanho
+    long received;
+    // Bytes lidos pelo handler e ainda não devolvidos ao cliente com WINDOW_UPDATE
+    int consumed;
+    volatile boolean remoteClosed;
+    volatile boolean reset;
+
+    Http2Stream(int id, StreamBody body, long sendWindow, long receiveWindow) {
+        this.id = id;
+        this.body = body;
+        this.sendWindow = sendWindow;
+        this.receiveWindow = receiveWindow;
+        this.remoteClosed = body == null;
+    }
+}
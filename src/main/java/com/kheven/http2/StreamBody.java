@@ -0,0 +1,146 @@
+package com.kheven.http2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Corpo de uma requisição HTTP/2, entre a thread que lê a conexão, que recebe
+ * os quadros DATA, e a thread do handler, que o lê como um InputStream
+ * bloqueante. A quantidade em trânsito é limitada pela janela de controle de
+ * fluxo do stream, reaberta à medida que o handler consome os dados.
+ */
+final class StreamBody extends InputStream {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = lock.newCondition();
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private final IntConsumer onConsumed;
+    private byte[] current;
+    private int offset;
+    private int queuedBytes;
+    private boolean finished;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Construtor da classe StreamBody.
+     *
+     * @param onConsumed recebe o número de bytes lidos pelo handler, para reabrir a janela do stream.
+     */
+    StreamBody(IntConsumer onConsumed) {
+        this.onConsumed = onConsumed;
+    }
+
+    /**
+     * Adiciona o conteúdo de um quadro DATA. Chamado pela thread da conexão.
+     */
+    void write(byte[] chunk) {
+        lock.lock();
+        try {
+            if (closed || finished || chunk.length == 0) {
+                return;
+            }
+            chunks.add(chunk);
+            queuedBytes += chunk.length;
+            readable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sinaliza que o corpo terminou (END_STREAM).
+     */
+    void finish() {
+        lock.lock();
+        try {
+            finished = true;
+            readable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Interrompe a leitura com um erro (stream cancelado ou conexão encerrada).
+     */
+    void fail(IOException error) {
+        lock.lock();
+        try {
+            if (!finished) {
+                failure = error;
+                readable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int length;
+        lock.lock();
+        try {
+            while (current == null) {
+                current = chunks.poll();
+                if (current == null) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    if (finished || closed) {
+                        return -1;
+                    }
+                    readable.awaitUninterruptibly();
+                }
+            }
+            length = Math.min(len, current.length - offset);
+            System.arraycopy(current, offset, b, off, length);
+            offset += length;
+            queuedBytes -= length;
+            if (offset == current.length) {
+                current = null;
+                offset = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+        onConsumed.accept(length);
+        return length;
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            chunks.clear();
+            current = null;
+            queuedBytes = 0;
+            readable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
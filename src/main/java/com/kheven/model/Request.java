@@ -1,15 +1,38 @@
 package com.kheven.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Map;
 
 /**
  * A classe Request representa uma requisição HTTP com método, caminho, cabeçalhos e corpo.
+ * Quando criada a partir de um {@link RequestHead}, o caminho e os cabeçalhos só
+ * são decodificados no primeiro acesso.
+ * <p>
+ * O corpo é um stream lido sob demanda da conexão: handlers que processam
+ * uploads grandes devem usar {@link #getBodyStream()}, que não guarda o corpo
+ * em memória; {@link #getBody()} lê o corpo inteiro como texto.
+ * <p>
+ * Os parâmetros do caminho (e.g., {@code id} em {@code /api/users/{id}}) são
+ * extraídos da rota encontrada apenas quando consultados.
  */
 public class Request {
     private final String method;
-    private final String path;
-    private final Map<String, String> headers;
-    private final String body;
+    private final String version;
+    private final RequestHead head;
+    private final InputStream bodyStream;
+    private String body;
+    private String path;
+    private Map<String, String> headers;
+    private Route route;
+    private InetAddress remoteAddress;
 
     /**
      * Construtor da classe Request.
@@ -20,10 +43,54 @@ public class Request {
      * @param body o corpo da requisição.
      */
     public Request(String method, String path, Map<String, String> headers, String body) {
+        this(method, path, "HTTP/1.1", headers, body);
+    }
+
+    /**
+     * Construtor da classe Request com a versão do protocolo.
+     *
+     * @param method o método HTTP da requisição (e.g., GET, POST).
+     * @param path o caminho da requisição.
+     * @param version a versão do protocolo (e.g., HTTP/1.1).
+     * @param headers os cabeçalhos da requisição.
+     * @param body o corpo da requisição.
+     */
+    public Request(String method, String path, String version, Map<String, String> headers, String body) {
         this.method = method;
         this.path = path;
+        this.version = version;
+        this.head = null;
         this.headers = headers;
         this.body = body;
+        this.bodyStream = null;
+    }
+
+    /**
+     * Construtor da classe Request a partir do cabeçalho analisado pelo servidor.
+     *
+     * @param head a linha de requisição e os cabeçalhos recebidos.
+     * @param body o corpo da requisição.
+     */
+    public Request(RequestHead head, String body) {
+        this.method = head.getMethod();
+        this.version = head.getVersion();
+        this.head = head;
+        this.body = body;
+        this.bodyStream = null;
+    }
+
+    /**
+     * Construtor da classe Request a partir do cabeçalho analisado pelo servidor,
+     * com o corpo lido sob demanda.
+     *
+     * @param head a linha de requisição e os cabeçalhos recebidos.
+     * @param bodyStream o stream do corpo da requisição.
+     */
+    public Request(RequestHead head, InputStream bodyStream) {
+        this.method = head.getMethod();
+        this.version = head.getVersion();
+        this.head = head;
+        this.bodyStream = bodyStream;
     }
 
     /**
@@ -41,24 +108,154 @@ public class Request {
      * @return o caminho da requisição.
      */
     public String getPath() {
+        if (path == null) {
+            path = head.getTarget();
+        }
         return path;
     }
 
+    /**
+     * Define a rota encontrada para a requisição, usada para extrair os
+     * parâmetros do caminho.
+     *
+     * @param route a rota correspondente, ou null se não houver.
+     */
+    public void setRoute(Route route) {
+        this.route = route;
+    }
+
+    /**
+     * Obtém o endereço do cliente que enviou a requisição.
+     *
+     * @return o endereço, ou null se a requisição não veio de uma conexão.
+     */
+    public InetAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Define o endereço do cliente, informado pelo motor de transporte.
+     *
+     * @param remoteAddress o endereço do socket do cliente.
+     */
+    public void setRemoteAddress(InetAddress remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    /**
+     * Obtém o valor de um parâmetro do caminho.
+     *
+     * @param name o nome do parâmetro (e.g., id em /api/users/{id}).
+     * @return o valor do parâmetro, ou null se a rota não tiver esse parâmetro.
+     */
+    public String getPathParam(String name) {
+        return route == null ? null : route.getPathParam(getPath(), name);
+    }
+
+    /**
+     * Obtém todos os parâmetros do caminho.
+     *
+     * @return um mapa com os parâmetros do caminho.
+     */
+    public Map<String, String> getPathParams() {
+        return route == null ? Collections.emptyMap() : route.getPathParams(getPath());
+    }
+
+    /**
+     * Obtém a versão do protocolo da requisição.
+     *
+     * @return a versão do protocolo (e.g., HTTP/1.1).
+     */
+    public String getVersion() {
+        return version;
+    }
+
     /**
      * Obtém os cabeçalhos da requisição.
      *
      * @return um mapa contendo os cabeçalhos da requisição.
      */
     public Map<String, String> getHeaders() {
+        if (headers == null) {
+            headers = head.toMap();
+        }
         return headers;
     }
 
     /**
-     * Obtém o corpo da requisição.
+     * Obtém o valor de um cabeçalho, ignorando maiúsculas e minúsculas no nome.
+     *
+     * @param name o nome do cabeçalho.
+     * @return o valor do cabeçalho, ou null se não estiver presente.
+     */
+    public String getHeader(String name) {
+        if (headers == null) {
+            // Consulta os bytes recebidos sem montar o mapa de cabeçalhos
+            return head.getHeader(name);
+        }
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Verifica se a conexão deve continuar aberta após a requisição.
+     * No HTTP/1.1 a conexão é persistente, a menos que o cliente envie
+     * "Connection: close"; no HTTP/1.0 ela só é mantida com "Connection: keep-alive".
+     *
+     * @return true se a conexão deve ser mantida, false caso contrário.
+     */
+    public boolean isKeepAlive() {
+        String connection = getHeader("Connection");
+        if ("HTTP/1.0".equals(version)) {
+            return "keep-alive".equalsIgnoreCase(connection);
+        }
+        return !"close".equalsIgnoreCase(connection);
+    }
+
+    /**
+     * Obtém o corpo da requisição como texto UTF-8, lendo-o por inteiro na primeira chamada.
      *
      * @return o corpo da requisição.
+     * @throws UncheckedIOException se ocorrer um erro ao ler o corpo.
      */
     public String getBody() {
+        if (body == null) {
+            try {
+                body = new String(bodyStream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
         return body;
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtém o corpo da requisição como um stream lido sob demanda da conexão.
+     * O corpo só pode ser consumido uma vez.
+     *
+     * @return o stream do corpo da requisição.
+     */
+    public InputStream getBodyStream() {
+        if (body != null || bodyStream == null) {
+            return new ByteArrayInputStream(getBody().getBytes(StandardCharsets.UTF_8));
+        }
+        return bodyStream;
+    }
+
+    /**
+     * Obtém o corpo da requisição como um canal lido sob demanda da conexão.
+     *
+     * @return o canal do corpo da requisição.
+     */
+    public ReadableByteChannel getBodyChannel() {
+        return Channels.newChannel(getBodyStream());
+    }
+}
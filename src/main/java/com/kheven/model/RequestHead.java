@@ -0,0 +1,162 @@
+package com.kheven.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A classe RequestHead guarda a linha de requisição e os cabeçalhos no formato
+ * em que chegaram pela rede: um único array de bytes e as posições de cada campo.
+ * Os valores só são decodificados em String quando alguém os pede.
+ */
+public final class RequestHead {
+    private final String method;
+    private final String version;
+    private final byte[] data;
+    private final int targetStart;
+    private final int targetEnd;
+    // Para cada cabeçalho: início do nome, fim do nome, início do valor e fim do valor
+    private final int[] fields;
+    // Nomes de cabeçalhos conhecidos já internados (null quando o nome não é conhecido)
+    private final String[] names;
+    private final int headerCount;
+    private final long contentLength;
+    private String target;
+
+    /**
+     * Construtor da classe RequestHead. Usado pelo analisador de requisições.
+     *
+     * @param method o método HTTP (internado).
+     * @param version a versão do protocolo (internada).
+     * @param data os bytes do cabeçalho da requisição.
+     * @param targetStart o início do alvo da requisição em data.
+     * @param targetEnd o fim do alvo da requisição em data.
+     * @param fields as posições de nome e valor de cada cabeçalho.
+     * @param names os nomes conhecidos de cada cabeçalho, ou null.
+     * @param headerCount o número de cabeçalhos.
+     * @param contentLength o valor de Content-Length, ou -1 se ausente.
+     */
+    public RequestHead(String method, String version, byte[] data, int targetStart, int targetEnd,
+                       int[] fields, String[] names, int headerCount, long contentLength) {
+        this.method = method;
+        this.version = version;
+        this.data = data;
+        this.targetStart = targetStart;
+        this.targetEnd = targetEnd;
+        this.fields = fields;
+        this.names = names;
+        this.headerCount = headerCount;
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Obtém o método HTTP da requisição.
+     *
+     * @return o método HTTP.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Obtém a versão do protocolo da requisição.
+     *
+     * @return a versão do protocolo.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Obtém o alvo da requisição (caminho e query string), decodificado na primeira chamada.
+     *
+     * @return o alvo da requisição.
+     */
+    public String getTarget() {
+        if (target == null) {
+            target = new String(data, targetStart, targetEnd - targetStart, StandardCharsets.ISO_8859_1);
+        }
+        return target;
+    }
+
+    /**
+     * Obtém o valor de Content-Length já convertido pelo analisador.
+     *
+     * @return o tamanho do corpo, ou -1 se o cabeçalho não estiver presente.
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Obtém o número de cabeçalhos da requisição.
+     *
+     * @return o número de cabeçalhos.
+     */
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    /**
+     * Obtém o valor de um cabeçalho, ignorando maiúsculas e minúsculas no nome.
+     * Valores repetidos são combinados com ", ".
+     *
+     * @param name o nome do cabeçalho.
+     * @return o valor do cabeçalho, ou null se não estiver presente.
+     */
+    public String getHeader(String name) {
+        String value = null;
+        for (int i = 0; i < headerCount; i++) {
+            if (nameEquals(i, name)) {
+                String current = value(i);
+                value = value == null ? current : value + ", " + current;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Converte os cabeçalhos em um mapa que ignora maiúsculas e minúsculas nas chaves.
+     *
+     * @return um novo mapa com os cabeçalhos.
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < headerCount; i++) {
+            map.merge(name(i), value(i), (a, b) -> a + ", " + b);
+        }
+        return map;
+    }
+
+    private boolean nameEquals(int index, String name) {
+        if (names[index] != null) {
+            return names[index].equalsIgnoreCase(name);
+        }
+        int start = fields[index * 4];
+        int end = fields[index * 4 + 1];
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char a = (char) (data[i] & 0xFF);
+            char b = name.charAt(i - start);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String name(int index) {
+        if (names[index] != null) {
+            return names[index];
+        }
+        int start = fields[index * 4];
+        return new String(data, start, fields[index * 4 + 1] - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private String value(int index) {
+        int start = fields[index * 4 + 2];
+        return new String(data, start, fields[index * 4 + 3] - start, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,14 +1,34 @@
 package com.kheven.model;
 
+import com.kheven.handler.AsyncRouteHandler;
 import com.kheven.handler.RouteHandler;
+import com.kheven.handler.WebSocketHandler;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A classe Route representa uma rota HTTP com método, caminho e manipulador.
+ * O caminho pode conter parâmetros entre chaves, como {@code /api/users/{id}};
+ * os valores são obtidos da requisição com {@link Request#getPathParam(String)}.
+ * O manipulador é síncrono ({@link RouteHandler}) ou assíncrono
+ * ({@link AsyncRouteHandler}), com um tempo limite opcional. Rotas WebSocket
+ * ({@link WebSocketHandler}) respondem a GET e só atendem o handshake.
  */
 public class Route {
     private final String method;
     private final String path;
+    private final String key;
     private final RouteHandler handler;
+    private final AsyncRouteHandler asyncHandler;
+    private final WebSocketHandler webSocketHandler;
+    private final Duration timeout;
+    private final boolean blocking;
+    private final String[] segments;
+    private final String[] paramNames;
+    private final boolean parameterized;
 
     /**
      * Construtor da classe Route.
@@ -18,9 +38,68 @@ public class Route {
      * @param handler o manipulador da rota.
      */
     public Route(String method, String path, RouteHandler handler) {
+        this(method, path, handler, true);
+    }
+
+    /**
+     * Construtor da classe Route.
+     *
+     * @param method o método HTTP (e.g., GET, POST).
+     * @param path o caminho da rota.
+     * @param handler o manipulador da rota.
+     * @param blocking se o manipulador pode bloquear (I/O, sleep, etc.).
+     */
+    public Route(String method, String path, RouteHandler handler, boolean blocking) {
+        this(method, path, handler, null, null, null, blocking);
+    }
+
+    /**
+     * Construtor de uma rota assíncrona. O manipulador não deve bloquear, então a
+     * rota é executada no laço de eventos do motor NIO.
+     *
+     * @param method o método HTTP (e.g., GET, POST).
+     * @param path o caminho da rota.
+     * @param handler o manipulador assíncrono da rota.
+     * @param timeout o tempo máximo até a resposta (504 depois dele), ou null para o padrão do servidor.
+     */
+    public Route(String method, String path, AsyncRouteHandler handler, Duration timeout) {
+        this(method, path, null, handler, null, timeout, false);
+    }
+
+    /**
+     * Construtor de uma rota WebSocket, que atende o handshake em GET.
+     *
+     * @param path o caminho da rota.
+     * @param handler o manipulador das mensagens do socket.
+     */
+    public Route(String path, WebSocketHandler handler) {
+        this("GET", path, null, null, handler, null, true);
+    }
+
+    private Route(String method, String path, RouteHandler handler, AsyncRouteHandler asyncHandler,
+                  WebSocketHandler webSocketHandler, Duration timeout, boolean blocking) {
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Route path must start with '/': " + path);
+        }
         this.method = method;
         this.path = path;
+        this.key = method + " " + path;
         this.handler = handler;
+        this.asyncHandler = asyncHandler;
+        this.webSocketHandler = webSocketHandler;
+        this.timeout = timeout;
+        this.blocking = blocking;
+        this.segments = path.substring(1).split("/", -1);
+        this.paramNames = new String[segments.length];
+        boolean hasParams = false;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}")) {
+                paramNames[i] = segment.substring(1, segment.length() - 1);
+                hasParams = true;
+            }
+        }
+        this.parameterized = hasParams;
     }
 
     /**
@@ -31,15 +110,219 @@ public class Route {
      * @return true se a rota corresponder, false caso contrário.
      */
     public boolean matches(String method, String path) {
-        return this.method.equals(method) && this.path.equals(path);
+        if (!this.method.equals(method) || !path.startsWith("/")) {
+            return false;
+        }
+        int limit = pathLimit(path);
+        int start = 1;
+        for (int i = 0; i < segments.length; i++) {
+            if (start > limit) {
+                return false;
+            }
+            int end = segmentEnd(path, start, limit);
+            if (paramNames[i] == null) {
+                String segment = segments[i];
+                if (segment.length() != end - start || !path.regionMatches(start, segment, 0, segment.length())) {
+                    return false;
+                }
+            } else if (end == start) {
+                return false;
+            }
+            start = end + 1;
+        }
+        return start > limit;
+    }
+
+    /**
+     * Obtém o método HTTP da rota.
+     *
+     * @return o método HTTP.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Obtém o caminho da rota, com os parâmetros entre chaves.
+     *
+     * @return o caminho da rota.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Obtém a chave da rota: o método e o caminho (e.g., "GET /api/users/{id}").
+     * O estado guardado por rota (limites, cache, métricas) usa a chave, e não
+     * a rota: com {@link com.kheven.http.Router#replaceRoutes}, a rota nova com
+     * o mesmo método e caminho continua esse estado, e a antiga é liberada.
+     *
+     * @return a chave da rota.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Obtém os segmentos do caminho da rota, sem a barra inicial.
+     *
+     * @return os segmentos do caminho (não deve ser modificado).
+     */
+    public String[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * Obtém o nome do parâmetro de um segmento do caminho.
+     *
+     * @param index o índice do segmento.
+     * @return o nome do parâmetro, ou null se o segmento for fixo.
+     */
+    public String getParamName(int index) {
+        return paramNames[index];
+    }
+
+    /**
+     * Indica se o caminho da rota contém parâmetros.
+     *
+     * @return true se houver parâmetros, false se o caminho for fixo.
+     */
+    public boolean isParameterized() {
+        return parameterized;
+    }
+
+    /**
+     * Extrai o valor de um parâmetro de um caminho que corresponde a esta rota.
+     *
+     * @param path o caminho da requisição.
+     * @param name o nome do parâmetro.
+     * @return o valor do parâmetro, ou null se a rota não tiver esse parâmetro.
+     */
+    public String getPathParam(String path, String name) {
+        if (!parameterized) {
+            return null;
+        }
+        int limit = pathLimit(path);
+        int start = 1;
+        for (int i = 0; i < segments.length && start <= limit; i++) {
+            int end = segmentEnd(path, start, limit);
+            if (name.equals(paramNames[i])) {
+                return path.substring(start, end);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Extrai todos os parâmetros de um caminho que corresponde a esta rota.
+     *
+     * @param path o caminho da requisição.
+     * @return um mapa com os parâmetros, na ordem em que aparecem no caminho.
+     */
+    public Map<String, String> getPathParams(String path) {
+        if (!parameterized) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        int limit = pathLimit(path);
+        int start = 1;
+        for (int i = 0; i < segments.length && start <= limit; i++) {
+            int end = segmentEnd(path, start, limit);
+            if (paramNames[i] != null) {
+                params.put(paramNames[i], path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return params;
     }
 
     /**
      * Obtém o manipulador da rota.
      *
-     * @return o manipulador da rota.
+     * @return o manipulador da rota, ou null se a rota for assíncrona.
      */
     public RouteHandler getHandler() {
         return handler;
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtém o manipulador assíncrono da rota.
+     *
+     * @return o manipulador assíncrono, ou null se a rota for síncrona.
+     */
+    public AsyncRouteHandler getAsyncHandler() {
+        return asyncHandler;
+    }
+
+    /**
+     * Indica se a rota é assíncrona.
+     *
+     * @return true se a rota tiver um {@link AsyncRouteHandler}.
+     */
+    public boolean isAsync() {
+        return asyncHandler != null;
+    }
+
+    /**
+     * Obtém o manipulador de uma rota WebSocket.
+     *
+     * @return o manipulador, ou null se a rota não for WebSocket.
+     */
+    public WebSocketHandler getWebSocketHandler() {
+        return webSocketHandler;
+    }
+
+    /**
+     * Indica se a rota é WebSocket.
+     *
+     * @return true se a rota tiver um {@link WebSocketHandler}.
+     */
+    public boolean isWebSocket() {
+        return webSocketHandler != null;
+    }
+
+    /**
+     * Obtém o tempo máximo até a resposta de uma rota assíncrona.
+     *
+     * @return o tempo limite, ou null para usar o padrão do servidor.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Indica se o manipulador da rota pode bloquear. Rotas que não bloqueiam são
+     * executadas diretamente no laço de eventos do motor NIO; as demais são
+     * enviadas ao executor.
+     *
+     * @return true se o manipulador pode bloquear, false caso contrário.
+     */
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Obtém o fim da parte do caminho usada no roteamento, antes da query string.
+     *
+     * @param path o caminho da requisição.
+     * @return o índice do '?' ou o tamanho do caminho.
+     */
+    public static int pathLimit(String path) {
+        int query = path.indexOf('?');
+        return query < 0 ? path.length() : query;
+    }
+
+    /**
+     * Obtém o fim do segmento que começa em start.
+     *
+     * @param path o caminho da requisição.
+     * @param start o início do segmento.
+     * @param limit o fim da parte do caminho usada no roteamento.
+     * @return o índice da próxima '/' ou limit.
+     */
+    public static int segmentEnd(String path, int start, int limit) {
+        int end = path.indexOf('/', start);
+        return end < 0 || end > limit ? limit : end;
+    }
+}
@@ -0,0 +1,163 @@
+package com.kheven.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Canal entre o laço de eventos, que recebe o corpo de uma requisição, e a
+ * thread do handler, que o lê como um InputStream bloqueante. A quantidade de
+ * bytes em trânsito é limitada: quando a fila enche, o laço para de ler o
+ * socket até que o handler consuma parte dos dados.
+ */
+final class BodyPipe extends InputStream {
+    private static final int MAX_QUEUED_BYTES = 64 * 1024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readable = lock.newCondition();
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private final Runnable onDrain;
+    private byte[] current;
+    private int offset;
+    private int queuedBytes;
+    private boolean full;
+    private boolean finished;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Construtor da classe BodyPipe.
+     *
+     * @param onDrain chamado quando a fila, que estava cheia, volta a ter espaço.
+     */
+    BodyPipe(Runnable onDrain) {
+        this.onDrain = onDrain;
+    }
+
+    /**
+     * Copia uma fatia do corpo para a fila. Chamado pelo laço de eventos.
+     *
+     * @param data os dados recebidos.
+     * @return true se a fila ainda tem espaço, false se o laço deve parar de ler.
+     */
+    boolean write(ByteBuffer data) {
+        lock.lock();
+        try {
+            if (closed) {
+                return true;
+            }
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            chunks.add(chunk);
+            queuedBytes += chunk.length;
+            full = queuedBytes >= MAX_QUEUED_BYTES;
+            readable.signal();
+            return !full;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sinaliza que o corpo terminou.
+     */
+    void finish() {
+        lock.lock();
+        try {
+            finished = true;
+            readable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Interrompe a leitura com um erro (corpo inválido ou conexão encerrada).
+     *
+     * @param error o erro entregue ao leitor.
+     */
+    void fail(IOException error) {
+        lock.lock();
+        try {
+            failure = error;
+            readable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        boolean drained = false;
+        int length;
+        lock.lock();
+        try {
+            while (current == null) {
+                if (failure != null) {
+                    throw failure;
+                }
+                current = chunks.poll();
+                if (current == null) {
+                    if (finished || closed) {
+                        return -1;
+                    }
+                    readable.awaitUninterruptibly();
+                }
+            }
+            length = Math.min(len, current.length - offset);
+            System.arraycopy(current, offset, b, off, length);
+            offset += length;
+            queuedBytes -= length;
+            if (offset == current.length) {
+                current = null;
+                offset = 0;
+            }
+            if (full && queuedBytes < MAX_QUEUED_BYTES / 2) {
+                full = false;
+                drained = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (drained) {
+            onDrain.run();
+        }
+        return length;
+    }
+
+    @Override
+    public int available() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            chunks.clear();
+            current = null;
+            queuedBytes = 0;
+            readable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.kheven.nio;
+
+import com.kheven.config.Config;
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.Response;
+import com.kheven.http.ResponseWriter;
+import com.kheven.http.ServerChannels;
+import com.kheven.status.Metrics;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Laço de eventos de uma thread: multiplexa as conexões registradas com um
+ * Selector. Todo o estado de uma conexão é acessado apenas por esta thread;
+ * outras threads se comunicam com o laço através de {@link #execute(Runnable)}.
+ */
+final class EventLoop implements Runnable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+
+    private final NioEngine engine;
+    private final RequestDispatcher dispatcher;
+    private final ExecutorService executor;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = new HashSet<>();
+    // Canais de escuta cujo accept falhou, fora do Selector até acceptResumeAt
+    private final List<SelectionKey> pausedAcceptors = new ArrayList<>();
+    private long acceptResumeAt;
+    // Buffer de leitura compartilhado: conexões ociosas não guardam buffer próprio
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    // Buffer de cabeçalhos de resposta compartilhado pelas conexões do laço
+    private ByteBuffer headBuffer = ByteBuffer.allocate(ResponseWriter.HEAD_BUFFER_SIZE);
+    private volatile boolean running = true;
+    // Encerramento gracioso em andamento: as conexões novas atendem uma requisição e fecham
+    private boolean draining;
+
+    EventLoop(NioEngine engine, RequestDispatcher dispatcher, ExecutorService executor) throws IOException {
+        this.engine = engine;
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+        this.selector = Selector.open();
+    }
+
+    @Override
+    public void run() {
+        long lastIdleCheck = System.currentTimeMillis();
+        try {
+            while (running) {
+                selector.select(pausedAcceptors.isEmpty() ? IDLE_CHECK_INTERVAL : ServerChannels.ACCEPT_BACKOFF);
+                runTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+
+                long now = System.currentTimeMillis();
+                if (!pausedAcceptors.isEmpty() && now >= acceptResumeAt) {
+                    resumeAccept();
+                }
+                if (now - lastIdleCheck >= IDLE_CHECK_INTERVAL) {
+                    closeIdleConnections(now);
+                    lastIdleCheck = now;
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Event loop error: " + e.getMessage());
+            }
+        } finally {
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing selector: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handleKey(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            try {
+                engine.accept((ServerSocketChannel) key.channel(), (Integer) key.attachment());
+            } catch (IOException e) {
+                pauseAccept(key, e);
+            }
+            return;
+        }
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.onReadable(readBuffer);
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.onWritable();
+            }
+        } catch (IOException e) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Tira o canal de escuta do Selector por {@link ServerChannels#ACCEPT_BACKOFF}
+     * depois de um accept que falhou: as conexões já abertas continuam sendo
+     * atendidas, e o laço não gira sobre um accept que falharia de novo.
+     */
+    private void pauseAccept(SelectionKey key, IOException e) {
+        if (!key.isValid()) {
+            // O canal foi fechado (encerramento)
+            return;
+        }
+        System.err.println("Error accepting connection: " + e.getMessage());
+        key.interestOps(0);
+        pausedAcceptors.add(key);
+        acceptResumeAt = System.currentTimeMillis() + ServerChannels.ACCEPT_BACKOFF;
+    }
+
+    private void resumeAccept() {
+        for (SelectionKey key : pausedAcceptors) {
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_ACCEPT);
+            }
+        }
+        pausedAcceptors.clear();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Event loop task failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeIdleConnections(long now) {
+        // Lido a cada verificação: uma configuração recarregada vale também para as conexões abertas
+        long idleTimeout = Config.getKeepAliveTimeout();
+        for (NioConnection connection : new ArrayList<>(connections)) {
+            if (connection.isIdle(now, idleTimeout)) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Agenda uma tarefa para ser executada na thread do laço.
+     *
+     * @param task a tarefa.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Monta os cabeçalhos da resposta no buffer compartilhado do laço. O
+     * conteúdo só é válido até a próxima chamada.
+     *
+     * @param response a resposta HTTP.
+     * @param keepAlive se a conexão será mantida aberta após a resposta.
+     * @return o buffer com os cabeçalhos, em modo de leitura.
+     */
+    ByteBuffer encodeHead(Response response, boolean keepAlive) {
+        headBuffer = ResponseWriter.encodeHead(response, keepAlive, headBuffer);
+        return headBuffer;
+    }
+
+    /**
+     * Registra um canal de escuta neste laço, que passa a aceitar as suas conexões.
+     *
+     * @param server o canal de escuta, em modo não bloqueante.
+     * @param acceptor o índice do aceitador.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    void registerAcceptor(ServerSocketChannel server, int acceptor) throws IOException {
+        server.register(selector, SelectionKey.OP_ACCEPT, acceptor);
+    }
+
+    /**
+     * Registra uma nova conexão aceita neste laço.
+     *
+     * @param channel o canal do cliente.
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                // Os limites são lidos da configuração atual e valem até a conexão fechar
+                NioConnection connection = new NioConnection(this, channel, key, dispatcher, executor,
+                        Config.getKeepAliveMaxRequests(), Config.getMaxBodySize(), Config.isTracingEnabled());
+                key.attach(connection);
+                connections.add(connection);
+                Metrics.connectionOpened();
+                if (draining) {
+                    connection.drain();
+                }
+            } catch (IOException e) {
+                System.err.println("Error registering client: " + e.getMessage());
+                engine.connectionClosed();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+    }
+
+    /**
+     * Remove uma conexão fechada do laço.
+     *
+     * @param connection a conexão.
+     */
+    void unregister(NioConnection connection) {
+        if (connections.remove(connection)) {
+            Metrics.connectionClosed();
+            engine.connectionClosed();
+        }
+    }
+
+    /**
+     * Inicia o encerramento gracioso das conexões do laço.
+     */
+    void drain() {
+        execute(() -> {
+            draining = true;
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.drain();
+            }
+        });
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,579 @@
+package com.kheven.nio;
+
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.BodyDecoder;
+import com.kheven.http.HttpParseException;
+import com.kheven.http.HttpParser;
+import com.kheven.http.Response;
+import com.kheven.http.ResponseWriter;
+import com.kheven.model.Request;
+import com.kheven.model.RequestHead;
+import com.kheven.model.Route;
+import com.kheven.status.Metrics;
+import com.kheven.status.RequestTrace;
+import com.kheven.websocket.WebSocket;
+import com.kheven.websocket.WebSocketHandshake;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Estado de uma conexão HTTP/1.1 atendida pelo motor NIO. Só é acessada pela
+ * thread do seu {@link EventLoop}.
+ * <p>
+ * Um corpo que já chegou por inteiro junto com o cabeçalho é entregue ao
+ * handler em memória. Corpos maiores são transmitidos ao handler por um
+ * {@link BodyPipe} enquanto chegam, e o handler roda no executor. Da mesma
+ * forma, o corpo de uma resposta de streaming é produzido no executor e chega
+ * ao laço por um {@link ResponsePipe}.
+ * <p>
+ * Depois de um handshake WebSocket, os bytes recebidos seguem por um
+ * {@link BodyPipe} para a thread de leitura do {@link WebSocket}, no executor, e
+ * os quadros enviados por qualquer thread entram na fila de envio pelo laço.
+ * <p>
+ * No encerramento do servidor, {@link #drain()} fecha a conexão ociosa e faz a
+ * requisição em atendimento responder com "Connection: close".
+ */
+final class NioConnection {
+    // Quadros WebSocket pendentes acima disso indicam um cliente que não lê: a conexão é fechada
+    private static final long MAX_WEBSOCKET_QUEUED_BYTES = 4 * 1024 * 1024;
+
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final RequestDispatcher dispatcher;
+    private final ExecutorService executor;
+    private final int maxRequests;
+    private final long maxBodySize;
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private final HttpParser parser = new HttpParser();
+    private final RequestTrace trace;
+
+    // Bytes recebidos e ainda não consumidos (corpo ou próxima requisição)
+    private ByteBuffer pending;
+    // Corpo da requisição atual que ainda está chegando; null quando não há
+    private BodyDecoder bodyDecoder;
+    private BodyPipe bodyPipe;
+    // Corpo da resposta de streaming em envio; null quando não há
+    private ResponsePipe stream;
+    // Socket aberto pelo handshake WebSocket e a entrada da sua thread de leitura; null quando não há
+    private WebSocket webSocket;
+    private BodyPipe webSocketInput;
+    private boolean readPaused;
+    private boolean processing;
+    private boolean responseQueued;
+    private boolean closeAfterWrite;
+    private boolean broken;
+    private boolean draining;
+    private int served;
+    private long lastActivity = System.currentTimeMillis();
+    // Requisição em atendimento e o status da sua resposta, para o rastreamento das fases
+    private Request current;
+    private int currentStatus;
+
+    NioConnection(EventLoop loop, SocketChannel channel, SelectionKey key, RequestDispatcher dispatcher,
+                  ExecutorService executor, int maxRequests, long maxBodySize, boolean tracing) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+        this.maxRequests = maxRequests;
+        this.maxBodySize = maxBodySize;
+        this.trace = new RequestTrace(tracing);
+    }
+
+    /**
+     * Lê os bytes disponíveis no canal e processa as requisições completas.
+     *
+     * @param readBuffer o buffer de leitura compartilhado do laço.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    void onReadable(ByteBuffer readBuffer) throws IOException {
+        readBuffer.clear();
+        int read = channel.read(readBuffer);
+        Metrics.bytesReceived(read);
+        if (read == -1) {
+            close();
+            return;
+        }
+        if (read == 0) {
+            return;
+        }
+        lastActivity = System.currentTimeMillis();
+        readBuffer.flip();
+
+        if (pending == null) {
+            boolean dispatched = processInput(readBuffer);
+            // Guarda o que sobrou no buffer compartilhado (corpo ou requisição seguinte)
+            if (readBuffer.hasRemaining() && channel.isOpen()) {
+                pending = ByteBuffer.allocate(readBuffer.remaining()).put(readBuffer).flip();
+                if (dispatched && !processing) {
+                    loop.execute(this::processPending);
+                }
+            }
+        } else {
+            ByteBuffer merged = ByteBuffer.allocate(pending.remaining() + readBuffer.remaining());
+            pending = merged.put(pending).put(readBuffer).flip();
+            processPending();
+        }
+    }
+
+    /**
+     * Continua a escrita da resposta quando o canal volta a aceitar dados.
+     *
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    void onWritable() throws IOException {
+        flush();
+    }
+
+    private void processPending() {
+        if (pending == null) {
+            return;
+        }
+        processInput(pending);
+        if (pending != null && !pending.hasRemaining()) {
+            pending = null;
+        }
+    }
+
+    /**
+     * Entrega ao corpo em andamento os bytes recebidos e, quando não há
+     * requisição em processamento, tenta extrair a próxima. Enquanto uma
+     * requisição está em processamento, só os bytes do seu corpo são lidos.
+     *
+     * @return true se uma requisição foi despachada.
+     */
+    private boolean processInput(ByteBuffer input) {
+        if (!channel.isOpen()) {
+            return false;
+        }
+        if (webSocketInput != null) {
+            readPaused = !webSocketInput.write(input);
+            updateInterest();
+            return false;
+        }
+        boolean inBody = bodyDecoder != null;
+        try {
+            if (inBody) {
+                feedBody(input);
+                if (bodyDecoder != null) {
+                    return false;
+                }
+            }
+            if (processing) {
+                return false;
+            }
+            if (input.hasRemaining()) {
+                trace.begin();
+            }
+            // O analisador guarda os bytes do cabeçalho parcial entre leituras
+            RequestHead head = parser.parse(input);
+            if (head == null) {
+                return false;
+            }
+            trace.mark(RequestTrace.Phase.PARSE);
+            BodyDecoder decoder = BodyDecoder.forRequest(head, maxBodySize);
+            if (decoder.isFinished()) {
+                dispatch(new Request(head, InputStream.nullInputStream()), false);
+            } else if (head.getHeader("Transfer-Encoding") == null && head.getContentLength() <= input.remaining()) {
+                // O corpo inteiro já está no buffer
+                byte[] body = new byte[(int) head.getContentLength()];
+                input.get(body);
+                dispatch(new Request(head, new ByteArrayInputStream(body)), false);
+            } else {
+                // O corpo é transmitido ao handler enquanto chega
+                bodyDecoder = decoder;
+                bodyPipe = new BodyPipe(() -> loop.execute(this::resumeBody));
+                if ("100-continue".equalsIgnoreCase(head.getHeader("Expect"))) {
+                    outbound.add(ByteBuffer.wrap(ResponseWriter.continueBytes()));
+                }
+                dispatch(new Request(head, bodyPipe), true);
+                feedBody(input);
+            }
+            return true;
+        } catch (HttpParseException e) {
+            if (inBody || bodyDecoder != null) {
+                // Corpo inválido ou grande demais: o handler recebe o erro ao ler
+                failBody(e);
+                return false;
+            }
+            // Requisição inválida: responde com o erro e encerra a conexão
+            Response response = new Response();
+            response.setStatusCode(e.getStatusCode());
+            response.setBody(e.getMessage());
+            processing = true;
+            send(response, false);
+            return true;
+        }
+    }
+
+    /**
+     * Decodifica os bytes do corpo em andamento e os repassa ao handler.
+     */
+    private void feedBody(ByteBuffer input) throws HttpParseException {
+        ByteBuffer data;
+        while (!readPaused && (data = bodyDecoder.decode(input)) != null) {
+            readPaused = !bodyPipe.write(data);
+        }
+        if (bodyDecoder.isFinished()) {
+            bodyPipe.finish();
+            bodyDecoder = null;
+            bodyPipe = null;
+        }
+        updateInterest();
+    }
+
+    /**
+     * Volta a ler o corpo depois que o handler consumiu parte da fila.
+     */
+    private void resumeBody() {
+        if (!readPaused) {
+            return;
+        }
+        readPaused = false;
+        processPending();
+        updateInterest();
+    }
+
+    private void failBody(HttpParseException error) {
+        if (bodyPipe != null) {
+            bodyPipe.fail(error);
+        }
+        bodyDecoder = null;
+        bodyPipe = null;
+        broken = true;
+        if (!processing) {
+            close();
+        } else {
+            updateInterest();
+        }
+    }
+
+    private void dispatch(Request request, boolean streaming) {
+        served++;
+        request.setRemoteAddress(channel.socket().getInetAddress());
+        boolean keepAlive = request.isKeepAlive() && served < maxRequests;
+        processing = true;
+
+        Route route = dispatcher.findRoute(request);
+        trace.mark(RequestTrace.Phase.ROUTE);
+        current = request;
+        if (route != null && route.isWebSocket() && WebSocketHandshake.isUpgrade(request)) {
+            upgrade(request, route);
+            return;
+        }
+        if (!streaming && route != null && (route.isAsync() || !route.isBlocking())) {
+            // O handler assíncrono só monta o estágio, e a rota que não bloqueia executa direto
+            // no laço. Nenhuma thread espera a resposta (nem a de outra requisição pela mesma
+            // entrada do cache): se não estiver pronta, ela volta ao laço quando o estágio termina
+            CompletableFuture<Response> result = dispatcher.dispatchAsync(request, route).toCompletableFuture();
+            if (result.isDone()) {
+                trace.mark(RequestTrace.Phase.HANDLE);
+                send(result.join(), keepAlive);
+                return;
+            }
+            result.thenAccept(response -> loop.execute(() -> {
+                trace.mark(RequestTrace.Phase.HANDLE);
+                send(response, keepAlive);
+            }));
+            updateInterest();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                trace.mark(RequestTrace.Phase.QUEUE);
+                Response response = dispatcher.dispatch(request, route);
+                trace.mark(RequestTrace.Phase.HANDLE);
+                loop.execute(() -> send(response, keepAlive));
+            });
+        } catch (RejectedExecutionException e) {
+            close();
+            return;
+        }
+        updateInterest();
+    }
+
+    /**
+     * Aceita o handshake WebSocket: a partir daqui a conexão não volta ao HTTP.
+     */
+    private void upgrade(Request request, Route route) {
+        request.setRoute(route);
+        BodyPipe frames = new BodyPipe(() -> loop.execute(this::resumeBody));
+        WebSocket socket = new WebSocket(request, route.getWebSocketHandler(), new WebSocket.Transport() {
+            @Override
+            public void send(ByteBuffer frame) throws IOException {
+                if (!channel.isOpen()) {
+                    throw new ClosedChannelException();
+                }
+                loop.execute(() -> sendFrame(frame));
+            }
+
+            @Override
+            public void close() {
+                loop.execute(() -> {
+                    closeAfterWrite = true;
+                    onStreamData();
+                });
+            }
+        });
+        webSocket = socket;
+        webSocketInput = frames;
+        outbound.add(ByteBuffer.wrap(WebSocketHandshake.accept(request)));
+        try {
+            executor.execute(() -> socket.serve(frames));
+        } catch (RejectedExecutionException e) {
+            close();
+            return;
+        }
+        // Quadros que chegaram junto com o handshake
+        loop.execute(this::processPending);
+        onStreamData();
+    }
+
+    private void sendFrame(ByteBuffer frame) {
+        if (!channel.isOpen() || closeAfterWrite) {
+            return;
+        }
+        long queued = frame.remaining();
+        for (ByteBuffer buffer : outbound) {
+            queued += buffer.remaining();
+        }
+        if (queued > MAX_WEBSOCKET_QUEUED_BYTES) {
+            close();
+            return;
+        }
+        outbound.add(frame);
+        onStreamData();
+    }
+
+    private void send(Response response, boolean keepAlive) {
+        if (!channel.isOpen()) {
+            return;
+        }
+        if (bodyDecoder != null || broken) {
+            // O handler respondeu sem ler o corpo inteiro: a conexão não pode ser reaproveitada
+            keepAlive = false;
+            if (bodyPipe != null) {
+                bodyPipe.close();
+            }
+            bodyDecoder = null;
+            bodyPipe = null;
+        }
+        if (draining) {
+            // O servidor está parando: o cliente envia as próximas requisições por outra conexão
+            keepAlive = false;
+        }
+        currentStatus = response.getStatusCode();
+        ByteBuffer head = loop.encodeHead(response, keepAlive);
+        // A resposta a um HEAD vai sem o corpo, para não desalinhar a próxima resposta
+        boolean headOnly = current != null && current.getMethod().equals("HEAD");
+        ByteBuffer[] buffers = ResponseWriter.buffersOf(head, response, headOnly);
+        responseQueued = true;
+        closeAfterWrite = !keepAlive;
+        try {
+            if (outbound.isEmpty()) {
+                // Tenta enviar cabeçalho e corpo em uma única escrita com gathering
+                Metrics.bytesSent(channel.write(buffers));
+            }
+            if (head.hasRemaining()) {
+                // O buffer de cabeçalhos do laço é reutilizado: copia o que não foi enviado
+                outbound.add(ByteBuffer.allocate(head.remaining()).put(head).flip());
+            }
+            for (int i = 1; i < buffers.length; i++) {
+                if (buffers[i].hasRemaining()) {
+                    outbound.add(buffers[i]);
+                }
+            }
+            if (ResponseWriter.hasStreamingBody(response, headOnly)) {
+                startStream(response);
+            }
+            flush();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void flush() throws IOException {
+        while (true) {
+            if (!outbound.isEmpty()) {
+                Metrics.bytesSent(channel.write(outbound.toArray(new ByteBuffer[0])));
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                    outbound.poll();
+                }
+                if (!outbound.isEmpty()) {
+                    // O buffer do socket está cheio: aguarda OP_WRITE
+                    updateInterest();
+                    return;
+                }
+            }
+            if (stream == null) {
+                break;
+            }
+            // O socket esvaziou: busca o próximo trecho do corpo de streaming
+            if (!stream.drainTo(outbound)) {
+                if (!stream.isFinished()) {
+                    updateInterest();
+                    return;
+                }
+                stream = null;
+            }
+        }
+
+        if (webSocket != null) {
+            if (closeAfterWrite) {
+                close();
+                return;
+            }
+            updateInterest();
+            return;
+        }
+        if (responseQueued) {
+            responseQueued = false;
+            // A fase WRITE inclui a volta ao laço e as escritas parciais até o último byte
+            trace.mark(RequestTrace.Phase.WRITE);
+            if (current != null) {
+                trace.finish(current, currentStatus);
+                current = null;
+            }
+            lastActivity = System.currentTimeMillis();
+            processing = false;
+            if (closeAfterWrite || (draining && pending == null)) {
+                // Durante o encerramento, uma resposta enviada antes de drain() também é a última
+                close();
+                return;
+            }
+            if (pending != null) {
+                // Requisições já recebidas são processadas em uma nova tarefa para não aprofundar a pilha
+                loop.execute(this::processPending);
+            }
+        }
+        updateInterest();
+    }
+
+    /**
+     * Produz o corpo de uma resposta de streaming no executor: o produtor pode
+     * bloquear, e espera quando o cliente lê mais devagar.
+     */
+    private void startStream(Response response) {
+        ResponsePipe pipe = new ResponsePipe(() -> loop.execute(this::onStreamData));
+        stream = pipe;
+        try {
+            executor.execute(() -> {
+                try {
+                    ResponseWriter.writeStreamingBody(response, pipe);
+                    pipe.finish();
+                } catch (IOException e) {
+                    if (pipe.isOpen()) {
+                        System.err.println("Error streaming response: " + e.getMessage());
+                    }
+                    // Sem o último bloco, o cliente só percebe o fim do corpo com o fechamento
+                    loop.execute(this::close);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            close();
+        }
+    }
+
+    private void onStreamData() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Atualiza os eventos de interesse da conexão: escrita enquanto houver dados
+     * a enviar, e leitura quando se espera uma nova requisição ou o corpo da atual.
+     */
+    private void updateInterest() {
+        if (!key.isValid()) {
+            return;
+        }
+        int ops = outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+        boolean wantRead = webSocket != null || bodyDecoder != null ? !readPaused : !processing;
+        if (wantRead) {
+            ops |= SelectionKey.OP_READ;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * Verifica se a conexão está ociosa há mais tempo que o limite.
+     *
+     * @param now o instante atual, em milissegundos.
+     * @param idleTimeout o tempo limite de ociosidade, em milissegundos.
+     * @return true se a conexão deve ser fechada.
+     */
+    boolean isIdle(long now, long idleTimeout) {
+        if (webSocket != null) {
+            // Sem dados do cliente durante o intervalo: envia um ping, ou fecha se o anterior ficou sem resposta
+            if (now - lastActivity < webSocket.getPingInterval()) {
+                return false;
+            }
+            lastActivity = now;
+            return !webSocket.onIdle();
+        }
+        boolean waitingForClient = !processing || (bodyDecoder != null && !readPaused);
+        return waitingForClient && now - lastActivity > idleTimeout;
+    }
+
+    /**
+     * Inicia o encerramento gracioso da conexão. Se ela já atendeu alguma
+     * requisição e espera a próxima, é fechada logo; senão, a resposta da
+     * requisição atual (ou da primeira, em uma conexão recém-aceita) é a última.
+     * Um WebSocket recebe o fechamento 1001.
+     */
+    void drain() {
+        draining = true;
+        if (webSocket != null) {
+            try {
+                webSocket.close(1001, "Server shutting down");
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        boolean waitingForRequest = served > 0 && !processing && (pending == null || !pending.hasRemaining())
+                && !parser.hasPartialRequest();
+        if (waitingForRequest && outbound.isEmpty()) {
+            close();
+        }
+    }
+
+    void close() {
+        if (!channel.isOpen()) {
+            return;
+        }
+        if (bodyPipe != null) {
+            bodyPipe.fail(new IOException("Connection closed before the end of the request body"));
+        }
+        if (stream != null) {
+            stream.close();
+        }
+        if (webSocketInput != null) {
+            webSocketInput.fail(new IOException("Connection closed"));
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing client: " + e.getMessage());
+        }
+        loop.unregister(this);
+    }
+}
@@ -0,0 +1,220 @@
+package com.kheven.nio;
+
+import com.kheven.config.Config;
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.Router;
+import com.kheven.http.ServerChannels;
+
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A classe NioEngine é um motor de transporte não bloqueante baseado em
+ * {@link java.nio.channels.Selector}. Cada laço de eventos atende muitas
+ * conexões em uma única thread de plataforma, no estilo reactor; apenas as
+ * rotas que podem bloquear são enviadas ao executor. Assim, conexões ociosas
+ * não ocupam nenhuma thread.
+ * <p>
+ * Os primeiros laços também aceitam conexões, cada um no seu canal de escuta
+ * com SO_REUSEPORT ({@link ServerChannels}). Com afinidade, cada aceitador
+ * distribui as conexões só entre os laços da sua partição (o próprio laço e os
+ * de índice congruente a ele); sem afinidade, entre todos os laços.
+ * <p>
+ * {@link #shutdown(Duration)} para o motor sem perder requisições: fecha os
+ * canais de escuta, deixa as requisições em andamento terminarem e fecha as
+ * conexões que sobrarem quando o prazo acaba.
+ */
+public class NioEngine {
+    // Intervalo entre as verificações das conexões restantes durante o encerramento
+    private static final long DRAIN_POLL_INTERVAL = 10;
+
+    private final int port;
+    private final RequestDispatcher dispatcher;
+    private final ExecutorService executor;
+    private final EventLoop[] loops;
+    private final Thread[] threads;
+    private final int acceptorCount;
+    private final boolean affinity;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    // Conexões aceitas e ainda não fechadas, incluindo as que esperam o registro no laço
+    private final AtomicInteger connections = new AtomicInteger();
+    // Próximo laço de cada partição, usado com afinidade
+    private final int[] nextInPartition;
+    private ServerSocketChannel[] serverChannels;
+
+    /**
+     * Construtor da classe NioEngine.
+     *
+     * @param port a porta do servidor (0 para uma porta livre).
+     * @param router o roteador para encontrar as rotas.
+     * @param executor o executor das rotas que podem bloquear.
+     * @param loopCount o número de laços de eventos.
+     */
+    public NioEngine(int port, Router router, ExecutorService executor, int loopCount) {
+        this(port, router, executor, loopCount, 1, false);
+    }
+
+    /**
+     * Construtor da classe NioEngine.
+     *
+     * @param port a porta do servidor (0 para uma porta livre).
+     * @param router o roteador para encontrar as rotas.
+     * @param executor o executor das rotas que podem bloquear.
+     * @param loopCount o número de laços de eventos.
+     * @param acceptorCount o número de laços que aceitam conexões (no máximo, o número de laços).
+     * @param affinity se cada aceitador distribui as conexões só entre os laços da sua partição.
+     */
+    public NioEngine(int port, Router router, ExecutorService executor, int loopCount, int acceptorCount,
+                     boolean affinity) {
+        this.port = port;
+        this.dispatcher = new RequestDispatcher(router);
+        this.executor = executor;
+        this.loops = new EventLoop[Math.max(1, loopCount)];
+        this.threads = new Thread[loops.length];
+        this.acceptorCount = Math.max(1, Math.min(acceptorCount, loops.length));
+        this.affinity = affinity;
+        this.nextInPartition = new int[this.acceptorCount];
+    }
+
+    /**
+     * Abre o canal do servidor e inicia os laços de eventos.
+     *
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public void start() throws IOException {
+        serverChannels = ServerChannels.open(port, acceptorCount, Config.getBacklog());
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(this, dispatcher, executor);
+        }
+        for (int i = 0; i < serverChannels.length; i++) {
+            // Sem SO_REUSEPORT o canal é compartilhado: só o primeiro laço o registra
+            if (i == 0 || serverChannels[i] != serverChannels[0]) {
+                serverChannels[i].configureBlocking(false);
+                loops[i].registerAcceptor(serverChannels[i], i);
+            }
+        }
+
+        for (int i = 0; i < loops.length; i++) {
+            threads[i] = new Thread(loops[i], "nio-loop-" + i);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Obtém a porta em que o servidor está escutando.
+     *
+     * @return a porta local do servidor.
+     */
+    public int getPort() {
+        return serverChannels[0].socket().getLocalPort();
+    }
+
+    /**
+     * Aguarda o término de todos os laços de eventos.
+     *
+     * @throws InterruptedException se a thread for interrompida.
+     */
+    public void awaitTermination() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Obtém o número de conexões abertas.
+     *
+     * @return as conexões aceitas e ainda não fechadas.
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Para o motor com encerramento gracioso: os canais de escuta são fechados,
+     * as conexões ociosas também, e as requisições em andamento terminam e
+     * respondem com "Connection: close". Quando todas as conexões terminam, ou
+     * o prazo acaba, os laços são encerrados e as conexões restantes, fechadas.
+     *
+     * @param timeout o prazo para as conexões terminarem.
+     * @return true se todas as conexões terminaram dentro do prazo.
+     * @throws InterruptedException se a thread for interrompida durante a espera.
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        ServerChannels.close(serverChannels);
+        for (EventLoop loop : loops) {
+            loop.drain();
+        }
+        try {
+            while (connections.get() > 0) {
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                Thread.sleep(DRAIN_POLL_INTERVAL);
+            }
+            return true;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Fecha o canal do servidor e encerra os laços de eventos e suas conexões.
+     */
+    public void close() {
+        ServerChannels.close(serverChannels);
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    /**
+     * Aceita as conexões pendentes e as distribui entre os laços de eventos.
+     * Chamado pelo laço que registrou o canal do servidor.
+     *
+     * @param server o canal do servidor.
+     * @param acceptor o índice do aceitador, que é também o índice do seu laço.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    void accept(ServerSocketChannel server, int acceptor) throws IOException {
+        SocketChannel channel;
+        while ((channel = acceptChannel(server)) != null) {
+            connections.incrementAndGet();
+            nextLoop(acceptor).register(channel);
+        }
+    }
+
+    /**
+     * Aceita uma conexão pendente do canal de escuta.
+     *
+     * @param server o canal do servidor, em modo não bloqueante.
+     * @return o canal do cliente, ou null se não houver conexão pendente.
+     * @throws IOException se ocorrer um erro de I/O (e.g., sem descritores livres).
+     */
+    protected SocketChannel acceptChannel(ServerSocketChannel server) throws IOException {
+        return server.accept();
+    }
+
+    /**
+     * Registra o fechamento de uma conexão aceita.
+     */
+    void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    private EventLoop nextLoop(int acceptor) {
+        if (!affinity) {
+            return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        }
+        // A partição do aceitador são os laços acceptor, acceptor + n, acceptor + 2n...;
+        // só o laço do aceitador usa o contador da partição
+        int size = (loops.length - acceptor + acceptorCount - 1) / acceptorCount;
+        int next = nextInPartition[acceptor];
+        nextInPartition[acceptor] = (next + 1) % size;
+        return loops[acceptor + next * acceptorCount];
+    }
+}
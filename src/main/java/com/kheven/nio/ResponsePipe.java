@@ -0,0 +1,158 @@
+package com.kheven.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Canal entre a thread que produz o corpo de uma resposta de streaming e o
+ * laço de eventos, que o envia. É o caminho inverso do {@link BodyPipe}: a
+ * quantidade de bytes em trânsito é limitada, e o produtor espera quando o
+ * cliente lê mais devagar do que o corpo é produzido.
+ */
+final class ResponsePipe implements WritableByteChannel {
+    private static final int MAX_QUEUED_BYTES = 64 * 1024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writable = lock.newCondition();
+    private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+    private final Runnable onData;
+    private int queuedBytes;
+    private boolean scheduled;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Construtor da classe ResponsePipe.
+     *
+     * @param onData chamado quando há dados novos ou o fim do corpo, se o laço
+     *               ainda não foi avisado desde a última vez que esvaziou a fila.
+     */
+    ResponsePipe(Runnable onData) {
+        this.onData = onData;
+    }
+
+    /**
+     * Copia os bytes para a fila, esperando enquanto ela estiver cheia.
+     * Chamado pela thread do produtor.
+     *
+     * @param src os bytes a enviar.
+     * @return o número de bytes copiados.
+     * @throws IOException se a conexão foi encerrada.
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        ByteBuffer copy = ByteBuffer.allocate(length).put(src).flip();
+        boolean notify;
+        lock.lock();
+        try {
+            while (queuedBytes >= MAX_QUEUED_BYTES && !closed) {
+                writable.await();
+            }
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+            chunks.add(copy);
+            queuedBytes += length;
+            notify = !scheduled;
+            scheduled = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the response", e);
+        } finally {
+            lock.unlock();
+        }
+        if (notify) {
+            onData.run();
+        }
+        return length;
+    }
+
+    /**
+     * Sinaliza que o corpo terminou. Chamado pela thread do produtor.
+     */
+    void finish() {
+        boolean notify;
+        lock.lock();
+        try {
+            finished = true;
+            notify = !scheduled;
+            scheduled = true;
+        } finally {
+            lock.unlock();
+        }
+        if (notify) {
+            onData.run();
+        }
+    }
+
+    /**
+     * Move os dados da fila para a fila de envio da conexão e libera o
+     * produtor. Chamado pelo laço de eventos.
+     *
+     * @param outbound a fila de envio da conexão.
+     * @return true se algum dado foi movido.
+     */
+    boolean drainTo(Queue<ByteBuffer> outbound) {
+        lock.lock();
+        try {
+            scheduled = false;
+            if (chunks.isEmpty()) {
+                return false;
+            }
+            outbound.addAll(chunks);
+            chunks.clear();
+            queuedBytes = 0;
+            writable.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indica se o corpo terminou e a fila foi esvaziada.
+     *
+     * @return true se não há mais nada a enviar.
+     */
+    boolean isFinished() {
+        lock.lock();
+        try {
+            return finished && chunks.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Descarta os dados pendentes; o produtor recebe um erro na próxima escrita.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            chunks.clear();
+            queuedBytes = 0;
+            writable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kheven.status;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A classe LatencyHistogram registra latências em microssegundos em faixas
+ * log-lineares, no estilo do HdrHistogram: cada potência de dois é dividida em
+ * 16 faixas iguais, o que dá um erro relativo de no máximo ~6% nos percentis,
+ * com memória fixa. Os contadores são {@link LongAdder}s, sem disputa entre as
+ * threads que registram.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^40 µs ≈ 12 dias; valores maiores caem na última faixa
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Construtor da classe LatencyHistogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra uma latência.
+     *
+     * @param nanos a latência em nanossegundos.
+     */
+    public void record(long nanos) {
+        buckets[indexOf(Math.max(0, nanos) / 1000)].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Obtém o número de latências registradas.
+     *
+     * @return o número de registros.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Obtém a soma das latências registradas.
+     *
+     * @return a soma em nanossegundos.
+     */
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Calcula um percentil das latências registradas.
+     *
+     * @param quantile o quantil desejado, entre 0 e 1 (e.g., 0.99).
+     * @return a latência do percentil em microssegundos, ou 0 se não houver registros.
+     */
+    public long percentile(double quantile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return midpointOf(i);
+            }
+        }
+        return midpointOf(counts.length - 1);
+    }
+
+    /**
+     * Obtém a faixa de um valor em microssegundos.
+     */
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Obtém o valor central de uma faixa, em microssegundos.
+     */
+    static long midpointOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >>> 1);
+    }
+}
@@ -0,0 +1,441 @@
+package com.kheven.status;
+
+import com.kheven.model.Route;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A classe Metrics é o registro de métricas do servidor: requisições por rota,
+ * respostas por código de status, bytes recebidos e enviados, conexões e
+ * histogramas de latência, inclusive por fase da requisição ({@link RequestTrace}). Todos os contadores são {@link LongAdder}s, que
+ * distribuem as atualizações entre células e não disputam a mesma linha de
+ * cache entre conexões.
+ * <p>
+ * As métricas são expostas no formato texto do Prometheus ({@link #toPrometheus()},
+ * servido em /metrics) e como MBean em {@code com.kheven:type=Metrics}.
+ */
+public final class Metrics {
+    private static final String MBEAN_NAME = "com.kheven:type=Metrics";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final LongAdder requests = new LongAdder();
+    private static final LongAdder[] statusCodes = new LongAdder[600];
+    private static final LongAdder bytesReceived = new LongAdder();
+    private static final LongAdder bytesSent = new LongAdder();
+    private static final LongAdder activeConnections = new LongAdder();
+    private static final LongAdder totalConnections = new LongAdder();
+    private static final LongAdder cacheHits = new LongAdder();
+    private static final LongAdder cacheMisses = new LongAdder();
+    private static final LongAdder cacheCoalesced = new LongAdder();
+    private static final LatencyHistogram latency = new LatencyHistogram();
+    private static final LatencyHistogram[] phases = new LatencyHistogram[RequestTrace.Phase.values().length];
+    // Por chave da rota (método e caminho), para não reter as rotas substituídas
+    private static final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private static final RouteMetrics staticFiles = new RouteMetrics("GET", "<static>");
+    private static final RouteMetrics unmatched = new RouteMetrics("", "<unmatched>");
+
+    static {
+        for (int i = 0; i < statusCodes.length; i++) {
+            statusCodes[i] = new LongAdder();
+        }
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new LatencyHistogram();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Registra uma requisição atendida.
+     *
+     * @param route a rota que atendeu a requisição, ou null se não houver.
+     * @param staticFile se a requisição foi atendida pelos arquivos estáticos.
+     * @param statusCode o código de status da resposta.
+     * @param nanos o tempo de processamento em nanossegundos.
+     */
+    public static void requestCompleted(Route route, boolean staticFile, int statusCode, long nanos) {
+        requests.increment();
+        if (statusCode >= 100 && statusCode < statusCodes.length) {
+            statusCodes[statusCode].increment();
+        }
+        latency.record(nanos);
+        RouteMetrics metrics = route != null ? routeMetrics(route) : staticFile ? staticFiles : unmatched;
+        metrics.requests.increment();
+        metrics.latency.record(nanos);
+    }
+
+    /**
+     * Registra a duração de uma fase de uma requisição.
+     *
+     * @param phase a fase.
+     * @param nanos a duração em nanossegundos.
+     */
+    public static void phaseCompleted(RequestTrace.Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Registra bytes lidos dos sockets.
+     *
+     * @param bytes o número de bytes lidos.
+     */
+    public static void bytesReceived(long bytes) {
+        if (bytes > 0) {
+            bytesReceived.add(bytes);
+        }
+    }
+
+    /**
+     * Registra bytes escritos nos sockets.
+     *
+     * @param bytes o número de bytes escritos.
+     */
+    public static void bytesSent(long bytes) {
+        if (bytes > 0) {
+            bytesSent.add(bytes);
+        }
+    }
+
+    /**
+     * Registra a abertura de uma conexão.
+     */
+    public static void connectionOpened() {
+        activeConnections.increment();
+        totalConnections.increment();
+    }
+
+    /**
+     * Registra o fechamento de uma conexão.
+     */
+    public static void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    /**
+     * Registra uma resposta entregue pelo cache de respostas.
+     */
+    public static void responseCacheHit() {
+        cacheHits.increment();
+    }
+
+    /**
+     * Registra uma requisição que executou o handler para carregar o cache de respostas.
+     */
+    public static void responseCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Registra uma requisição que esperou a carga de outra pela mesma resposta.
+     */
+    public static void responseCacheCoalesced() {
+        cacheCoalesced.increment();
+    }
+
+    /**
+     * Obtém o número de requisições atendidas.
+     *
+     * @return o número de requisições atendidas.
+     */
+    public static long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Obtém o número de respostas enviadas com um código de status.
+     *
+     * @param statusCode o código de status.
+     * @return o número de respostas.
+     */
+    public static long getStatusCount(int statusCode) {
+        return statusCode >= 0 && statusCode < statusCodes.length ? statusCodes[statusCode].sum() : 0;
+    }
+
+    /**
+     * Obtém o número de bytes lidos dos sockets.
+     *
+     * @return o número de bytes lidos.
+     */
+    public static long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Obtém o número de bytes escritos nos sockets.
+     *
+     * @return o número de bytes escritos.
+     */
+    public static long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * Obtém o número de conexões abertas.
+     *
+     * @return o número de conexões abertas.
+     */
+    public static long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    /**
+     * Obtém o número de conexões aceitas desde o início.
+     *
+     * @return o número de conexões aceitas.
+     */
+    public static long getTotalConnections() {
+        return totalConnections.sum();
+    }
+
+    /**
+     * Obtém o número de respostas entregues pelo cache de respostas.
+     *
+     * @return o número de acertos do cache.
+     */
+    public static long getResponseCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Obtém o número de requisições que executaram o handler para carregar o cache de respostas.
+     *
+     * @return o número de faltas do cache.
+     */
+    public static long getResponseCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Obtém o número de requisições que esperaram a carga de outra pela mesma resposta.
+     *
+     * @return o número de requisições agrupadas.
+     */
+    public static long getResponseCacheCoalesced() {
+        return cacheCoalesced.sum();
+    }
+
+    /**
+     * Obtém o histograma de latência de todas as requisições.
+     *
+     * @return o histograma de latência.
+     */
+    public static LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Obtém o histograma de latência de uma fase das requisições.
+     *
+     * @param phase a fase.
+     * @return o histograma da fase.
+     */
+    public static LatencyHistogram getPhaseLatency(RequestTrace.Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    private static RouteMetrics routeMetrics(Route route) {
+        RouteMetrics metrics = routes.get(route.getKey());
+        if (metrics == null) {
+            metrics = routes.computeIfAbsent(route.getKey(), key -> new RouteMetrics(route.getMethod(), route.getPath()));
+        }
+        return metrics;
+    }
+
+    /**
+     * Obtém o número de requisições atendidas por uma rota.
+     *
+     * @param method o método HTTP da rota.
+     * @param path o caminho da rota, como registrado (e.g., /api/users/{id}).
+     * @return o número de requisições, ou 0 se a rota ainda não atendeu nenhuma.
+     */
+    public static long getRouteRequestCount(String method, String path) {
+        RouteMetrics metrics = routes.get(method + " " + path);
+        return metrics != null ? metrics.requests.sum() : 0;
+    }
+
+    /**
+     * Gera as métricas no formato texto do Prometheus (versão 0.0.4).
+     *
+     * @return o texto com as métricas.
+     */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        header(out, "http_requests_total", "counter", "Requests served, by route.");
+        Map<String, RouteMetrics> sorted = sortedRoutes();
+        for (RouteMetrics metrics : sorted.values()) {
+            out.append("http_requests_total{").append(metrics.labels).append("} ")
+                    .append(metrics.requests.sum()).append('\n');
+        }
+
+        header(out, "http_responses_total", "counter", "Responses sent, by status code.");
+        for (int code = 100; code < statusCodes.length; code++) {
+            long count = statusCodes[code].sum();
+            if (count > 0) {
+                out.append("http_responses_total{code=\"").append(code).append("\"} ").append(count).append('\n');
+            }
+        }
+
+        header(out, "http_request_duration_seconds", "summary", "Request processing time, by route.");
+        for (RouteMetrics metrics : sorted.values()) {
+            summary(out, "http_request_duration_seconds", metrics.labels, metrics.latency);
+        }
+        summary(out, "http_request_duration_seconds", "route=\"<all>\"", latency);
+
+        header(out, "http_request_phase_seconds", "summary", "Time spent in each request phase.");
+        for (RequestTrace.Phase phase : RequestTrace.Phase.values()) {
+            LatencyHistogram histogram = phases[phase.ordinal()];
+            if (histogram.getCount() > 0) {
+                summary(out, "http_request_phase_seconds", "phase=\"" + phase.label() + "\"", histogram);
+            }
+        }
+
+        header(out, "http_response_cache_requests_total", "counter", "Response cache lookups, by result.");
+        out.append("http_response_cache_requests_total{result=\"hit\"} ").append(cacheHits.sum()).append('\n');
+        out.append("http_response_cache_requests_total{result=\"miss\"} ").append(cacheMisses.sum()).append('\n');
+        out.append("http_response_cache_requests_total{result=\"coalesced\"} ").append(cacheCoalesced.sum())
+                .append('\n');
+
+        header(out, "http_received_bytes_total", "counter", "Bytes read from client sockets.");
+        out.append("http_received_bytes_total ").append(bytesReceived.sum()).append('\n');
+        header(out, "http_sent_bytes_total", "counter", "Bytes written to client sockets.");
+        out.append("http_sent_bytes_total ").append(bytesSent.sum()).append('\n');
+        header(out, "http_connections_active", "gauge", "Open client connections.");
+        out.append("http_connections_active ").append(activeConnections.sum()).append('\n');
+        header(out, "http_connections_total", "counter", "Accepted client connections.");
+        out.append("http_connections_total ").append(totalConnections.sum()).append('\n');
+        return out.toString();
+    }
+
+    private static Map<String, RouteMetrics> sortedRoutes() {
+        Map<String, RouteMetrics> sorted = new TreeMap<>();
+        for (RouteMetrics metrics : routes.values()) {
+            sorted.put(metrics.labels, metrics);
+        }
+        for (RouteMetrics metrics : new RouteMetrics[]{staticFiles, unmatched}) {
+            if (metrics.requests.sum() > 0) {
+                sorted.put(metrics.labels, metrics);
+            }
+        }
+        return sorted;
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(labels).append(",quantile=\"").append(quantile)
+                    .append("\"} ").append(histogram.percentile(quantile) / 1e6).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(histogram.getSumNanos() / 1e9).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ")
+                .append(histogram.getCount()).append('\n');
+    }
+
+    /**
+     * Registra o MBean das métricas no servidor de plataforma. Chamadas repetidas
+     * não têm efeito.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBeanImpl(), new ObjectName(MBEAN_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Já registrado por outra instância do servidor
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Contadores de uma rota.
+     */
+    private static final class RouteMetrics {
+        private final String method;
+        private final String path;
+        private final String labels;
+        private final LongAdder requests = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private RouteMetrics(String method, String path) {
+            this.method = method;
+            this.path = path;
+            this.labels = "method=\"" + escape(method) + "\",route=\"" + escape(path) + "\"";
+        }
+
+        private static String escape(String value) {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+
+    /**
+     * Implementação do MBean, lendo os contadores do registro.
+     */
+    private static final class MetricsMBeanImpl implements MetricsMXBean {
+        @Override
+        public long getRequestCount() {
+            return Metrics.getRequestCount();
+        }
+
+        @Override
+        public long getBytesReceived() {
+            return Metrics.getBytesReceived();
+        }
+
+        @Override
+        public long getBytesSent() {
+            return Metrics.getBytesSent();
+        }
+
+        @Override
+        public long getActiveConnections() {
+            return Metrics.getActiveConnections();
+        }
+
+        @Override
+        public long getTotalConnections() {
+            return Metrics.getTotalConnections();
+        }
+
+        @Override
+        public double getLatencyP50Millis() {
+            return latency.percentile(0.5) / 1000.0;
+        }
+
+        @Override
+        public double getLatencyP99Millis() {
+            return latency.percentile(0.99) / 1000.0;
+        }
+
+        @Override
+        public Map<String, Long> getResponsesByStatus() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (int code = 100; code < statusCodes.length; code++) {
+                long count = statusCodes[code].sum();
+                if (count > 0) {
+                    counts.put(String.valueOf(code), count);
+                }
+            }
+            return counts;
+        }
+
+        @Override
+        public Map<String, Long> getRequestsByRoute() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (RouteMetrics metrics : sortedRoutes().values()) {
+                counts.put(metrics.method + " " + metrics.path, metrics.requests.sum());
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.kheven.status;
+
+import java.util.Map;
+
+/**
+ * Interface de gerenciamento (JMX) das métricas do servidor, registrada em
+ * {@code com.kheven:type=Metrics}.
+ */
+public interface MetricsMXBean {
+    long getRequestCount();
+
+    long getBytesReceived();
+
+    long getBytesSent();
+
+    long getActiveConnections();
+
+    long getTotalConnections();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP99Millis();
+
+    Map<String, Long> getResponsesByStatus();
+
+    Map<String, Long> getRequestsByRoute();
+}
@@ -0,0 +1,50 @@
+package com.kheven.status;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR emitido ao final de cada requisição, com o tempo de cada fase.
+ * Só é gravado quando há uma gravação ativa com o evento habilitado, e.g.:
+ * {@code java -XX:StartFlightRecording:filename=server.jfr -jar ...}
+ */
+@Name("com.kheven.Request")
+@Label("HTTP Request")
+@Category({"Kheven", "HTTP"})
+@Description("Request served, with the time spent in each phase")
+@StackTrace(false)
+class RequestEvent extends Event {
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Queue")
+    @Timespan(Timespan.NANOSECONDS)
+    long queue;
+
+    @Label("Parse")
+    @Timespan(Timespan.NANOSECONDS)
+    long parse;
+
+    @Label("Route")
+    @Timespan(Timespan.NANOSECONDS)
+    long route;
+
+    @Label("Handle")
+    @Timespan(Timespan.NANOSECONDS)
+    long handle;
+
+    @Label("Write")
+    @Timespan(Timespan.NANOSECONDS)
+    long write;
+}
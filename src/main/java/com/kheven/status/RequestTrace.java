@@ -0,0 +1,143 @@
+package com.kheven.status;
+
+import com.kheven.model.Request;
+
+/**
+ * A classe RequestTrace mede o tempo de cada fase de uma requisição com
+ * {@link System#nanoTime()}: espera no executor, análise do cabeçalho, busca da
+ * rota, execução do handler e escrita da resposta. Ao final, as durações vão
+ * para os histogramas por fase de {@link Metrics} e, se houver uma gravação
+ * JFR ativa, para um {@link RequestEvent}.
+ * <p>
+ * Cada conexão tem a sua instância, reaproveitada entre as requisições. As
+ * fases de uma conexão são sequenciais, então a classe não é thread-safe.
+ */
+public final class RequestTrace {
+    /**
+     * As fases de uma requisição.
+     */
+    public enum Phase {
+        /** Espera no executor até a requisição começar a ser atendida. */
+        QUEUE,
+        /** Análise do cabeçalho, desde a chegada dos primeiros bytes. */
+        PARSE,
+        /** Busca da rota. */
+        ROUTE,
+        /** Execução do handler (ou dos arquivos estáticos). */
+        HANDLE,
+        /** Escrita da resposta no socket. */
+        WRITE;
+
+        private final String label = name().toLowerCase();
+
+        /**
+         * Obtém o nome da fase usado nas métricas.
+         *
+         * @return o nome da fase em minúsculas.
+         */
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final boolean enabled;
+    private final long[] durations = new long[PHASES.length];
+    // Fases medidas na requisição atual, uma por bit
+    private int measured;
+    private long mark;
+    private boolean started;
+
+    /**
+     * Construtor da classe RequestTrace.
+     *
+     * @param enabled se as fases devem ser medidas; desabilitado, todos os métodos retornam sem efeito.
+     */
+    public RequestTrace(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Começa a medir uma requisição. Chamadas seguintes, até {@link #finish},
+     * não têm efeito.
+     */
+    public void begin() {
+        if (!enabled || started) {
+            return;
+        }
+        started = true;
+        measured = 0;
+        mark = System.nanoTime();
+    }
+
+    /**
+     * Encerra uma fase: o tempo desde a marca anterior é atribuído a ela.
+     *
+     * @param phase a fase encerrada.
+     */
+    public void mark(Phase phase) {
+        if (!enabled || !started) {
+            return;
+        }
+        long now = System.nanoTime();
+        add(phase, now - mark);
+        mark = now;
+    }
+
+    /**
+     * Atribui a uma fase um tempo medido fora da marca corrente (e.g., a espera
+     * entre o accept e o início do atendimento).
+     *
+     * @param phase a fase.
+     * @param nanos a duração em nanossegundos.
+     */
+    public void add(Phase phase, long nanos) {
+        if (!enabled || !started) {
+            return;
+        }
+        int bit = 1 << phase.ordinal();
+        durations[phase.ordinal()] = (measured & bit) != 0 ? durations[phase.ordinal()] + nanos : nanos;
+        measured |= bit;
+    }
+
+    /**
+     * Obtém a duração de uma fase da requisição atual.
+     *
+     * @param phase a fase.
+     * @return a duração em nanossegundos, ou 0 se a fase não foi medida.
+     */
+    public long getDuration(Phase phase) {
+        return (measured & (1 << phase.ordinal())) != 0 ? durations[phase.ordinal()] : 0;
+    }
+
+    /**
+     * Encerra a medição da requisição e registra as fases medidas.
+     *
+     * @param request a requisição atendida.
+     * @param statusCode o código de status da resposta.
+     */
+    public void finish(Request request, int statusCode) {
+        if (!enabled || !started) {
+            return;
+        }
+        started = false;
+        for (Phase phase : PHASES) {
+            if ((measured & (1 << phase.ordinal())) != 0) {
+                Metrics.phaseCompleted(phase, durations[phase.ordinal()]);
+            }
+        }
+        RequestEvent event = new RequestEvent();
+        if (event.shouldCommit()) {
+            event.method = request.getMethod();
+            event.path = request.getPath();
+            event.status = statusCode;
+            event.queue = getDuration(Phase.QUEUE);
+            event.parse = getDuration(Phase.PARSE);
+            event.route = getDuration(Phase.ROUTE);
+            event.handle = getDuration(Phase.HANDLE);
+            event.write = getDuration(Phase.WRITE);
+            event.commit();
+        }
+    }
+}
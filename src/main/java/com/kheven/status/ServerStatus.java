@@ -2,49 +2,70 @@ package com.kheven.status;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
-import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * A classe ServerStatus monta o relatório de status exibido no console. Os
+ * contadores de conexões e requisições vêm do registro {@link Metrics}; os de
+ * admissão ({@link com.kheven.handler.AdmissionControl}) e de limite por
+ * cliente ({@link com.kheven.handler.RateLimiter}) ficam aqui.
+ */
 public class ServerStatus {
-    private static final AtomicInteger connectedClients = new AtomicInteger(0);
-
-    private static final AtomicInteger requestsReceived = new AtomicInteger(0);
-
-    private static final AtomicInteger createdThreads = new AtomicInteger(0);
-    private static final AtomicInteger currentThreads = new AtomicInteger(0);
+    private static final LongAdder createdThreads = new LongAdder();
+    private static final LongAdder currentThreads = new LongAdder();
+    private static final LongAdder admittedRequests = new LongAdder();
+    private static final LongAdder rejectedRequests = new LongAdder();
+    private static final LongAdder rateLimitedRequests = new LongAdder();
     private static final Runtime runtime = Runtime.getRuntime();
     private static final OperatingSystemMXBean osMBean = ManagementFactory.getOperatingSystemMXBean();
 
 
-    public static void clientConnected() {
-        connectedClients.incrementAndGet();
+    public static void threadCreated() {
+        currentThreads.increment();
+        createdThreads.increment();
     }
 
-    public static void requestReceived() {
-        requestsReceived.incrementAndGet();
+    public static void threadDestroyed() {
+        currentThreads.decrement();
     }
 
-    public static void threadCreated() {
-        currentThreads.incrementAndGet();
-        createdThreads.incrementAndGet();
+    public static void requestAdmitted() {
+        admittedRequests.increment();
     }
 
-    public static void threadDestroyed() {
-        currentThreads.decrementAndGet();
+    public static void requestRejected() {
+        rejectedRequests.increment();
+    }
+
+    public static void requestRateLimited() {
+        rateLimitedRequests.increment();
+    }
+
+    public static long getAdmittedRequests() {
+        return admittedRequests.sum();
+    }
+
+    public static long getRejectedRequests() {
+        return rejectedRequests.sum();
     }
 
-    public static void clientDisconnected() {
-        connectedClients.decrementAndGet();
+    public static long getRateLimitedRequests() {
+        return rateLimitedRequests.sum();
     }
 
     public static String getStatusReport() {
+        LatencyHistogram latency = Metrics.getLatency();
         String report = "\n=== Status do Servidor ===\n" +
-                "Clientes Conectados: " + connectedClients.get() + "\n" +
-                "Requisições Recebidas: " + (requestsReceived.get() != 0 ? requestsReceived.get() / 2 : 0) + "\n" +
+                "Clientes Conectados: " + Metrics.getActiveConnections() + "\n" +
+                "Requisições Recebidas: " + Metrics.getRequestCount() + "\n" +
+                "Requisições Admitidas / Recusadas: " + admittedRequests.sum() + " / " + rejectedRequests.sum() + "\n" +
+                "Requisições Limitadas por Cliente: " + rateLimitedRequests.sum() + "\n" +
+                "Latência (p50 / p99): " + latency.percentile(0.5) + " µs / " + latency.percentile(0.99) + " µs\n" +
+                "Bytes Recebidos / Enviados: " + Metrics.getBytesReceived() + " / " + Metrics.getBytesSent() + "\n" +
                 "Threads Ativas (PLATAFORMA): " + Thread.activeCount() + "\n" +
                 // Ainda não é possivel obter o número de threads (V) em execução no Java, então usamos um contador
-                "Threads Atuais: " + currentThreads.get() + "\n" +
-                "Threads Criadas: " + (createdThreads.get() != 0 ? createdThreads.get() / 2 : 0) + "\n" +
+                "Threads Atuais: " + currentThreads.sum() + "\n" +
+                "Threads Criadas: " + createdThreads.sum() + "\n" +
                 "Uso de Memória: " + getMemoryUsage() + "\n" +
                 "Carga de CPU: " + getCpuLoad() + "\n" +
                 "=====================\n";
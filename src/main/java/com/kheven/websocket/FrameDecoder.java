@@ -0,0 +1,170 @@
+package com.kheven.websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodificador incremental dos quadros enviados pelo cliente (RFC 6455): os
+ * bytes podem chegar em pedaços de qualquer tamanho. Retira a máscara, remonta
+ * as mensagens fragmentadas e entrega os quadros de controle, que podem chegar
+ * entre os fragmentos de uma mensagem.
+ */
+final class FrameDecoder {
+    /**
+     * Recebe as mensagens e os quadros de controle decodificados.
+     */
+    interface Listener {
+        void onMessage(int opcode, byte[] payload) throws IOException;
+
+        void onControl(int opcode, byte[] payload) throws IOException;
+    }
+
+    // Cabeçalho: 2 bytes, até 8 de tamanho estendido e 4 de máscara
+    private final byte[] header = new byte[14];
+    private final long maxMessageSize;
+    private int headerLength;
+    private int headerNeeded = 2;
+    private boolean inPayload;
+    private boolean fin;
+    private int opcode;
+    private int maskOffset;
+    private byte[] payload;
+    private int payloadLength;
+    // Mensagem fragmentada em andamento; messageOpcode é 0 quando não há
+    private int messageOpcode;
+    private ByteArrayOutputStream message;
+
+    /**
+     * Construtor da classe FrameDecoder.
+     *
+     * @param maxMessageSize o tamanho máximo de uma mensagem, somando os fragmentos.
+     */
+    FrameDecoder(long maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Consome todos os bytes do buffer, entregando cada quadro completo ao listener.
+     *
+     * @throws WebSocketException se o cliente violar o protocolo.
+     * @throws IOException se o listener falhar.
+     */
+    void decode(ByteBuffer input, Listener listener) throws IOException {
+        while (input.hasRemaining()) {
+            if (!inPayload) {
+                int length = Math.min(headerNeeded - headerLength, input.remaining());
+                input.get(header, headerLength, length);
+                headerLength += length;
+                if (headerLength < headerNeeded) {
+                    return;
+                }
+                if (headerNeeded == 2) {
+                    // Com os dois primeiros bytes já se sabe o tamanho do cabeçalho
+                    int size = header[1] & 0x7f;
+                    headerNeeded += (size == 126 ? 2 : size == 127 ? 8 : 0) + ((header[1] & 0x80) != 0 ? 4 : 0);
+                    if (headerNeeded > 2) {
+                        continue;
+                    }
+                }
+                startFrame();
+                if (payload.length > 0) {
+                    continue;
+                }
+            } else {
+                int length = Math.min(payload.length - payloadLength, input.remaining());
+                input.get(payload, payloadLength, length);
+                payloadLength += length;
+                if (payloadLength < payload.length) {
+                    return;
+                }
+            }
+            endFrame(listener);
+        }
+    }
+
+    private void startFrame() throws WebSocketException {
+        int first = header[0] & 0xFF;
+        fin = (first & 0x80) != 0;
+        opcode = first & 0x0f;
+        if ((first & 0x70) != 0) {
+            throw new WebSocketException(1002, "Reserved bits set without an extension");
+        }
+        if ((header[1] & 0x80) == 0) {
+            throw new WebSocketException(1002, "Client frames must be masked");
+        }
+        int size = header[1] & 0x7f;
+        long length;
+        if (size == 126) {
+            length = ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        } else if (size == 127) {
+            length = ByteBuffer.wrap(header, 2, 8).getLong();
+            if (length < 0) {
+                throw new WebSocketException(1002, "Invalid frame length");
+            }
+        } else {
+            length = size;
+        }
+        maskOffset = headerNeeded - 4;
+
+        if (opcode >= WebSocketFrame.CLOSE) {
+            if (opcode > WebSocketFrame.PONG) {
+                throw new WebSocketException(1002, "Unknown opcode " + opcode);
+            }
+            if (!fin || length > 125) {
+                throw new WebSocketException(1002, "Invalid control frame");
+            }
+        } else if (opcode == WebSocketFrame.CONTINUATION) {
+            if (messageOpcode == 0) {
+                throw new WebSocketException(1002, "Continuation without a message");
+            }
+        } else if (opcode == WebSocketFrame.TEXT || opcode == WebSocketFrame.BINARY) {
+            if (messageOpcode != 0) {
+                throw new WebSocketException(1002, "New message before the end of the previous one");
+            }
+        } else {
+            throw new WebSocketException(1002, "Unknown opcode " + opcode);
+        }
+        long buffered = opcode < WebSocketFrame.CLOSE && message != null ? message.size() : 0;
+        if (buffered + length > maxMessageSize) {
+            throw new WebSocketException(1009, "Message too large");
+        }
+        payload = new byte[(int) length];
+        payloadLength = 0;
+        inPayload = true;
+    }
+
+    private void endFrame(Listener listener) throws IOException {
+        byte[] data = payload;
+        for (int i = 0; i < data.length; i++) {
+            data[i] ^= header[maskOffset + (i & 3)];
+        }
+        int frameOpcode = opcode;
+        boolean last = fin;
+        // Prepara o próximo quadro antes de chamar o listener
+        payload = null;
+        inPayload = false;
+        headerLength = 0;
+        headerNeeded = 2;
+
+        if (frameOpcode >= WebSocketFrame.CLOSE) {
+            listener.onControl(frameOpcode, data);
+        } else if (last && frameOpcode != WebSocketFrame.CONTINUATION) {
+            // Mensagem em um único quadro: entregue sem cópia
+            listener.onMessage(frameOpcode, data);
+        } else {
+            if (frameOpcode != WebSocketFrame.CONTINUATION) {
+                messageOpcode = frameOpcode;
+                message = new ByteArrayOutputStream(Math.max(data.length * 2, 256));
+            }
+            message.write(data, 0, data.length);
+            if (last) {
+                int completed = messageOpcode;
+                byte[] bytes = message.toByteArray();
+                messageOpcode = 0;
+                message = null;
+                listener.onMessage(completed, bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.kheven.websocket;
+
+import com.kheven.config.Config;
+import com.kheven.handler.WebSocketHandler;
+import com.kheven.model.Request;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A classe WebSocket representa uma conexão WebSocket aberta (RFC 6455).
+ * <p>
+ * A thread de leitura, criada pelo motor de transporte, decodifica os quadros
+ * do cliente com {@link #serve(InputStream)} e chama o {@link WebSocketHandler};
+ * pings são respondidos automaticamente. O envio pode ser feito por qualquer
+ * thread e o transporte mantém a ordem dos quadros. Quando a conexão fica
+ * ociosa, o servidor envia um ping e a fecha se o cliente não responder.
+ */
+public final class WebSocket {
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Envio dos quadros pelo motor de transporte.
+     */
+    public interface Transport {
+        /**
+         * Envia um quadro codificado. Os quadros são enviados na ordem das chamadas.
+         *
+         * @param frame os bytes do quadro; não devem ser alterados.
+         * @throws IOException se a conexão estiver fechada.
+         */
+        void send(ByteBuffer frame) throws IOException;
+
+        /**
+         * Fecha a conexão depois de enviar os quadros pendentes.
+         */
+        void close();
+    }
+
+    private final Request request;
+    private final WebSocketHandler handler;
+    private final Transport transport;
+    private final FrameDecoder decoder;
+    private final long pingInterval;
+    private volatile boolean closeSent;
+    private volatile boolean closed;
+    private volatile boolean awaitingPong;
+    // Código e motivo do fechamento recebido do cliente
+    private int closeCode = 1006;
+    private String closeReason = "";
+
+    /**
+     * Construtor da classe WebSocket.
+     *
+     * @param request a requisição do handshake.
+     * @param handler o manipulador da rota.
+     * @param transport o envio dos quadros.
+     */
+    public WebSocket(Request request, WebSocketHandler handler, Transport transport) {
+        this.request = request;
+        this.handler = handler;
+        this.transport = transport;
+        this.decoder = new FrameDecoder(Config.getWebSocketMaxMessageSize());
+        this.pingInterval = Config.getWebSocketPingInterval();
+    }
+
+    /**
+     * Obtém a requisição do handshake, com os cabeçalhos e os parâmetros do caminho.
+     *
+     * @return a requisição.
+     */
+    public Request getRequest() {
+        return request;
+    }
+
+    /**
+     * Verifica se o socket pode enviar mensagens.
+     *
+     * @return false depois que o fechamento foi enviado ou a conexão caiu.
+     */
+    public boolean isOpen() {
+        return !closeSent && !closed;
+    }
+
+    /**
+     * Envia uma mensagem de texto.
+     *
+     * @param text o texto.
+     * @throws IOException se o socket estiver fechado.
+     */
+    public void sendText(String text) throws IOException {
+        send(WebSocketFrame.text(text));
+    }
+
+    /**
+     * Envia uma mensagem binária.
+     *
+     * @param data os bytes da mensagem.
+     * @throws IOException se o socket estiver fechado.
+     */
+    public void sendBinary(byte[] data) throws IOException {
+        send(WebSocketFrame.binary(data));
+    }
+
+    /**
+     * Envia um quadro já codificado, que pode ser compartilhado com outros sockets.
+     *
+     * @param frame o quadro.
+     * @throws IOException se o socket estiver fechado.
+     */
+    public void send(WebSocketFrame frame) throws IOException {
+        if (!isOpen()) {
+            throw new IOException("WebSocket is closed");
+        }
+        transport.send(frame.buffer());
+    }
+
+    /**
+     * Inicia o fechamento: envia o quadro de fechamento e espera o do cliente.
+     *
+     * @param code o código de fechamento (e.g., 1000 para um fechamento normal).
+     * @param reason o motivo, com até 123 bytes em UTF-8.
+     * @throws IOException se ocorrer um erro de I/O.
+     */
+    public void close(int code, String reason) throws IOException {
+        if (closeSent || closed) {
+            return;
+        }
+        closeSent = true;
+        transport.send(WebSocketFrame.close(code, reason).buffer());
+    }
+
+    /**
+     * Obtém o intervalo de ociosidade depois do qual o servidor envia um ping.
+     *
+     * @return o intervalo, em milissegundos.
+     */
+    public long getPingInterval() {
+        return pingInterval;
+    }
+
+    /**
+     * Chamado pelo motor quando nada foi recebido durante o intervalo de ping.
+     *
+     * @return false se o cliente não respondeu ao ping anterior e a conexão deve ser fechada.
+     */
+    public boolean onIdle() {
+        if (awaitingPong || closeSent) {
+            return false;
+        }
+        awaitingPong = true;
+        try {
+            transport.send(WebSocketFrame.of(WebSocketFrame.PING, EMPTY).buffer());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lê e trata os quadros do cliente até o fechamento. Chamado pelo motor na
+     * thread de leitura do socket, logo depois do handshake.
+     *
+     * @param in os bytes recebidos depois do handshake; um SocketTimeoutException
+     *           conta como ociosidade.
+     */
+    public void serve(InputStream in) {
+        FrameDecoder.Listener listener = new FrameDecoder.Listener() {
+            @Override
+            public void onMessage(int opcode, byte[] payload) throws IOException {
+                if (closeSent) {
+                    // Depois do fechamento enviado, as mensagens são descartadas
+                    return;
+                }
+                if (opcode == WebSocketFrame.TEXT) {
+                    String text = decodeText(payload);
+                    call(() -> handler.onText(WebSocket.this, text));
+                } else {
+                    call(() -> handler.onBinary(WebSocket.this, payload));
+                }
+            }
+
+            @Override
+            public void onControl(int opcode, byte[] payload) throws IOException {
+                onControlFrame(opcode, payload);
+            }
+        };
+
+        byte[] buffer = new byte[8192];
+        try {
+            call(() -> handler.onOpen(this));
+            while (!closed) {
+                int read;
+                try {
+                    read = in.read(buffer, 0, buffer.length);
+                } catch (SocketTimeoutException e) {
+                    if (!onIdle()) {
+                        break;
+                    }
+                    continue;
+                }
+                if (read == -1) {
+                    break;
+                }
+                awaitingPong = false;
+                decoder.decode(ByteBuffer.wrap(buffer, 0, read), listener);
+            }
+        } catch (WebSocketException e) {
+            // Violação do protocolo: fecha com o código do erro
+            closeCode = e.getCloseCode();
+            closeReason = "";
+            try {
+                if (!closeSent) {
+                    closeSent = true;
+                    transport.send(WebSocketFrame.close(e.getCloseCode(), e.getMessage()).buffer());
+                }
+            } catch (IOException ignored) {
+            }
+        } catch (IOException e) {
+            // A conexão caiu sem o handshake de fechamento
+        } finally {
+            closed = true;
+            transport.close();
+            try {
+                handler.onClose(this, closeCode, closeReason);
+            } catch (RuntimeException e) {
+                System.err.println("WebSocket handler error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void onControlFrame(int opcode, byte[] payload) throws IOException {
+        switch (opcode) {
+            case WebSocketFrame.PING -> {
+                if (!closeSent) {
+                    transport.send(WebSocketFrame.of(WebSocketFrame.PONG, payload).buffer());
+                }
+            }
+            case WebSocketFrame.PONG -> awaitingPong = false;
+            default -> {
+                int code = 1005;
+                String reason = "";
+                if (payload.length == 1) {
+                    throw new WebSocketException(1002, "Invalid close frame");
+                }
+                if (payload.length >= 2) {
+                    code = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+                    if (!isValidCloseCode(code)) {
+                        throw new WebSocketException(1002, "Invalid close code " + code);
+                    }
+                    reason = decodeText(ByteBuffer.wrap(payload, 2, payload.length - 2));
+                }
+                closeCode = code;
+                closeReason = reason;
+                if (!closeSent) {
+                    // Responde com o mesmo código; sem código, com o fechamento normal
+                    closeSent = true;
+                    transport.send(WebSocketFrame.close(code == 1005 ? 1000 : code, "").buffer());
+                }
+                closed = true;
+            }
+        }
+    }
+
+    /**
+     * Chama o handler; uma exceção inicia o fechamento com 1011, sem interromper a leitura.
+     */
+    private void call(Callback callback) throws IOException {
+        try {
+            callback.run();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("WebSocket handler error: " + e.getMessage());
+            close(1011, "Internal error");
+        }
+    }
+
+    private static String decodeText(byte[] payload) throws WebSocketException {
+        return decodeText(ByteBuffer.wrap(payload));
+    }
+
+    private static String decodeText(ByteBuffer payload) throws WebSocketException {
+        try {
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(payload).toString();
+        } catch (CharacterCodingException e) {
+            throw new WebSocketException(1007, "Invalid UTF-8 text");
+        }
+    }
+
+    /**
+     * Verifica se o código pode ser enviado em um quadro de fechamento (RFC 6455, seção 7.4).
+     */
+    private static boolean isValidCloseCode(int code) {
+        return (code >= 1000 && code <= 1003) || (code >= 1007 && code <= 1014) || (code >= 3000 && code <= 4999);
+    }
+
+    @FunctionalInterface
+    private interface Callback {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,22 @@
+package com.kheven.websocket;
+
+import java.io.IOException;
+
+/**
+ * Erro de protocolo em um WebSocket, com o código de fechamento enviado ao
+ * cliente (e.g., 1002 para um quadro inválido, 1009 para uma mensagem grande demais).
+ */
+final class WebSocketException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int closeCode;
+
+    WebSocketException(int closeCode, String message) {
+        super(message);
+        this.closeCode = closeCode;
+    }
+
+    int getCloseCode() {
+        return closeCode;
+    }
+}
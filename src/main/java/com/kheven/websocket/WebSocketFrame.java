@@ -0,0 +1,96 @@
+package com.kheven.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Um quadro WebSocket já codificado, como sai do servidor (sem máscara). O
+ * quadro é imutável e pode ser enviado a muitos sockets: cada envio usa uma
+ * cópia independente da posição sobre os mesmos bytes, sem codificar de novo.
+ */
+public final class WebSocketFrame {
+    // Opcodes (RFC 6455, seção 5.2)
+    static final int CONTINUATION = 0x0;
+    static final int TEXT = 0x1;
+    static final int BINARY = 0x2;
+    static final int CLOSE = 0x8;
+    static final int PING = 0x9;
+    static final int PONG = 0xA;
+
+    private final ByteBuffer bytes;
+
+    private WebSocketFrame(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Codifica uma mensagem de texto.
+     *
+     * @param text o texto.
+     * @return o quadro.
+     */
+    public static WebSocketFrame text(String text) {
+        return of(TEXT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Codifica uma mensagem binária.
+     *
+     * @param data os bytes da mensagem.
+     * @return o quadro.
+     */
+    public static WebSocketFrame binary(byte[] data) {
+        return of(BINARY, data);
+    }
+
+    /**
+     * Codifica um quadro com FIN.
+     */
+    static WebSocketFrame of(int opcode, byte[] payload) {
+        int length = payload.length;
+        int headerSize = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + length);
+        buffer.put((byte) (0x80 | opcode));
+        if (length < 126) {
+            buffer.put((byte) length);
+        } else if (length <= 0xFFFF) {
+            buffer.put((byte) 126).putShort((short) length);
+        } else {
+            buffer.put((byte) 127).putLong(length);
+        }
+        buffer.put(payload).flip();
+        return new WebSocketFrame(buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * Codifica um quadro de fechamento com o código e o motivo.
+     */
+    static WebSocketFrame close(int code, String reason) {
+        byte[] text = reason.getBytes(StandardCharsets.UTF_8);
+        // O payload de um quadro de controle tem no máximo 125 bytes
+        int length = Math.min(text.length, 123);
+        byte[] payload = new byte[2 + length];
+        payload[0] = (byte) (code >>> 8);
+        payload[1] = (byte) code;
+        System.arraycopy(text, 0, payload, 2, length);
+        return of(CLOSE, payload);
+    }
+
+    /**
+     * Obtém os bytes do quadro para um envio.
+     *
+     * @return uma cópia somente leitura, com posição própria.
+     */
+    ByteBuffer buffer() {
+        return bytes.duplicate();
+    }
+
+    /**
+     * Obtém o tamanho do quadro codificado.
+     *
+     * @return o tamanho, em bytes, com o cabeçalho.
+     */
+    public int size() {
+        return bytes.limit();
+    }
+}
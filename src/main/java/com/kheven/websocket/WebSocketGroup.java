@@ -0,0 +1,90 @@
+package com.kheven.websocket;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Um grupo de sockets que recebem as mesmas mensagens (e.g., os inscritos em
+ * um canal de atualizações). Cada mensagem é codificada uma única vez e os
+ * mesmos bytes são enviados a todos os sockets; os que já fecharam saem do
+ * grupo no envio seguinte.
+ * <p>
+ * No motor NIO o envio apenas enfileira o quadro na conexão, sem esperar o
+ * cliente; no motor bloqueante, cada envio espera o quadro caber no buffer do
+ * socket.
+ */
+public final class WebSocketGroup {
+    private final Set<WebSocket> sockets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Adiciona um socket ao grupo.
+     *
+     * @param socket o socket.
+     */
+    public void add(WebSocket socket) {
+        sockets.add(socket);
+    }
+
+    /**
+     * Remove um socket do grupo.
+     *
+     * @param socket o socket.
+     */
+    public void remove(WebSocket socket) {
+        sockets.remove(socket);
+    }
+
+    /**
+     * Obtém o número de sockets no grupo.
+     *
+     * @return o número de sockets, incluindo os que fecharam desde o último envio.
+     */
+    public int size() {
+        return sockets.size();
+    }
+
+    /**
+     * Envia uma mensagem de texto a todos os sockets do grupo.
+     *
+     * @param text o texto.
+     * @return o número de sockets que receberam a mensagem.
+     */
+    public int broadcast(String text) {
+        return broadcast(WebSocketFrame.of(WebSocketFrame.TEXT, text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Envia uma mensagem binária a todos os sockets do grupo.
+     *
+     * @param data os bytes da mensagem.
+     * @return o número de sockets que receberam a mensagem.
+     */
+    public int broadcast(byte[] data) {
+        return broadcast(WebSocketFrame.of(WebSocketFrame.BINARY, data));
+    }
+
+    /**
+     * Envia um quadro já codificado a todos os sockets do grupo.
+     *
+     * @param frame o quadro.
+     * @return o número de sockets que receberam o quadro.
+     */
+    public int broadcast(WebSocketFrame frame) {
+        int sent = 0;
+        for (WebSocket socket : sockets) {
+            if (!socket.isOpen()) {
+                sockets.remove(socket);
+                continue;
+            }
+            try {
+                socket.send(frame);
+                sent++;
+            } catch (IOException e) {
+                sockets.remove(socket);
+            }
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,92 @@
+package com.kheven.websocket;
+
+import com.kheven.model.Request;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * A classe WebSocketHandshake reconhece o pedido de abertura de um WebSocket
+ * em uma requisição HTTP/1.1 e monta a resposta "101 Switching Protocols".
+ * Subprotocolos e extensões (e.g., permessage-deflate) não são negociados.
+ */
+public final class WebSocketHandshake {
+    // Constante concatenada à chave do cliente (RFC 6455, seção 1.3)
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private WebSocketHandshake() {
+    }
+
+    /**
+     * Verifica se a requisição pede a abertura de um WebSocket na versão 13.
+     * Pedidos de outras versões não são aceitos; a rota responde 426 com a versão suportada.
+     *
+     * @param request a requisição HTTP/1.1.
+     * @return true se a requisição é um handshake válido.
+     */
+    public static boolean isUpgrade(Request request) {
+        if (!request.getMethod().equals("GET")) {
+            return false;
+        }
+        String upgrade = request.getHeader("Upgrade");
+        String connection = request.getHeader("Connection");
+        String key = request.getHeader("Sec-WebSocket-Key");
+        if (upgrade == null || connection == null || key == null
+                || !hasToken(upgrade, "websocket") || !hasToken(connection, "upgrade")
+                || !"13".equals(trim(request.getHeader("Sec-WebSocket-Version")))) {
+            return false;
+        }
+        String contentLength = request.getHeader("Content-Length");
+        if ((contentLength != null && !contentLength.trim().equals("0")) || request.getHeader("Transfer-Encoding") != null) {
+            return false;
+        }
+        try {
+            // A chave é um valor aleatório de 16 bytes em base64
+            return Base64.getDecoder().decode(key.trim()).length == 16;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Monta a resposta que aceita o handshake.
+     *
+     * @param request a requisição aceita por {@link #isUpgrade(Request)}.
+     * @return os bytes da resposta 101.
+     */
+    public static byte[] accept(Request request) {
+        return ("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(request.getHeader("Sec-WebSocket-Key").trim()) + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Calcula o Sec-WebSocket-Accept: o SHA-1 da chave do cliente com o GUID, em base64.
+     *
+     * @param key o Sec-WebSocket-Key do cliente.
+     * @return o valor do Sec-WebSocket-Accept.
+     */
+    public static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    private static boolean hasToken(String header, String token) {
+        for (String item : header.split(",")) {
+            if (item.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+}
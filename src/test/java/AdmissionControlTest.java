@@ -0,0 +1,96 @@
+import com.kheven.handler.AdmissionControl;
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.Response;
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import com.kheven.model.Route;
+import com.kheven.status.ServerStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControlTest {
+
+    @Test
+    public void testRequestsAboveTheGlobalLimitAreShed() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Router router = new Router();
+        router.addRoute("GET", "/hold", (req, res) -> {
+            started.countDown();
+            await(release);
+            res.setBody("done");
+        });
+        router.addRoute("GET", "/fast", (req, res) -> res.setBody("fast"));
+        RequestDispatcher dispatcher = new RequestDispatcher(router, new AdmissionControl(1, route -> 0, 2));
+
+        long rejected = ServerStatus.getRejectedRequests();
+        CompletableFuture<Response> held = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(get("/hold")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Response shed = dispatcher.dispatch(get("/fast"));
+        assertEquals(503, shed.getStatusCode());
+        assertEquals("2", shed.getHeader("Retry-After"));
+        assertEquals(rejected + 1, ServerStatus.getRejectedRequests());
+
+        release.countDown();
+        assertEquals(200, held.get(5, TimeUnit.SECONDS).getStatusCode());
+        // A vaga foi liberada
+        assertEquals(200, dispatcher.dispatch(get("/fast")).getStatusCode());
+    }
+
+    @Test
+    public void testReplacedRouteKeepsTheInflightCount() {
+        Route old = new Route("GET", "/report", (req, res) -> { });
+        Route replacement = new Route("GET", "/report", (req, res) -> { });
+        AdmissionControl admission = new AdmissionControl(0, route -> 1, 1);
+        assertTrue(admission.tryAcquire(old));
+        // A rota nova com o mesmo método e caminho vê a requisição em andamento na antiga
+        assertFalse(admission.tryAcquire(replacement));
+        admission.release(old);
+        assertTrue(admission.tryAcquire(replacement));
+    }
+
+    @Test
+    public void testRouteLimitOnlyAffectsItsRoute() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Router router = new Router();
+        router.addRoute("GET", "/capped/{id}", (req, res) -> {
+            started.countDown();
+            await(release);
+        });
+        router.addRoute("GET", "/free", (req, res) -> res.setBody("free"));
+        AdmissionControl admission = new AdmissionControl(0,
+                route -> route.getPath().equals("/capped/{id}") ? 1 : 0, 1);
+        RequestDispatcher dispatcher = new RequestDispatcher(router, admission);
+
+        CompletableFuture<Response> held = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(get("/capped/1")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(503, dispatcher.dispatch(get("/capped/2")).getStatusCode());
+        assertEquals(200, dispatcher.dispatch(get("/free")).getStatusCode());
+
+        release.countDown();
+        assertEquals(200, held.get(5, TimeUnit.SECONDS).getStatusCode());
+    }
+
+    private static Request get(String path) {
+        return new Request("GET", path, Map.of(), "");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import com.kheven.handler.AdmissionControl;
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.Response;
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import com.kheven.nio.NioEngine;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncRouteTest {
+
+    @Test
+    public void testAsyncRouteCompletesTimesOutAndFails() {
+        Router router = new Router();
+        router.addRoute("GET", "/later/{id}", req -> CompletableFuture.supplyAsync(() -> {
+            Response res = new Response();
+            res.setBody("later " + req.getPathParam("id"));
+            return res;
+        }, CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS)));
+        router.addRoute("GET", "/never", req -> new CompletableFuture<>(), Duration.ofMillis(50));
+        router.addRoute("GET", "/fail", req -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        RequestDispatcher dispatcher = new RequestDispatcher(router, new AdmissionControl(0, route -> 0, 1));
+
+        Response later = dispatcher.dispatchAsync(get("/later/7"), router.findRoute("GET", "/later/7"))
+                .toCompletableFuture().join();
+        assertEquals(200, later.getStatusCode());
+        assertEquals("later 7", new String(later.getBody(), StandardCharsets.UTF_8));
+
+        long start = System.nanoTime();
+        Response timedOut = dispatcher.dispatch(get("/never"));
+        assertEquals(504, timedOut.getStatusCode());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        assertEquals(500, dispatcher.dispatch(get("/fail")).getStatusCode());
+    }
+
+    @Test
+    public void testTimedOutHandlerKeepsItsPermit() {
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        Router router = new Router();
+        // Um estágio que não pode ser cancelado: o handler continua depois do tempo limite
+        router.addRoute("GET", "/slow", req -> pending.minimalCompletionStage(), Duration.ofMillis(50));
+        RequestDispatcher dispatcher = new RequestDispatcher(router, new AdmissionControl(0, route -> 1, 1));
+
+        assertEquals(504, dispatcher.dispatch(get("/slow")).getStatusCode());
+        // A permissão da rota só volta quando o handler termina, não com o 504
+        assertEquals(503, dispatcher.dispatch(get("/slow")).getStatusCode());
+        pending.complete(new Response());
+        assertEquals(200, dispatcher.dispatch(get("/slow")).getStatusCode());
+    }
+
+    @Test
+    public void testNioEngineKeepsManyPendingRequestsWithoutThreads() throws Exception {
+        Router router = new Router();
+        router.addRoute("GET", "/wait", req -> CompletableFuture.supplyAsync(() -> {
+            Response res = new Response();
+            res.setBody("done");
+            return res;
+        }, CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS)));
+        // Um executor de uma thread: as rotas assíncronas não dependem dele
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        NioEngine engine = new NioEngine(0, router, executor, 1);
+        engine.start();
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                Socket socket = new Socket("localhost", engine.getPort());
+                socket.getOutputStream().write("GET /wait HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                sockets.add(socket);
+            }
+            for (Socket socket : sockets) {
+                socket.setSoTimeout(5000);
+                assertTrue(HttpTestClient.readResponse(socket.getInputStream()).endsWith("done"));
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            engine.close();
+            engine.awaitTermination();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Request get(String path) {
+        return new Request("GET", path, Map.of(), "");
+    }
+}
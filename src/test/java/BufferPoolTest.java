@@ -0,0 +1,98 @@
+import com.kheven.handler.HttpHandler;
+import com.kheven.http.BufferPool;
+import com.kheven.http.Router;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClassesAndReuse() {
+        BufferPool pool = new BufferPool(false, 1, 4, false);
+        ByteBuffer small = pool.acquire(100);
+        assertEquals(BufferPool.MIN_SIZE, small.capacity());
+        assertEquals(small.capacity(), small.remaining());
+        ByteBuffer medium = pool.acquire(BufferPool.MIN_SIZE + 1);
+        assertEquals(2 * BufferPool.MIN_SIZE, medium.capacity());
+        ByteBuffer large = pool.acquire(BufferPool.MAX_SIZE + 1);
+        assertEquals(BufferPool.MAX_SIZE + 1, large.capacity());
+
+        small.put((byte) 1);
+        pool.release(small);
+        pool.release(medium);
+        pool.release(large);
+        ByteBuffer again = pool.acquire(BufferPool.MIN_SIZE);
+        assertSame(small, again);
+        assertEquals(0, again.position());
+        assertSame(medium, pool.acquire(700));
+        // Buffers acima da maior classe não são guardados
+        assertNotSame(large, pool.acquire(BufferPool.MAX_SIZE + 1));
+        assertEquals(4, pool.getAllocatedCount());
+        assertEquals(2, pool.getReusedCount());
+    }
+
+    @Test
+    public void testLeakDetection() {
+        BufferPool pool = new BufferPool(true, 2, 4, true);
+        ByteBuffer buffer = pool.acquire(4096);
+        assertTrue(buffer.isDirect());
+        assertEquals(1, pool.getOutstanding());
+        assertEquals(1, pool.getLeaks().size());
+        pool.release(buffer);
+        assertEquals(0, pool.getOutstanding());
+        assertThrows(IllegalStateException.class, () -> pool.release(buffer));
+        assertThrows(IllegalStateException.class, () -> pool.release(ByteBuffer.allocateDirect(4096)));
+    }
+
+    @Test
+    public void testHandlerReturnsItsBuffers() throws Exception {
+        BufferPool pool = new BufferPool(false, 1, 4, true);
+        Router router = new Router();
+        router.addRoute("GET", "/big", (req, res) -> res.setHeader("X-Big", "x".repeat(3000)));
+        router.addRoute("POST", "/ignore", (req, res) -> res.setBody("ignored"));
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(0))) {
+            for (int connection = 0; connection < 3; connection++) {
+                Thread handler = Thread.ofVirtual().start(() -> {
+                    try {
+                        SocketChannel client = server.accept();
+                        new HttpHandler(client.socket(), router, System.nanoTime(), pool).handle();
+                    } catch (IOException ignored) {
+                    }
+                });
+                try (Socket socket = new Socket("localhost", server.socket().getLocalPort())) {
+                    socket.setSoTimeout(10000);
+                    OutputStream out = socket.getOutputStream();
+                    // Cabeçalhos maiores que o buffer e um corpo que o handler não lê
+                    out.write(("GET /big HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                            + "POST /ignore HTTP/1.1\r\nHost: localhost\r\nContent-Length: 20000\r\n\r\n"
+                            + "y".repeat(20000)
+                            + "GET /missing HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    InputStream in = socket.getInputStream();
+                    String responses = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+                    assertTrue(responses.contains("ignored"));
+                    assertTrue(responses.contains("404"));
+                }
+                handler.join();
+                assertEquals(0, pool.getOutstanding());
+            }
+        }
+        // Depois da primeira conexão, os buffers vêm do pool
+        assertTrue(pool.getReusedCount() > pool.getAllocatedCount());
+    }
+}
@@ -0,0 +1,129 @@
+import com.kheven.handler.StaticFileCache;
+import com.kheven.handler.StaticFileHandler;
+import com.kheven.http.Compression;
+import com.kheven.http.Response;
+import com.kheven.model.Request;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressionTest {
+    private static final String JSON = "[" + "{\"id\": 1, \"name\": \"John Doe\"},".repeat(100) + "{}]";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testAcceptEncoding() {
+        assertTrue(Compression.acceptsGzip("gzip, deflate, br"));
+        assertTrue(Compression.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(Compression.acceptsGzip("*"));
+        assertFalse(Compression.acceptsGzip(null));
+        assertFalse(Compression.acceptsGzip("deflate, br"));
+        assertFalse(Compression.acceptsGzip("gzip;q=0"));
+        assertFalse(Compression.acceptsGzip("*, gzip;q=0.0"));
+        assertFalse(Compression.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    public void testCompressesDynamicResponses() throws IOException {
+        Response response = json(JSON);
+        Compression.apply(request(Map.of("Accept-Encoding", "gzip")), response);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertTrue(response.getBodyLength() < JSON.length());
+        assertEquals(JSON, new String(gunzip(response.getBody()), StandardCharsets.UTF_8));
+
+        // Sem Accept-Encoding: corpo original, mas ainda com Vary
+        Response identity = json(JSON);
+        Compression.apply(request(Map.of()), identity);
+        assertNull(identity.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", identity.getHeader("Vary"));
+
+        // Corpo pequeno e tipo não compressível não são comprimidos
+        Response small = json("{}");
+        Compression.apply(request(Map.of("Accept-Encoding", "gzip")), small);
+        assertNull(small.getHeader("Content-Encoding"));
+        Response image = json(JSON);
+        image.setContentType("image/png");
+        Compression.apply(request(Map.of("Accept-Encoding", "gzip")), image);
+        assertNull(image.getHeader("Content-Encoding"));
+        assertNull(image.getHeader("Vary"));
+    }
+
+    @Test
+    public void testStaticFilesAreCompressedOnce() throws IOException {
+        Files.writeString(dir.resolve("users.json"), JSON);
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1 << 20, 1 << 20)) {
+            Response gzip = serve(cache, "/users.json", "gzip");
+            assertEquals("gzip", gzip.getHeader("Content-Encoding"));
+            assertEquals(JSON, new String(gunzip(gzip.getBody()), StandardCharsets.UTF_8));
+            // A versão comprimida fica no cache e conta no seu tamanho
+            StaticFileCache.Entry entry = cache.get("/users.json");
+            assertSame(cache.getGzip(entry), cache.getGzip(entry));
+            assertEquals(JSON.length() + gzip.getBodyLength(), cache.size());
+
+            Response identity = serve(cache, "/users.json", null);
+            assertNull(identity.getHeader("Content-Encoding"));
+            assertEquals("Accept-Encoding", identity.getHeader("Vary"));
+            assertNotEquals(identity.getHeader("ETag"), gzip.getHeader("ETag"));
+        }
+    }
+
+    @Test
+    public void testServesPrecompressedSibling() throws IOException {
+        // O irmão .gz é servido como está, mesmo que não corresponda à compressão do servidor
+        byte[] precompressed = Compression.gzip(ByteBuffer.wrap("precompressed".getBytes()));
+        Files.writeString(dir.resolve("app.js"), "original");
+        Files.write(dir.resolve("app.js.gz"), precompressed);
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1 << 20, 1 << 20)) {
+            Response response = serve(cache, "/app.js", "gzip, br");
+            assertEquals("gzip", response.getHeader("Content-Encoding"));
+            assertEquals("application/javascript", response.getContentType());
+            assertArrayEquals(precompressed, response.getBody());
+            assertEquals("original", new String(serve(cache, "/app.js", null).getBody()));
+        }
+    }
+
+    private static Response serve(StaticFileCache cache, String path, String acceptEncoding) throws IOException {
+        Map<String, String> headers = acceptEncoding == null ? Map.of() : Map.of("Accept-Encoding", acceptEncoding);
+        Response response = new Response();
+        StaticFileHandler.serveStaticFile(cache, new Request("GET", path, headers, ""), response);
+        return response;
+    }
+
+    private static Request request(Map<String, String> headers) {
+        return new Request("GET", "/api/users", headers, "");
+    }
+
+    private static Response json(String body) {
+        Response response = new Response();
+        response.setContentType("application/json");
+        response.setBody(body);
+        return response;
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}
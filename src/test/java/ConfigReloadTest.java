@@ -0,0 +1,94 @@
+import com.kheven.config.Config;
+import com.kheven.config.ConfigWatcher;
+import com.kheven.handler.AdmissionControl;
+import com.kheven.model.Route;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfigReloadTest {
+    @Test
+    public void testApplyAndReject() {
+        AtomicInteger changes = new AtomicInteger();
+        Config.addListener(changes::incrementAndGet);
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("server.keepalive.timeout", "1234");
+            properties.setProperty("server.route.timeout.GET./slow", "250");
+            properties.setProperty("server.route.cache.vary.GET./api", "Accept-Language, X-Tenant");
+            Config.apply(properties);
+            assertEquals(1, changes.get());
+            assertEquals(1234, Config.getKeepAliveTimeout());
+            assertEquals(250, Config.getRouteTimeout("GET", "/slow"));
+            assertArrayEquals(new String[]{"Accept-Language", "X-Tenant"}, Config.getRouteCacheVary("GET", "/api"));
+            // As propriedades ausentes voltam ao valor padrão
+            assertEquals(8080, Config.getPort());
+
+            // Um valor inválido é recusado e a configuração anterior continua valendo
+            Properties invalid = new Properties();
+            invalid.setProperty("server.keepalive.timeout", "soon");
+            assertThrows(IllegalArgumentException.class, () -> Config.apply(invalid));
+            assertEquals(1, changes.get());
+            assertEquals(1234, Config.getKeepAliveTimeout());
+        } finally {
+            assertTrue(Config.reload());
+        }
+    }
+
+    @Test
+    public void testReconfigureAdmission() {
+        Route route = new Route("GET", "/capped", (req, res) -> { });
+        AtomicInteger routeLimit = new AtomicInteger(1);
+        AdmissionControl admission = new AdmissionControl(0, r -> routeLimit.get(), 1);
+        assertTrue(admission.tryAcquire(route));
+        assertFalse(admission.tryAcquire(route));
+
+        // Um limite maior admite mais requisições sem perder as que estão em andamento
+        routeLimit.set(2);
+        admission.reconfigure(0, 3);
+        assertEquals(3, admission.getRetryAfter());
+        assertTrue(admission.tryAcquire(route));
+        assertFalse(admission.tryAcquire(route));
+
+        // Um limite menor recusa as novas até a contagem cair abaixo dele
+        routeLimit.set(0);
+        admission.reconfigure(1, 1);
+        assertFalse(admission.tryAcquire(null));
+        admission.release(route);
+        assertFalse(admission.tryAcquire(null));
+        admission.release(route);
+        assertTrue(admission.tryAcquire(null));
+    }
+
+    @Test
+    public void testWatcher() throws Exception {
+        Path dir = Files.createTempDirectory("config");
+        Path file = dir.resolve("test.properties");
+        Files.writeString(file, "server.port=8080\n");
+        CountDownLatch changed = new CountDownLatch(1);
+        ConfigWatcher watcher = ConfigWatcher.start(file, changed::countDown);
+        try {
+            // Mudanças em outros arquivos do diretório são ignoradas
+            Files.writeString(dir.resolve("other.txt"), "x");
+            assertFalse(changed.await(500, TimeUnit.MILLISECONDS));
+            Files.writeString(file, "server.port=9090\n");
+            assertTrue(changed.await(15, TimeUnit.SECONDS));
+        } finally {
+            watcher.close();
+            Files.deleteIfExists(dir.resolve("other.txt"));
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+    }
+}
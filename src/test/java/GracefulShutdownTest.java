@@ -0,0 +1,157 @@
+import com.kheven.config.Config;
+import com.kheven.http.HttpServer;
+import com.kheven.http.Router;
+import com.kheven.nio.NioEngine;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GracefulShutdownTest {
+    @Test
+    public void testBlockingServerDrainsConnections() throws Exception {
+        int port = Config.getPort();
+        HttpServer server = new HttpServer();
+        Thread serverThread = Thread.ofVirtual().start(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        HttpTestClient.awaitServer(port);
+
+        try (Socket idle = new Socket("localhost", port); Socket busy = new Socket("localhost", port)) {
+            // Uma conexão persistente ociosa e outra com uma requisição em andamento
+            idle.setSoTimeout(5000);
+            send(idle, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(idle.getInputStream()).contains("Connection: keep-alive"));
+            busy.setSoTimeout(5000);
+            send(busy, "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Thread.sleep(200);
+
+            long start = System.nanoTime();
+            CompletableFuture<Boolean> stopped = CompletableFuture.supplyAsync(() -> server.stop(Duration.ofSeconds(10)));
+
+            // A conexão ociosa é fechada logo e a porta deixa de aceitar conexões
+            assertEquals(-1, idle.getInputStream().read());
+            awaitRefused(port);
+
+            // A requisição em andamento termina, com a resposta marcada como a última da conexão
+            String response = HttpTestClient.readResponse(busy.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.contains("Connection: close"));
+            assertEquals(-1, busy.getInputStream().read());
+
+            assertTrue(stopped.get(10, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(8));
+        }
+        serverThread.join(5000);
+        assertFalse(serverThread.isAlive());
+        // A porta foi liberada
+        new ServerSocket(port).close();
+    }
+
+    @Test
+    public void testBlockingServerClosesConnectionsAfterDeadline() throws Exception {
+        int port = Config.getPort();
+        HttpServer server = new HttpServer();
+        Thread serverThread = Thread.ofVirtual().start(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        HttpTestClient.awaitServer(port);
+
+        try (Socket events = new Socket("localhost", port)) {
+            // Um stream de eventos nunca termina sozinho
+            events.setSoTimeout(5000);
+            send(events, "GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(HttpTestClient.readHead(events.getInputStream()).startsWith("HTTP/1.1 200"));
+
+            long start = System.nanoTime();
+            assertFalse(server.stop(Duration.ofMillis(300)));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+            events.getInputStream().readAllBytes();
+        }
+        serverThread.join(5000);
+        assertFalse(serverThread.isAlive());
+    }
+
+    @Test
+    public void testNioEngineDrainsConnections() throws Exception {
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("inline"), false);
+        router.addRoute("GET", "/work", (req, res) -> {
+            Thread.sleep(500);
+            res.setBody("done");
+        });
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        NioEngine engine = new NioEngine(0, router, executor, 2);
+        engine.start();
+        int port = engine.getPort();
+        try (Socket idle = new Socket("localhost", port); Socket busy = new Socket("localhost", port)) {
+            idle.setSoTimeout(5000);
+            send(idle, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(idle.getInputStream()).contains("Connection: keep-alive"));
+            busy.setSoTimeout(5000);
+            send(busy, "GET /work HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            Thread.sleep(100);
+
+            CompletableFuture<Boolean> stopped = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return engine.shutdown(Duration.ofSeconds(10));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertEquals(-1, idle.getInputStream().read());
+            awaitRefused(port);
+
+            String response = HttpTestClient.readResponse(busy.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 200"));
+            assertTrue(response.contains("Connection: close"));
+            assertEquals(-1, busy.getInputStream().read());
+            assertTrue(stopped.get(10, TimeUnit.SECONDS));
+            assertEquals(0, engine.getConnectionCount());
+        } finally {
+            engine.close();
+            engine.awaitTermination();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Espera a porta recusar novas conexões.
+     */
+    private static void awaitRefused(int port) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            try {
+                new Socket("localhost", port).close();
+                Thread.sleep(20);
+            } catch (ConnectException e) {
+                return;
+            }
+        }
+        throw new AssertionError("The server is still accepting connections");
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+        socket.getOutputStream().flush();
+    }
+}
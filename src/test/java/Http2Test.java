@@ -0,0 +1,331 @@
+import com.kheven.handler.HttpHandler;
+import com.kheven.http.Router;
+import com.kheven.http2.HpackDecoder;
+import com.kheven.http2.HpackEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Http2Test {
+    private static final int BIG_SIZE = 1024 * 1024;
+
+    private ServerSocketChannel server;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final BlockingQueue<HttpHandler> handlers = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Router router = new Router();
+        router.addRoute("GET", "/hello", (req, res) -> res.setBody("hello " + req.getHeader("Host")));
+        router.addRoute("GET", "/item/{id}", (req, res) -> {
+            Thread.sleep(200);
+            res.setBody("item " + req.getPathParam("id"));
+        });
+        router.addRoute("POST", "/echo", (req, res) -> res.setBody(new String(req.getBodyStream().readAllBytes(),
+                StandardCharsets.UTF_8)));
+        router.addRoute("GET", "/big", (req, res) -> {
+            byte[] body = new byte[BIG_SIZE];
+            Arrays.fill(body, (byte) 'x');
+            res.setBody(body);
+        });
+        router.addRoute("GET", "/export", (req, res) -> res.setStreamingBody(out -> {
+            for (int i = 0; i < 100; i++) {
+                out.write(("row " + i + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }), false);
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                while (true) {
+                    SocketChannel client = server.accept();
+                    connections.incrementAndGet();
+                    HttpHandler handler = new HttpHandler(client.socket(), router);
+                    handlers.add(handler);
+                    Thread.ofVirtual().start(() -> {
+                        try {
+                            handler.handle();
+                        } catch (IOException ignored) {
+                        }
+                    });
+                }
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testHpackDecodesRfcExamples() throws IOException {
+        // RFC 7541, C.4: três requisições com Huffman compartilhando a tabela dinâmica
+        HpackDecoder decoder = new HpackDecoder(4096);
+        assertEquals(Map.of(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+                decode(decoder, "828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+        assertEquals(Map.of(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+                "cache-control", "no-cache"), decode(decoder, "828684be5886a8eb10649cbf"));
+        assertEquals(Map.of(":method", "GET", ":scheme", "https", ":path", "/index.html",
+                ":authority", "www.example.com", "custom-key", "custom-value"),
+                decode(decoder, "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+    }
+
+    @Test
+    public void testHpackEncoderIndexesRepeatedHeaders() throws IOException {
+        HpackEncoder encoder = new HpackEncoder(4096);
+        HpackDecoder decoder = new HpackDecoder(4096);
+        byte[] first = encodeResponse(encoder, "12");
+        byte[] second = encodeResponse(encoder, "345");
+        Map<String, String> headers = decode(decoder, HexFormat.of().formatHex(first));
+        assertEquals("application/json", headers.get("content-type"));
+        assertEquals("12", headers.get("content-length"));
+        assertEquals("345", decode(decoder, HexFormat.of().formatHex(second)).get("content-length"));
+        // Na segunda resposta, só o content-length não vem da tabela dinâmica
+        assertTrue(second.length < first.length / 2);
+    }
+
+    @Test
+    public void testUpgradeMultiplexesRequestsOnOneConnection() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        String base = "http://localhost:" + server.socket().getLocalPort();
+
+        // A primeira requisição faz o "Upgrade: h2c"; as demais reutilizam a conexão
+        HttpResponse<String> hello = client.send(HttpRequest.newBuilder(URI.create(base + "/hello")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, hello.version());
+        assertEquals("hello localhost:" + server.socket().getLocalPort(), hello.body());
+
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> items = new ArrayList<>();
+        for (int id = 0; id < 20; id++) {
+            items.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + "/item/" + id)).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int id = 0; id < 20; id++) {
+            HttpResponse<String> item = items.get(id).get(10, TimeUnit.SECONDS);
+            assertEquals(HttpClient.Version.HTTP_2, item.version());
+            assertEquals("item " + id, item.body());
+        }
+        // Uma por vez levaria 20 * 200 ms
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2000));
+
+        // Corpos maiores que a janela de controle de fluxo, nos dois sentidos
+        String payload = "y".repeat(300_000);
+        HttpResponse<String> echo = client.send(HttpRequest.newBuilder(URI.create(base + "/echo"))
+                .POST(HttpRequest.BodyPublishers.ofString(payload)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(payload, echo.body());
+        HttpResponse<byte[]> big = client.send(HttpRequest.newBuilder(URI.create(base + "/big")).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(BIG_SIZE, big.body().length);
+        HttpResponse<String> export = client.send(HttpRequest.newBuilder(URI.create(base + "/export")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertTrue(export.body().startsWith("row 0\n") && export.body().endsWith("row 99\n"));
+
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    public void testPriorKnowledge() throws IOException {
+        try (Socket socket = new Socket("localhost", server.socket().getLocalPort())) {
+            socket.setSoTimeout(10000);
+            OutputStream out = socket.getOutputStream();
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            writeFrame(out, 0x4, 0, 0, new byte[0]);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            HpackEncoder encoder = new HpackEncoder(4096);
+            encoder.encode(":method", "GET", block);
+            encoder.encode(":scheme", "http", block);
+            encoder.encode(":path", "/hello", block);
+            encoder.encode(":authority", "example.com", block);
+            // HEADERS com END_STREAM e END_HEADERS
+            writeFrame(out, 0x1, 0x5, 1, block.toByteArray());
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            HpackDecoder decoder = new HpackDecoder(4096);
+            Map<String, String> headers = new LinkedHashMap<>();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            boolean ended = false;
+            while (!ended) {
+                int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                int type = in.readUnsignedByte();
+                int flags = in.readUnsignedByte();
+                int streamId = in.readInt();
+                byte[] payload = in.readNBytes(length);
+                if (streamId != 1) {
+                    continue;
+                }
+                if (type == 0x1) {
+                    decoder.decode(ByteBuffer.wrap(payload), headers::put);
+                } else if (type == 0x0) {
+                    body.write(payload);
+                }
+                ended = (type == 0x0 || type == 0x1) && (flags & 0x1) != 0;
+            }
+            assertEquals("200", headers.get(":status"));
+            assertArrayEquals("hello example.com".getBytes(StandardCharsets.US_ASCII), body.toByteArray());
+        }
+    }
+
+    @Test
+    public void testDrainFinishesOpenStreams() throws Exception {
+        try (Socket socket = new Socket("localhost", server.socket().getLocalPort())) {
+            socket.setSoTimeout(10000);
+            OutputStream out = socket.getOutputStream();
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            writeFrame(out, 0x4, 0, 0, new byte[0]);
+            HpackEncoder encoder = new HpackEncoder(4096);
+            writeFrame(out, 0x1, 0x5, 1, requestBlock(encoder, "/item/7"));
+            Thread.sleep(50);
+
+            // Com o servidor parando, o stream aberto termina e um novo é recusado
+            handlers.poll(5, TimeUnit.SECONDS).drain();
+            writeFrame(out, 0x1, 0x5, 3, requestBlock(encoder, "/hello"));
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            HpackDecoder decoder = new HpackDecoder(4096);
+            Map<String, String> headers = new LinkedHashMap<>();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int goAwayLastStream = -1;
+            int refused = -1;
+            while (true) {
+                int length;
+                try {
+                    length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                } catch (EOFException e) {
+                    // A conexão é encerrada depois do último stream
+                    break;
+                }
+                int type = in.readUnsignedByte();
+                in.readUnsignedByte();
+                int streamId = in.readInt();
+                byte[] payload = in.readNBytes(length);
+                ByteBuffer frame = ByteBuffer.wrap(payload);
+                if (type == 0x7) {
+                    goAwayLastStream = frame.getInt(0);
+                    assertEquals(0, frame.getInt(4));
+                } else if (type == 0x3 && streamId == 3) {
+                    refused = frame.getInt(0);
+                } else if (type == 0x1 && streamId == 1) {
+                    decoder.decode(frame, headers::put);
+                } else if (type == 0x0 && streamId == 1) {
+                    body.write(payload);
+                }
+            }
+            assertEquals(1, goAwayLastStream);
+            assertEquals(0x7, refused);
+            assertEquals("200", headers.get(":status"));
+            assertArrayEquals("item 7".getBytes(StandardCharsets.US_ASCII), body.toByteArray());
+        }
+    }
+
+    @Test
+    public void testHeaderListExpandingPastTheLimitIsRefused() throws IOException {
+        try (Socket socket = new Socket("localhost", server.socket().getLocalPort())) {
+            socket.setSoTimeout(10000);
+            OutputStream out = socket.getOutputStream();
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            writeFrame(out, 0x4, 0, 0, new byte[0]);
+            // Uma entrada de 4000 bytes na tabela dinâmica (índice 62) e 12000 referências de 1 byte a
+            // ela: um bloco de 12 KB que se expande para 48 MB
+            HpackEncoder encoder = new HpackEncoder(4096);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            block.writeBytes(requestBlock(encoder, "/hello"));
+            encoder.encode("x-big", "a".repeat(4000), block);
+            for (int i = 0; i < 12000; i++) {
+                block.write(0x80 | 62);
+            }
+            writeFrame(out, 0x1, 0x5, 1, block.toByteArray());
+            // A tabela dinâmica continua em sincronia: o stream seguinte é atendido
+            writeFrame(out, 0x1, 0x5, 3, requestBlock(encoder, "/hello"));
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            HpackDecoder decoder = new HpackDecoder(4096);
+            Map<String, String> headers = new LinkedHashMap<>();
+            int reset = -1;
+            boolean ended = false;
+            while (!ended) {
+                int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                int type = in.readUnsignedByte();
+                int flags = in.readUnsignedByte();
+                int streamId = in.readInt();
+                byte[] payload = in.readNBytes(length);
+                if (type == 0x3 && streamId == 1) {
+                    reset = ByteBuffer.wrap(payload).getInt();
+                } else if (type == 0x1 && streamId == 3) {
+                    decoder.decode(ByteBuffer.wrap(payload), headers::put);
+                }
+                ended = streamId == 3 && (type == 0x0 || type == 0x1) && (flags & 0x1) != 0;
+            }
+            // ENHANCE_YOUR_CALM
+            assertEquals(0xb, reset);
+            assertEquals("200", headers.get(":status"));
+        }
+    }
+
+    private static byte[] requestBlock(HpackEncoder encoder, String path) {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        encoder.encode(":method", "GET", block);
+        encoder.encode(":scheme", "http", block);
+        encoder.encode(":path", path, block);
+        encoder.encode(":authority", "example.com", block);
+        return block.toByteArray();
+    }
+
+    private static Map<String, String> decode(HpackDecoder decoder, String hex) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        decoder.decode(ByteBuffer.wrap(HexFormat.of().parseHex(hex)), headers::put);
+        return headers;
+    }
+
+    private static byte[] encodeResponse(HpackEncoder encoder, String contentLength) {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        encoder.encode(":status", "200", block);
+        encoder.encode("content-type", "application/json", block);
+        encoder.encode("content-length", contentLength, block);
+        encoder.encode("cache-control", "public, max-age=60", block);
+        encoder.encode("vary", "accept-encoding", block);
+        return block.toByteArray();
+    }
+
+    private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(9);
+        header.put((byte) (payload.length >>> 16)).putShort((short) payload.length);
+        header.put((byte) type).put((byte) flags).putInt(streamId);
+        out.write(header.array());
+        out.write(payload);
+        out.flush();
+    }
+}
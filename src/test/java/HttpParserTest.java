@@ -0,0 +1,101 @@
+import com.kheven.http.BodyDecoder;
+import com.kheven.http.HttpParseException;
+import com.kheven.http.HttpParser;
+import com.kheven.model.Request;
+import com.kheven.model.RequestHead;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HttpParserTest {
+
+    @Test
+    public void testParsesRequestLineAndHeaders() throws HttpParseException {
+        HttpParser parser = new HttpParser();
+        ByteBuffer input = bytes("GET /api/users?id=1 HTTP/1.1\r\nHost: localhost\r\nX-Custom:  value \r\n\r\n");
+
+        RequestHead head = parser.parse(input);
+        Request request = new Request(head, "");
+
+        assertSame("GET", request.getMethod());
+        assertSame("HTTP/1.1", request.getVersion());
+        assertEquals("/api/users?id=1", request.getPath());
+        assertEquals("localhost", request.getHeader("host"));
+        assertEquals("value", request.getHeaders().get("x-custom"));
+        assertEquals(-1, head.getContentLength());
+        assertEquals(0, input.remaining());
+    }
+
+    @Test
+    public void testRequestSplitAcrossReads() throws HttpParseException {
+        HttpParser parser = new HttpParser();
+        String raw = "POST /api/users HTTP/1.1\r\ncontent-length: 4\r\n\r\nbody";
+
+        RequestHead head = null;
+        for (int i = 0; i < raw.length() && head == null; i++) {
+            ByteBuffer chunk = bytes(raw.substring(i, i + 1));
+            head = parser.parse(chunk);
+        }
+
+        assertEquals("POST", head.getMethod());
+        assertEquals(4, head.getContentLength());
+        assertEquals("4", head.getHeader("Content-Length"));
+    }
+
+    @Test
+    public void testLeavesBodyAndNextRequestUnconsumed() throws HttpParseException {
+        HttpParser parser = new HttpParser();
+        ByteBuffer input = bytes("PUT /a HTTP/1.1\r\nContent-Length: 2\r\n\r\nokGET /b HTTP/1.1\r\n\r\n");
+
+        RequestHead first = parser.parse(input);
+        assertEquals("/a", first.getTarget());
+        input.position(input.position() + 2);
+        RequestHead second = parser.parse(input);
+        assertEquals("/b", second.getTarget());
+        assertNull(parser.parse(input));
+    }
+
+    @Test
+    public void testRejectsMalformedRequests() {
+        assertEquals(400, assertThrows(HttpParseException.class,
+                () -> new HttpParser().parse(bytes("GARBAGE\r\n\r\n"))).getStatusCode());
+        assertEquals(400, assertThrows(HttpParseException.class,
+                () -> new HttpParser().parse(bytes("GET / HTTP/1.1\r\nNoColon\r\n\r\n"))).getStatusCode());
+        assertEquals(400, assertThrows(HttpParseException.class,
+                () -> new HttpParser().parse(bytes("GET / HTTP/1.1\r\nContent-Length: x\r\n\r\n"))).getStatusCode());
+        assertEquals(505, assertThrows(HttpParseException.class,
+                () -> new HttpParser().parse(bytes("GET / HTTP/2.0\r\n\r\n"))).getStatusCode());
+    }
+
+    @Test
+    public void testTransferEncodingCodings() throws HttpParseException {
+        assertFalse(decoder("Transfer-Encoding: chunked\r\n").isFinished());
+        assertFalse(decoder("Transfer-Encoding: ,  Chunked \r\n").isFinished());
+        assertEquals(400, assertThrows(HttpParseException.class,
+                () -> decoder("Transfer-Encoding: xchunked\r\n")).getStatusCode());
+        assertEquals(400, assertThrows(HttpParseException.class,
+                () -> decoder("Transfer-Encoding: chunked, gzip\r\n")).getStatusCode());
+        assertEquals(400, assertThrows(HttpParseException.class,
+                () -> decoder("Transfer-Encoding: chunked, chunked\r\n")).getStatusCode());
+        assertEquals(501, assertThrows(HttpParseException.class,
+                () -> decoder("Transfer-Encoding: gzip, chunked\r\n")).getStatusCode());
+        assertEquals(400, assertThrows(HttpParseException.class,
+                () -> decoder("Transfer-Encoding: chunked\r\nContent-Length: 5\r\n")).getStatusCode());
+    }
+
+    private static BodyDecoder decoder(String headers) throws HttpParseException {
+        RequestHead head = new HttpParser().parse(bytes("POST / HTTP/1.1\r\n" + headers + "\r\n"));
+        return BodyDecoder.forRequest(head, 1024);
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -7,19 +7,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpServerTest {
     private HttpServer server;
     private ExecutorService executor;
 
     @BeforeEach
-    public void setUp() {
+    public void setUp() throws InterruptedException {
         server = new HttpServer();
         executor = Executors.newSingleThreadExecutor();
         executor.submit(() -> {
@@ -29,10 +35,13 @@ public class HttpServerTest {
                 e.printStackTrace();
             }
         });
+        HttpTestClient.awaitServer(Config.getPort());
     }
 
     @AfterEach
     public void tearDown() {
+        // Libera a porta para o próximo teste
+        server.stop(Duration.ofSeconds(5));
         executor.shutdownNow();
     }
 
@@ -66,4 +75,61 @@ public class HttpServerTest {
         int responseCode = connection.getResponseCode();
         assertEquals(404, responseCode);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testKeepAliveConnection() throws IOException {
+        try (Socket socket = new Socket("localhost", Config.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            // Duas requisições atendidas em sequência no mesmo socket
+            for (int i = 0; i < 2; i++) {
+                out.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                String response = HttpTestClient.readResponse(in);
+                assertTrue(response.startsWith("HTTP/1.1 200"));
+                assertTrue(response.contains("Connection: keep-alive"));
+            }
+
+            // Com "Connection: close" o servidor responde e encerra a conexão
+            out.write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String response = HttpTestClient.readResponse(in);
+            assertTrue(response.contains("Connection: close"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testChunkedPostKeepsConnectionUsable() throws IOException {
+        try (Socket socket = new Socket("localhost", Config.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            // O handler não lê o corpo: o servidor o descarta antes da próxima requisição
+            out.write(("POST /api/users HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "4\r\n{\"a\"\r\n3\r\n:1}\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(HttpTestClient.readResponse(in).startsWith("HTTP/1.1 200"));
+
+            out.write("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(HttpTestClient.readResponse(in).startsWith("HTTP/1.1 200"));
+        }
+    }
+
+    @Test
+    public void testTransferEncodingWithContentLengthClosesConnection() throws IOException {
+        try (Socket socket = new Socket("localhost", Config.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            // O corpo poderia ser lido de duas formas: o servidor recusa e não reaproveita a conexão
+            out.write(("POST /api/users HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n"
+                    + "Content-Length: 5\r\n\r\n0\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(HttpTestClient.readResponse(in).startsWith("HTTP/1.1 400"));
+            assertEquals(-1, in.read());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utilitários compartilhados pelos testes que falam HTTP/1.1 direto no socket.
+ */
+final class HttpTestClient {
+
+    private HttpTestClient() {
+    }
+
+    /**
+     * Aguarda o servidor aceitar conexões na porta.
+     */
+    static void awaitServer(int port) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try {
+                new Socket("localhost", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    /**
+     * Lê o cabeçalho de uma resposta, até a linha em branco.
+     */
+    static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (!head.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("Connection closed before the end of the head");
+            }
+            head.write(b);
+        }
+        return head.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Lê uma resposta com Content-Length e retorna o corpo.
+     */
+    static String readBody(InputStream in) throws IOException {
+        return readBody(in, readHead(in));
+    }
+
+    /**
+     * Lê uma resposta completa e a retorna como texto (cabeçalho e corpo).
+     */
+    static String readResponse(InputStream in) throws IOException {
+        String head = readHead(in);
+        return head + readBody(in, head);
+    }
+
+    private static String readBody(InputStream in, String head) throws IOException {
+        int contentLength = 0;
+        for (String line : head.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return new String(in.readNBytes(contentLength), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import com.kheven.status.LatencyHistogram;
+import com.kheven.status.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 a 10000 µs, distribuídos uniformemente
+        for (int micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertWithin(5_000, histogram.percentile(0.5));
+        assertWithin(9_900, histogram.percentile(0.99));
+        assertWithin(10_000, histogram.percentile(1.0));
+        assertEquals(0, new LatencyHistogram().percentile(0.5));
+    }
+
+    @Test
+    public void testRequestsAreCountedPerRouteAndStatus() {
+        Router router = new Router();
+        router.addRoute("GET", "/metrics-test/{id}", (req, res) -> res.setBody("ok"));
+        router.addRoute("POST", "/metrics-test/fail", (req, res) -> {
+            throw new IllegalStateException("boom");
+        });
+        RequestDispatcher dispatcher = new RequestDispatcher(router);
+
+        long requests = Metrics.getRequestCount();
+        long errors = Metrics.getStatusCount(500);
+        dispatcher.dispatch(new Request("GET", "/metrics-test/1", Map.of(), ""));
+        dispatcher.dispatch(new Request("GET", "/metrics-test/2", Map.of(), ""));
+        dispatcher.dispatch(new Request("POST", "/metrics-test/fail", Map.of(), ""));
+
+        assertEquals(requests + 3, Metrics.getRequestCount());
+        assertEquals(errors + 1, Metrics.getStatusCount(500));
+        assertEquals(2, Metrics.getRouteRequestCount("GET", "/metrics-test/{id}"));
+
+        String text = Metrics.toPrometheus();
+        assertTrue(text.contains("# TYPE http_requests_total counter\n"));
+        assertTrue(text.contains("http_requests_total{method=\"GET\",route=\"/metrics-test/{id}\"} 2\n"));
+        assertTrue(text.contains("http_request_duration_seconds_count{method=\"POST\",route=\"/metrics-test/fail\"} 1\n"));
+        assertTrue(text.contains("http_responses_total{code=\"500\"}"));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // As faixas do histograma têm erro relativo de até 1/16
+        assertTrue(Math.abs(actual - expected) <= expected / 16 + 1, "expected ~" + expected + " but was " + actual);
+    }
+}
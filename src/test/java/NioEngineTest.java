@@ -0,0 +1,188 @@
+import com.kheven.http.Router;
+import com.kheven.nio.NioEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NioEngineTest {
+    private NioEngine engine;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("inline"), false);
+        router.addRoute("GET", "/blocking", (req, res) -> {
+            Thread.sleep(50);
+            res.setBody("executor");
+        });
+        router.addRoute("POST", "/echo", (req, res) -> res.setBody(req.getBody()), false);
+        router.addRoute("POST", "/count", (req, res) -> {
+            // Conta os bytes do corpo sem guardá-lo em memória
+            long count = 0;
+            byte[] buffer = new byte[4096];
+            try (InputStream body = req.getBodyStream()) {
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    count += read;
+                }
+            }
+            res.setBody(Long.toString(count));
+        });
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        engine = new NioEngine(0, router, executor, 2);
+        engine.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        engine.close();
+        engine.awaitTermination();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testKeepAliveAndBlockingRoute() throws IOException {
+        try (Socket socket = new Socket("localhost", engine.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            write(out, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(in).endsWith("inline"));
+
+            write(out, "GET /blocking HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(in).endsWith("executor"));
+        }
+    }
+
+    @Test
+    public void testRequestSplitAcrossReads() throws IOException, InterruptedException {
+        try (Socket socket = new Socket("localhost", engine.getPort())) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            write(out, "POST /echo HTTP/1.1\r\nContent-Le");
+            Thread.sleep(20);
+            write(out, "ngth: 5\r\n\r\nhel");
+            Thread.sleep(20);
+            write(out, "lo");
+            assertTrue(HttpTestClient.readResponse(in).endsWith("hello"));
+        }
+    }
+
+    @Test
+    public void testPipelinedRequestsAnsweredInOrder() throws IOException {
+        try (Socket socket = new Socket("localhost", engine.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            write(out, "GET /blocking HTTP/1.1\r\n\r\nGET / HTTP/1.1\r\nConnection: close\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(in).endsWith("executor"));
+            assertTrue(HttpTestClient.readResponse(in).endsWith("inline"));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testChunkedBody() throws IOException {
+        try (Socket socket = new Socket("localhost", engine.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            write(out, "POST /echo HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "5\r\nhello\r\n6;ext=1\r\n world\r\n0\r\nX-Trailer: 1\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(in).endsWith("hello world"));
+
+            // A conexão continua utilizável após o corpo chunked
+            write(out, "GET / HTTP/1.1\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(in).endsWith("inline"));
+        }
+    }
+
+    @Test
+    public void testLargeBodyIsStreamed() throws IOException {
+        int size = 8 * 1024 * 1024;
+        try (Socket socket = new Socket("localhost", engine.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            write(out, "POST /count HTTP/1.1\r\nContent-Length: " + size + "\r\n\r\n");
+            byte[] chunk = new byte[64 * 1024];
+            for (int sent = 0; sent < size; sent += chunk.length) {
+                out.write(chunk);
+            }
+            out.flush();
+            assertTrue(HttpTestClient.readResponse(in).endsWith(Integer.toString(size)));
+        }
+    }
+
+    @Test
+    public void testMultipleAcceptorsWithAffinity() throws IOException, InterruptedException {
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("acceptor"), false);
+        NioEngine acceptors = new NioEngine(0, router, executor, 4, 2, true);
+        acceptors.start();
+        try {
+            // Conexões novas a cada requisição passam pelos dois aceitadores
+            for (int i = 0; i < 32; i++) {
+                try (Socket socket = new Socket("localhost", acceptors.getPort())) {
+                    write(socket.getOutputStream(), "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+                    assertTrue(HttpTestClient.readResponse(socket.getInputStream()).endsWith("acceptor"));
+                }
+            }
+        } finally {
+            acceptors.close();
+            acceptors.awaitTermination();
+        }
+    }
+
+    @Test
+    public void testFailedAcceptKeepsTheLoopRunning() throws IOException, InterruptedException {
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("accepted"), false);
+        // Os primeiros accepts falham como se o processo estivesse sem descritores livres
+        AtomicInteger failures = new AtomicInteger();
+        NioEngine failing = new NioEngine(0, router, executor, 1) {
+            @Override
+            protected SocketChannel acceptChannel(ServerSocketChannel server) throws IOException {
+                if (failures.getAndIncrement() < 3) {
+                    throw new IOException("Too many open files");
+                }
+                return server.accept();
+            }
+        };
+        failing.start();
+        try (Socket socket = new Socket("localhost", failing.getPort())) {
+            long start = System.nanoTime();
+            write(socket.getOutputStream(), "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertTrue(HttpTestClient.readResponse(socket.getInputStream()).endsWith("accepted"));
+            // Cada falha pausa o accept em vez de repeti-lo sem parar
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+            assertTrue(failures.get() >= 4 && failures.get() < 10, "failures " + failures.get());
+        } finally {
+            failing.close();
+            failing.awaitTermination();
+        }
+    }
+
+    private static void write(OutputStream out, String data) throws IOException {
+        out.write(data.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,128 @@
+import com.kheven.handler.HttpHandler;
+import com.kheven.http.Router;
+import com.kheven.nio.NioEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipeliningTest {
+    private ServerSocketChannel server;
+    private Router router;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        router = new Router();
+        // Quanto menor o id, mais demora: as respostas ficam prontas na ordem inversa
+        router.addRoute("GET", "/item/{id}", (req, res) -> {
+            int id = Integer.parseInt(req.getPathParam("id"));
+            Thread.sleep(50L * (8 - id));
+            res.setBody("item " + id);
+        });
+        router.addRoute("HEAD", "/item/{id}", (req, res) -> res.setBody("item " + req.getPathParam("id")));
+        router.addRoute("POST", "/echo", (req, res) -> res.setBody(new String(req.getBodyStream().readAllBytes(),
+                StandardCharsets.UTF_8)));
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(0));
+        Thread.ofVirtual().start(() -> {
+            try {
+                while (true) {
+                    SocketChannel client = server.accept();
+                    Thread.ofVirtual().start(() -> {
+                        try {
+                            new HttpHandler(client.socket(), router).handle();
+                        } catch (IOException ignored) {
+                        }
+                    });
+                }
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testPipelinedRequestsRunConcurrentlyAndAnswerInOrder() throws IOException {
+        try (Socket socket = new Socket("localhost", server.socket().getLocalPort())) {
+            socket.setSoTimeout(10000);
+            StringBuilder requests = new StringBuilder();
+            for (int id = 0; id < 8; id++) {
+                requests.append("GET /item/").append(id).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            }
+            long start = System.nanoTime();
+            socket.getOutputStream().write(requests.toString().getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            for (int id = 0; id < 8; id++) {
+                assertEquals("item " + id, HttpTestClient.readBody(in));
+            }
+            // Uma por vez levaria 50 * (8 + 7 + ... + 1) = 1800 ms
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1200));
+        }
+    }
+
+    @Test
+    public void testRequestWithBodyWaitsForThePipeline() throws IOException {
+        try (Socket socket = new Socket("localhost", server.socket().getLocalPort())) {
+            socket.setSoTimeout(10000);
+            String requests = "GET /item/6 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nhello"
+                    + "GET /item/7 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            assertEquals("item 6", HttpTestClient.readBody(in));
+            assertEquals("hello", HttpTestClient.readBody(in));
+            assertEquals("item 7", HttpTestClient.readBody(in));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testHeadResponseHasNoBody() throws Exception {
+        assertHeadThenGet(server.socket().getLocalPort());
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        NioEngine engine = new NioEngine(0, router, executor, 1);
+        engine.start();
+        try {
+            assertHeadThenGet(engine.getPort());
+        } finally {
+            engine.close();
+            engine.awaitTermination();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Envia um HEAD e um GET de uma vez: a resposta ao HEAD tem o Content-Length
+     * do corpo, mas a resposta ao GET vem logo depois do cabeçalho.
+     */
+    private static void assertHeadThenGet(int port) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(10000);
+            String requests = "HEAD /item/7 HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /item/6 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+            socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            String head = HttpTestClient.readHead(in);
+            assertTrue(head.startsWith("HTTP/1.1 200"), head);
+            assertTrue(head.contains("Content-Length: 6\r\n"), head);
+            assertEquals("item 6", HttpTestClient.readBody(in));
+            assertEquals(-1, in.read());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import com.kheven.handler.StaticFileCache;
+import com.kheven.handler.StaticFileHandler;
+import com.kheven.http.Response;
+import com.kheven.model.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RangeRequestTest {
+    // 100 bytes: "0123456789" repetido
+    private static final String CONTENT = "0123456789".repeat(10);
+
+    @TempDir
+    Path dir;
+
+    private StaticFileCache cache;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(dir.resolve("video.txt"), CONTENT);
+        // Limite de mmap baixo para exercitar as fatias de arquivos mapeados
+        cache = new StaticFileCache(dir.toString(), 1024, 64);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        cache.close();
+    }
+
+    @Test
+    public void testSingleRanges() throws IOException {
+        assertPartial(serve("bytes=0-9"), "bytes 0-9/100", CONTENT.substring(0, 10));
+        assertPartial(serve("bytes=95-"), "bytes 95-99/100", CONTENT.substring(95));
+        assertPartial(serve("bytes=-5"), "bytes 95-99/100", CONTENT.substring(95));
+        // Sufixo maior que o arquivo e fim além do tamanho são ajustados ao arquivo
+        assertPartial(serve("bytes=-500"), "bytes 0-99/100", CONTENT);
+        assertPartial(serve("bytes=99-1000"), "bytes 99-99/100", "9");
+        assertPartial(serve("bytes=0-0"), "bytes 0-0/100", "0");
+    }
+
+    @Test
+    public void testMultipleRanges() throws IOException {
+        Response response = serve("bytes=0-1, 98-");
+        assertEquals(206, response.getStatusCode());
+        String contentType = response.getContentType();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        String expected = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/100\r\n\r\n01"
+                + "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 98-99/100\r\n\r\n89"
+                + "\r\n--" + boundary + "--\r\n";
+        assertEquals(expected, body(response));
+        assertEquals(expected.length(), response.getBodyLength());
+    }
+
+    @Test
+    public void testUnsatisfiableRanges() throws IOException {
+        for (String range : new String[]{"bytes=100-", "bytes=200-300", "bytes=-0", "bytes=150-, 100-"}) {
+            Response response = serve(range);
+            assertEquals(416, response.getStatusCode(), range);
+            assertEquals("bytes */100", response.getHeader("Content-Range"), range);
+        }
+    }
+
+    @Test
+    public void testInvalidRangesAreIgnored() throws IOException {
+        for (String range : new String[]{"items=0-9", "bytes=abc", "bytes=9-0", "bytes=0-9-", "bytes=5",
+                "bytes=" + "0-0,".repeat(20) + "0-0"}) {
+            Response response = serve(range);
+            assertEquals(200, response.getStatusCode(), range);
+            assertEquals(CONTENT, body(response), range);
+            assertNull(response.getHeader("Content-Range"), range);
+        }
+    }
+
+    @Test
+    public void testIfRange() throws IOException {
+        Response full = serve(null);
+        assertEquals("bytes", full.getHeader("Accept-Ranges"));
+        String etag = full.getHeader("ETag");
+        String lastModified = full.getHeader("Last-Modified");
+
+        assertEquals(206, serve("bytes=0-9", Map.of("If-Range", etag)).getStatusCode());
+        assertEquals(206, serve("bytes=0-9", Map.of("If-Range", lastModified)).getStatusCode());
+        assertEquals(200, serve("bytes=0-9", Map.of("If-Range", "\"stale\"")).getStatusCode());
+        assertEquals(200, serve("bytes=0-9", Map.of("If-Range", "W/" + etag)).getStatusCode());
+        assertEquals(200, serve("bytes=0-9", Map.of("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT")).getStatusCode());
+    }
+
+    private Response serve(String range) throws IOException {
+        return serve(range, Map.of());
+    }
+
+    private Response serve(String range, Map<String, String> extraHeaders) throws IOException {
+        Map<String, String> headers = new HashMap<>(extraHeaders);
+        if (range != null) {
+            headers.put("Range", range);
+        }
+        Response response = new Response();
+        StaticFileHandler.serveStaticFile(cache, new Request("GET", "/video.txt", headers, ""), response);
+        return response;
+    }
+
+    private static void assertPartial(Response response, String contentRange, String body) {
+        assertEquals(206, response.getStatusCode());
+        assertEquals(contentRange, response.getHeader("Content-Range"));
+        assertEquals(body, body(response));
+    }
+
+    private static String body(Response response) {
+        return new String(response.getBody(), StandardCharsets.US_ASCII);
+    }
+}
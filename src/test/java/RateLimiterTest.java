@@ -0,0 +1,175 @@
+import com.kheven.config.Config;
+import com.kheven.handler.AdmissionControl;
+import com.kheven.handler.HttpHandler;
+import com.kheven.handler.RateLimiter;
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.handler.ResponseCache;
+import com.kheven.http.Response;
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import com.kheven.model.Route;
+import com.kheven.nio.NioEngine;
+import com.kheven.status.ServerStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimiterTest {
+    @Test
+    public void testTokenBucket() throws Exception {
+        RateLimiter limiter = new RateLimiter(10, route -> -1, null, 1024);
+        // Uma rajada de até 10 requisições, depois uma a cada 100 ms (a rajada leva bem menos que isso)
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire(1, null));
+        }
+        long wait = limiter.tryAcquire(1, null);
+        assertTrue(wait > 0 && wait <= 100_000_000, "wait " + wait);
+        // Os outros clientes não são afetados
+        assertEquals(0, limiter.tryAcquire(2, null));
+        Thread.sleep(150);
+        assertEquals(0, limiter.tryAcquire(1, null));
+    }
+
+    @Test
+    public void testRouteLimits() {
+        Route capped = new Route("POST", "/login", (req, res) -> { });
+        Route free = new Route("GET", "/health", (req, res) -> { });
+        Route shared = new Route("GET", "/", (req, res) -> { });
+        RateLimiter limiter = new RateLimiter(2, route -> route == capped ? 1 : route == free ? 0 : -1, null, 1024);
+
+        // A rota com limite próprio tem uma conta separada da geral
+        assertEquals(0, limiter.tryAcquire(1, capped));
+        assertTrue(limiter.tryAcquire(1, capped) > 0);
+        assertEquals(0, limiter.tryAcquire(1, shared));
+        assertEquals(0, limiter.tryAcquire(1, null));
+        assertTrue(limiter.tryAcquire(1, shared) > 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.tryAcquire(1, free));
+        }
+        // Uma rota que substitui outra com o mesmo método e caminho continua a mesma conta
+        assertTrue(limiter.tryAcquire(1, new Route("POST", "/login", (req, res) -> { })) > 0);
+
+        // Com o limite geral desligado, só a rota continua limitada
+        limiter.reconfigure(0, null);
+        assertEquals(0, limiter.tryAcquire(1, shared));
+        assertTrue(limiter.tryAcquire(1, capped) > 0);
+    }
+
+    @Test
+    public void testBoundedTable() {
+        RateLimiter limiter = new RateLimiter(1, route -> -1, null, 16);
+        // Muito mais clientes que posições: os novos ocupam as posições dos mais antigos
+        for (long client = 0; client < 100_000; client++) {
+            assertEquals(0, limiter.tryAcquire(client, null));
+        }
+        // Um cliente recente continua na tabela com o balde vazio
+        assertTrue(limiter.tryAcquire(99_999, null) > 0);
+    }
+
+    @Test
+    public void testDispatcherRespondsTooManyRequests() {
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("ok"));
+        RateLimiter limiter = new RateLimiter(1, route -> -1, "X-Client", 64);
+        RequestDispatcher dispatcher = new RequestDispatcher(router, new AdmissionControl(0, route -> 0, 1),
+                new ResponseCache(0, route -> 0, route -> new String[0]), limiter);
+
+        long limited = ServerStatus.getRateLimitedRequests();
+        assertEquals(200, dispatcher.dispatch(get("192.168.0.1, 10.0.0.1")).getStatusCode());
+        // O cliente é o último valor da lista, o acrescentado pelo proxy
+        Response response = dispatcher.dispatch(get("10.0.0.1"));
+        assertEquals(429, response.getStatusCode());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(limited + 1, ServerStatus.getRateLimitedRequests());
+        assertEquals(200, dispatcher.dispatch(get("10.0.0.2")).getStatusCode());
+    }
+
+    @Test
+    public void testSpoofedForwardedForKeepsTheBucket() {
+        RateLimiter limiter = new RateLimiter(1, route -> -1, "X-Forwarded-For", 64);
+        Request first = new Request("GET", "/", Map.of("X-Forwarded-For", "1.1.1.1, 10.0.0.1"), "");
+        assertEquals(0, limiter.tryAcquire(first, null));
+        // Trocar o primeiro valor, enviado pelo próprio cliente, não dá um balde novo
+        for (String spoofed : new String[]{"2.2.2.2, 10.0.0.1", "3.3.3.3,10.0.0.1", " 10.0.0.1"}) {
+            Request request = new Request("GET", "/", Map.of("X-Forwarded-For", spoofed), "");
+            assertTrue(limiter.tryAcquire(request, null) > 0, spoofed);
+        }
+        Request other = new Request("GET", "/", Map.of("X-Forwarded-For", "1.1.1.1, 10.0.0.2"), "");
+        assertEquals(0, limiter.tryAcquire(other, null));
+    }
+
+    @Test
+    public void testEngines() throws Exception {
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("ok"));
+        // A instância compartilhada acompanha a configuração recarregada
+        RateLimiter.getInstance();
+        Properties properties = new Properties();
+        properties.setProperty("server.rate.limit", "2");
+        Config.apply(properties);
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(0))) {
+            Thread acceptor = Thread.ofVirtual().start(() -> {
+                try {
+                    while (true) {
+                        SocketChannel client = server.accept();
+                        Thread.ofVirtual().start(() -> {
+                            try {
+                                new HttpHandler(client.socket(), router).handle();
+                            } catch (IOException ignored) {
+                            }
+                        });
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+            assertLimited(server.socket().getLocalPort());
+            acceptor.interrupt();
+
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            NioEngine engine = new NioEngine(0, router, executor, 1);
+            engine.start();
+            try {
+                assertLimited(engine.getPort());
+            } finally {
+                engine.close();
+                engine.awaitTermination();
+                executor.shutdownNow();
+            }
+        } finally {
+            assertTrue(Config.reload());
+        }
+    }
+
+    /**
+     * Envia requisições até a recusa.
+     */
+    private static void assertLimited(int port) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/")).build();
+        int status = 200;
+        for (int i = 0; i < 10 && status == 200; i++) {
+            status = client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+        }
+        assertEquals(429, status);
+        // Espera o balde encher de novo para o teste seguinte
+        Thread.sleep(1000);
+    }
+
+    private static Request get(String client) {
+        return new Request("GET", "/", Map.of("X-Client", client), "");
+    }
+}
@@ -0,0 +1,74 @@
+import com.kheven.model.Request;
+import com.kheven.status.Metrics;
+import com.kheven.status.RequestTrace;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestTraceTest {
+
+    @Test
+    public void testMeasuredPhasesAreRecorded() {
+        long parsed = Metrics.getPhaseLatency(RequestTrace.Phase.PARSE).getCount();
+        long queued = Metrics.getPhaseLatency(RequestTrace.Phase.QUEUE).getCount();
+        Request request = new Request("GET", "/trace-test", Map.of(), "");
+
+        RequestTrace trace = new RequestTrace(true);
+        trace.begin();
+        trace.mark(RequestTrace.Phase.PARSE);
+        trace.add(RequestTrace.Phase.HANDLE, 1_000);
+        trace.add(RequestTrace.Phase.HANDLE, 500);
+        assertEquals(1_500, trace.getDuration(RequestTrace.Phase.HANDLE));
+        assertEquals(0, trace.getDuration(RequestTrace.Phase.QUEUE));
+        trace.finish(request, 200);
+
+        assertEquals(parsed + 1, Metrics.getPhaseLatency(RequestTrace.Phase.PARSE).getCount());
+        // Fases não medidas não entram nos histogramas
+        assertEquals(queued, Metrics.getPhaseLatency(RequestTrace.Phase.QUEUE).getCount());
+        assertTrue(Metrics.toPrometheus().contains("http_request_phase_seconds_count{phase=\"parse\"}"));
+
+        // Desabilitado, nada é registrado
+        RequestTrace disabled = new RequestTrace(false);
+        disabled.begin();
+        disabled.mark(RequestTrace.Phase.PARSE);
+        disabled.finish(request, 200);
+        assertEquals(parsed + 1, Metrics.getPhaseLatency(RequestTrace.Phase.PARSE).getCount());
+    }
+
+    @Test
+    public void testJfrEventIsCommitted() throws Exception {
+        Path file = Files.createTempFile("trace", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.kheven.Request");
+            recording.start();
+            RequestTrace trace = new RequestTrace(true);
+            trace.begin();
+            trace.add(RequestTrace.Phase.ROUTE, 2_000);
+            trace.finish(new Request("GET", "/trace-jfr", Map.of(), ""), 404);
+            recording.stop();
+            recording.dump(file);
+        }
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> "/trace-jfr".equals(e.getString("path")))
+                    .toList();
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("GET", event.getString("method"));
+            assertEquals(404, event.getInt("status"));
+            assertEquals(Duration.ofNanos(2_000), event.getDuration("route"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import com.kheven.handler.AdmissionControl;
+import com.kheven.handler.RequestDispatcher;
+import com.kheven.handler.ResponseCache;
+import com.kheven.http.Response;
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void testRepeatedGetsAreServedFromTheCache() {
+        AtomicInteger calls = new AtomicInteger();
+        Router router = new Router();
+        router.addRoute("GET", "/users", (req, res) -> res.setBody("users " + calls.incrementAndGet()));
+        router.addRoute("POST", "/users", (req, res) -> res.setBody("created " + calls.incrementAndGet()));
+        router.addRoute("GET", "/private", (req, res) -> {
+            res.setHeader("Cache-Control", "private, max-age=60");
+            res.setBody("private " + calls.incrementAndGet());
+        });
+        router.addRoute("GET", "/session", (req, res) -> {
+            res.setHeader("Set-Cookie", "session=" + calls.incrementAndGet());
+            res.setBody("session");
+        });
+        RequestDispatcher dispatcher = dispatcher(router, new ResponseCache(1024, route -> 60_000,
+                route -> new String[]{"X-Tenant"}));
+
+        assertEquals("users 1", body(dispatcher.dispatch(request("GET", "/users", Map.of()))));
+        assertEquals("users 1", body(dispatcher.dispatch(request("GET", "/users", Map.of()))));
+        // Os cabeçalhos selecionados fazem parte da chave
+        assertEquals("users 2", body(dispatcher.dispatch(request("GET", "/users", Map.of("X-Tenant", "a")))));
+        assertEquals("users 2", body(dispatcher.dispatch(request("GET", "/users", Map.of("X-Tenant", "a")))));
+        // Só GET e HEAD usam o cache, e o Cache-Control do handler é respeitado
+        assertEquals("created 3", body(dispatcher.dispatch(request("POST", "/users", Map.of()))));
+        assertEquals("created 4", body(dispatcher.dispatch(request("POST", "/users", Map.of()))));
+        assertEquals("private 5", body(dispatcher.dispatch(request("GET", "/private", Map.of()))));
+        assertEquals("private 6", body(dispatcher.dispatch(request("GET", "/private", Map.of()))));
+        // O cookie de um cliente não é entregue a outro
+        assertEquals("session=7", dispatcher.dispatch(request("GET", "/session", Map.of())).getHeader("Set-Cookie"));
+        assertEquals("session=8", dispatcher.dispatch(request("GET", "/session", Map.of())).getHeader("Set-Cookie"));
+    }
+
+    @Test
+    public void testEntriesExpireAndLeastRecentlyUsedAreEvicted() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        Router router = new Router();
+        router.addRoute("GET", "/item/{id}", (req, res) -> {
+            calls.incrementAndGet();
+            res.setBody("item-" + req.getPathParam("id"));
+        });
+        router.addRoute("GET", "/short", (req, res) -> res.setBody("short " + calls.incrementAndGet()));
+        // Cabem só duas entradas de 6 bytes
+        ResponseCache cache = new ResponseCache(12, route -> route.getPath().equals("/short") ? 50 : 60_000,
+                route -> new String[0]);
+        RequestDispatcher dispatcher = dispatcher(router, cache);
+
+        dispatcher.dispatch(request("GET", "/item/1", Map.of()));
+        dispatcher.dispatch(request("GET", "/item/2", Map.of()));
+        dispatcher.dispatch(request("GET", "/item/1", Map.of()));
+        assertEquals(2, calls.get());
+        // A entrada 2 é a menos usada e é descartada para dar lugar à 3
+        dispatcher.dispatch(request("GET", "/item/3", Map.of()));
+        assertEquals(12, cache.getSize());
+        dispatcher.dispatch(request("GET", "/item/1", Map.of()));
+        assertEquals(3, calls.get());
+        dispatcher.dispatch(request("GET", "/item/2", Map.of()));
+        assertEquals(4, calls.get());
+
+        String first = body(dispatcher.dispatch(request("GET", "/short", Map.of())));
+        assertEquals(first, body(dispatcher.dispatch(request("GET", "/short", Map.of()))));
+        Thread.sleep(100);
+        assertEquals("short 6", body(dispatcher.dispatch(request("GET", "/short", Map.of()))));
+    }
+
+    @Test
+    public void testConcurrentMissesRunTheHandlerOnce() throws Exception {
+        AtomicInteger syncCalls = new AtomicInteger();
+        AtomicInteger asyncCalls = new AtomicInteger();
+        Router router = new Router();
+        router.addRoute("GET", "/report", (req, res) -> {
+            syncCalls.incrementAndGet();
+            Thread.sleep(200);
+            res.setBody("report");
+        });
+        router.addRoute("GET", "/slow", req -> CompletableFuture.supplyAsync(() -> {
+            asyncCalls.incrementAndGet();
+            Response res = new Response();
+            res.setBody("slow");
+            return res;
+        }, CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS)));
+        RequestDispatcher dispatcher = dispatcher(router, new ResponseCache(1024, route -> 60_000,
+                route -> new String[0]));
+
+        List<CompletableFuture<Response>> pending = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Request request = request("GET", "/slow", Map.of());
+            pending.add(dispatcher.dispatchAsync(request, dispatcher.findRoute(request)).toCompletableFuture());
+        }
+        List<Future<Response>> blocking = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 100; i++) {
+                blocking.add(executor.submit(() -> dispatcher.dispatch(request("GET", "/report", Map.of()))));
+            }
+        }
+        for (CompletableFuture<Response> response : pending) {
+            assertEquals("slow", body(response.get(5, TimeUnit.SECONDS)));
+        }
+        for (Future<Response> response : blocking) {
+            assertEquals("report", body(response.get()));
+        }
+        assertEquals(1, asyncCalls.get());
+        assertEquals(1, syncCalls.get());
+    }
+
+    @Test
+    public void testDispatchAsyncDoesNotWaitForTheLeader() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Router router = new Router();
+        router.addRoute("GET", "/report", (req, res) -> {
+            running.countDown();
+            release.await();
+            res.setBody("report");
+        });
+        RequestDispatcher dispatcher = dispatcher(router, new ResponseCache(1024, route -> 60_000,
+                route -> new String[0]));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Response> leader = executor.submit(() -> dispatcher.dispatch(request("GET", "/report", Map.of())));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            // Uma rota síncrona com cache não prende quem chama (e.g., o laço de eventos) enquanto espera
+            Request request = request("GET", "/report", Map.of());
+            CompletableFuture<Response> follower = dispatcher.dispatchAsync(request, dispatcher.findRoute(request))
+                    .toCompletableFuture();
+            assertFalse(follower.isDone());
+            release.countDown();
+            assertEquals("report", body(leader.get(5, TimeUnit.SECONDS)));
+            assertEquals("report", body(follower.get(5, TimeUnit.SECONDS)));
+        }
+    }
+
+    private static RequestDispatcher dispatcher(Router router, ResponseCache cache) {
+        return new RequestDispatcher(router, new AdmissionControl(0, route -> 0, 1), cache);
+    }
+
+    private static Request request(String method, String path, Map<String, String> headers) {
+        return new Request(method, path, headers, "");
+    }
+
+    private static String body(Response response) {
+        return new String(response.getBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,115 @@
+import com.kheven.http.Router;
+import com.kheven.model.Request;
+import com.kheven.model.Route;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouterTest {
+
+    @Test
+    public void testStaticRoutesAndMethods() {
+        Router router = new Router();
+        router.addRoute("GET", "/", (req, res) -> res.setBody("root"));
+        router.addRoute("GET", "/api/users", (req, res) -> res.setBody("list"));
+        router.addRoute("POST", "/api/users", (req, res) -> res.setBody("create"));
+
+        assertEquals("/", router.findRoute("GET", "/").getPath());
+        assertEquals("GET", router.findRoute("GET", "/api/users").getMethod());
+        assertEquals("POST", router.findRoute("POST", "/api/users").getMethod());
+        // A query string não interfere no roteamento
+        assertEquals("/api/users", router.findRoute("GET", "/api/users?page=2").getPath());
+        assertNull(router.findRoute("DELETE", "/api/users"));
+        assertNull(router.findRoute("GET", "/api/users/"));
+        assertNull(router.findRoute("GET", "/api"));
+    }
+
+    @Test
+    public void testPathParameters() {
+        Router router = new Router();
+        router.addRoute("GET", "/api/users/{id}", (req, res) -> { });
+        router.addRoute("GET", "/api/users/me", (req, res) -> { });
+        router.addRoute("GET", "/api/users/{id}/posts/{post}", (req, res) -> { });
+
+        // Segmentos fixos têm prioridade sobre parâmetros
+        assertEquals("/api/users/me", router.findRoute("GET", "/api/users/me").getPath());
+        assertNull(router.findRoute("GET", "/api/users/"));
+
+        Route route = router.findRoute("GET", "/api/users/42/posts/7?full=true");
+        Request request = new Request("GET", "/api/users/42/posts/7?full=true", Map.of(), "");
+        request.setRoute(route);
+        assertEquals("42", request.getPathParam("id"));
+        assertEquals("7", request.getPathParam("post"));
+        assertEquals(Map.of("id", "42", "post", "7"), request.getPathParams());
+        assertNull(request.getPathParam("missing"));
+    }
+
+    @Test
+    public void testManyRoutes() {
+        Router router = new Router();
+        for (int i = 0; i < 1000; i++) {
+            router.addRoute("GET", "/api/resource" + i + "/{id}", (req, res) -> { });
+            router.addRoute("GET", "/static/page" + i, (req, res) -> { });
+        }
+        Route route = router.findRoute("GET", "/api/resource999/abc");
+        assertEquals("/api/resource999/{id}", route.getPath());
+        assertEquals("/static/page500", router.findRoute("GET", "/static/page500").getPath());
+        assertSame(route, router.findRoute("GET", "/api/resource999/xyz?q=1"));
+        assertNull(router.findRoute("GET", "/api/resource1000/abc"));
+    }
+
+    @Test
+    public void testAddRouteWhileSearching() throws Exception {
+        Router router = new Router();
+        router.addRoute("GET", "/api/users/{id}", (req, res) -> { });
+        router.addRoute("GET", "/health", (req, res) -> { });
+        AtomicBoolean adding = new AtomicBoolean(true);
+        // As buscas nunca veem a tabela pela metade enquanto as rotas são adicionadas
+        CompletableFuture<Boolean> reader = CompletableFuture.supplyAsync(() -> {
+            boolean found = true;
+            while (adding.get()) {
+                found &= router.findRoute("GET", "/api/users/42") != null
+                        && router.findRoute("GET", "/health") != null;
+            }
+            return found;
+        });
+        for (int i = 0; i < 2000; i++) {
+            router.addRoute("GET", "/api/users/{id}/item" + i, (req, res) -> { });
+            router.addRoute("GET", "/api/page" + i, (req, res) -> { });
+        }
+        adding.set(false);
+        assertTrue(reader.get(5, TimeUnit.SECONDS));
+        assertEquals("/api/users/{id}/item1999", router.findRoute("GET", "/api/users/7/item1999").getPath());
+        assertEquals("/api/users/{id}", router.findRoute("GET", "/api/users/7").getPath());
+    }
+
+    @Test
+    public void testReplaceRoutes() {
+        Router router = new Router();
+        router.addRoute("GET", "/old", (req, res) -> { });
+        router.addRoute("GET", "/api/users/{id}", (req, res) -> { });
+
+        Router routes = new Router();
+        routes.addRoute("GET", "/new", (req, res) -> { });
+        routes.addRoute("GET", "/api/users/{name}", (req, res) -> { });
+        router.replaceRoutes(routes);
+
+        assertNull(router.findRoute("GET", "/old"));
+        assertEquals("/new", router.findRoute("GET", "/new").getPath());
+        assertEquals("/api/users/{name}", router.findRoute("GET", "/api/users/42").getPath());
+
+        // As tabelas são independentes depois da troca
+        routes.addRoute("GET", "/later", (req, res) -> { });
+        router.addRoute("GET", "/mine", (req, res) -> { });
+        assertNull(router.findRoute("GET", "/later"));
+        assertNull(routes.findRoute("GET", "/mine"));
+    }
+}
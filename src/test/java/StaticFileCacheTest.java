@@ -0,0 +1,213 @@
+import com.kheven.handler.StaticFileCache;
+import com.kheven.handler.StaticFileHandler;
+import com.kheven.http.Compression;
+import com.kheven.http.HttpDate;
+import com.kheven.http.Response;
+import com.kheven.http.ResponseWriter;
+import com.kheven.model.Request;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StaticFileCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testServesBinaryFilesFromCache() throws IOException {
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G', 0, (byte) 0xFF, (byte) 0xC3, 0x28};
+        Files.write(dir.resolve("logo.png"), image);
+        Files.createDirectory(dir.resolve("css"));
+        Files.writeString(dir.resolve("css/app.css"), "body {}");
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1024, 1024)) {
+            StaticFileCache.Entry entry = cache.get("/logo.png?v=1");
+            assertEquals("image/png", entry.getContentType());
+            assertArrayEquals(image, bytes(entry.getBody()));
+            assertSame(entry, cache.get("/logo.png"));
+            assertEquals("text/css", cache.get("/css/app.css").getContentType());
+
+            assertNull(cache.get("/missing.html"));
+            assertNull(cache.get("/css"));
+            assertNull(cache.get("/../" + dir.getFileName() + "/logo.png/.."));
+            assertNull(cache.get("/css/../../etc/passwd"));
+        }
+    }
+
+    @Test
+    public void testUnknownAndBinaryTypesAreNotCompressed() throws IOException {
+        Files.write(dir.resolve("data"), new byte[] {0, 1, 2});
+        Files.write(dir.resolve("clip.mp4"), new byte[] {0, 1, 2});
+        Files.write(dir.resolve("app.wasm"), new byte[] {0, 'a', 's', 'm'});
+        Files.writeString(dir.resolve("notes.txt"), "notes");
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1024, 1024)) {
+            assertEquals("application/octet-stream", cache.get("/data").getContentType());
+            assertEquals("video/mp4", cache.get("/clip.mp4").getContentType());
+            assertEquals("application/wasm", cache.get("/app.wasm").getContentType());
+            assertEquals("text/plain", cache.get("/notes.txt").getContentType());
+            assertFalse(Compression.isCompressible(cache.get("/data").getContentType()));
+            assertFalse(Compression.isCompressible(cache.get("/clip.mp4").getContentType()));
+            assertTrue(Compression.isCompressible(cache.get("/app.wasm").getContentType()));
+        }
+    }
+
+    @Test
+    public void testLargeFilesAreMappedAndCacheIsBounded() throws IOException {
+        byte[] large = new byte[4096];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        Files.write(dir.resolve("a.bin"), large);
+        Files.write(dir.resolve("b.bin"), large);
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 6000, 1024)) {
+            StaticFileCache.Entry a = cache.get("/a.bin");
+            assertTrue(a.getBody() instanceof MappedByteBuffer);
+            assertArrayEquals(large, bytes(a.getBody()));
+            cache.get("/b.bin");
+            // Só cabe um arquivo: o menos usado recentemente foi descartado
+            assertEquals(4096, cache.size());
+            assertFalse(a == cache.get("/a.bin"));
+        }
+    }
+
+    @Test
+    public void testChangedFilesAreReloaded() throws Exception {
+        Path file = dir.resolve("index.html");
+        Files.writeString(file, "v1");
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1024, 1024)) {
+            assertEquals("v1", new String(bytes(cache.get("/index.html").getBody())));
+            Files.writeString(file, "v2");
+
+            String content = null;
+            for (int i = 0; i < 100 && !"v2".equals(content); i++) {
+                Thread.sleep(50);
+                content = new String(bytes(cache.get("/index.html").getBody()));
+            }
+            assertEquals("v2", content);
+
+            Files.delete(file);
+            StaticFileCache.Entry entry = cache.get("/index.html");
+            for (int i = 0; i < 100 && entry != null; i++) {
+                Thread.sleep(50);
+                entry = cache.get("/index.html");
+            }
+            assertNull(entry);
+        }
+    }
+
+    @Test
+    public void testConditionalRequests() throws IOException {
+        Files.writeString(dir.resolve("app.js"), "console.log(1);");
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1024, 1024)) {
+            Response full = serve(cache, Map.of());
+            assertEquals(200, full.getStatusCode());
+            String etag = full.getHeader("etag");
+            String lastModified = full.getHeader("Last-Modified");
+            assertNotNull(etag);
+            assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+            assertEquals(cache.get("/app.js").getLastModified(), HttpDate.parse(lastModified));
+            assertNotNull(full.getHeader("Cache-Control"));
+
+            Response notModified = serve(cache, Map.of("If-None-Match", "\"other\", W/" + etag));
+            assertEquals(304, notModified.getStatusCode());
+            assertEquals(etag, notModified.getHeader("ETag"));
+            String head = StandardCharsets.US_ASCII.decode(
+                    ResponseWriter.encodeHead(notModified, true, ByteBuffer.allocate(64))).toString();
+            assertTrue(head.startsWith("HTTP/1.1 304 Not Modified\r\n"));
+            assertTrue(head.contains("ETag: " + etag + "\r\n"));
+            assertFalse(head.contains("Content-Length"));
+
+            assertEquals(200, serve(cache, Map.of("If-None-Match", "\"other\"")).getStatusCode());
+            assertEquals(304, serve(cache, Map.of("If-Modified-Since", lastModified)).getStatusCode());
+            assertEquals(200, serve(cache, Map.of("If-Modified-Since", "Thu, 01 Jan 1970 00:00:00 GMT")).getStatusCode());
+            // If-None-Match tem prioridade sobre If-Modified-Since
+            assertEquals(200, serve(cache, Map.of("If-None-Match", "\"other\"",
+                    "If-Modified-Since", lastModified)).getStatusCode());
+        }
+    }
+
+    @Test
+    public void testUncachedFilesAreNotHashedOrCompressed() throws IOException {
+        Path file = dir.resolve("big.js");
+        Files.writeString(file, "console.log(1);\n".repeat(256));
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1024, 1024)) {
+            StaticFileCache.Entry entry = cache.get("/big.js");
+            // Maior que o cache: a ETag vem do tamanho e da data, sem ler o conteúdo
+            assertEquals("\"" + Long.toHexString(4096) + "-" + Long.toHexString(lastModified) + "\"", entry.getEtag());
+            assertNull(cache.getGzip(entry));
+            assertEquals(0, cache.size());
+            assertEquals(entry.getEtag(), cache.get("/big.js").getEtag());
+        }
+    }
+
+    @Test
+    public void testFilesOverTwoGigabytes() throws IOException {
+        // Arquivo esparso: ocupa só as páginas escritas no disco
+        long length = 5L << 30;
+        Path file = dir.resolve("disk.img");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length);
+            raf.seek(Integer.MAX_VALUE - 2);
+            raf.write("cross".getBytes(StandardCharsets.US_ASCII));
+            raf.seek(length - 3);
+            raf.write("end".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        try (StaticFileCache cache = new StaticFileCache(dir.toString(), 1024, 1024)) {
+            StaticFileCache.Entry entry = cache.get("/disk.img");
+            assertEquals(length, entry.getLength());
+            assertEquals(3, entry.getBodyParts().length);
+
+            Response full = new Response();
+            StaticFileHandler.serveStaticFile(cache, new Request("GET", "/disk.img", Map.of(), ""), full);
+            assertEquals(200, full.getStatusCode());
+            assertEquals(length, full.getBodyLength());
+
+            // Intervalos no fim do arquivo e sobre o limite entre duas janelas
+            assertEquals("end", range(cache, "bytes=-3"));
+            assertEquals("cross", range(cache, "bytes=" + (Integer.MAX_VALUE - 2) + "-" + (Integer.MAX_VALUE + 2L)));
+        }
+    }
+
+    private static String range(StaticFileCache cache, String range) throws IOException {
+        Response response = new Response();
+        StaticFileHandler.serveStaticFile(cache, new Request("GET", "/disk.img", Map.of("Range", range), ""), response);
+        assertEquals(206, response.getStatusCode());
+        return new String(response.getBody(), StandardCharsets.US_ASCII);
+    }
+
+    private static Response serve(StaticFileCache cache, Map<String, String> headers) throws IOException {
+        Response response = new Response();
+        StaticFileHandler.serveStaticFile(cache, new Request("GET", "/app.js", headers, ""), response);
+        return response;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,160 @@
+import com.kheven.handler.HttpHandler;
+import com.kheven.http.ChunkedOutputStream;
+import com.kheven.http.EventStream;
+import com.kheven.http.Router;
+import com.kheven.nio.NioEngine;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamingResponseTest {
+    private static final int EXPORT_SIZE = 4 * 1024 * 1024;
+
+    @Test
+    public void testChunkedEncoding() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ChunkedOutputStream out = new ChunkedOutputStream(Channels.newChannel(bytes), 4);
+        out.write("hello world".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        out.write('!');
+        out.close();
+        assertEquals("4\r\nhell\r\n4\r\no wo\r\n3\r\nrld\r\n1\r\n!\r\n0\r\n\r\n",
+                bytes.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testEventStreamFormatAndHeartbeat() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (EventStream events = new EventStream(bytes, Duration.ofMillis(20))) {
+            events.send("tick", "1\n2");
+            Thread.sleep(200);
+        }
+        String text = bytes.toString(StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("event: tick\ndata: 1\ndata: 2\n\n"));
+        assertTrue(text.contains(":\n\n"));
+    }
+
+    @Test
+    public void testNioEngineStreamsLargeBodyAndEvents() throws Exception {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        NioEngine engine = new NioEngine(0, router(), executor, 1);
+        engine.start();
+        try {
+            assertStreams(engine.getPort());
+        } finally {
+            engine.close();
+            engine.awaitTermination();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBlockingEngineStreamsLargeBodyAndEvents() throws Exception {
+        Router router = router();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(0))) {
+            Thread acceptor = Thread.ofVirtual().start(() -> {
+                try {
+                    while (true) {
+                        SocketChannel client = server.accept();
+                        Thread.ofVirtual().start(() -> {
+                            try {
+                                new HttpHandler(client.socket(), router).handle();
+                            } catch (IOException ignored) {
+                            }
+                        });
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+            assertStreams(server.socket().getLocalPort());
+            acceptor.interrupt();
+        }
+    }
+
+    private static Router router() {
+        Router router = new Router();
+        router.addRoute("GET", "/export", (req, res) -> res.setStreamingBody(out -> {
+            byte[] row = new byte[1000];
+            Arrays.fill(row, (byte) 'x');
+            for (int written = 0; written < EXPORT_SIZE; written += row.length) {
+                out.write(row, 0, Math.min(row.length, EXPORT_SIZE - written));
+            }
+        }), false);
+        router.addRoute("GET", "/events", (req, res) -> res.setEventStream(events -> {
+            for (int i = 1; i <= 3; i++) {
+                events.send("tick", String.valueOf(i));
+            }
+        }), false);
+        return router;
+    }
+
+    /**
+     * Faz as duas requisições de streaming na mesma conexão, o que também
+     * verifica que o fim de cada corpo foi marcado corretamente.
+     */
+    private static void assertStreams(int port) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(10000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+
+            out.write("GET /export HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String head = HttpTestClient.readHead(in);
+            assertTrue(head.contains("Transfer-Encoding: chunked"));
+            assertFalse(head.contains("Content-Length"));
+            byte[] body = readChunkedBody(in);
+            assertEquals(EXPORT_SIZE, body.length);
+
+            out.write("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            head = HttpTestClient.readHead(in);
+            assertTrue(head.contains("Content-Type: text/event-stream"));
+            assertEquals("event: tick\ndata: 1\n\nevent: tick\ndata: 2\n\nevent: tick\ndata: 3\n\n",
+                    new String(readChunkedBody(in), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] readChunkedBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            int size = Integer.parseInt(sizeLine, 16);
+            if (size == 0) {
+                assertEquals("", readLine(in));
+                return body.toByteArray();
+            }
+            body.write(in.readNBytes(size));
+            assertEquals("", readLine(in));
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new IOException("Connection closed in the middle of a chunk");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,205 @@
+import com.kheven.handler.HttpHandler;
+import com.kheven.handler.WebSocketHandler;
+import com.kheven.http.Router;
+import com.kheven.nio.NioEngine;
+import com.kheven.websocket.WebSocket;
+import com.kheven.websocket.WebSocketGroup;
+import com.kheven.websocket.WebSocketHandshake;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WebSocketTest {
+    @Test
+    public void testAcceptKey() {
+        // Exemplo da RFC 6455, seção 1.3
+        assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketHandshake.acceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+    }
+
+    @Test
+    public void testBlockingEngine() throws Exception {
+        BlockingQueue<String> closes = new LinkedBlockingQueue<>();
+        Router router = router(closes);
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress(0))) {
+            Thread acceptor = Thread.ofVirtual().start(() -> {
+                try {
+                    while (true) {
+                        SocketChannel client = server.accept();
+                        Thread.ofVirtual().start(() -> {
+                            try {
+                                new HttpHandler(client.socket(), router).handle();
+                            } catch (IOException ignored) {
+                            }
+                        });
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+            assertWebSockets(server.socket().getLocalPort(), closes);
+            acceptor.interrupt();
+        }
+    }
+
+    @Test
+    public void testNioEngine() throws Exception {
+        BlockingQueue<String> closes = new LinkedBlockingQueue<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        NioEngine engine = new NioEngine(0, router(closes), executor, 2);
+        engine.start();
+        try {
+            assertWebSockets(engine.getPort(), closes);
+        } finally {
+            engine.close();
+            engine.awaitTermination();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Router router(BlockingQueue<String> closes) {
+        Router router = new Router();
+        router.addWebSocket("/echo", new WebSocketHandler() {
+            @Override
+            public void onText(WebSocket socket, String text) throws IOException {
+                socket.sendText(text);
+            }
+
+            @Override
+            public void onBinary(WebSocket socket, byte[] data) throws IOException {
+                socket.sendBinary(data);
+            }
+
+            @Override
+            public void onClose(WebSocket socket, int code, String reason) {
+                closes.add(code + " " + reason);
+            }
+        });
+        WebSocketGroup group = new WebSocketGroup();
+        router.addWebSocket("/chat/{room}", new WebSocketHandler() {
+            @Override
+            public void onOpen(WebSocket socket) throws IOException {
+                group.add(socket);
+                socket.sendText("joined " + socket.getRequest().getPathParam("room"));
+            }
+
+            @Override
+            public void onText(WebSocket socket, String text) {
+                group.broadcast(text);
+            }
+        });
+        return router;
+    }
+
+    private static void assertWebSockets(int port, BlockingQueue<String> closes) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        String base = "ws://localhost:" + port;
+
+        // Eco de texto, texto fragmentado, binário e ping
+        Client echo = new Client();
+        java.net.http.WebSocket socket = client.newWebSocketBuilder().buildAsync(URI.create(base + "/echo"), echo)
+                .get(5, TimeUnit.SECONDS);
+        socket.sendText("hello", true).join();
+        assertEquals("hello", echo.next());
+        socket.sendText("frag", false).join();
+        socket.sendText("mented", true).join();
+        assertEquals("fragmented", echo.next());
+        socket.sendBinary(ByteBuffer.wrap(new byte[]{1, 2, 3}), true).join();
+        assertEquals("binary 3", echo.next());
+        socket.sendPing(ByteBuffer.wrap("p".getBytes(StandardCharsets.US_ASCII))).join();
+        assertEquals("pong p", echo.next());
+        String big = "z".repeat(100_000);
+        socket.sendText(big, true).join();
+        assertEquals(big, echo.next());
+        socket.sendClose(1000, "bye").join();
+        assertEquals("close 1000", echo.next());
+        assertEquals("1000 bye", closes.poll(5, TimeUnit.SECONDS));
+
+        // Sem o handshake, a rota responde 426
+        HttpResponse<String> plain = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/echo"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(426, plain.statusCode());
+
+        // Uma mensagem enviada a todos os inscritos
+        List<Client> members = new ArrayList<>();
+        List<java.net.http.WebSocket> sockets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Client member = new Client();
+            sockets.add(client.newWebSocketBuilder().buildAsync(URI.create(base + "/chat/lobby"), member)
+                    .get(5, TimeUnit.SECONDS));
+            assertEquals("joined lobby", member.next());
+            members.add(member);
+        }
+        sockets.get(0).sendText("hi all", true).join();
+        for (Client member : members) {
+            assertEquals("hi all", member.next());
+        }
+        for (java.net.http.WebSocket member : sockets) {
+            member.sendClose(1000, "").join();
+        }
+    }
+
+    /**
+     * Cliente que registra as mensagens recebidas em uma fila.
+     */
+    private static final class Client implements java.net.http.WebSocket.Listener {
+        private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        private final StringBuilder text = new StringBuilder();
+
+        String next() throws InterruptedException {
+            String message = received.poll(5, TimeUnit.SECONDS);
+            if (message == null) {
+                throw new AssertionError("No message received");
+            }
+            return message;
+        }
+
+        @Override
+        public CompletionStage<?> onText(java.net.http.WebSocket webSocket, CharSequence data, boolean last) {
+            text.append(data);
+            if (last) {
+                received.add(text.toString());
+                text.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(java.net.http.WebSocket webSocket, ByteBuffer data, boolean last) {
+            received.add("binary " + data.remaining());
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onPong(java.net.http.WebSocket webSocket, ByteBuffer message) {
+            received.add("pong " + StandardCharsets.US_ASCII.decode(message));
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(java.net.http.WebSocket webSocket, int statusCode, String reason) {
+            received.add("close " + statusCode);
+            return null;
+        }
+    }
+}